@@ -0,0 +1,133 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.model.Employee;
+import com.gestionpresence.model.Presence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analyse des présences et calcul des déductions, hors base de données.
+ * Chaque opération traite le mois d'un employé du jeu de données, à tour de rôle.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AnalysePresenceBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int employes;
+
+    @Param({"20", "60"})
+    private int pointagesParMois;
+
+    private CalculSalaireService service;
+    private CalendrierService calendrier;
+    private List<List<Presence>> presences;
+    private List<PointagesMensuels> pointages;
+    private List<CalculSalaireService.AnalysePresence> analyses;
+    private double[] salaires;
+    private LocalDate debut;
+    private LocalDate fin;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        service = new CalculSalaireService();
+        ReflectionTestUtils.setField(service, "deductionParJourAbsence", 200.0);
+        ReflectionTestUtils.setField(service, "deductionParMinuteRetard", 2.0);
+        ReflectionTestUtils.setField(service, "heureDebutTravail", LocalTime.of(9, 0));
+        ReflectionTestUtils.setField(service, "heureFinTravail", LocalTime.of(17, 0));
+
+        calendrier = new CalendrierService();
+        ReflectionTestUtils.setField(calendrier, "feriesFixes", "01-01,05-01,05-08,07-14,08-15,11-01,11-11,12-25");
+        ReflectionTestUtils.setField(calendrier, "feriesPaques", "1,39,50");
+        ReflectionTestUtils.setField(calendrier, "feriesExceptionnels", "");
+        ReflectionTestUtils.setField(calendrier, "anneesPrecalculees", 2);
+        calendrier.initialiser();
+        ReflectionTestUtils.setField(service, "calendrierService", calendrier);
+
+        debut = JeuDeDonnees.MOIS;
+        fin = debut.withDayOfMonth(debut.lengthOfMonth());
+
+        Random random = new Random(42);
+        presences = new ArrayList<>(employes);
+        pointages = new ArrayList<>(employes);
+        analyses = new ArrayList<>(employes);
+        salaires = new double[employes];
+        for (int i = 0; i < employes; i++) {
+            Employee employee = JeuDeDonnees.employee(i);
+            List<Presence> mois = JeuDeDonnees.presences(employee, pointagesParMois, random);
+            presences.add(mois);
+            pointages.add(PointagesMensuels.depuis(mois));
+            analyses.add(service.analyserPresences(pointages.get(i), debut, fin));
+            salaires[i] = employee.getSalaireBase();
+        }
+    }
+
+    private int suivant() {
+        int courant = index;
+        index = courant + 1 == employes ? 0 : courant + 1;
+        return courant;
+    }
+
+    /**
+     * Noyau seul, sur des pointages déjà convertis (chemin de la campagne de paie)
+     */
+    @Benchmark
+    public Object analyserPointages() {
+        return service.analyserPresences(pointages.get(suivant()), debut, fin);
+    }
+
+    /**
+     * Conversion depuis les entités puis analyse (chemin du calcul unitaire)
+     */
+    @Benchmark
+    public Object analyserDepuisEntites() {
+        return service.analyserPresences(PointagesMensuels.depuis(presences.get(suivant())), debut, fin);
+    }
+
+    @Benchmark
+    public Object calculerDeductions() {
+        int i = suivant();
+        return service.calculerDeductions(analyses.get(i), salaires[i]);
+    }
+
+    /**
+     * Jours ouvrables du mois par masques précalculés
+     */
+    @Benchmark
+    public int joursOuvrables() {
+        return calendrier.joursOuvrables(debut, fin);
+    }
+
+    /**
+     * Référence : parcours jour par jour du mois (calcul d'avant le calendrier)
+     */
+    @Benchmark
+    public long joursOuvrablesJourParJour() {
+        return debut.datesUntil(fin.plusDays(1))
+                .filter(date -> !calendrier.estWeekend(date) && !calendrier.estJourFerie(date))
+                .count();
+    }
+}
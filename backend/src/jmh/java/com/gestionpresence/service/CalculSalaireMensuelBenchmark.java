@@ -0,0 +1,115 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.GestionPresenceApplication;
+import com.gestionpresence.model.Employee;
+import com.gestionpresence.model.Presence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chemin complet de calcul des salaires (JPA + H2 en mémoire, profil "benchmark") :
+ * calcul unitaire d'un employé et campagne mensuelle complète.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CalculSalaireMensuelBenchmark {
+
+    @Param({"1000", "10000"})
+    private int employes;
+
+    @Param({"20", "60"})
+    private int pointagesParMois;
+
+    private ConfigurableApplicationContext contexte;
+    private CalculSalaireService calculSalaireService;
+    private CampagnePaieService campagnePaieService;
+    private JdbcTemplate jdbcTemplate;
+    private final AtomicInteger index = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        contexte = new SpringApplicationBuilder(GestionPresenceApplication.class)
+                .profiles("benchmark")
+                .web(WebApplicationType.NONE)
+                .run();
+        calculSalaireService = contexte.getBean(CalculSalaireService.class);
+        campagnePaieService = contexte.getBean(CampagnePaieService.class);
+        jdbcTemplate = contexte.getBean(JdbcTemplate.class);
+        alimenter(jdbcTemplate);
+    }
+
+    /**
+     * Bulletins de l'itération précédente supprimés : la campagne ignore les employés déjà calculés
+     */
+    @Setup(Level.Iteration)
+    public void viderBulletins() {
+        jdbcTemplate.update("DELETE FROM bulletins_salaire");
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        contexte.close();
+    }
+
+    private void alimenter(JdbcTemplate jdbcTemplate) {
+        Random random = new Random(42);
+        List<Object[]> lignesEmployes = new ArrayList<>(employes);
+        List<Object[]> lignesPresences = new ArrayList<>();
+        for (int i = 0; i < employes; i++) {
+            Employee employee = JeuDeDonnees.employee(i);
+            lignesEmployes.add(new Object[]{employee.getId(), employee.getMatricule(), employee.getNom(),
+                    employee.getPrenom(), employee.getEmail(), employee.getPoste(), employee.getSalaireBase(),
+                    Date.valueOf(JeuDeDonnees.MOIS)});
+            for (Presence presence : JeuDeDonnees.presences(employee, pointagesParMois, random)) {
+                lignesPresences.add(new Object[]{employee.getId(),
+                        Timestamp.valueOf(presence.getDateHeurePointage()), presence.getTypePointage()});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO employees (id, matricule, nom, prenom, email, poste, salaire_base, " +
+                "date_embauche) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", lignesEmployes);
+        jdbcTemplate.batchUpdate("INSERT INTO presences (employee_id, date_heure_pointage, type_pointage, retard, " +
+                "minutes_retard) VALUES (?, ?, ?, FALSE, 0)", lignesPresences);
+    }
+
+    @Benchmark
+    public Object calculerSalaireMensuel() {
+        long employeeId = index.getAndIncrement() % employes + 1;
+        return calculSalaireService.calculerSalaireMensuel(employeeId, JeuDeDonnees.MOIS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public Object campagneMensuelle() {
+        return campagnePaieService.calculerTousLesSalaires(JeuDeDonnees.MOIS);
+    }
+}
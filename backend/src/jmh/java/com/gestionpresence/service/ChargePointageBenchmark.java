@@ -0,0 +1,121 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.GestionPresenceApplication;
+import com.gestionpresence.model.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Date;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test de charge du pointage HTTP (POST /api/presences/pointage) pendant un changement
+ * d'équipe : plus de bornes simultanées que de threads Tomcat. Le mode SampleTime donne
+ * la distribution des latences (p0.99) pour chaque mode d'exécution.
+ * Le mode VIRTUEL nécessite un JRE 21 (sinon il retombe sur PLATEFORME, voir le journal).
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(256)
+@State(Scope.Benchmark)
+public class ChargePointageBenchmark {
+
+    private static final int EMPLOYES = 2000;
+
+    @Param({"PLATEFORME", "VIRTUEL"})
+    private String mode;
+
+    // Threads Tomcat du mode PLATEFORME, inférieur au nombre de bornes (@Threads)
+    @Param({"64"})
+    private int threadsTomcat;
+
+    private ConfigurableApplicationContext contexte;
+    private HttpClient client;
+    private String url;
+    private final AtomicInteger index = new AtomicInteger();
+    private final AtomicInteger refus = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        contexte = new SpringApplicationBuilder(GestionPresenceApplication.class)
+                .profiles("benchmark")
+                .run("--server.port=0",
+                        "--server.tomcat.threads.max=" + threadsTomcat,
+                        "--app.execution.mode=" + mode,
+                        "--app.pointage.ingestion.active=false");
+        alimenter(contexte.getBean(JdbcTemplate.class));
+        contexte.getBean(IndexMatricules.class).charger();
+
+        int port = ((WebServerApplicationContext) contexte).getWebServer().getPort();
+        url = "http://localhost:" + port + "/api/presences/pointage";
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        if (refus.get() > 0) {
+            System.out.println("Pointages refusés (" + mode + ") : " + refus.get());
+        }
+        contexte.close();
+    }
+
+    private void alimenter(JdbcTemplate jdbcTemplate) {
+        List<Object[]> lignes = new ArrayList<>(EMPLOYES);
+        for (int i = 0; i < EMPLOYES; i++) {
+            Employee employee = JeuDeDonnees.employee(i);
+            lignes.add(new Object[]{employee.getId(), employee.getMatricule(), employee.getNom(),
+                    employee.getPrenom(), employee.getEmail(), employee.getPoste(), employee.getSalaireBase(),
+                    Date.valueOf(JeuDeDonnees.MOIS)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO employees (id, matricule, nom, prenom, email, poste, salaire_base, " +
+                "date_embauche) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", lignes);
+    }
+
+    @Benchmark
+    public int pointer() throws Exception {
+        int i = index.getAndIncrement();
+        String matricule = JeuDeDonnees.employee(i % EMPLOYES).getMatricule();
+        String type = (i / EMPLOYES) % 2 == 0 ? "ENTREE" : "SORTIE";
+        HttpRequest requete = HttpRequest.newBuilder(
+                        URI.create(url + "?matricule=" + matricule + "&typePointage=" + type))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        int statut = client.send(requete, HttpResponse.BodyHandlers.discarding()).statusCode();
+        // Compté plutôt que levé : une erreur isolée ne doit pas interrompre la mesure
+        if (statut != 200) {
+            refus.incrementAndGet();
+        }
+        return statut;
+    }
+}
@@ -0,0 +1,115 @@
+package com.gestionpresence.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gestionpresence.dto.BulletinSalaireDTO;
+import com.gestionpresence.dto.EmployeeDTO;
+import com.gestionpresence.dto.PresenceDTO;
+import com.gestionpresence.model.BulletinSalaire;
+import com.gestionpresence.model.Employee;
+import com.gestionpresence.model.Presence;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversions entité -> DTO des trois services, sur le jeu de données synthétique
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ConversionDTOBenchmark {
+
+    @Param({"1000", "10000"})
+    private int employes;
+
+    private EmployeeService employeeService;
+    private PresenceService presenceService;
+    private CalculSalaireService calculSalaireService;
+
+    private List<Employee> listeEmployes;
+    private List<Presence> listePresences;
+    private List<BulletinSalaire> listeBulletins;
+    private ObjectMapper objectMapper;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void preparer() throws Exception {
+        employeeService = new EmployeeService();
+        presenceService = new PresenceService();
+        calculSalaireService = new CalculSalaireService();
+        QRCodeService qrCodeService = new QRCodeService();
+        ReflectionTestUtils.setField(qrCodeService, "meterRegistry", new SimpleMeterRegistry());
+
+        Random random = new Random(42);
+        listeEmployes = new ArrayList<>(employes);
+        listePresences = new ArrayList<>(employes);
+        listeBulletins = new ArrayList<>(employes);
+        for (int i = 0; i < employes; i++) {
+            Employee employee = JeuDeDonnees.employee(i);
+            employee.setQrCodeEtag(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(qrCodeService.generateQRCode(employee.getMatricule(), 200, 200))));
+            listeEmployes.add(employee);
+            listePresences.add(JeuDeDonnees.presences(employee, 2, random).get(0));
+
+            BulletinSalaire bulletin = new BulletinSalaire(employee, JeuDeDonnees.MOIS,
+                    JeuDeDonnees.MOIS.withDayOfMonth(JeuDeDonnees.MOIS.lengthOfMonth()));
+            bulletin.setSalaireBase(employee.getSalaireBase());
+            bulletin.setSalaireNet(employee.getSalaireBase() - 150);
+            listeBulletins.add(bulletin);
+        }
+
+        objectMapper = new ObjectMapper().findAndRegisterModules();
+        System.out.println("Taille JSON de GET /api/employees pour " + employes + " employés: "
+                + listeEmployesJson().length + " octets");
+    }
+
+    private int suivant() {
+        int courant = index;
+        index = courant + 1 == employes ? 0 : courant + 1;
+        return courant;
+    }
+
+    @Benchmark
+    public EmployeeDTO employeeVersDTO() {
+        return employeeService.convertToDTO(listeEmployes.get(suivant()));
+    }
+
+    /**
+     * Conversion et sérialisation de la liste complète, comme GET /api/employees
+     */
+    @Benchmark
+    public byte[] listeEmployesJson() throws Exception {
+        return objectMapper.writeValueAsBytes(employeeService.convertToDTOList(listeEmployes));
+    }
+
+    @Benchmark
+    public PresenceDTO presenceVersDTO() {
+        return presenceService.convertToDTO(listePresences.get(suivant()));
+    }
+
+    @Benchmark
+    public BulletinSalaireDTO bulletinVersDTO() {
+        return calculSalaireService.convertToDTO(listeBulletins.get(suivant()));
+    }
+}
@@ -0,0 +1,86 @@
+package com.gestionpresence.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Décodage d'une photo de borne (JPEG) : badge au centre (chemin rapide par recadrage)
+ * ou dans un coin (repli sur l'image entière)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DecodageQRCodeBenchmark {
+
+    @Param({"1920x1080", "4000x3000"})
+    private String resolution;
+
+    @Param({"centre", "coin"})
+    private String position;
+
+    private QRCodeService qrCodeService;
+    private byte[] photo;
+
+    @Setup
+    public void preparer() throws Exception {
+        qrCodeService = new QRCodeService();
+        ReflectionTestUtils.setField(qrCodeService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(qrCodeService, "dimensionMax", 1280);
+        ReflectionTestUtils.setField(qrCodeService, "ratioRecadrage", 0.6);
+
+        int largeur = Integer.parseInt(resolution.split("x")[0]);
+        int hauteur = Integer.parseInt(resolution.split("x")[1]);
+        int cote = hauteur * 3 / 10;
+        BufferedImage badge = ImageIO.read(new ByteArrayInputStream(
+                qrCodeService.generateQRCode(JeuDeDonnees.employee(42).getMatricule(), cote, cote)));
+
+        BufferedImage image = new BufferedImage(largeur, hauteur, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        Random random = new Random(42);
+        g.setColor(new Color(120, 110, 100));
+        g.fillRect(0, 0, largeur, hauteur);
+        for (int i = 0; i < 300; i++) {
+            g.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            g.fillOval(random.nextInt(largeur), random.nextInt(hauteur), largeur / 50, largeur / 50);
+        }
+        if ("centre".equals(position)) {
+            g.drawImage(badge, (largeur - cote) / 2, (hauteur - cote) / 2, null);
+        } else {
+            g.drawImage(badge, largeur / 40, hauteur / 40, null);
+        }
+        g.dispose();
+
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", sortie);
+        photo = sortie.toByteArray();
+        ImageIO.setUseCache(false);
+    }
+
+    @Benchmark
+    public String decoder() throws Exception {
+        return qrCodeService.decoder(new ByteArrayInputStream(photo));
+    }
+}
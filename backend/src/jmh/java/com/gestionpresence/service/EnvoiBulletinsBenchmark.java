@@ -0,0 +1,105 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.GestionPresenceApplication;
+import com.gestionpresence.dto.RapportEnvoiBulletinsDTO;
+import com.gestionpresence.model.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Envoi en masse des bulletins du mois vers le serveur SMTP local (profil "benchmark"),
+ * sans limite de débit : rendu parallèle et connexion réutilisée
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EnvoiBulletinsBenchmark {
+
+    @Param({"1000"})
+    private int employes;
+
+    @Param({"1", "4"})
+    private int threadsRendu;
+
+    private ConfigurableApplicationContext contexte;
+    private ServeurSmtpLocal serveurSmtp;
+    private EnvoiBulletinsService envoiBulletinsService;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        serveurSmtp = new ServeurSmtpLocal(2525);
+        // Propriétés système : prioritaires sur application.yml
+        System.setProperty("app.mail.envoi-masse.debit-par-seconde", "0");
+        System.setProperty("app.executeurs.email.min", String.valueOf(threadsRendu));
+        System.setProperty("app.executeurs.email.max", String.valueOf(threadsRendu));
+        contexte = new SpringApplicationBuilder(GestionPresenceApplication.class)
+                .profiles("benchmark")
+                .web(WebApplicationType.NONE)
+                .run();
+        envoiBulletinsService = contexte.getBean(EnvoiBulletinsService.class);
+        jdbcTemplate = contexte.getBean(JdbcTemplate.class);
+
+        List<Object[]> lignesEmployes = new ArrayList<>(employes);
+        List<Object[]> lignesBulletins = new ArrayList<>(employes);
+        for (int i = 0; i < employes; i++) {
+            Employee employee = JeuDeDonnees.employee(i);
+            lignesEmployes.add(new Object[]{employee.getId(), employee.getMatricule(), employee.getNom(),
+                    employee.getPrenom(), employee.getEmail(), employee.getPoste(), employee.getSalaireBase()});
+            lignesBulletins.add(new Object[]{employee.getId(), Date.valueOf(JeuDeDonnees.MOIS),
+                    Date.valueOf(JeuDeDonnees.MOIS.withDayOfMonth(JeuDeDonnees.MOIS.lengthOfMonth())),
+                    employee.getSalaireBase(), employee.getSalaireBase() - 150});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO employees (id, matricule, nom, prenom, email, poste, salaire_base) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)", lignesEmployes);
+        jdbcTemplate.batchUpdate("INSERT INTO bulletins_salaire (employee_id, periode_debut, periode_fin, salaire_base, " +
+                "jours_travailles, jours_absence, total_retards_minutes, heures_supplementaires, deduction_absences, " +
+                "deduction_retards, salaire_net, envoye, tentatives_envoi) " +
+                "VALUES (?, ?, ?, ?, 20, 1, 10, 0, 130, 20, ?, FALSE, 0)", lignesBulletins);
+    }
+
+    @Setup(Level.Iteration)
+    public void reinitialiser() {
+        jdbcTemplate.update("UPDATE bulletins_salaire SET envoye = FALSE, date_envoi = NULL, tentatives_envoi = 0");
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() throws Exception {
+        System.out.println("Messages reçus: " + serveurSmtp.getMessages() + ", connexions: " + serveurSmtp.getConnexions());
+        contexte.close();
+        serveurSmtp.close();
+    }
+
+    @Benchmark
+    public RapportEnvoiBulletinsDTO envoyerTous() throws InterruptedException {
+        envoiBulletinsService.lancer();
+        RapportEnvoiBulletinsDTO rapport;
+        while (!(rapport = envoiBulletinsService.getProgression()).isTerminee()) {
+            Thread.sleep(5);
+        }
+        return rapport;
+    }
+}
@@ -0,0 +1,56 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.model.Employee;
+import com.gestionpresence.model.Presence;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Génération déterministe d'employés et de pointages synthétiques pour les benchmarks
+ */
+final class JeuDeDonnees {
+
+    /** Mois de référence, dans le passé pour passer la validation de période */
+    static final LocalDate MOIS = LocalDate.of(2025, 3, 1);
+
+    private JeuDeDonnees() {
+    }
+
+    static Employee employee(int index) {
+        Employee employee = new Employee(String.format("EMP%06d", index), "Nom" + index, "Prenom" + index,
+                "employe" + index + "@example.com", "Poste " + (index % 20), 3000 + (index % 50) * 100);
+        employee.setId((long) index + 1);
+        return employee;
+    }
+
+    /**
+     * Pointages ENTREE/SORTIE d'un employé sur les jours ouvrés du mois, triés par date
+     */
+    static List<Presence> presences(Employee employee, int pointagesParMois, Random random) {
+        List<LocalDate> joursOuvres = new ArrayList<>();
+        for (LocalDate jour = MOIS; jour.getMonth() == MOIS.getMonth(); jour = jour.plusDays(1)) {
+            if (jour.getDayOfWeek() != DayOfWeek.SATURDAY && jour.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                joursOuvres.add(jour);
+            }
+        }
+
+        List<Presence> presences = new ArrayList<>(pointagesParMois);
+        int paires = pointagesParMois / 2;
+        for (int i = 0; i < paires; i++) {
+            LocalDate jour = joursOuvres.get(i % joursOuvres.size());
+            // Au-delà d'une paire par jour ouvré, les pointages supplémentaires tombent l'après-midi
+            int decalage = (i / joursOuvres.size()) * 120;
+            LocalDateTime entree = jour.atTime(8, 30).plusMinutes(random.nextInt(60) + decalage);
+            LocalDateTime sortie = jour.atTime(16, 30).plusMinutes(random.nextInt(120) + decalage);
+            presences.add(new Presence(employee, entree, "ENTREE"));
+            presences.add(new Presence(employee, sortie, "SORTIE"));
+        }
+        presences.sort((a, b) -> a.getDateHeurePointage().compareTo(b.getDateHeurePointage()));
+        return presences;
+    }
+}
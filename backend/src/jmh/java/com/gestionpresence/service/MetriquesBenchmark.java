@@ -0,0 +1,70 @@
+package com.gestionpresence.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût d'une mesure sur les chemins chauds (presence.pointage, salaire.calcul) :
+ * timer recherché dans le registre à chaque appel (Timer.builder().register()), comme dans
+ * les services, contre un timer déjà résolu. Registre Prometheus avec histogramme.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MetriquesBenchmark {
+
+    private PrometheusMeterRegistry registre;
+    private Timer timer;
+
+    @Setup
+    public void preparer() {
+        registre = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        timer = construire("succes");
+    }
+
+    private Timer construire(String resultat) {
+        return Timer.builder("presence.pointage")
+                .tag("type", "ENTREE")
+                .tag("resultat", resultat)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(5))
+                .register(registre);
+    }
+
+    @Benchmark
+    public long horloge() {
+        return System.nanoTime() - System.nanoTime();
+    }
+
+    @Benchmark
+    public void timerResolu() {
+        long debut = System.nanoTime();
+        timer.record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    public void timerParAppel() {
+        long debut = System.nanoTime();
+        construire("succes").record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+    }
+}
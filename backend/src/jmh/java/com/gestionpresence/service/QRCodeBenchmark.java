@@ -0,0 +1,65 @@
+package com.gestionpresence.service;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendu d'un QR code : chaîne historique (BufferedImage + ImageIO) contre
+ * l'encodeur PNG direct de QRCodeService (sans cache)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class QRCodeBenchmark {
+
+    @Param({"200", "300"})
+    private int taille;
+
+    private QRCodeService qrCodeService;
+    private int index;
+
+    @Setup
+    public void preparer() {
+        qrCodeService = new QRCodeService();
+        ReflectionTestUtils.setField(qrCodeService, "meterRegistry", new SimpleMeterRegistry());
+    }
+
+    private String matricule() {
+        index = (index + 1) % 10000;
+        return JeuDeDonnees.employee(index).getMatricule();
+    }
+
+    @Benchmark
+    public byte[] renduHistorique() throws Exception {
+        BitMatrix bitMatrix = new QRCodeWriter().encode(matricule(), BarcodeFormat.QR_CODE, taille, taille);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] renduDirect() throws Exception {
+        return qrCodeService.generateQRCode(matricule(), taille, taille);
+    }
+}
@@ -0,0 +1,109 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.model.BulletinSalaire;
+import com.gestionpresence.model.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.extras.java8time.dialect.Java8TimeDialect;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendu d'un bulletin : template Thymeleaf complet, template précompilé, pièce jointe PDF
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RenduBulletinBenchmark {
+
+    private static final int BULLETINS = 1000;
+
+    private RenduBulletin renduBulletin;
+    private List<BulletinSalaire> bulletins;
+    private LocalDateTime generation;
+    private int index;
+
+    @Setup
+    public void preparer() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        templateEngine.addDialect(new Java8TimeDialect());
+
+        renduBulletin = new RenduBulletin();
+        ReflectionTestUtils.setField(renduBulletin, "templateEngine", templateEngine);
+        renduBulletin.compiler();
+        if (!renduBulletin.isCompile()) {
+            throw new IllegalStateException("Template bulletin-salaire non compilé");
+        }
+
+        bulletins = new ArrayList<>(BULLETINS);
+        for (int i = 0; i < BULLETINS; i++) {
+            Employee employee = JeuDeDonnees.employee(i);
+            BulletinSalaire bulletin = new BulletinSalaire(employee, JeuDeDonnees.MOIS,
+                    JeuDeDonnees.MOIS.withDayOfMonth(JeuDeDonnees.MOIS.lengthOfMonth()));
+            bulletin.setSalaireBase(employee.getSalaireBase());
+            bulletin.setJoursTravailles(20 - i % 3);
+            bulletin.setJoursAbsence(i % 3);
+            bulletin.setTotalRetardsMinutes(i % 45);
+            bulletin.setDeductionAbsences((i % 3) * 200.0);
+            bulletin.setDeductionRetards((i % 45) * 2.0);
+            bulletin.setSalaireNet(employee.getSalaireBase() - bulletin.getDeductionAbsences() - bulletin.getDeductionRetards());
+            bulletins.add(bulletin);
+        }
+        generation = LocalDateTime.of(2025, 4, 1, 8, 0);
+        for (BulletinSalaire bulletin : bulletins) {
+            if (!renduBulletin.rendre(bulletin.getEmployee(), bulletin, generation)
+                    .equals(renduBulletin.rendreAvecThymeleaf(bulletin, bulletin.getEmployee(), generation))) {
+                throw new IllegalStateException("Rendus différents pour " + bulletin.getEmployee().getMatricule());
+            }
+        }
+    }
+
+    private BulletinSalaire suivant() {
+        BulletinSalaire bulletin = bulletins.get(index);
+        index = index + 1 == BULLETINS ? 0 : index + 1;
+        return bulletin;
+    }
+
+    @Benchmark
+    public String thymeleaf() {
+        BulletinSalaire bulletin = suivant();
+        return renduBulletin.rendreAvecThymeleaf(bulletin, bulletin.getEmployee(), generation);
+    }
+
+    @Benchmark
+    public String precompile() {
+        BulletinSalaire bulletin = suivant();
+        return renduBulletin.rendre(bulletin.getEmployee(), bulletin, generation);
+    }
+
+    @Benchmark
+    public byte[] pdf() {
+        BulletinSalaire bulletin = suivant();
+        return renduBulletin.rendrePdf(bulletin.getEmployee(), bulletin);
+    }
+}
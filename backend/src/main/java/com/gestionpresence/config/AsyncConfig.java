@@ -1,9 +1,10 @@
 package com.gestionpresence.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
 
@@ -11,14 +12,21 @@ import java.util.concurrent.Executor;
 @EnableAsync
 public class AsyncConfig implements AsyncConfigurer {
 
+    @Autowired
+    private ExecutionConfig executionConfig;
+
+    @Autowired
+    private ExecuteursConfig executeursConfig;
+
     @Override
     public Executor getAsyncExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(5);
-        executor.setMaxPoolSize(10);
-        executor.setQueueCapacity(25);
-        executor.setThreadNamePrefix("GestionPresence-Async-");
-        executor.initialize();
-        return executor;
+        if (executionConfig.isVirtuel()) {
+            // Un thread virtuel par tâche, sans file ni rejet
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor();
+            executor.setThreadFactory(ThreadsVirtuels.fabrique("GestionPresence-Async-"));
+            return executor;
+        }
+        // Pool borné et instrumenté (app.executeurs.async), distinct des exécuteurs par charge
+        return executeursConfig.get(ExecuteursConfig.Charge.ASYNC);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,33 @@
+package com.gestionpresence.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches nommés ayant leur propre politique d'éviction; les autres caches
+ * suivent spring.cache.caffeine.spec
+ */
+@Configuration
+public class CacheConfig {
+
+    public static final String CACHE_QRCODES = "qrcodes";
+    public static final String CACHE_BULLETINS = "bulletins";
+
+    @Value("${app.qrcode.cache.spec:maximumSize=10000,expireAfterAccess=12h,recordStats}")
+    private String specQrCodes;
+
+    @Value("${app.salaire.cache.spec:maximumSize=20000,expireAfterWrite=6h,recordStats}")
+    private String specBulletins;
+
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> cachesDedies() {
+        return cacheManager -> {
+            cacheManager.registerCustomCache(CACHE_QRCODES, Caffeine.from(specQrCodes).build());
+            cacheManager.registerCustomCache(CACHE_BULLETINS, Caffeine.from(specBulletins).build());
+        };
+    }
+}
@@ -0,0 +1,97 @@
+package com.gestionpresence.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Source de données bornée par un sémaphore équitable : au plus "permis" connexions
+ * empruntées à la fois, un permis étant rendu à la fermeture de la connexion.
+ * En mode threads virtuels, les requêtes ne sont plus bornées par le pool Tomcat :
+ * l'attente se fait ici, en file FIFO et pour une durée bornée, plutôt que sur le pool Hikari.
+ */
+class DataSourceLimitee extends DelegatingDataSource {
+
+    private final Semaphore permis;
+    private final long attenteMs;
+
+    DataSourceLimitee(DataSource cible, int permis, long attenteMs) {
+        super(cible);
+        this.permis = new Semaphore(permis, true);
+        this.attenteMs = attenteMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquerir();
+        return limiter(() -> super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquerir();
+        return limiter(() -> super.getConnection(username, password));
+    }
+
+    int getAttentes() {
+        return permis.getQueueLength();
+    }
+
+    private void acquerir() throws SQLException {
+        try {
+            if (!permis.tryAcquire(attenteMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "Aucune connexion disponible après " + attenteMs + " ms (" + getAttentes() + " en attente)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Attente d'une connexion interrompue", e);
+        }
+    }
+
+    /**
+     * Connexion dont la fermeture rend le permis (une seule fois)
+     */
+    private Connection limiter(Ouverture ouverture) throws SQLException {
+        Connection connexion;
+        try {
+            connexion = ouverture.ouvrir();
+        } catch (SQLException | RuntimeException e) {
+            permis.release();
+            throw e;
+        }
+        AtomicBoolean rendu = new AtomicBoolean();
+        InvocationHandler gestionnaire = (proxy, methode, arguments) -> {
+            if ("close".equals(methode.getName()) && rendu.compareAndSet(false, true)) {
+                try {
+                    return methode.invoke(connexion, arguments);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                } finally {
+                    permis.release();
+                }
+            }
+            try {
+                return methode.invoke(connexion, arguments);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, gestionnaire);
+    }
+
+    @FunctionalInterface
+    private interface Ouverture {
+        Connection ouvrir() throws SQLException;
+    }
+}
@@ -0,0 +1,181 @@
+package com.gestionpresence.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool de threads d'une charge de travail (paie, email, QR code, ingestion...) :
+ * - file bornée, politique de saturation APPELANT (la tâche s'exécute dans le thread
+ *   appelant, ce qui ralentit le producteur) ou DELESTAGE (RejectedExecutionException,
+ *   traduite en 503 par l'appelant);
+ * - taille de base ajustée par ajuster() selon l'attente moyenne observée depuis
+ *   l'ajustement précédent et l'attente prévisible des tâches en file (profondeur de la
+ *   file x durée moyenne d'exécution / threads), entre min et max threads;
+ * - métriques executeur.* étiquetées par nom d'exécuteur.
+ */
+@Slf4j
+public class ExecuteurAdaptatif extends ThreadPoolExecutor {
+
+    public enum Politique { APPELANT, DELESTAGE }
+
+    private final String nom;
+    private final int min;
+    private final int max;
+    private final Politique politique;
+    private final long attenteCibleNanos;
+    private final Timer attente;
+    private final Timer execution;
+    private final Counter rejets;
+
+    // Fenêtre d'observation entre deux ajustements
+    private final LongAdder attenteCumulee = new LongAdder();
+    private final LongAdder tachesDemarrees = new LongAdder();
+    private final LongAdder executionCumulee = new LongAdder();
+    private final LongAdder tachesTerminees = new LongAdder();
+    private volatile long executionMoyenne;
+
+    public ExecuteurAdaptatif(String nom, int min, int max, int capaciteFile, Politique politique,
+                              long attenteCibleMs, MeterRegistry meterRegistry) {
+        super(min, max, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(capaciteFile), fabrique(nom));
+        this.nom = nom;
+        this.min = min;
+        this.max = max;
+        this.politique = politique;
+        this.attenteCibleNanos = TimeUnit.MILLISECONDS.toNanos(attenteCibleMs);
+        setRejectedExecutionHandler(this::saturation);
+
+        Tags tags = Tags.of("executeur", nom);
+        attente = Timer.builder("executeur.attente")
+                .description("Temps passé par une tâche dans la file de l'exécuteur")
+                .tags(tags)
+                .register(meterRegistry);
+        execution = Timer.builder("executeur.execution")
+                .description("Durée d'exécution des tâches de l'exécuteur")
+                .tags(tags)
+                .register(meterRegistry);
+        rejets = Counter.builder("executeur.rejets")
+                .description("Tâches refusées par un exécuteur saturé")
+                .tags(tags.and("politique", politique.name().toLowerCase()))
+                .register(meterRegistry);
+        Gauge.builder("executeur.actifs", this, ThreadPoolExecutor::getActiveCount)
+                .description("Threads en cours d'exécution d'une tâche").tags(tags).register(meterRegistry);
+        Gauge.builder("executeur.file", this, e -> e.getQueue().size())
+                .description("Tâches en attente dans la file").tags(tags).register(meterRegistry);
+        Gauge.builder("executeur.taille", this, ThreadPoolExecutor::getPoolSize)
+                .description("Threads du pool").tags(tags).register(meterRegistry);
+        Gauge.builder("executeur.taille.base", this, ThreadPoolExecutor::getCorePoolSize)
+                .description("Taille de base courante, ajustée selon la charge").tags(tags).register(meterRegistry);
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    public Politique getPolitique() {
+        return politique;
+    }
+
+    @Override
+    public void execute(Runnable tache) {
+        super.execute(new TacheMesuree(tache));
+    }
+
+    /**
+     * Agrandit le pool (+50 %) quand des tâches attendent au-delà de la cible, le réduit
+     * d'un thread quand la file est vide et que l'attente est faible : montée rapide lors
+     * d'un pic (fin de mois), décrue progressive ensuite
+     */
+    public void ajuster() {
+        long demarrees = tachesDemarrees.sumThenReset();
+        long attenteMoyenne = demarrees > 0 ? attenteCumulee.sumThenReset() / demarrees : 0;
+        long terminees = tachesTerminees.sumThenReset();
+        if (terminees > 0) {
+            executionMoyenne = executionCumulee.sumThenReset() / terminees;
+        }
+        int enFile = getQueue().size();
+        int base = getCorePoolSize();
+        long attentePrevue = enFile * executionMoyenne / base;
+
+        int cible = base;
+        if (enFile > 0 && (attenteMoyenne > attenteCibleNanos || attentePrevue > attenteCibleNanos
+                || demarrees == 0)) {
+            cible = Math.min(max, base + Math.max(1, base / 2));
+        } else if (enFile == 0 && attenteMoyenne < attenteCibleNanos / 2 && getActiveCount() < base) {
+            cible = Math.max(min, base - 1);
+        }
+        if (cible != base) {
+            log.debug("Exécuteur {} : {} -> {} threads (file: {}, attente moyenne: {} ms, prévue: {} ms)",
+                    nom, base, cible, enFile, TimeUnit.NANOSECONDS.toMillis(attenteMoyenne),
+                    TimeUnit.NANOSECONDS.toMillis(attentePrevue));
+            setCorePoolSize(cible);
+        }
+    }
+
+    private void saturation(Runnable tache, ThreadPoolExecutor executeur) {
+        rejets.increment();
+        if (politique == Politique.APPELANT && !isShutdown()) {
+            // Sans passage par la file : pas d'attente à comptabiliser
+            if (tache instanceof TacheMesuree) {
+                ((TacheMesuree) tache).executer();
+            } else {
+                tache.run();
+            }
+            return;
+        }
+        throw new RejectedExecutionException("Exécuteur " + nom + " saturé (" + getQueue().size() + " tâches en file)");
+    }
+
+    private static ThreadFactory fabrique(String nom) {
+        AtomicInteger compteur = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, nom + "-" + compteur.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Mesure l'attente en file (de la soumission au démarrage) et la durée d'exécution
+     */
+    private final class TacheMesuree implements Runnable {
+        private final Runnable tache;
+        private final long soumission = System.nanoTime();
+
+        TacheMesuree(Runnable tache) {
+            this.tache = tache;
+        }
+
+        @Override
+        public void run() {
+            long attendu = System.nanoTime() - soumission;
+            attente.record(attendu, TimeUnit.NANOSECONDS);
+            attenteCumulee.add(attendu);
+            tachesDemarrees.increment();
+            executer();
+        }
+
+        void executer() {
+            long debut = System.nanoTime();
+            try {
+                tache.run();
+            } finally {
+                long duree = System.nanoTime() - debut;
+                execution.record(duree, TimeUnit.NANOSECONDS);
+                executionCumulee.add(duree);
+                tachesTerminees.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.gestionpresence.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Un exécuteur par charge de travail, pour qu'un envoi massif d'emails n'affame pas
+ * le décodage des QR codes ou les lots de paie. Chaque exécuteur est configuré par
+ * app.executeurs.&lt;charge&gt;.{min, max, file, politique, attente-cible-ms} et
+ * redimensionné toutes les app.executeurs.ajustement-ms.
+ */
+@Slf4j
+@Configuration
+public class ExecuteursConfig {
+
+    public enum Charge {
+        PAIE(1, 4, 8, ExecuteurAdaptatif.Politique.APPELANT, 500),
+        EMAIL(1, 4, 200, ExecuteurAdaptatif.Politique.APPELANT, 1000),
+        QRCODE(1, 4, 16, ExecuteurAdaptatif.Politique.DELESTAGE, 200),
+        INGESTION(1, 1, 1, ExecuteurAdaptatif.Politique.DELESTAGE, 1000),
+        DIFFUSION(1, 1, 1, ExecuteurAdaptatif.Politique.DELESTAGE, 1000),
+        ASYNC(5, 10, 25, ExecuteurAdaptatif.Politique.APPELANT, 1000);
+
+        private final int min;
+        private final int max;
+        private final int file;
+        private final ExecuteurAdaptatif.Politique politique;
+        private final long attenteCibleMs;
+
+        Charge(int min, int max, int file, ExecuteurAdaptatif.Politique politique, long attenteCibleMs) {
+            this.min = min;
+            this.max = max;
+            this.file = file;
+            this.politique = politique;
+            this.attenteCibleMs = attenteCibleMs;
+        }
+
+        String cle() {
+            return name().toLowerCase();
+        }
+    }
+
+    @Autowired
+    private Environment environnement;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Charge, ExecuteurAdaptatif> executeurs = new EnumMap<>(Charge.class);
+
+    @PostConstruct
+    public void initialiser() {
+        for (Charge charge : Charge.values()) {
+            String prefixe = "app.executeurs." + charge.cle() + ".";
+            int max = Math.max(1, environnement.getProperty(prefixe + "max", Integer.class, charge.max));
+            int min = Math.max(1, Math.min(max, environnement.getProperty(prefixe + "min", Integer.class, charge.min)));
+            int file = Math.max(1, environnement.getProperty(prefixe + "file", Integer.class, charge.file));
+            ExecuteurAdaptatif.Politique politique = environnement.getProperty(prefixe + "politique",
+                    ExecuteurAdaptatif.Politique.class, charge.politique);
+            long attenteCibleMs = environnement.getProperty(prefixe + "attente-cible-ms", Long.class,
+                    charge.attenteCibleMs);
+
+            executeurs.put(charge, new ExecuteurAdaptatif(charge.cle(), min, max, file, politique,
+                    attenteCibleMs, meterRegistry));
+            log.info("Exécuteur {} : {} à {} threads, file de {}, politique {}, attente cible {} ms",
+                    charge.cle(), min, max, file, politique, attenteCibleMs);
+        }
+    }
+
+    public ExecuteurAdaptatif get(Charge charge) {
+        return executeurs.get(charge);
+    }
+
+    @Scheduled(fixedDelayString = "${app.executeurs.ajustement-ms:1000}",
+            initialDelayString = "${app.executeurs.ajustement-ms:1000}")
+    public void ajuster() {
+        executeurs.values().forEach(ExecuteurAdaptatif::ajuster);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        executeurs.values().forEach(ExecuteurAdaptatif::shutdownNow);
+    }
+}
@@ -0,0 +1,121 @@
+package com.gestionpresence.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.task.TaskSchedulerCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Mode d'exécution des requêtes HTTP, des méthodes @Async et des tâches planifiées :
+ * - PLATEFORME : pools de threads classiques (Tomcat, AsyncConfig, planificateur Spring);
+ * - VIRTUEL : un thread virtuel par requête / tâche (JRE 21 requis, sinon retour au mode
+ *   PLATEFORME avec un avertissement). La concurrence n'étant plus bornée par les pools,
+ *   les connexions JDBC (DataSourceLimitee) et les envois SMTP (EmailService) sont bornés
+ *   par des sémaphores.
+ */
+@Slf4j
+@Configuration
+public class ExecutionConfig {
+
+    public enum ModeExecution { PLATEFORME, VIRTUEL }
+
+    @Value("${app.execution.mode:PLATEFORME}")
+    private ModeExecution modeDemande;
+
+    @Value("${app.execution.planificateur.threads:8}")
+    private int threadsPlanificateur;
+
+    private boolean virtuel;
+
+    @PostConstruct
+    public void initialiser() {
+        virtuel = virtuel(modeDemande);
+        if (modeDemande == ModeExecution.VIRTUEL && !virtuel) {
+            log.warn("app.execution.mode=VIRTUEL ignoré : threads virtuels indisponibles sur Java {} " +
+                    "(Java 21 requis), threads plateforme conservés", Runtime.version().feature());
+        }
+        log.info("Mode d'exécution : {}", virtuel ? ModeExecution.VIRTUEL : ModeExecution.PLATEFORME);
+    }
+
+    /**
+     * true si les threads virtuels sont demandés et disponibles
+     */
+    public boolean isVirtuel() {
+        return virtuel;
+    }
+
+    /**
+     * Exécuteur lançant un thread virtuel par tâche (mode VIRTUEL uniquement)
+     */
+    public Executor executeurVirtuel(String prefixe) {
+        ThreadFactory fabrique = ThreadsVirtuels.fabrique(prefixe);
+        return tache -> fabrique.newThread(tache).start();
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> executeurTomcat() {
+        return protocole -> {
+            if (virtuel) {
+                protocole.setExecutor(executeurVirtuel("http-virtuel-"));
+            }
+        };
+    }
+
+    /**
+     * Tâches planifiées sur des threads virtuels; plusieurs threads pour qu'une tâche longue
+     * (campagne, envoi en masse) ne retarde pas les autres
+     */
+    @Bean
+    public TaskSchedulerCustomizer planificateurVirtuel() {
+        return planificateur -> {
+            if (virtuel) {
+                planificateur.setThreadFactory(ThreadsVirtuels.fabrique("planif-virtuel-"));
+                planificateur.setPoolSize(threadsPlanificateur);
+            }
+        };
+    }
+
+    /**
+     * En mode VIRTUEL, enveloppe la source de données dans un sémaphore
+     * (app.execution.db.permis, 0 : taille du pool Hikari)
+     */
+    @Bean
+    public static BeanPostProcessor connexionsLimitees(Environment environnement) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource) || bean instanceof DataSourceLimitee
+                        || !virtuel(environnement.getProperty("app.execution.mode", ModeExecution.class,
+                        ModeExecution.PLATEFORME))) {
+                    return bean;
+                }
+                int permis = environnement.getProperty("app.execution.db.permis", Integer.class, 0);
+                if (permis <= 0 && bean instanceof HikariDataSource) {
+                    permis = ((HikariDataSource) bean).getMaximumPoolSize();
+                }
+                if (permis <= 0) {
+                    // Taille par défaut de Hikari (maximumPoolSize non renseigné avant le démarrage du pool)
+                    permis = 10;
+                }
+                long attenteMs = environnement.getProperty("app.execution.db.attente-ms", Long.class, 5000L);
+                log.info("Connexions JDBC limitées à {} (attente max {} ms)", permis, attenteMs);
+                return new DataSourceLimitee((DataSource) bean, permis, attenteMs);
+            }
+        };
+    }
+
+    private static boolean virtuel(ModeExecution mode) {
+        return mode == ModeExecution.VIRTUEL && ThreadsVirtuels.disponibles();
+    }
+}
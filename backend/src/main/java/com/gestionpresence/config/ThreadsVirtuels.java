@@ -0,0 +1,45 @@
+package com.gestionpresence.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Accès aux threads virtuels par réflexion : l'application est compilée pour Java 17
+ * (sans Thread.ofVirtual) et peut être exécutée sur un JRE 21. Sur un JRE plus ancien
+ * (ou en préversion non activée), disponibles() renvoie false.
+ */
+final class ThreadsVirtuels {
+
+    private static final boolean DISPONIBLES = detecter();
+
+    private ThreadsVirtuels() {
+    }
+
+    static boolean disponibles() {
+        return DISPONIBLES;
+    }
+
+    /**
+     * Fabrique de threads virtuels nommés prefixe0, prefixe1...
+     */
+    static ThreadFactory fabrique(String prefixe) {
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Object ofVirtual = Thread.class.getMethod("ofVirtual").invoke(null);
+            Object nomme = builder.getMethod("name", String.class, long.class).invoke(ofVirtual, prefixe, 0L);
+            return (ThreadFactory) builder.getMethod("factory").invoke(nomme);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Threads virtuels indisponibles sur ce JRE", e);
+        }
+    }
+
+    private static boolean detecter() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            ofVirtual.invoke(null);
+            return true;
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+}
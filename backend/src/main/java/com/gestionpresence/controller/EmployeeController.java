@@ -1,11 +1,14 @@
 package com.gestionpresence.controller;
 
 import com.gestionpresence.dto.EmployeeDTO;
+import com.gestionpresence.dto.PageCurseurDTO;
 import com.gestionpresence.model.Employee;
 import com.gestionpresence.service.EmployeeService;
+import com.gestionpresence.service.ExportNdjson;
 import com.gestionpresence.service.QRCodeService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -13,8 +16,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.util.List;
 
@@ -38,6 +44,22 @@ public class EmployeeController {
         return ResponseEntity.ok(employees);
     }
 
+    @GetMapping("/curseur")
+    public ResponseEntity<PageCurseurDTO<EmployeeDTO>> getEmployeesParCurseur(
+            @RequestParam(required = false) String apres,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int taille) {
+        log.info("Récupération d'une page de {} employés après le curseur: {}", taille, apres);
+        return ResponseEntity.ok(employeeService.findPage(apres, taille));
+    }
+
+    @GetMapping(value = "/flux", produces = ExportNdjson.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> getEmployeesEnFlux() {
+        log.info("Export en flux de tous les employés");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ExportNdjson.MEDIA_TYPE))
+                .body(sortie -> employeeService.exporterTous(sortie));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<EmployeeDTO> getEmployeeById(@PathVariable @NotNull Long id) {
         log.info("Récupération de l'employé avec l'id: {}", id);
@@ -70,13 +92,24 @@ public class EmployeeController {
     }
 
     @GetMapping("/{id}/qrcode")
-    public ResponseEntity<byte[]> getEmployeeQRCode(@PathVariable @NotNull Long id) {
+    public ResponseEntity<byte[]> getEmployeeQRCode(
+            @PathVariable @NotNull Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Récupération du QR code pour l'employé: {}", id);
+        String etag = employeeService.getEmployeeQRCodeEtag(id).map(e -> "\"" + e + "\"").orElse(null);
+        if (etag != null && etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
         byte[] qrCode = employeeService.getEmployeeQRCode(id);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.IMAGE_PNG);
         headers.setContentDispositionFormData("filename", "qrcode-" + id + ".png");
+        headers.setCacheControl(CacheControl.noCache().cachePrivate());
+        if (etag != null) {
+            headers.setETag(etag);
+        }
 
         return new ResponseEntity<>(qrCode, headers, HttpStatus.OK);
     }
@@ -1,14 +1,30 @@
 package com.gestionpresence.controller;
 
+import com.gestionpresence.dto.AgregatPresenceDTO;
+import com.gestionpresence.dto.PageCurseurDTO;
 import com.gestionpresence.dto.PresenceDTO;
+import com.gestionpresence.dto.RapportReconciliationDTO;
+import com.gestionpresence.dto.ResumeJournalierDTO;
+import com.gestionpresence.exception.ResourceNotFoundException;
+import com.gestionpresence.service.AgregatsPresenceService;
+import com.gestionpresence.service.ExportNdjson;
+import com.gestionpresence.service.OccupationService;
+import com.gestionpresence.service.PointageIngestionService;
 import com.gestionpresence.service.PresenceService;
+import com.gestionpresence.service.ResumesJournaliersService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import java.time.LocalDate;
@@ -25,11 +41,30 @@ public class PresenceController {
     @Autowired
     private PresenceService presenceService;
 
+    @Autowired
+    private PointageIngestionService pointageIngestionService;
+
+    @Autowired
+    private AgregatsPresenceService agregatsPresenceService;
+
+    @Autowired
+    private ResumesJournaliersService resumesJournaliersService;
+
+    @Autowired
+    private OccupationService occupationService;
+
     @PostMapping("/pointage")
     public ResponseEntity<PresenceDTO> enregistrerPointage(
             @RequestParam @NotBlank String matricule,
             @RequestParam @NotBlank String typePointage) {
         log.info("Enregistrement du pointage pour le matricule: {}", matricule);
+        if (pointageIngestionService.isActive()) {
+            PointageIngestionService.Accuse accuse =
+                    pointageIngestionService.soumettre(matricule, typePointage, LocalDateTime.now());
+            // 202 : écriture en cours, le pointage ne doit pas être renvoyé
+            return ResponseEntity.status(accuse.isDiffere() ? HttpStatus.ACCEPTED : HttpStatus.OK)
+                    .body(accuse.getPresence());
+        }
         PresenceDTO presence = presenceService.enregistrerPointage(matricule, typePointage, LocalDateTime.now());
         return ResponseEntity.ok(presence);
     }
@@ -49,4 +84,99 @@ public class PresenceController {
         List<PresenceDTO> presences = presenceService.findByPeriode(debut, fin);
         return ResponseEntity.ok(presences);
     }
+
+    /**
+     * Flux SSE de l'occupation du jour : événement "instantane" à la connexion, puis "delta"
+     * (employés modifiés, compteurs complets) au plus une fois par app.occupation.intervalle-ms
+     */
+    @GetMapping(value = "/direct", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter suivreOccupation() {
+        return occupationService.abonner();
+    }
+
+    /**
+     * Instantané de l'occupation du jour, servi depuis la mémoire (JSON déjà sérialisé)
+     */
+    @GetMapping(value = "/direct/instantane", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> getOccupation() {
+        return ResponseEntity.ok(occupationService.getInstantane());
+    }
+
+    @GetMapping("/employee/{employeeId}/curseur")
+    public ResponseEntity<PageCurseurDTO<PresenceDTO>> getPresencesByEmployeeParCurseur(
+            @PathVariable @NotNull Long employeeId,
+            @RequestParam(required = false) String apres,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int taille) {
+        log.info("Récupération d'une page de présences pour l'employé: {} après le curseur: {}", employeeId, apres);
+        return ResponseEntity.ok(presenceService.findPageByEmployeeId(employeeId, apres, taille));
+    }
+
+    @GetMapping(value = "/employee/{employeeId}/flux", produces = ExportNdjson.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> getPresencesByEmployeeEnFlux(@PathVariable @NotNull Long employeeId) {
+        log.info("Export en flux des présences de l'employé: {}", employeeId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ExportNdjson.MEDIA_TYPE))
+                .body(sortie -> presenceService.exporterByEmployeeId(employeeId, sortie));
+    }
+
+    @GetMapping("/periode/curseur")
+    public ResponseEntity<PageCurseurDTO<PresenceDTO>> getPresencesByPeriodeParCurseur(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate debut,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fin,
+            @RequestParam(required = false) String apres,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int taille) {
+        log.info("Récupération d'une page de présences pour la période: {} à {} après le curseur: {}", debut, fin, apres);
+        return ResponseEntity.ok(presenceService.findPageByPeriode(debut, fin, apres, taille));
+    }
+
+    @GetMapping(value = "/periode/flux", produces = ExportNdjson.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> getPresencesByPeriodeEnFlux(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate debut,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fin) {
+        log.info("Export en flux des présences pour la période: {} à {}", debut, fin);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ExportNdjson.MEDIA_TYPE))
+                .body(sortie -> presenceService.exporterByPeriode(debut, fin, sortie));
+    }
+
+    @GetMapping("/employee/{employeeId}/agregat")
+    public ResponseEntity<AgregatPresenceDTO> getAgregatMensuel(
+            @PathVariable @NotNull Long employeeId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate mois) {
+        AgregatPresenceDTO agregat = agregatsPresenceService.findDTOByEmployeeIdAndMois(employeeId, mois)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Aucun agrégat pour l'employé " + employeeId + " en " + mois.withDayOfMonth(1)));
+        return ResponseEntity.ok(agregat);
+    }
+
+    @PostMapping("/agregats/reconcilier")
+    public ResponseEntity<RapportReconciliationDTO> reconcilierAgregats(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate mois) {
+        log.info("Réconciliation des agrégats de présence pour le mois: {}", mois);
+        return ResponseEntity.ok(agregatsPresenceService.reconcilier(mois));
+    }
+
+    @GetMapping("/resumes")
+    public ResponseEntity<List<ResumeJournalierDTO>> getResumesByPeriode(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate debut,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fin) {
+        log.info("Récupération des résumés journaliers pour la période: {} à {}", debut, fin);
+        return ResponseEntity.ok(resumesJournaliersService.findDTOByPeriode(debut, fin));
+    }
+
+    @GetMapping("/employee/{employeeId}/resumes")
+    public ResponseEntity<List<ResumeJournalierDTO>> getResumesByEmployee(
+            @PathVariable @NotNull Long employeeId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate debut,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fin) {
+        log.info("Récupération des résumés journaliers de l'employé {} pour la période: {} à {}", employeeId, debut, fin);
+        return ResponseEntity.ok(resumesJournaliersService.findDTOByEmployeeIdAndPeriode(employeeId, debut, fin));
+    }
+
+    @PostMapping("/resumes/recompacter")
+    public ResponseEntity<Integer> recompacterResumes(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate mois) {
+        log.info("Recompaction des résumés journaliers pour le mois: {}", mois);
+        return ResponseEntity.ok(resumesJournaliersService.recompacter(mois));
+    }
 }
@@ -1,8 +1,12 @@
 package com.gestionpresence.controller;
 
 import com.gestionpresence.dto.BulletinSalaireDTO;
+import com.gestionpresence.dto.RapportCampagnePaieDTO;
+import com.gestionpresence.dto.RapportEnvoiBulletinsDTO;
 import com.gestionpresence.service.CalculSalaireService;
+import com.gestionpresence.service.CampagnePaieService;
 import com.gestionpresence.service.EmailService;
+import com.gestionpresence.service.EnvoiBulletinsService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -12,6 +16,7 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.validation.constraints.NotNull;
 import java.time.LocalDate;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -23,9 +28,15 @@ public class SalaireController {
     @Autowired
     private CalculSalaireService calculSalaireService;
 
+    @Autowired
+    private CampagnePaieService campagnePaieService;
+
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private EnvoiBulletinsService envoiBulletinsService;
+
     @PostMapping("/calculer/{employeeId}")
     public ResponseEntity<BulletinSalaireDTO> calculerSalaire(
             @PathVariable @NotNull Long employeeId,
@@ -42,11 +53,43 @@ public class SalaireController {
         return ResponseEntity.ok("Bulletin envoyé avec succès");
     }
 
+    @PostMapping("/envoyer-tous")
+    public ResponseEntity<RapportEnvoiBulletinsDTO> envoyerTousLesBulletins() {
+        log.info("Lancement de l'envoi des bulletins en attente");
+        RapportEnvoiBulletinsDTO rapport = envoiBulletinsService.lancer();
+        return ResponseEntity.accepted().body(rapport);
+    }
+
+    @GetMapping("/envoyer-tous/progression")
+    public ResponseEntity<RapportEnvoiBulletinsDTO> getProgressionEnvoi() {
+        RapportEnvoiBulletinsDTO rapport = envoiBulletinsService.getProgression();
+        return rapport != null ? ResponseEntity.ok(rapport) : ResponseEntity.noContent().build();
+    }
+
     @PostMapping("/calculer-tous")
-    public ResponseEntity<String> calculerSalairesMensuels(
+    public ResponseEntity<RapportCampagnePaieDTO> calculerSalairesMensuels(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate mois) {
         log.info("Calcul des salaires pour le mois {}", mois);
-        calculSalaireService.calculerTousLesSalaires(mois);
-        return ResponseEntity.ok("Calcul des salaires terminé");
+        RapportCampagnePaieDTO rapport = campagnePaieService.calculerTousLesSalaires(mois);
+        return ResponseEntity.ok(rapport);
+    }
+
+    @GetMapping("/calculer-tous/progression")
+    public ResponseEntity<RapportCampagnePaieDTO> getProgressionCampagne() {
+        RapportCampagnePaieDTO rapport = campagnePaieService.getProgression();
+        return rapport != null ? ResponseEntity.ok(rapport) : ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/bulletins/employee/{employeeId}")
+    public ResponseEntity<List<BulletinSalaireDTO>> getBulletinsByEmployee(@PathVariable @NotNull Long employeeId) {
+        log.info("Récupération des bulletins de l'employé {}", employeeId);
+        return ResponseEntity.ok(calculSalaireService.findBulletinsByEmployeeId(employeeId));
+    }
+
+    @GetMapping("/bulletins")
+    public ResponseEntity<List<BulletinSalaireDTO>> getBulletinsByMois(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate mois) {
+        log.info("Récupération des bulletins du mois {}", mois);
+        return ResponseEntity.ok(calculSalaireService.findBulletinsByMois(mois));
     }
 }
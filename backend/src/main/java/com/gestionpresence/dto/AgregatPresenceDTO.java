@@ -0,0 +1,31 @@
+package com.gestionpresence.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgregatPresenceDTO {
+
+    private Long employeeId;
+    private LocalDate mois;
+
+    // Jours avec au moins une ENTREE, weekends et jours fériés compris
+    private int joursAvecEntree;
+    private int retardsMinutes;
+    private int supplementairesMinutes;
+    private int nombrePointages;
+
+    private LocalDateTime dernierPointage;
+    private String dernierType;
+
+    private long version;
+    private LocalDateTime dateMaj;
+}
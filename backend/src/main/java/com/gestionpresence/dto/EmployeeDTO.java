@@ -44,5 +44,21 @@ public class EmployeeDTO {
 
     private LocalDate dateEmbauche;
 
-    private String qrCodeBase64;
+    // Le QR code n'est plus inclus : URL de l'image et son etag pour la revalidation
+    private String qrCodeUrl;
+
+    private String qrCodeEtag;
+
+    /**
+     * Constructeur des projections JPQL : l'URL du QR code se déduit de l'etag
+     */
+    public EmployeeDTO(Long id, String matricule, String nom, String prenom, String email, String poste,
+                       Double salaireBase, LocalDate dateEmbauche, String qrCodeEtag) {
+        this(id, matricule, nom, prenom, email, poste, salaireBase, dateEmbauche,
+                urlQrCode(id, qrCodeEtag), qrCodeEtag);
+    }
+
+    public static String urlQrCode(Long id, String qrCodeEtag) {
+        return qrCodeEtag != null ? "/api/employees/" + id + "/qrcode" : null;
+    }
 }
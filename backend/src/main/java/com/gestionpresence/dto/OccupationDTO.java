@@ -0,0 +1,57 @@
+package com.gestionpresence.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Occupation du jour : instantané complet (employes = tous les employés ayant pointé)
+ * ou delta (employes = ceux dont l'état a changé depuis la diffusion précédente).
+ * Les compteurs sont toujours complets, un delta peut donc être appliqué plusieurs fois.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OccupationDTO {
+
+    private LocalDate jour;
+    private long sequence;
+    private LocalDateTime horodatage;
+    private boolean complet;
+
+    private int effectif;
+    private int presents;
+    private int sortis;
+    private int absents;
+    private int nonArrives;
+    private int retards;
+
+    // Employés présents par poste
+    private Map<String, Integer> presentsParPoste;
+
+    private List<EtatEmploye> employes;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class EtatEmploye {
+        private Long employeeId;
+        private String matricule;
+        private String nom;
+        private String prenom;
+        private String poste;
+        // PRESENT, SORTI ou ABSENT
+        private String etat;
+        private LocalDateTime arrivee;
+        private int minutesRetard;
+        private LocalDateTime dernierPointage;
+    }
+}
@@ -0,0 +1,24 @@
+package com.gestionpresence.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Page d'une pagination par curseur (keyset) : le curseur suivant est opaque
+ * et se repasse tel quel dans le paramètre "apres"
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageCurseurDTO<T> {
+
+    private List<T> elements;
+    private int taille;
+    private String curseurSuivant;
+    private boolean dernierePage;
+}
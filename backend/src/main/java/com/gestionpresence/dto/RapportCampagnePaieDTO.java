@@ -0,0 +1,45 @@
+package com.gestionpresence.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RapportCampagnePaieDTO {
+
+    private LocalDate mois;
+    private LocalDateTime debut;
+    private LocalDateTime fin;
+    private boolean terminee;
+
+    private int totalEmployes;
+    private int employesTraites;
+    private int bulletinsCrees;
+    // Employés ignorés, bulletin du mois déjà calculé par une campagne précédente
+    private int bulletinsExistants;
+    private int lotsTermines;
+    private int totalLots;
+
+    private long dureeMs;
+    private double employesParSeconde;
+
+    private List<EchecCalcul> echecs;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class EchecCalcul {
+        private Long employeeId;
+        private String matricule;
+        private String message;
+    }
+}
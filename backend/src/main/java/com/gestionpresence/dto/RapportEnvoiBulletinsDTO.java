@@ -0,0 +1,29 @@
+package com.gestionpresence.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RapportEnvoiBulletinsDTO {
+
+    private LocalDateTime debut;
+    private LocalDateTime fin;
+    private boolean terminee;
+
+    private long totalAEnvoyer;
+    private int envoyes;
+    private int echecs;
+    private int connexionsSmtp;
+
+    private long dureeMs;
+    private double messagesParSeconde;
+
+    private String derniereErreur;
+}
@@ -0,0 +1,21 @@
+package com.gestionpresence.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RapportReconciliationDTO {
+
+    private LocalDate mois;
+    private int employesVerifies;
+    private int ecartsDetectes;
+    private int agregatsCorriges;
+    private long dureeMs;
+}
@@ -0,0 +1,34 @@
+package com.gestionpresence.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumeJournalierDTO {
+
+    private Long employeeId;
+    private String employeeMatricule;
+    private String employeeNom;
+    private String employeePrenom;
+
+    private LocalDate jour;
+    private LocalTime premiereEntree;
+    private LocalTime derniereSortie;
+
+    private int minutesTravaillees;
+    private int minutesRetard;
+    private int minutesSupplementaires;
+
+    private int nombreSessions;
+    private int pointagesOrphelins;
+    private boolean sessionOuverte;
+    private boolean absent;
+}
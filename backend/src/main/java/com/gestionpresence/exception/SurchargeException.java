@@ -0,0 +1,18 @@
+package com.gestionpresence.exception;
+
+/**
+ * Exception levée quand une file de traitement est saturée (contre-pression)
+ */
+public class SurchargeException extends RuntimeException {
+
+    private final long retryAfterSecondes;
+
+    public SurchargeException(String message, long retryAfterSecondes) {
+        super(message);
+        this.retryAfterSecondes = retryAfterSecondes;
+    }
+
+    public long getRetryAfterSecondes() {
+        return retryAfterSecondes;
+    }
+}
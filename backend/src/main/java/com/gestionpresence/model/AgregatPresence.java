@@ -0,0 +1,126 @@
+package com.gestionpresence.model;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Cumuls mensuels des pointages d'un employé, tenus à jour à chaque pointage
+ * (AgregatsPresenceService) pour que la paie n'ait plus à relire les présences du mois.
+ * Les jours avec ENTREE sont un masque de bits (bit 0 = 1er du mois) : weekends et
+ * jours fériés sont exclus à la lecture, pas à l'écriture. Le second masque marque les
+ * jours modifiés depuis la dernière compaction en résumés journaliers.
+ */
+@Entity
+@Table(name = "agregats_presence", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_agregats_employee_mois", columnNames = {"employee_id", "mois"})
+}, indexes = {
+    @Index(name = "idx_agregats_mois", columnList = "mois")
+})
+public class AgregatPresence {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "employee_id", nullable = false)
+    private Long employeeId;
+
+    // Premier jour du mois
+    @Column(nullable = false)
+    private LocalDate mois;
+
+    @Column(name = "jours_avec_entree", nullable = false)
+    private int joursAvecEntree;
+
+    @Column(name = "retards_minutes", nullable = false)
+    private int retardsMinutes;
+
+    @Column(name = "supplementaires_minutes", nullable = false)
+    private int supplementairesMinutes;
+
+    @Column(name = "nombre_pointages", nullable = false)
+    private int nombrePointages;
+
+    // Dernier pointage du mois (ordre chronologique), null si aucun
+    @Column(name = "dernier_pointage")
+    private LocalDateTime dernierPointage;
+
+    @Column(name = "dernier_type", length = 10)
+    private String dernierType;
+
+    @Column(name = "date_maj")
+    private LocalDateTime dateMaj;
+
+    @Column(name = "jours_a_compacter", nullable = false)
+    private int joursACompacter;
+
+    @Version
+    private long version;
+
+    // Constructeurs
+    public AgregatPresence() {}
+
+    public AgregatPresence(Long employeeId, LocalDate mois) {
+        this.employeeId = employeeId;
+        this.mois = mois;
+    }
+
+    /**
+     * Même contenu (hors identité, version et date de mise à jour)
+     */
+    public boolean memesCumuls(AgregatPresence autre) {
+        return joursAvecEntree == autre.joursAvecEntree
+                && retardsMinutes == autre.retardsMinutes
+                && supplementairesMinutes == autre.supplementairesMinutes
+                && nombrePointages == autre.nombrePointages
+                && Objects.equals(dernierPointage, autre.dernierPointage)
+                && Objects.equals(dernierType, autre.dernierType);
+    }
+
+    public void copierCumuls(AgregatPresence source) {
+        this.joursAvecEntree = source.joursAvecEntree;
+        this.retardsMinutes = source.retardsMinutes;
+        this.supplementairesMinutes = source.supplementairesMinutes;
+        this.nombrePointages = source.nombrePointages;
+        this.dernierPointage = source.dernierPointage;
+        this.dernierType = source.dernierType;
+    }
+
+    // Getters et Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getEmployeeId() { return employeeId; }
+    public void setEmployeeId(Long employeeId) { this.employeeId = employeeId; }
+
+    public LocalDate getMois() { return mois; }
+    public void setMois(LocalDate mois) { this.mois = mois; }
+
+    public int getJoursAvecEntree() { return joursAvecEntree; }
+    public void setJoursAvecEntree(int joursAvecEntree) { this.joursAvecEntree = joursAvecEntree; }
+
+    public int getRetardsMinutes() { return retardsMinutes; }
+    public void setRetardsMinutes(int retardsMinutes) { this.retardsMinutes = retardsMinutes; }
+
+    public int getSupplementairesMinutes() { return supplementairesMinutes; }
+    public void setSupplementairesMinutes(int supplementairesMinutes) { this.supplementairesMinutes = supplementairesMinutes; }
+
+    public int getNombrePointages() { return nombrePointages; }
+    public void setNombrePointages(int nombrePointages) { this.nombrePointages = nombrePointages; }
+
+    public LocalDateTime getDernierPointage() { return dernierPointage; }
+    public void setDernierPointage(LocalDateTime dernierPointage) { this.dernierPointage = dernierPointage; }
+
+    public String getDernierType() { return dernierType; }
+    public void setDernierType(String dernierType) { this.dernierType = dernierType; }
+
+    public LocalDateTime getDateMaj() { return dateMaj; }
+    public void setDateMaj(LocalDateTime dateMaj) { this.dateMaj = dateMaj; }
+
+    public int getJoursACompacter() { return joursACompacter; }
+    public void setJoursACompacter(int joursACompacter) { this.joursACompacter = joursACompacter; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+}
@@ -2,19 +2,30 @@ package com.gestionpresence.model;
 
 import javax.persistence.*;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "bulletins_salaire")
+@Table(name = "bulletins_salaire", indexes = {
+    @Index(name = "idx_bulletins_periode", columnList = "periode_debut, periode_fin"),
+    @Index(name = "idx_bulletins_envoi", columnList = "envoye, id")
+}, uniqueConstraints = {
+    // Un bulletin par employé et par mois : une campagne relancée ne crée pas de doublon
+    @UniqueConstraint(name = "uk_bulletins_employe_periode", columnNames = {"employee_id", "periode_debut"})
+})
 public class BulletinSalaire {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
-    @JoinColumn(name = "employee_id", nullable = false)
+    @ManyToOne(fetch = FetchType.LAZY)
+    // Table partitionnée par mois : pas de clé étrangère (voir migration_partitionnement.sql)
+    @JoinColumn(name = "employee_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Employee employee;
 
+    @Column(name = "periode_debut")
     private LocalDate periodeDebut;
+
+    @Column(name = "periode_fin")
     private LocalDate periodeFin;
 
     private double salaireBase;
@@ -29,6 +40,19 @@ public class BulletinSalaire {
 
     private boolean envoye;
 
+    @Column(name = "date_envoi")
+    private LocalDate dateEnvoi;
+
+    // Suivi des envois en masse : reprise après redémarrage et report exponentiel des échecs
+    @Column(name = "tentatives_envoi", nullable = false)
+    private int tentativesEnvoi;
+
+    @Column(name = "prochain_essai_envoi")
+    private LocalDateTime prochainEssaiEnvoi;
+
+    @Column(name = "derniere_erreur_envoi", length = 500)
+    private String derniereErreurEnvoi;
+
     // Constructeurs
     public BulletinSalaire() {}
 
@@ -78,4 +102,16 @@ public class BulletinSalaire {
 
     public boolean isEnvoye() { return envoye; }
     public void setEnvoye(boolean envoye) { this.envoye = envoye; }
+
+    public LocalDate getDateEnvoi() { return dateEnvoi; }
+    public void setDateEnvoi(LocalDate dateEnvoi) { this.dateEnvoi = dateEnvoi; }
+
+    public int getTentativesEnvoi() { return tentativesEnvoi; }
+    public void setTentativesEnvoi(int tentativesEnvoi) { this.tentativesEnvoi = tentativesEnvoi; }
+
+    public LocalDateTime getProchainEssaiEnvoi() { return prochainEssaiEnvoi; }
+    public void setProchainEssaiEnvoi(LocalDateTime prochainEssaiEnvoi) { this.prochainEssaiEnvoi = prochainEssaiEnvoi; }
+
+    public String getDerniereErreurEnvoi() { return derniereErreurEnvoi; }
+    public void setDerniereErreurEnvoi(String derniereErreurEnvoi) { this.derniereErreurEnvoi = derniereErreurEnvoi; }
 }
@@ -22,10 +22,12 @@ public class Employee {
     private double salaireBase;
     private LocalDate dateEmbauche;
     
-    @Lob
-    private byte[] qrCode;
+    // Empreinte du QR code, l'image est dans employee_qr_codes
+    @Column(name = "qr_code_etag", length = 64)
+    private String qrCodeEtag;
     
-    @OneToMany(mappedBy = "employee", cascade = CascadeType.ALL)
+    // Pas de cascade : les pointages sont supprimés en masse par EmployeeService.deleteEmployee
+    @OneToMany(mappedBy = "employee")
     private List<Presence> presences;
     
     // Constructeurs
@@ -67,8 +69,8 @@ public class Employee {
     public LocalDate getDateEmbauche() { return dateEmbauche; }
     public void setDateEmbauche(LocalDate dateEmbauche) { this.dateEmbauche = dateEmbauche; }
     
-    public byte[] getQrCode() { return qrCode; }
-    public void setQrCode(byte[] qrCode) { this.qrCode = qrCode; }
+    public String getQrCodeEtag() { return qrCodeEtag; }
+    public void setQrCodeEtag(String qrCodeEtag) { this.qrCodeEtag = qrCodeEtag; }
     
     public List<Presence> getPresences() { return presences; }
     public void setPresences(List<Presence> presences) { this.presences = presences; }
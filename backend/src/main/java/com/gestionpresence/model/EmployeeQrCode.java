@@ -0,0 +1,48 @@
+package com.gestionpresence.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Image PNG du QR code d'un employé, stockée à part pour ne jamais être chargée
+ * avec l'employé. L'etag (SHA-256 du contenu) est recopié sur l'employé.
+ */
+@Entity
+@Table(name = "employee_qr_codes")
+public class EmployeeQrCode {
+    @Id
+    @Column(name = "employee_id")
+    private Long employeeId;
+
+    @Lob
+    @Column(nullable = false)
+    private byte[] image;
+
+    @Column(nullable = false, length = 64)
+    private String etag;
+
+    private LocalDateTime dateGeneration;
+
+    // Constructeurs
+    public EmployeeQrCode() {}
+
+    public EmployeeQrCode(Long employeeId, byte[] image, String etag) {
+        this.employeeId = employeeId;
+        this.image = image;
+        this.etag = etag;
+        this.dateGeneration = LocalDateTime.now();
+    }
+
+    // Getters et Setters
+    public Long getEmployeeId() { return employeeId; }
+    public void setEmployeeId(Long employeeId) { this.employeeId = employeeId; }
+
+    public byte[] getImage() { return image; }
+    public void setImage(byte[] image) { this.image = image; }
+
+    public String getEtag() { return etag; }
+    public void setEtag(String etag) { this.etag = etag; }
+
+    public LocalDateTime getDateGeneration() { return dateGeneration; }
+    public void setDateGeneration(LocalDateTime dateGeneration) { this.dateGeneration = dateGeneration; }
+}
@@ -4,20 +4,31 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "presences")
+@Table(name = "presences", indexes = {
+    @Index(name = "idx_presences_employee_date", columnList = "employee_id, date_heure_pointage"),
+    @Index(name = "idx_presences_date", columnList = "date_heure_pointage")
+}, uniqueConstraints = {
+    // Table partitionnée par mois : toute clé unique inclut date_heure_pointage
+    @UniqueConstraint(name = "uk_presences_cle_date", columnNames = {"cle_deduplication", "date_heure_pointage"})
+})
 public class Presence {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
-    @ManyToOne
-    @JoinColumn(name = "employee_id", nullable = false)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "employee_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Employee employee;
     
+    @Column(name = "date_heure_pointage")
     private LocalDateTime dateHeurePointage;
     private String typePointage; // "ENTREE" ou "SORTIE"
     private boolean retard;
     private int minutesRetard;
+
+    // Clé unique des pointages rejoués depuis le journal local (null sinon)
+    @Column(name = "cle_deduplication", length = 64)
+    private String cleDeduplication;
     
     // Constructeurs
     public Presence() {}
@@ -46,4 +57,7 @@ public class Presence {
     
     public int getMinutesRetard() { return minutesRetard; }
     public void setMinutesRetard(int minutesRetard) { this.minutesRetard = minutesRetard; }
-}
\ No newline at end of file
+
+    public String getCleDeduplication() { return cleDeduplication; }
+    public void setCleDeduplication(String cleDeduplication) { this.cleDeduplication = cleDeduplication; }
+}
@@ -0,0 +1,112 @@
+package com.gestionpresence.model;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Résumé d'une journée de pointages d'un employé, produit par la compaction
+ * (ResumesJournaliersService) : les ENTREE/SORTIE y sont appariées en sessions de travail.
+ * Une ligne par employé et par jour ayant au moins un pointage.
+ */
+@Entity
+@Table(name = "resumes_journaliers", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_resumes_employee_jour", columnNames = {"employee_id", "jour"})
+}, indexes = {
+    @Index(name = "idx_resumes_jour", columnList = "jour")
+})
+public class ResumeJournalier {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "employee_id", nullable = false)
+    private Long employeeId;
+
+    @Column(nullable = false)
+    private LocalDate jour;
+
+    @Column(name = "premiere_entree")
+    private LocalTime premiereEntree;
+
+    @Column(name = "derniere_sortie")
+    private LocalTime derniereSortie;
+
+    // Somme des sessions complètes (ENTREE suivie d'une SORTIE)
+    @Column(name = "minutes_travaillees", nullable = false)
+    private int minutesTravaillees;
+
+    // Retard de la première ENTREE sur l'heure de début (jours ouvrés)
+    @Column(name = "minutes_retard", nullable = false)
+    private int minutesRetard;
+
+    // Temps de session au-delà de l'heure de fin (jours ouvrés)
+    @Column(name = "minutes_supplementaires", nullable = false)
+    private int minutesSupplementaires;
+
+    @Column(name = "nombre_sessions", nullable = false)
+    private int nombreSessions;
+
+    // SORTIE sans ENTREE ouverte, ENTREE en double dans une session
+    @Column(name = "pointages_orphelins", nullable = false)
+    private int pointagesOrphelins;
+
+    // Dernière ENTREE sans SORTIE (employé présent ou oubli de badge)
+    @Column(name = "session_ouverte", nullable = false)
+    private boolean sessionOuverte;
+
+    @Column(nullable = false)
+    private boolean absent;
+
+    @Column(name = "date_compaction")
+    private LocalDateTime dateCompaction;
+
+    // Constructeurs
+    public ResumeJournalier() {}
+
+    public ResumeJournalier(Long employeeId, LocalDate jour) {
+        this.employeeId = employeeId;
+        this.jour = jour;
+    }
+
+    // Getters et Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getEmployeeId() { return employeeId; }
+    public void setEmployeeId(Long employeeId) { this.employeeId = employeeId; }
+
+    public LocalDate getJour() { return jour; }
+    public void setJour(LocalDate jour) { this.jour = jour; }
+
+    public LocalTime getPremiereEntree() { return premiereEntree; }
+    public void setPremiereEntree(LocalTime premiereEntree) { this.premiereEntree = premiereEntree; }
+
+    public LocalTime getDerniereSortie() { return derniereSortie; }
+    public void setDerniereSortie(LocalTime derniereSortie) { this.derniereSortie = derniereSortie; }
+
+    public int getMinutesTravaillees() { return minutesTravaillees; }
+    public void setMinutesTravaillees(int minutesTravaillees) { this.minutesTravaillees = minutesTravaillees; }
+
+    public int getMinutesRetard() { return minutesRetard; }
+    public void setMinutesRetard(int minutesRetard) { this.minutesRetard = minutesRetard; }
+
+    public int getMinutesSupplementaires() { return minutesSupplementaires; }
+    public void setMinutesSupplementaires(int minutesSupplementaires) { this.minutesSupplementaires = minutesSupplementaires; }
+
+    public int getNombreSessions() { return nombreSessions; }
+    public void setNombreSessions(int nombreSessions) { this.nombreSessions = nombreSessions; }
+
+    public int getPointagesOrphelins() { return pointagesOrphelins; }
+    public void setPointagesOrphelins(int pointagesOrphelins) { this.pointagesOrphelins = pointagesOrphelins; }
+
+    public boolean isSessionOuverte() { return sessionOuverte; }
+    public void setSessionOuverte(boolean sessionOuverte) { this.sessionOuverte = sessionOuverte; }
+
+    public boolean isAbsent() { return absent; }
+    public void setAbsent(boolean absent) { this.absent = absent; }
+
+    public LocalDateTime getDateCompaction() { return dateCompaction; }
+    public void setDateCompaction(LocalDateTime dateCompaction) { this.dateCompaction = dateCompaction; }
+}
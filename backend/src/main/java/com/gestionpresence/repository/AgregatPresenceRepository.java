@@ -0,0 +1,70 @@
+package com.gestionpresence.repository;
+
+import com.gestionpresence.model.AgregatPresence;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AgregatPresenceRepository extends JpaRepository<AgregatPresence, Long> {
+
+    Optional<AgregatPresence> findByEmployeeIdAndMois(Long employeeId, LocalDate mois);
+
+    List<AgregatPresence> findByMois(LocalDate mois);
+
+    @Query("SELECT a FROM AgregatPresence a WHERE a.mois = :mois AND a.employeeId IN :employeeIds")
+    List<AgregatPresence> findByMoisAndEmployeeIds(@Param("mois") LocalDate mois,
+                                                  @Param("employeeIds") Collection<Long> employeeIds);
+
+    @Query("SELECT a.employeeId FROM AgregatPresence a WHERE a.mois = :mois AND a.employeeId IN :employeeIds")
+    List<Long> findEmployeeIdsExistants(@Param("mois") LocalDate mois,
+                                        @Param("employeeIds") Collection<Long> employeeIds);
+
+    /**
+     * Verrouille les agrégats (SELECT ... FOR UPDATE) dans l'ordre des employés,
+     * pour que deux lots concurrents ne s'interbloquent pas
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM AgregatPresence a WHERE a.mois = :mois AND a.employeeId IN :employeeIds " +
+           "ORDER BY a.employeeId")
+    List<AgregatPresence> verrouiller(@Param("mois") LocalDate mois,
+                                     @Param("employeeIds") Collection<Long> employeeIds);
+
+    /**
+     * Agrégats dont des jours restent à compacter, par id croissant après apresId
+     */
+    @Query("SELECT a.id FROM AgregatPresence a WHERE a.joursACompacter <> 0 AND a.id > :apresId ORDER BY a.id")
+    List<Long> findIdsACompacter(@Param("apresId") long apresId, Pageable pageable);
+
+    /**
+     * Même ordre de verrouillage que les écritures de pointages (mois puis employé)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM AgregatPresence a WHERE a.id IN :ids ORDER BY a.mois, a.employeeId")
+    List<AgregatPresence> verrouillerParIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Requête de masse : ne touche pas la version (la compaction ne modifie pas les cumuls)
+     */
+    @Modifying
+    @Query("UPDATE AgregatPresence a SET a.joursACompacter = 0 WHERE a.id IN :ids")
+    int marquerCompactes(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE AgregatPresence a SET a.joursACompacter = :jours WHERE a.mois = :mois")
+    int marquerACompacter(@Param("mois") LocalDate mois, @Param("jours") int jours);
+
+    @Modifying
+    @Query("DELETE FROM AgregatPresence a WHERE a.employeeId = :employeeId")
+    int deleteByEmployeeId(@Param("employeeId") Long employeeId);
+}
@@ -1,17 +1,23 @@
 package com.gestionpresence.repository;
 
+import com.gestionpresence.dto.BulletinSalaireDTO;
 import com.gestionpresence.model.BulletinSalaire;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface BulletinSalaireRepository extends JpaRepository<BulletinSalaire, Long> {
+public interface BulletinSalaireRepository extends JpaRepository<BulletinSalaire, Long>, BulletinSalaireRepositoryCustom {
 
     List<BulletinSalaire> findByEmployeeId(Long employeeId);
 
@@ -25,5 +31,76 @@ public interface BulletinSalaireRepository extends JpaRepository<BulletinSalaire
                                                     @Param("debut") LocalDate debut,
                                                     @Param("fin") LocalDate fin);
 
+    @Query("SELECT b.employee.id FROM BulletinSalaire b WHERE b.employee.id IN :employeeIds " +
+           "AND b.periodeDebut = :periodeDebut")
+    List<Long> findEmployeeIdsAvecBulletin(@Param("employeeIds") Collection<Long> employeeIds,
+                                           @Param("periodeDebut") LocalDate periodeDebut);
+
     List<BulletinSalaire> findByEnvoyeFalse();
+
+    @Query("SELECT b FROM BulletinSalaire b JOIN FETCH b.employee WHERE b.id = :id")
+    Optional<BulletinSalaire> findAvecEmployeeById(@Param("id") Long id);
+
+    /**
+     * Lot suivant de bulletins à envoyer (keyset sur l'id), employé chargé pour le rendu hors transaction.
+     * Les bulletins en report ou ayant épuisé leurs tentatives sont ignorés.
+     */
+    @Query("SELECT b FROM BulletinSalaire b JOIN FETCH b.employee WHERE b.envoye = false AND b.id > :apresId " +
+           "AND b.tentativesEnvoi < :tentativesMax " +
+           "AND (b.prochainEssaiEnvoi IS NULL OR b.prochainEssaiEnvoi <= :maintenant) ORDER BY b.id")
+    List<BulletinSalaire> findLotAEnvoyer(@Param("apresId") Long apresId,
+                                          @Param("maintenant") LocalDateTime maintenant,
+                                          @Param("tentativesMax") int tentativesMax,
+                                          Pageable limite);
+
+    @Query("SELECT COUNT(b) FROM BulletinSalaire b WHERE b.envoye = false AND b.tentativesEnvoi < :tentativesMax")
+    long countAEnvoyer(@Param("tentativesMax") int tentativesMax);
+
+    /**
+     * Bulletins de [debut, fin] encore à envoyer : la période n'est pas archivable tant qu'il en reste
+     */
+    @Query("SELECT COUNT(b) FROM BulletinSalaire b WHERE b.envoye = false AND b.tentativesEnvoi < :tentativesMax " +
+           "AND b.periodeDebut >= :debut AND b.periodeDebut <= :fin")
+    long countAEnvoyerByPeriode(@Param("debut") LocalDate debut,
+                                @Param("fin") LocalDate fin,
+                                @Param("tentativesMax") int tentativesMax);
+
+    @Query("SELECT MIN(b.periodeDebut) FROM BulletinSalaire b")
+    LocalDate findPremierePeriode();
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM BulletinSalaire b WHERE b.employee.id = :employeeId")
+    int deleteByEmployeeId(@Param("employeeId") Long employeeId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE BulletinSalaire b SET b.envoye = true, b.dateEnvoi = :dateEnvoi, " +
+           "b.prochainEssaiEnvoi = NULL, b.derniereErreurEnvoi = NULL WHERE b.id = :id")
+    int marquerEnvoye(@Param("id") Long id, @Param("dateEnvoi") LocalDate dateEnvoi);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE BulletinSalaire b SET b.tentativesEnvoi = b.tentativesEnvoi + 1, " +
+           "b.prochainEssaiEnvoi = :prochainEssai, b.derniereErreurEnvoi = :erreur WHERE b.id = :id")
+    int enregistrerEchecEnvoi(@Param("id") Long id,
+                              @Param("prochainEssai") LocalDateTime prochainEssai,
+                              @Param("erreur") String erreur);
+
+    String NOUVEAU_DTO = "SELECT new com.gestionpresence.dto.BulletinSalaireDTO(b.id, e.id, e.matricule, e.nom, e.prenom, " +
+            "b.periodeDebut, b.periodeFin, b.salaireBase, b.joursTravailles, b.joursAbsence, b.totalRetardsMinutes, " +
+            "b.heuresSupplementaires, b.deductionAbsences, b.deductionRetards, b.salaireNet, b.envoye) " +
+            "FROM BulletinSalaire b JOIN b.employee e ";
+
+    /**
+     * Table seule : findDTOByEmployeeId (BulletinSalaireRepositoryCustom) y ajoute les périodes archivées
+     */
+    @Query(NOUVEAU_DTO + "WHERE e.id = :employeeId ORDER BY b.periodeDebut DESC")
+    List<BulletinSalaireDTO> findDTOByEmployeeIdEnBase(@Param("employeeId") Long employeeId);
+
+    /**
+     * Bulletins dont la période commence dans [debut, fin] (index idx_bulletins_periode)
+     */
+    @Query(NOUVEAU_DTO + "WHERE b.periodeDebut >= :debut AND b.periodeDebut <= :fin ORDER BY e.id")
+    List<BulletinSalaireDTO> findDTOByPeriodeEnBase(@Param("debut") LocalDate debut, @Param("fin") LocalDate fin);
 }
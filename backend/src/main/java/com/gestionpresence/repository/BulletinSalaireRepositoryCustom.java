@@ -0,0 +1,37 @@
+package com.gestionpresence.repository;
+
+import com.gestionpresence.dto.BulletinSalaireDTO;
+import com.gestionpresence.model.BulletinSalaire;
+import com.gestionpresence.repository.archive.BulletinArchive;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Opérations d'écriture en masse sur les bulletins de salaire, et lectures couvrant
+ * à la fois la table et les périodes archivées
+ */
+public interface BulletinSalaireRepositoryCustom {
+
+    /**
+     * Insère les bulletins par lots JDBC (les identifiants générés ne sont pas relus)
+     */
+    int insererEnLot(Collection<BulletinSalaire> bulletins);
+
+    /**
+     * Lignes brutes dont la période commence dans [debut, fin] et d'identifiant supérieur
+     * à apresId, par identifiant croissant
+     */
+    List<BulletinArchive> findArchivablesApres(LocalDate debut, LocalDate fin, long apresId, int limite);
+
+    /**
+     * Bulletins de l'employé, du plus récent au plus ancien
+     */
+    List<BulletinSalaireDTO> findDTOByEmployeeId(Long employeeId);
+
+    /**
+     * Bulletins dont la période commence dans [debut, fin], par employé
+     */
+    List<BulletinSalaireDTO> findDTOByPeriode(LocalDate debut, LocalDate fin);
+}
@@ -0,0 +1,197 @@
+package com.gestionpresence.repository;
+
+import com.gestionpresence.dto.BulletinSalaireDTO;
+import com.gestionpresence.model.BulletinSalaire;
+import com.gestionpresence.repository.archive.ArchivesDonnees;
+import com.gestionpresence.repository.archive.BulletinArchive;
+import com.gestionpresence.repository.projection.EmployeResume;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Implémentation JDBC des insertions en masse.
+ * La génération IDENTITY désactive le batching Hibernate, d'où le passage direct par JdbcTemplate.
+ *
+ * Lectures : les bulletins en base sont complétés par ceux des périodes archivées; un bulletin
+ * recalculé après l'archivage de sa période (même employé, même début de période) remplace
+ * la version archivée. Les bulletins archivés d'un employé supprimé ne sont pas renvoyés.
+ */
+public class BulletinSalaireRepositoryImpl implements BulletinSalaireRepositoryCustom {
+
+    private static final String SQL_INSERT = "INSERT INTO bulletins_salaire (employee_id, periode_debut, periode_fin, " +
+            "salaire_base, jours_travailles, jours_absence, total_retards_minutes, heures_supplementaires, " +
+            "deduction_absences, deduction_retards, salaire_net, envoye, tentatives_envoi) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_ARCHIVABLES = "SELECT id, employee_id, periode_debut, periode_fin, salaire_base, " +
+            "jours_travailles, jours_absence, total_retards_minutes, heures_supplementaires, deduction_absences, " +
+            "deduction_retards, salaire_net, envoye, date_envoi, tentatives_envoi, prochain_essai_envoi, " +
+            "derniere_erreur_envoi FROM bulletins_salaire " +
+            "WHERE periode_debut >= ? AND periode_debut <= ? AND id > ? ORDER BY id LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:20}")
+    private int tailleLot;
+
+    @Lazy
+    @Autowired
+    private BulletinSalaireRepository bulletinSalaireRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ArchivesDonnees archives;
+
+    @Override
+    public int insererEnLot(Collection<BulletinSalaire> bulletins) {
+        if (bulletins.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(SQL_INSERT, bulletins, tailleLot, (ps, bulletin) -> {
+            ps.setLong(1, bulletin.getEmployee().getId());
+            ps.setDate(2, Date.valueOf(bulletin.getPeriodeDebut()));
+            ps.setDate(3, Date.valueOf(bulletin.getPeriodeFin()));
+            ps.setDouble(4, bulletin.getSalaireBase());
+            ps.setInt(5, bulletin.getJoursTravailles());
+            ps.setInt(6, bulletin.getJoursAbsence());
+            ps.setInt(7, bulletin.getTotalRetardsMinutes());
+            ps.setDouble(8, bulletin.getHeuresSupplementaires());
+            ps.setDouble(9, bulletin.getDeductionAbsences());
+            ps.setDouble(10, bulletin.getDeductionRetards());
+            ps.setDouble(11, bulletin.getSalaireNet());
+            ps.setBoolean(12, bulletin.isEnvoye());
+            ps.setInt(13, bulletin.getTentativesEnvoi());
+        });
+        return bulletins.size();
+    }
+
+    @Override
+    public List<BulletinArchive> findArchivablesApres(LocalDate debut, LocalDate fin, long apresId, int limite) {
+        return jdbcTemplate.query(SQL_ARCHIVABLES, (rs, ligne) -> BulletinArchive.builder()
+                .id(rs.getLong("id"))
+                .employeeId(rs.getLong("employee_id"))
+                .periodeDebut(rs.getDate("periode_debut").toLocalDate())
+                .periodeFin(rs.getDate("periode_fin").toLocalDate())
+                .salaireBase(rs.getDouble("salaire_base"))
+                .joursTravailles(rs.getInt("jours_travailles"))
+                .joursAbsence(rs.getInt("jours_absence"))
+                .totalRetardsMinutes(rs.getInt("total_retards_minutes"))
+                .heuresSupplementaires(rs.getDouble("heures_supplementaires"))
+                .deductionAbsences(rs.getDouble("deduction_absences"))
+                .deductionRetards(rs.getDouble("deduction_retards"))
+                .salaireNet(rs.getDouble("salaire_net"))
+                .envoye(rs.getBoolean("envoye"))
+                .dateEnvoi(date(rs.getDate("date_envoi")))
+                .tentativesEnvoi(rs.getInt("tentatives_envoi"))
+                .prochainEssaiEnvoi(dateHeure(rs.getTimestamp("prochain_essai_envoi")))
+                .derniereErreurEnvoi(rs.getString("derniere_erreur_envoi"))
+                .build(), Date.valueOf(debut), Date.valueOf(fin), apresId, limite);
+    }
+
+    @Override
+    public List<BulletinSalaireDTO> findDTOByEmployeeId(Long employeeId) {
+        List<BulletinSalaireDTO> enBase = bulletinSalaireRepository.findDTOByEmployeeIdEnBase(employeeId);
+        List<BulletinArchive> archivees = archivees(null, null, bulletin -> employeeId.equals(bulletin.getEmployeeId()));
+        if (archivees.isEmpty()) {
+            return enBase;
+        }
+        List<BulletinSalaireDTO> bulletins = completer(enBase, archivees);
+        bulletins.sort(Comparator.comparing(BulletinSalaireDTO::getPeriodeDebut).reversed());
+        return bulletins;
+    }
+
+    @Override
+    public List<BulletinSalaireDTO> findDTOByPeriode(LocalDate debut, LocalDate fin) {
+        List<BulletinSalaireDTO> enBase = bulletinSalaireRepository.findDTOByPeriodeEnBase(debut, fin);
+        List<BulletinArchive> archivees = archivees(YearMonth.from(debut), YearMonth.from(fin),
+                bulletin -> !bulletin.getPeriodeDebut().isBefore(debut) && !bulletin.getPeriodeDebut().isAfter(fin));
+        if (archivees.isEmpty()) {
+            return enBase;
+        }
+        List<BulletinSalaireDTO> bulletins = completer(enBase, archivees);
+        bulletins.sort(Comparator.comparing(BulletinSalaireDTO::getEmployeeId)
+                .thenComparing(BulletinSalaireDTO::getPeriodeDebut));
+        return bulletins;
+    }
+
+    private List<BulletinArchive> archivees(YearMonth premier, YearMonth dernier, Predicate<BulletinArchive> filtre) {
+        NavigableSet<YearMonth> mois = archives.moisArchives(ArchivesDonnees.BULLETINS, premier, dernier);
+        List<BulletinArchive> bulletins = new ArrayList<>();
+        for (YearMonth m : mois) {
+            for (BulletinArchive bulletin : archives.lire(ArchivesDonnees.BULLETINS, m, BulletinArchive.class)) {
+                if (filtre.test(bulletin)) {
+                    bulletins.add(bulletin);
+                }
+            }
+        }
+        return bulletins;
+    }
+
+    /**
+     * Ajoute aux bulletins en base les bulletins archivés qu'ils ne remplacent pas
+     */
+    private List<BulletinSalaireDTO> completer(List<BulletinSalaireDTO> enBase, List<BulletinArchive> archivees) {
+        Set<String> periodesEnBase = enBase.stream()
+                .map(bulletin -> bulletin.getEmployeeId() + "/" + bulletin.getPeriodeDebut())
+                .collect(Collectors.toSet());
+        Set<Long> ids = archivees.stream().map(BulletinArchive::getEmployeeId).collect(Collectors.toSet());
+        Map<Long, EmployeResume> employes = employeeRepository.findResumesByIds(ids).stream()
+                .collect(Collectors.toMap(EmployeResume::getId, Function.identity()));
+
+        List<BulletinSalaireDTO> bulletins = new ArrayList<>(enBase);
+        for (BulletinArchive archive : archivees) {
+            EmployeResume employe = employes.get(archive.getEmployeeId());
+            if (employe == null || periodesEnBase.contains(archive.getEmployeeId() + "/" + archive.getPeriodeDebut())) {
+                continue;
+            }
+            bulletins.add(BulletinSalaireDTO.builder()
+                    .id(archive.getId())
+                    .employeeId(employe.getId())
+                    .employeeMatricule(employe.getMatricule())
+                    .employeeNom(employe.getNom())
+                    .employeePrenom(employe.getPrenom())
+                    .periodeDebut(archive.getPeriodeDebut())
+                    .periodeFin(archive.getPeriodeFin())
+                    .salaireBase(archive.getSalaireBase())
+                    .joursTravailles(archive.getJoursTravailles())
+                    .joursAbsence(archive.getJoursAbsence())
+                    .totalRetardsMinutes(archive.getTotalRetardsMinutes())
+                    .heuresSupplementaires(archive.getHeuresSupplementaires())
+                    .deductionAbsences(archive.getDeductionAbsences())
+                    .deductionRetards(archive.getDeductionRetards())
+                    .salaireNet(archive.getSalaireNet())
+                    .envoye(archive.isEnvoye())
+                    .build());
+        }
+        return bulletins;
+    }
+
+    private static LocalDate date(Date date) {
+        return date != null ? date.toLocalDate() : null;
+    }
+
+    private static LocalDateTime dateHeure(Timestamp horodatage) {
+        return horodatage != null ? horodatage.toLocalDateTime() : null;
+    }
+}
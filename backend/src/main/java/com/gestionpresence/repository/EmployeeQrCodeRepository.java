@@ -0,0 +1,21 @@
+package com.gestionpresence.repository;
+
+import com.gestionpresence.model.EmployeeQrCode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface EmployeeQrCodeRepository extends JpaRepository<EmployeeQrCode, Long> {
+
+    @Query("SELECT q.image FROM EmployeeQrCode q WHERE q.employeeId = :employeeId")
+    Optional<byte[]> findImageByEmployeeId(@Param("employeeId") Long employeeId);
+
+    @Modifying
+    @Query("DELETE FROM EmployeeQrCode q WHERE q.employeeId = :employeeId")
+    int deleteByEmployeeId(@Param("employeeId") Long employeeId);
+}
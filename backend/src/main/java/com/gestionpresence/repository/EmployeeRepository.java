@@ -1,14 +1,63 @@
 package com.gestionpresence.repository;
 
+import com.gestionpresence.dto.EmployeeDTO;
 import com.gestionpresence.model.Employee;
+import com.gestionpresence.repository.projection.EmployeResume;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface EmployeeRepository extends JpaRepository<Employee, Long> {
     Optional<Employee> findByMatricule(String matricule);
     boolean existsByMatricule(String matricule);
     boolean existsByEmail(String email);
+
+    @Query("SELECT e.qrCodeEtag FROM Employee e WHERE e.id = :id")
+    Optional<String> findQrCodeEtagById(@Param("id") Long id);
+
+    @Query("SELECT e.id FROM Employee e ORDER BY e.id")
+    List<Long> findAllIds();
+
+    String NOUVEAU_RESUME = "SELECT new com.gestionpresence.repository.projection.EmployeResume(" +
+            "e.id, e.matricule, e.nom, e.prenom, e.email, e.poste, e.salaireBase) FROM Employee e";
+
+    @Query(NOUVEAU_RESUME)
+    List<EmployeResume> findAllResumes();
+
+    @Query(NOUVEAU_RESUME + " WHERE e.id IN :ids")
+    List<EmployeResume> findResumesByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(NOUVEAU_RESUME + " WHERE e.matricule = :matricule")
+    Optional<EmployeResume> findResumeByMatricule(@Param("matricule") String matricule);
+
+    String NOUVEAU_DTO = "SELECT new com.gestionpresence.dto.EmployeeDTO(e.id, e.matricule, e.nom, e.prenom, " +
+            "e.email, e.poste, e.salaireBase, e.dateEmbauche, e.qrCodeEtag) FROM Employee e ";
+
+    @Query(NOUVEAU_DTO)
+    List<EmployeeDTO> findAllDTO();
+
+    @Query(NOUVEAU_DTO + "WHERE e.id = :id")
+    Optional<EmployeeDTO> findDTOById(@Param("id") Long id);
+
+    /**
+     * Page d'employés d'id strictement supérieur au curseur (parcours de la clé primaire)
+     */
+    @Query(NOUVEAU_DTO + "WHERE e.id > :apresId ORDER BY e.id")
+    List<EmployeeDTO> findPageDTOApres(@Param("apresId") Long apresId, Pageable limite);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(NOUVEAU_DTO + "ORDER BY e.id")
+    Stream<EmployeeDTO> streamDTO();
 }
@@ -1,40 +1,192 @@
 package com.gestionpresence.repository;
 
+import com.gestionpresence.dto.PresenceDTO;
 import com.gestionpresence.model.Presence;
+import com.gestionpresence.repository.projection.PointageProjection;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+/**
+ * Les filtres sur date_heure_pointage utilisent des intervalles semi-ouverts [debut, fin[
+ * sur la colonne brute (jamais DATE(...)) afin de rester compatibles avec les index
+ * idx_presences_employee_date et idx_presences_date.
+ *
+ * Les méthodes ...EnBase ne lisent que la table; leurs équivalents sans suffixe
+ * (PresenceRepositoryCustom) y ajoutent les mois archivés par ArchivageService.
+ */
 @Repository
-public interface PresenceRepository extends JpaRepository<Presence, Long> {
+public interface PresenceRepository extends JpaRepository<Presence, Long>, PresenceRepositoryCustom {
 
-    List<Presence> findByEmployeeId(Long employeeId);
+    // Requête explicite : la méthode dérivée joignait employees et filtrait sur employees.id,
+    // ce qui empêchait l'usage de idx_presences_employee_date
+    @Query("SELECT p FROM Presence p WHERE p.employee.id = :employeeId")
+    List<Presence> findByEmployeeId(@Param("employeeId") Long employeeId);
 
-    List<Presence> findByEmployeeIdAndDateHeurePointageBetween(Long employeeId,
-                                                              LocalDateTime debut,
-                                                              LocalDateTime fin);
+    @Query("SELECT p FROM Presence p WHERE p.employee.id = :employeeId " +
+           "AND p.dateHeurePointage >= :debut AND p.dateHeurePointage < :fin " +
+           "ORDER BY p.dateHeurePointage, p.id")
+    List<Presence> findByEmployeeIdAndIntervalleEnBase(@Param("employeeId") Long employeeId,
+                                                      @Param("debut") LocalDateTime debut,
+                                                      @Param("fin") LocalDateTime fin);
 
-    @Query("SELECT p FROM Presence p WHERE DATE(p.dateHeurePointage) BETWEEN :debut AND :fin")
-    List<Presence> findByPeriode(@Param("debut") LocalDate debut, @Param("fin") LocalDate fin);
+    @Modifying
+    @Query("DELETE FROM Presence p WHERE p.employee.id = :employeeId")
+    int deleteByEmployeeId(@Param("employeeId") Long employeeId);
 
-    @Query("SELECT p FROM Presence p WHERE p.employee.id = :employeeId " +
-           "AND DATE(p.dateHeurePointage) BETWEEN :debut AND :fin")
-    List<Presence> findByEmployeeIdAndPeriode(@Param("employeeId") Long employeeId,
-                                             @Param("debut") LocalDate debut,
-                                             @Param("fin") LocalDate fin);
+    /**
+     * Borné par les dates du lot : MySQL n'ouvre que les partitions mensuelles concernées
+     * (la clé unique porte sur cle_deduplication et date_heure_pointage)
+     */
+    @Query("SELECT p.cleDeduplication FROM Presence p WHERE p.cleDeduplication IN :cles " +
+           "AND p.dateHeurePointage BETWEEN :min AND :max")
+    List<String> findClesDeduplicationExistantes(@Param("cles") Collection<String> cles,
+                                                 @Param("min") LocalDateTime min,
+                                                 @Param("max") LocalDateTime max);
 
-    @Query("SELECT COUNT(p) FROM Presence p WHERE p.employee.id = :employeeId " +
-           "AND DATE(p.dateHeurePointage) = :date AND p.typePointage = 'ENTREE'")
-    long countEntreesByEmployeeAndDate(@Param("employeeId") Long employeeId,
-                                      @Param("date") LocalDate date);
+    @Query("SELECT p FROM Presence p WHERE p.dateHeurePointage >= :debut AND p.dateHeurePointage < :fin")
+    List<Presence> findByIntervalle(@Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin);
 
     @Query("SELECT COUNT(p) FROM Presence p WHERE p.employee.id = :employeeId " +
-           "AND DATE(p.dateHeurePointage) = :date AND p.typePointage = 'SORTIE'")
-    long countSortiesByEmployeeAndDate(@Param("employeeId") Long employeeId,
-                                      @Param("date") LocalDate date);
+           "AND p.dateHeurePointage >= :debut AND p.dateHeurePointage < :fin " +
+           "AND p.typePointage = :typePointage")
+    long countByEmployeeAndTypeAndIntervalle(@Param("employeeId") Long employeeId,
+                                            @Param("typePointage") String typePointage,
+                                            @Param("debut") LocalDateTime debut,
+                                            @Param("fin") LocalDateTime fin);
+
+    /**
+     * Employés sans ENTREE nette (entrées <= sorties) sur [debut, fin[ et pas encore marqués ABSENT,
+     * en une seule requête agrégée
+     */
+    @Query("SELECT e.id FROM Employee e LEFT JOIN e.presences p " +
+           "ON p.dateHeurePointage >= :debut AND p.dateHeurePointage < :fin " +
+           "GROUP BY e.id " +
+           "HAVING SUM(CASE WHEN p.typePointage = 'ENTREE' THEN 1 ELSE 0 END) " +
+           "<= SUM(CASE WHEN p.typePointage = 'SORTIE' THEN 1 ELSE 0 END) " +
+           "AND SUM(CASE WHEN p.typePointage = 'ABSENT' THEN 1 ELSE 0 END) = 0")
+    List<Long> findEmployeeIdsSansEntreeNette(@Param("debut") LocalDateTime debut,
+                                             @Param("fin") LocalDateTime fin);
+
+    @Query("SELECT MIN(p.dateHeurePointage) FROM Presence p")
+    LocalDateTime findPremierPointage();
+
+    default List<Presence> findByPeriode(LocalDate debut, LocalDate fin) {
+        return findByIntervalle(debut.atStartOfDay(), fin.plusDays(1).atStartOfDay());
+    }
+
+    default List<Presence> findByEmployeeIdAndPeriode(Long employeeId, LocalDate debut, LocalDate fin) {
+        return findByEmployeeIdAndIntervalle(employeeId, debut.atStartOfDay(), fin.plusDays(1).atStartOfDay());
+    }
+
+    default long countEntreesByEmployeeAndDate(Long employeeId, LocalDate date) {
+        return countByEmployeeAndTypeAndIntervalle(employeeId, "ENTREE",
+                date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+    }
+
+    default long countSortiesByEmployeeAndDate(Long employeeId, LocalDate date) {
+        return countByEmployeeAndTypeAndIntervalle(employeeId, "SORTIE",
+                date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Flux de tous les pointages de [debut, fin[, triés par employé puis par date.
+     * Avec useCursorFetch=true, le pilote MySQL lit par blocs via un curseur serveur;
+     * le flux doit être consommé puis fermé dans une transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT p.id AS id, p.employee.id AS employeeId, p.dateHeurePointage AS dateHeurePointage, " +
+           "p.typePointage AS typePointage FROM Presence p " +
+           "WHERE p.dateHeurePointage >= :debut AND p.dateHeurePointage < :fin " +
+           "ORDER BY p.employee.id, p.dateHeurePointage, p.id")
+    Stream<PointageProjection> streamPointagesByIntervalleEnBase(@Param("debut") LocalDateTime debut,
+                                                                @Param("fin") LocalDateTime fin);
+
+    @Query("SELECT p.id AS id, p.employee.id AS employeeId, p.dateHeurePointage AS dateHeurePointage, " +
+           "p.typePointage AS typePointage FROM Presence p WHERE p.employee.id = :employeeId " +
+           "AND p.dateHeurePointage >= :debut AND p.dateHeurePointage < :fin " +
+           "ORDER BY p.dateHeurePointage, p.id")
+    List<PointageProjection> findPointagesByEmployeeIdAndIntervalleEnBase(@Param("employeeId") Long employeeId,
+                                                                         @Param("debut") LocalDateTime debut,
+                                                                         @Param("fin") LocalDateTime fin);
+
+    @Query("SELECT p.id AS id, p.employee.id AS employeeId, p.dateHeurePointage AS dateHeurePointage, " +
+           "p.typePointage AS typePointage FROM Presence p WHERE p.employee.id IN :employeeIds " +
+           "AND p.dateHeurePointage >= :debut AND p.dateHeurePointage < :fin " +
+           "ORDER BY p.employee.id, p.dateHeurePointage, p.id")
+    List<PointageProjection> findPointagesByEmployeeIdsAndIntervalleEnBase(@Param("employeeIds") Collection<Long> employeeIds,
+                                                                          @Param("debut") LocalDateTime debut,
+                                                                          @Param("fin") LocalDateTime fin);
+
+    /**
+     * Derniers pointages d'un employé sur [debut, fin[, du plus récent au plus ancien
+     * (le Pageable borne le nombre de lignes)
+     */
+    @Query("SELECT p.id AS id, p.employee.id AS employeeId, p.dateHeurePointage AS dateHeurePointage, " +
+           "p.typePointage AS typePointage FROM Presence p WHERE p.employee.id = :employeeId " +
+           "AND p.dateHeurePointage >= :debut AND p.dateHeurePointage < :fin " +
+           "ORDER BY p.dateHeurePointage DESC, p.id DESC")
+    List<PointageProjection> findDerniersPointages(@Param("employeeId") Long employeeId,
+                                                  @Param("debut") LocalDateTime debut,
+                                                  @Param("fin") LocalDateTime fin,
+                                                  Pageable pageable);
+
+    String NOUVEAU_DTO = "SELECT new com.gestionpresence.dto.PresenceDTO(p.id, e.id, e.matricule, e.nom, e.prenom, " +
+            "p.dateHeurePointage, p.typePointage, p.retard, p.minutesRetard) FROM Presence p JOIN p.employee e ";
+
+    /**
+     * Condition de keyset sur (dateHeurePointage, id) : la première inégalité reste
+     * utilisable comme borne de parcours des index sur date_heure_pointage
+     */
+    String APRES_CURSEUR = "AND p.dateHeurePointage >= :apresDate " +
+            "AND (p.dateHeurePointage > :apresDate OR p.id > :apresId) " +
+            "ORDER BY p.dateHeurePointage, p.id";
+
+    /**
+     * Page suivant le curseur (apresDate, apresId); le Pageable ne sert qu'à borner le nombre de lignes
+     */
+    @Query(NOUVEAU_DTO + "WHERE e.id = :employeeId " + APRES_CURSEUR)
+    List<PresenceDTO> findPageByEmployeeIdEnBase(@Param("employeeId") Long employeeId,
+                                                 @Param("apresDate") LocalDateTime apresDate,
+                                                 @Param("apresId") Long apresId,
+                                                 Pageable limite);
+
+    @Query(NOUVEAU_DTO + "WHERE p.dateHeurePointage < :fin " + APRES_CURSEUR)
+    List<PresenceDTO> findPageByIntervalleEnBase(@Param("fin") LocalDateTime fin,
+                                                 @Param("apresDate") LocalDateTime apresDate,
+                                                 @Param("apresId") Long apresId,
+                                                 Pageable limite);
+
+    /**
+     * Flux des pointages d'un employé directement en DTO : rien n'entre dans le contexte de persistance
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(NOUVEAU_DTO + "WHERE e.id = :employeeId ORDER BY p.dateHeurePointage, p.id")
+    Stream<PresenceDTO> streamDTOByEmployeeIdEnBase(@Param("employeeId") Long employeeId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(NOUVEAU_DTO + "WHERE p.dateHeurePointage >= :debut AND p.dateHeurePointage < :fin " +
+           "ORDER BY p.dateHeurePointage, p.id")
+    Stream<PresenceDTO> streamDTOByIntervalleEnBase(@Param("debut") LocalDateTime debut,
+                                                    @Param("fin") LocalDateTime fin);
+
+    @Query(NOUVEAU_DTO + "WHERE e.id = :employeeId ORDER BY p.dateHeurePointage, p.id")
+    List<PresenceDTO> findDTOByEmployeeIdEnBase(@Param("employeeId") Long employeeId);
+
+    @Query(NOUVEAU_DTO + "WHERE p.dateHeurePointage >= :debut AND p.dateHeurePointage < :fin " +
+           "ORDER BY p.dateHeurePointage, p.id")
+    List<PresenceDTO> findDTOByIntervalleEnBase(@Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin);
 }
@@ -0,0 +1,62 @@
+package com.gestionpresence.repository;
+
+import com.gestionpresence.dto.PresenceDTO;
+import com.gestionpresence.model.Presence;
+import com.gestionpresence.repository.archive.PointageArchive;
+import com.gestionpresence.repository.projection.PointageProjection;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Opérations d'écriture en masse sur les présences, et lectures historiques couvrant
+ * à la fois la table et les mois archivés (mêmes contrats et mêmes tris que les
+ * requêtes ...EnBase de PresenceRepository)
+ */
+public interface PresenceRepositoryCustom {
+
+    /**
+     * Insère les présences par lots JDBC (les identifiants générés ne sont pas relus)
+     */
+    int insererEnLot(Collection<Presence> presences);
+
+    /**
+     * Lignes brutes de [debut, fin[ qui suivent apres (null : depuis le début) dans l'ordre (date, id)
+     */
+    List<PointageArchive> findArchivablesApres(LocalDateTime debut, LocalDateTime fin, PointageArchive apres,
+                                               int limite);
+
+    /**
+     * Lignes brutes de [debut, fin[ qui suivent apres (null : depuis le début) dans l'ordre (employé, date, id)
+     */
+    List<PointageArchive> findArchivablesParEmployeApres(LocalDateTime debut, LocalDateTime fin, PointageArchive apres,
+                                                         int limite);
+
+    /**
+     * Les pointages archivés sont des instances détachées, à ne pas modifier
+     */
+    List<Presence> findByEmployeeIdAndIntervalle(Long employeeId, LocalDateTime debut, LocalDateTime fin);
+
+    Stream<PointageProjection> streamPointagesByIntervalle(LocalDateTime debut, LocalDateTime fin);
+
+    List<PointageProjection> findPointagesByEmployeeIdAndIntervalle(Long employeeId, LocalDateTime debut,
+                                                                    LocalDateTime fin);
+
+    List<PointageProjection> findPointagesByEmployeeIdsAndIntervalle(Collection<Long> employeeIds,
+                                                                     LocalDateTime debut, LocalDateTime fin);
+
+    List<PresenceDTO> findPageByEmployeeId(Long employeeId, LocalDateTime apresDate, Long apresId, Pageable limite);
+
+    List<PresenceDTO> findPageByIntervalle(LocalDateTime fin, LocalDateTime apresDate, Long apresId, Pageable limite);
+
+    Stream<PresenceDTO> streamDTOByEmployeeId(Long employeeId);
+
+    Stream<PresenceDTO> streamDTOByIntervalle(LocalDateTime debut, LocalDateTime fin);
+
+    List<PresenceDTO> findDTOByEmployeeId(Long employeeId);
+
+    List<PresenceDTO> findDTOByIntervalle(LocalDateTime debut, LocalDateTime fin);
+}
@@ -0,0 +1,317 @@
+package com.gestionpresence.repository;
+
+import com.gestionpresence.dto.PresenceDTO;
+import com.gestionpresence.model.Employee;
+import com.gestionpresence.model.Presence;
+import com.gestionpresence.repository.archive.ArchivesDonnees;
+import com.gestionpresence.repository.archive.PointageArchive;
+import com.gestionpresence.repository.projection.EmployeResume;
+import com.gestionpresence.repository.projection.PointageProjection;
+import com.gestionpresence.service.IndexMatricules;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Implémentation JDBC des insertions en masse.
+ * La génération IDENTITY désactive le batching Hibernate, d'où le passage direct par JdbcTemplate.
+ *
+ * Lectures historiques : la requête ...EnBase est fusionnée, dans le même ordre, avec les
+ * lignes des mois archivés qui recoupent l'intervalle, lues à la demande dans les fichiers
+ * triés dans le même ordre. Sans ligne archivée concernée, la requête en base est renvoyée
+ * telle quelle. Comme avec l'ancienne clé étrangère ON DELETE CASCADE, les pointages archivés
+ * d'un employé supprimé ne sont jamais renvoyés (IndexMatricules).
+ */
+public class PresenceRepositoryImpl implements PresenceRepositoryCustom {
+
+    private static final String SQL_INSERT = "INSERT INTO presences (employee_id, date_heure_pointage, " +
+            "type_pointage, retard, minutes_retard, cle_deduplication) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_COLONNES_ARCHIVE = "SELECT id, employee_id, date_heure_pointage, type_pointage, " +
+            "retard, minutes_retard, cle_deduplication FROM presences " +
+            "WHERE date_heure_pointage >= ? AND date_heure_pointage < ? ";
+
+    // Pagination par clé (idx_presences_date puis idx_presences_employee_date, qui contiennent l'id)
+    private static final String SQL_ARCHIVABLES = SQL_COLONNES_ARCHIVE +
+            "AND (date_heure_pointage > ? OR (date_heure_pointage = ? AND id > ?)) " +
+            "ORDER BY date_heure_pointage, id LIMIT ?";
+    private static final String SQL_ARCHIVABLES_PAR_EMPLOYE = SQL_COLONNES_ARCHIVE +
+            "AND (employee_id > ? OR (employee_id = ? AND (date_heure_pointage > ? " +
+            "OR (date_heure_pointage = ? AND id > ?)))) ORDER BY employee_id, date_heure_pointage, id LIMIT ?";
+
+    private static final RowMapper<PointageArchive> LIGNE_ARCHIVE = (rs, ligne) -> PointageArchive.builder()
+            .id(rs.getLong("id"))
+            .employeeId(rs.getLong("employee_id"))
+            .dateHeurePointage(rs.getTimestamp("date_heure_pointage").toLocalDateTime())
+            .typePointage(rs.getString("type_pointage"))
+            .retard(rs.getBoolean("retard"))
+            .minutesRetard(rs.getInt("minutes_retard"))
+            .cleDeduplication(rs.getString("cle_deduplication"))
+            .build();
+
+    private static final Comparator<PointageArchive> PAR_DATE =
+            Comparator.comparing(PointageArchive::getDateHeurePointage).thenComparing(PointageArchive::getId);
+    private static final Comparator<PresenceDTO> DTO_PAR_DATE =
+            Comparator.comparing(PresenceDTO::getDateHeurePointage).thenComparing(PresenceDTO::getId);
+    private static final Comparator<Presence> ENTITE_PAR_DATE =
+            Comparator.comparing(Presence::getDateHeurePointage).thenComparing(Presence::getId);
+    private static final Comparator<PointageProjection> PROJECTION_PAR_DATE =
+            Comparator.comparing(PointageProjection::getDateHeurePointage).thenComparing(PointageProjection::getId);
+    private static final Comparator<PointageProjection> PROJECTION_PAR_EMPLOYE =
+            Comparator.comparing(PointageProjection::getEmployeeId).thenComparing(PROJECTION_PAR_DATE);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:20}")
+    private int tailleLot;
+
+    @Lazy
+    @Autowired
+    private PresenceRepository presenceRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private IndexMatricules indexMatricules;
+
+    @Autowired
+    private ArchivesDonnees archives;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int insererEnLot(Collection<Presence> presences) {
+        if (presences.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(SQL_INSERT, presences, tailleLot, (ps, presence) -> {
+            ps.setLong(1, presence.getEmployee().getId());
+            ps.setTimestamp(2, Timestamp.valueOf(presence.getDateHeurePointage()));
+            ps.setString(3, presence.getTypePointage());
+            ps.setBoolean(4, presence.isRetard());
+            ps.setInt(5, presence.getMinutesRetard());
+            ps.setString(6, presence.getCleDeduplication());
+        });
+        return presences.size();
+    }
+
+    @Override
+    public List<PointageArchive> findArchivablesApres(LocalDateTime debut, LocalDateTime fin, PointageArchive apres,
+                                                      int limite) {
+        Timestamp date = Timestamp.valueOf(apres != null ? apres.getDateHeurePointage() : debut);
+        long id = apres != null ? apres.getId() : 0;
+        return jdbcTemplate.query(SQL_ARCHIVABLES, LIGNE_ARCHIVE, Timestamp.valueOf(debut), Timestamp.valueOf(fin),
+                date, date, id, limite);
+    }
+
+    @Override
+    public List<PointageArchive> findArchivablesParEmployeApres(LocalDateTime debut, LocalDateTime fin,
+                                                                PointageArchive apres, int limite) {
+        long employeeId = apres != null ? apres.getEmployeeId() : 0;
+        Timestamp date = Timestamp.valueOf(apres != null ? apres.getDateHeurePointage() : debut);
+        long id = apres != null ? apres.getId() : 0;
+        return jdbcTemplate.query(SQL_ARCHIVABLES_PAR_EMPLOYE, LIGNE_ARCHIVE, Timestamp.valueOf(debut),
+                Timestamp.valueOf(fin), employeeId, employeeId, date, date, id, limite);
+    }
+
+    @Override
+    public List<Presence> findByEmployeeIdAndIntervalle(Long employeeId, LocalDateTime debut, LocalDateTime fin) {
+        List<Presence> enBase = presenceRepository.findByEmployeeIdAndIntervalleEnBase(employeeId, debut, fin);
+        Stream<Presence> archivees = archivees(debut, fin, false, employes(),
+                ligne -> employeeId.equals(ligne.getEmployeeId())).map(this::versEntite);
+        return fusion(archivees, enBase, ENTITE_PAR_DATE);
+    }
+
+    @Override
+    public Stream<PointageProjection> streamPointagesByIntervalle(LocalDateTime debut, LocalDateTime fin) {
+        return ArchivesDonnees.fusionner(archivees(debut, fin, true, employes(), ligne -> true),
+                presenceRepository.streamPointagesByIntervalleEnBase(debut, fin), PROJECTION_PAR_EMPLOYE);
+    }
+
+    @Override
+    public List<PointageProjection> findPointagesByEmployeeIdAndIntervalle(Long employeeId, LocalDateTime debut,
+                                                                           LocalDateTime fin) {
+        List<PointageProjection> enBase = presenceRepository.findPointagesByEmployeeIdAndIntervalleEnBase(
+                employeeId, debut, fin);
+        return fusion(archivees(debut, fin, false, employes(), ligne -> employeeId.equals(ligne.getEmployeeId())),
+                enBase, PROJECTION_PAR_DATE);
+    }
+
+    @Override
+    public List<PointageProjection> findPointagesByEmployeeIdsAndIntervalle(Collection<Long> employeeIds,
+                                                                            LocalDateTime debut, LocalDateTime fin) {
+        List<PointageProjection> enBase = presenceRepository.findPointagesByEmployeeIdsAndIntervalleEnBase(
+                employeeIds, debut, fin);
+        Set<Long> ids = new HashSet<>(employeeIds);
+        return fusion(archivees(debut, fin, true, employes(), ligne -> ids.contains(ligne.getEmployeeId())),
+                enBase, PROJECTION_PAR_EMPLOYE);
+    }
+
+    @Override
+    public List<PresenceDTO> findPageByEmployeeId(Long employeeId, LocalDateTime apresDate, Long apresId,
+                                                  Pageable limite) {
+        List<PresenceDTO> enBase = presenceRepository.findPageByEmployeeIdEnBase(employeeId, apresDate, apresId, limite);
+        Function<Long, EmployeResume> employes = employes();
+        Stream<PresenceDTO> archivees = archivees(apresDate, null, false, employes,
+                ligne -> employeeId.equals(ligne.getEmployeeId()) && apres(ligne, apresDate, apresId))
+                .map(ligne -> versDTO(ligne, employes));
+        return page(archivees, enBase, limite);
+    }
+
+    @Override
+    public List<PresenceDTO> findPageByIntervalle(LocalDateTime fin, LocalDateTime apresDate, Long apresId,
+                                                  Pageable limite) {
+        List<PresenceDTO> enBase = presenceRepository.findPageByIntervalleEnBase(fin, apresDate, apresId, limite);
+        Function<Long, EmployeResume> employes = employes();
+        Stream<PresenceDTO> archivees = archivees(apresDate, fin, false, employes,
+                ligne -> apres(ligne, apresDate, apresId))
+                .map(ligne -> versDTO(ligne, employes));
+        return page(archivees, enBase, limite);
+    }
+
+    @Override
+    public Stream<PresenceDTO> streamDTOByEmployeeId(Long employeeId) {
+        return ArchivesDonnees.fusionner(dtoArchives(null, null, ligne -> employeeId.equals(ligne.getEmployeeId())),
+                presenceRepository.streamDTOByEmployeeIdEnBase(employeeId), DTO_PAR_DATE);
+    }
+
+    @Override
+    public Stream<PresenceDTO> streamDTOByIntervalle(LocalDateTime debut, LocalDateTime fin) {
+        return ArchivesDonnees.fusionner(dtoArchives(debut, fin, ligne -> true),
+                presenceRepository.streamDTOByIntervalleEnBase(debut, fin), DTO_PAR_DATE);
+    }
+
+    @Override
+    public List<PresenceDTO> findDTOByEmployeeId(Long employeeId) {
+        List<PresenceDTO> enBase = presenceRepository.findDTOByEmployeeIdEnBase(employeeId);
+        return fusion(dtoArchives(null, null, ligne -> employeeId.equals(ligne.getEmployeeId())), enBase,
+                DTO_PAR_DATE);
+    }
+
+    @Override
+    public List<PresenceDTO> findDTOByIntervalle(LocalDateTime debut, LocalDateTime fin) {
+        List<PresenceDTO> enBase = presenceRepository.findDTOByIntervalleEnBase(debut, fin);
+        return fusion(dtoArchives(debut, fin, ligne -> true), enBase, DTO_PAR_DATE);
+    }
+
+    /**
+     * Pointages archivés de [debut, fin[ (null : non borné) d'employés existants retenus par
+     * le filtre, lus à la demande : triés par (date, id), ou par (employé, date, id) si parEmploye.
+     * Le flux doit être fermé (il l'est par ArchivesDonnees.fusionner).
+     */
+    private Stream<PointageArchive> archivees(LocalDateTime debut, LocalDateTime fin, boolean parEmploye,
+                                              Function<Long, EmployeResume> employes,
+                                              Predicate<PointageArchive> filtre) {
+        String table = parEmploye ? ArchivesDonnees.PRESENCES_PAR_EMPLOYE : ArchivesDonnees.PRESENCES;
+        NavigableSet<YearMonth> mois = archives.moisArchives(table,
+                debut != null ? YearMonth.from(debut) : null,
+                fin != null ? YearMonth.from(fin.minusNanos(1)) : null);
+        if (mois.isEmpty()) {
+            return Stream.empty();
+        }
+        Stream<PointageArchive> lignes;
+        if (parEmploye) {
+            lignes = archives.parcourir(table, mois, PointageArchive.class, PROJECTION_PAR_EMPLOYE, false)
+                    .filter(ligne -> dansIntervalle(ligne, debut, fin));
+        } else {
+            // Ordre chronologique : la lecture s'arrête à la première ligne postérieure à fin
+            lignes = archives.parcourir(table, mois, PointageArchive.class, PAR_DATE, true)
+                    .dropWhile(ligne -> debut != null && ligne.getDateHeurePointage().isBefore(debut))
+                    .takeWhile(ligne -> fin == null || ligne.getDateHeurePointage().isBefore(fin));
+        }
+        return lignes.filter(ligne -> employes.apply(ligne.getEmployeeId()) != null && filtre.test(ligne));
+    }
+
+    private Stream<PresenceDTO> dtoArchives(LocalDateTime debut, LocalDateTime fin, Predicate<PointageArchive> filtre) {
+        Function<Long, EmployeResume> employes = employes();
+        return archivees(debut, fin, false, employes, filtre).map(ligne -> versDTO(ligne, employes));
+    }
+
+    /**
+     * Résumés des employés des pointages archivés, résolus une fois par lecture : index en
+     * mémoire, puis base pour un employé absent de l'index; null si l'employé a été supprimé
+     */
+    private Function<Long, EmployeResume> employes() {
+        Map<Long, Optional<EmployeResume>> resolus = new HashMap<>();
+        return employeeId -> resolus.computeIfAbsent(employeeId, this::resoudre).orElse(null);
+    }
+
+    private Optional<EmployeResume> resoudre(Long employeeId) {
+        Optional<EmployeResume> employe = indexMatricules.parId(employeeId);
+        if (employe.isPresent()) {
+            return employe;
+        }
+        return employeeRepository.findResumesByIds(List.of(employeeId)).stream().findFirst();
+    }
+
+    private static boolean dansIntervalle(PointageArchive ligne, LocalDateTime debut, LocalDateTime fin) {
+        LocalDateTime date = ligne.getDateHeurePointage();
+        return (debut == null || !date.isBefore(debut)) && (fin == null || date.isBefore(fin));
+    }
+
+    private static boolean apres(PointageArchive ligne, LocalDateTime apresDate, Long apresId) {
+        return ligne.getDateHeurePointage().isAfter(apresDate) || ligne.getId() > apresId;
+    }
+
+    private static List<PresenceDTO> page(Stream<PresenceDTO> archivees, List<PresenceDTO> enBase, Pageable limite) {
+        try (Stream<PresenceDTO> fusion = ArchivesDonnees.fusionner(archivees, enBase.stream(), DTO_PAR_DATE)) {
+            return fusion.limit(limite.getPageSize()).collect(Collectors.toList());
+        }
+    }
+
+    private static <T> List<T> fusion(Stream<? extends T> archivees, List<T> enBase, Comparator<? super T> ordre) {
+        try (Stream<T> fusion = ArchivesDonnees.fusionner(archivees, enBase.stream(), ordre)) {
+            return fusion.collect(Collectors.toList());
+        }
+    }
+
+    private static PresenceDTO versDTO(PointageArchive ligne, Function<Long, EmployeResume> employes) {
+        EmployeResume employe = employes.apply(ligne.getEmployeeId());
+        return PresenceDTO.builder()
+                .id(ligne.getId())
+                .employeeId(employe.getId())
+                .employeeMatricule(employe.getMatricule())
+                .employeeNom(employe.getNom())
+                .employeePrenom(employe.getPrenom())
+                .dateHeurePointage(ligne.getDateHeurePointage())
+                .typePointage(ligne.getTypePointage())
+                .retard(ligne.isRetard())
+                .minutesRetard(ligne.getMinutesRetard())
+                .build();
+    }
+
+    private Presence versEntite(PointageArchive ligne) {
+        Presence presence = new Presence(entityManager.getReference(Employee.class, ligne.getEmployeeId()),
+                ligne.getDateHeurePointage(), ligne.getTypePointage());
+        presence.setId(ligne.getId());
+        presence.setRetard(ligne.isRetard());
+        presence.setMinutesRetard(ligne.getMinutesRetard());
+        presence.setCleDeduplication(ligne.getCleDeduplication());
+        return presence;
+    }
+}
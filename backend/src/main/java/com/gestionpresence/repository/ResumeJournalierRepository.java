@@ -0,0 +1,49 @@
+package com.gestionpresence.repository;
+
+import com.gestionpresence.dto.ResumeJournalierDTO;
+import com.gestionpresence.model.ResumeJournalier;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Les périodes sont des intervalles fermés [debut, fin] sur la colonne jour
+ */
+@Repository
+public interface ResumeJournalierRepository extends JpaRepository<ResumeJournalier, Long>, ResumeJournalierRepositoryCustom {
+
+    String NOUVEAU_DTO = "SELECT new com.gestionpresence.dto.ResumeJournalierDTO(r.employeeId, e.matricule, e.nom, " +
+            "e.prenom, r.jour, r.premiereEntree, r.derniereSortie, r.minutesTravaillees, r.minutesRetard, " +
+            "r.minutesSupplementaires, r.nombreSessions, r.pointagesOrphelins, r.sessionOuverte, r.absent) " +
+            "FROM ResumeJournalier r JOIN Employee e ON e.id = r.employeeId ";
+
+    @Query("SELECT r FROM ResumeJournalier r WHERE r.employeeId = :employeeId " +
+           "AND r.jour >= :debut AND r.jour <= :fin ORDER BY r.jour")
+    List<ResumeJournalier> findByEmployeeIdAndPeriode(@Param("employeeId") Long employeeId,
+                                                      @Param("debut") LocalDate debut,
+                                                      @Param("fin") LocalDate fin);
+
+    @Query("SELECT r FROM ResumeJournalier r WHERE r.employeeId IN :employeeIds " +
+           "AND r.jour >= :debut AND r.jour <= :fin ORDER BY r.employeeId, r.jour")
+    List<ResumeJournalier> findByEmployeeIdsAndPeriode(@Param("employeeIds") Collection<Long> employeeIds,
+                                                       @Param("debut") LocalDate debut,
+                                                       @Param("fin") LocalDate fin);
+
+    @Query(NOUVEAU_DTO + "WHERE r.employeeId = :employeeId AND r.jour >= :debut AND r.jour <= :fin ORDER BY r.jour")
+    List<ResumeJournalierDTO> findDTOByEmployeeIdAndPeriode(@Param("employeeId") Long employeeId,
+                                                            @Param("debut") LocalDate debut,
+                                                            @Param("fin") LocalDate fin);
+
+    @Query(NOUVEAU_DTO + "WHERE r.jour >= :debut AND r.jour <= :fin ORDER BY r.jour, e.matricule")
+    List<ResumeJournalierDTO> findDTOByPeriode(@Param("debut") LocalDate debut, @Param("fin") LocalDate fin);
+
+    @Modifying
+    @Query("DELETE FROM ResumeJournalier r WHERE r.employeeId = :employeeId")
+    int deleteByEmployeeId(@Param("employeeId") Long employeeId);
+}
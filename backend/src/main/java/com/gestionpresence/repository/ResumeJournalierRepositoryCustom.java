@@ -0,0 +1,19 @@
+package com.gestionpresence.repository;
+
+import com.gestionpresence.model.ResumeJournalier;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Écriture en masse des résumés journaliers produits par la compaction
+ */
+public interface ResumeJournalierRepositoryCustom {
+
+    /**
+     * Supprime les résumés des jours recompactés puis insère les nouveaux, par lots JDBC
+     * (un jour sans pointage restant n'a plus de résumé)
+     */
+    int remplacerEnLot(Map<Long, ? extends Collection<LocalDate>> joursParEmploye, Collection<ResumeJournalier> resumes);
+}
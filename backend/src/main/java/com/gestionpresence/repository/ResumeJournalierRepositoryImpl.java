@@ -0,0 +1,81 @@
+package com.gestionpresence.repository;
+
+import com.gestionpresence.model.ResumeJournalier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implémentation JDBC de la compaction.
+ * La génération IDENTITY désactive le batching Hibernate, d'où le passage direct par JdbcTemplate.
+ */
+public class ResumeJournalierRepositoryImpl implements ResumeJournalierRepositoryCustom {
+
+    private static final String SQL_DELETE = "DELETE FROM resumes_journaliers WHERE employee_id = ? AND jour = ?";
+
+    private static final String SQL_INSERT = "INSERT INTO resumes_journaliers (employee_id, jour, premiere_entree, " +
+            "derniere_sortie, minutes_travaillees, minutes_retard, minutes_supplementaires, nombre_sessions, " +
+            "pointages_orphelins, session_ouverte, absent, date_compaction) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:20}")
+    private int tailleLot;
+
+    @Override
+    public int remplacerEnLot(Map<Long, ? extends Collection<LocalDate>> joursParEmploye,
+                              Collection<ResumeJournalier> resumes) {
+        List<Object[]> cles = new ArrayList<>();
+        joursParEmploye.forEach((employeeId, jours) -> {
+            for (LocalDate jour : jours) {
+                cles.add(new Object[] { employeeId, Date.valueOf(jour) });
+            }
+        });
+        if (!cles.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_DELETE, cles, tailleLot, (ps, cle) -> {
+                ps.setLong(1, (Long) cle[0]);
+                ps.setDate(2, (Date) cle[1]);
+            });
+        }
+        if (resumes.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(SQL_INSERT, resumes, tailleLot, (ps, resume) -> {
+            ps.setLong(1, resume.getEmployeeId());
+            ps.setDate(2, Date.valueOf(resume.getJour()));
+            setHeure(ps, 3, resume.getPremiereEntree());
+            setHeure(ps, 4, resume.getDerniereSortie());
+            ps.setInt(5, resume.getMinutesTravaillees());
+            ps.setInt(6, resume.getMinutesRetard());
+            ps.setInt(7, resume.getMinutesSupplementaires());
+            ps.setInt(8, resume.getNombreSessions());
+            ps.setInt(9, resume.getPointagesOrphelins());
+            ps.setBoolean(10, resume.isSessionOuverte());
+            ps.setBoolean(11, resume.isAbsent());
+            ps.setTimestamp(12, Timestamp.valueOf(resume.getDateCompaction()));
+        });
+        return resumes.size();
+    }
+
+    private static void setHeure(PreparedStatement ps, int index, LocalTime heure) throws SQLException {
+        if (heure != null) {
+            ps.setTime(index, Time.valueOf(heure));
+        } else {
+            ps.setNull(index, Types.TIME);
+        }
+    }
+}
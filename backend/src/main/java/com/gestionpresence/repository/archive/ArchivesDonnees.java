@@ -0,0 +1,532 @@
+package com.gestionpresence.repository.archive;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archives mensuelles des tables partitionnées : &lt;repertoire&gt;/&lt;table&gt;/AAAA-MM-nnn.ndjson.gz,
+ * une ligne JSON par enregistrement.
+ *
+ * Un fichier n'est jamais réécrit : il est produit sous un nom temporaire, relu et compté,
+ * synchronisé sur disque, renommé atomiquement puis passé en lecture seule. Des lignes
+ * arrivées en base après l'archivage d'un mois donnent un segment supplémentaire (nnn + 1).
+ *
+ * Les pointages sont archivés deux fois : triés par (date, id) dans presences et par
+ * (employé, date, id) dans presences_par_employe, pour que les lectures dans l'un ou l'autre
+ * ordre parcourent les fichiers sans les charger (parcourir). Les bulletins, une ligne par
+ * employé et par mois, sont relus en entier et conservés décodés dans un cache
+ * (app.archivage.cache.spec).
+ */
+@Slf4j
+@Component
+public class ArchivesDonnees {
+
+    public static final String PRESENCES = "presences";
+    public static final String PRESENCES_PAR_EMPLOYE = "presences_par_employe";
+    public static final String BULLETINS = "bulletins_salaire";
+
+    private static final String SUFFIXE = ".ndjson.gz";
+    private static final Pattern NOM_SEGMENT = Pattern.compile("(\\d{4}-\\d{2})-(\\d{3})\\.ndjson\\.gz");
+    private static final int TAMPON = 64 * 1024;
+
+    @Value("${app.archivage.repertoire:./data/archives}")
+    private String repertoire;
+
+    @Value("${app.archivage.cache.spec:maximumSize=12,expireAfterAccess=1h}")
+    private String specCache;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final ObjectWriter writer = mapper.writer().withRootValueSeparator("\n");
+
+    private Path dossier;
+
+    // Mois archivés par table, tenus à jour à chaque écriture
+    private final Map<String, NavigableSet<YearMonth>> index = new ConcurrentHashMap<>();
+
+    private Cache<String, List<?>> cache;
+
+    @PostConstruct
+    public void initialiser() {
+        dossier = Paths.get(repertoire).toAbsolutePath();
+        cache = Caffeine.from(specCache).build();
+        for (String table : new String[] { PRESENCES, PRESENCES_PAR_EMPLOYE, BULLETINS }) {
+            NavigableSet<YearMonth> mois = moisArchives(table);
+            for (Path segment : segments(table, null)) {
+                Matcher nom = NOM_SEGMENT.matcher(segment.getFileName().toString());
+                if (nom.matches()) {
+                    mois.add(YearMonth.parse(nom.group(1)));
+                }
+            }
+            if (!mois.isEmpty()) {
+                log.info("Archives {} : {} mois, de {} à {}", table, mois.size(), mois.first(), mois.last());
+            }
+        }
+    }
+
+    /**
+     * Mois archivés de la table dans [premier, dernier] (null : non borné), par ordre croissant
+     */
+    public NavigableSet<YearMonth> moisArchives(String table, YearMonth premier, YearMonth dernier) {
+        NavigableSet<YearMonth> mois = moisArchives(table);
+        if (mois.isEmpty()) {
+            return mois;
+        }
+        YearMonth debut = premier != null ? premier : mois.first();
+        YearMonth fin = dernier != null ? dernier : mois.last();
+        if (debut.isAfter(fin)) {
+            return Collections.emptyNavigableSet();
+        }
+        return mois.subSet(debut, true, fin, true);
+    }
+
+    /**
+     * Écrit un nouveau segment du mois avec les lignes du flux (rien si le flux est vide)
+     *
+     * @return le nombre de lignes archivées
+     */
+    public <T> long ecrire(String table, YearMonth mois, Stream<T> lignes) {
+        try (Segment segment = preparer(table, mois, lignes)) {
+            publier(List.of(segment));
+            return segment.getLignes();
+        }
+    }
+
+    /**
+     * Écrit, relit et synchronise sur disque un nouveau segment du mois sous un nom temporaire.
+     * Le segment n'est visible qu'une fois publié; fermé sans avoir été publié, il est supprimé.
+     */
+    public <T> Segment preparer(String table, YearMonth mois, Stream<T> lignes) {
+        Path dossierTable = dossier.resolve(table);
+        Segment segment = null;
+        try {
+            Files.createDirectories(dossierTable);
+            Path cible = dossierTable.resolve(String.format("%s-%03d%s", mois, prochainNumero(table, mois), SUFFIXE));
+            segment = new Segment(table, mois, cible, dossierTable.resolve(cible.getFileName() + ".tmp"));
+
+            long nombre = 0;
+            try (FileOutputStream fichier = new FileOutputStream(segment.temporaire.toFile())) {
+                GZIPOutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(fichier, TAMPON), TAMPON);
+                try (SequenceWriter sequence = writer.writeValues(gzip)) {
+                    Iterator<T> iterateur = lignes.iterator();
+                    while (iterateur.hasNext()) {
+                        sequence.write(iterateur.next());
+                        nombre++;
+                    }
+                }
+                gzip.finish();
+                gzip.flush();
+                fichier.getChannel().force(true);
+            }
+            segment.lignes = nombre;
+
+            long relues = compter(segment.temporaire);
+            if (relues != nombre) {
+                throw new IllegalStateException("Archive " + cible + " incomplète : " + relues + " ligne(s) relue(s) sur "
+                        + nombre);
+            }
+            return segment;
+        } catch (IOException e) {
+            if (segment != null) {
+                segment.close();
+            }
+            throw new UncheckedIOException("Écriture de l'archive " + table + " " + mois + " impossible", e);
+        } catch (RuntimeException e) {
+            if (segment != null) {
+                segment.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Renomme les segments préparés sous leur nom définitif (les segments vides sont ignorés)
+     */
+    public void publier(List<Segment> segments) {
+        for (Segment segment : segments) {
+            if (segment.lignes == 0) {
+                continue;
+            }
+            try {
+                Files.move(segment.temporaire, segment.cible, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Publication de l'archive " + segment.cible + " impossible", e);
+            }
+            segment.publie = true;
+            if (!segment.cible.toFile().setReadOnly()) {
+                log.warn("Impossible de passer l'archive {} en lecture seule", segment.cible);
+            }
+            moisArchives(segment.table).add(segment.mois);
+            cache.invalidate(cle(segment.table, segment.mois));
+            log.debug("Archive {} écrite : {} ligne(s)", segment.cible, segment.lignes);
+        }
+    }
+
+    /**
+     * Lignes archivées du mois (tous segments), en lecture seule
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> lire(String table, YearMonth mois, Class<T> type) {
+        if (!moisArchives(table).contains(mois)) {
+            return Collections.emptyList();
+        }
+        return (List<T>) cache.get(cle(table, mois), cle -> charger(table, mois, type));
+    }
+
+    /**
+     * Lignes archivées des mois donnés, lues à la demande : seuls les segments en cours de
+     * lecture sont ouverts (un tampon chacun), quel que soit le nombre de lignes. Chaque segment
+     * est trié selon ordre, qui doit se terminer par l'identifiant; les segments sont fusionnés
+     * et une ligne présente dans deux segments (archivage repris après une interruption) n'est
+     * renvoyée qu'une fois. Si moisParMois, l'ordre suit celui des mois et un seul mois est
+     * ouvert à la fois; sinon les segments de tous les mois sont fusionnés ensemble.
+     * Le flux doit être fermé.
+     */
+    public <T> Stream<T> parcourir(String table, NavigableSet<YearMonth> mois, Class<T> type,
+                                   Comparator<? super T> ordre, boolean moisParMois) {
+        Map<YearMonth, List<Path>> parMois = new TreeMap<>();
+        for (Path segment : segments(table, null)) {
+            Matcher nom = NOM_SEGMENT.matcher(segment.getFileName().toString());
+            if (nom.matches() && mois.contains(YearMonth.parse(nom.group(1)))) {
+                parMois.computeIfAbsent(YearMonth.parse(nom.group(1)), m -> new ArrayList<>()).add(segment);
+            }
+        }
+        List<List<Path>> groupes = new ArrayList<>();
+        if (moisParMois) {
+            groupes.addAll(parMois.values());
+        } else if (!parMois.isEmpty()) {
+            groupes.add(parMois.values().stream().flatMap(List::stream).collect(Collectors.toList()));
+        }
+        LectureFusionnee<T> lecture = new LectureFusionnee<>(groupes, mapper.readerFor(type), ordre);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(lecture, Spliterator.ORDERED), false)
+                .onClose(lecture::close);
+    }
+
+    /**
+     * Fusion de deux sources triées selon le même ordre, qui doit se terminer par l'identifiant :
+     * seules deux lignes de même identifiant sont égales, et la ligne en base l'emporte (ligne
+     * archivée mais pas encore supprimée de la base). Sans ligne archivée, le flux en base est
+     * renvoyé tel quel; sinon le flux résultant ferme les deux sources.
+     */
+    public static <T> Stream<T> fusionner(Stream<? extends T> archivees, Stream<T> enBase, Comparator<? super T> ordre) {
+        Iterator<? extends T> gauche = archivees.iterator();
+        if (!gauche.hasNext()) {
+            archivees.close();
+            return enBase;
+        }
+        Iterator<T> droite = enBase.iterator();
+        Iterator<T> fusion = new Iterator<T>() {
+            private T archivee = gauche.hasNext() ? gauche.next() : null;
+            private T ligne = droite.hasNext() ? droite.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return archivee != null || ligne != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T suivante;
+                int comparaison = archivee == null ? 1 : ligne == null ? -1 : ordre.compare(archivee, ligne);
+                if (comparaison < 0) {
+                    suivante = archivee;
+                    archivee = gauche.hasNext() ? gauche.next() : null;
+                } else {
+                    if (comparaison == 0) {
+                        archivee = gauche.hasNext() ? gauche.next() : null;
+                    }
+                    suivante = ligne;
+                    ligne = droite.hasNext() ? droite.next() : null;
+                }
+                return suivante;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(fusion, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    try {
+                        archivees.close();
+                    } finally {
+                        enBase.close();
+                    }
+                });
+    }
+
+    private NavigableSet<YearMonth> moisArchives(String table) {
+        return index.computeIfAbsent(table, t -> new ConcurrentSkipListSet<>());
+    }
+
+    private <T> List<T> charger(String table, YearMonth mois, Class<T> type) {
+        List<T> lignes = new ArrayList<>();
+        for (Path segment : segments(table, mois)) {
+            try (InputStream entree = ouvrir(segment);
+                 MappingIterator<T> iterateur = mapper.readerFor(type).readValues(entree)) {
+                while (iterateur.hasNext()) {
+                    lignes.add(iterateur.next());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Lecture de l'archive " + segment + " impossible", e);
+            }
+        }
+        log.debug("Archive {} {} chargée : {} ligne(s)", table, mois, lignes.size());
+        return Collections.unmodifiableList(lignes);
+    }
+
+    private long compter(Path segment) throws IOException {
+        long nombre = 0;
+        try (InputStream entree = ouvrir(segment);
+             MappingIterator<Object> iterateur = mapper.readerFor(Map.class).readValues(entree)) {
+            while (iterateur.hasNext()) {
+                iterateur.next();
+                nombre++;
+            }
+        }
+        return nombre;
+    }
+
+    private int prochainNumero(String table, YearMonth mois) {
+        int numero = 0;
+        for (Path segment : segments(table, mois)) {
+            Matcher nom = NOM_SEGMENT.matcher(segment.getFileName().toString());
+            if (nom.matches()) {
+                numero = Math.max(numero, Integer.parseInt(nom.group(2)));
+            }
+        }
+        return numero + 1;
+    }
+
+    /**
+     * Segments d'un mois (de tous les mois si null), triés par nom
+     */
+    private List<Path> segments(String table, YearMonth mois) {
+        Path dossierTable = dossier.resolve(table);
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(dossierTable)) {
+            return segments;
+        }
+        String filtre = (mois != null ? mois + "-" : "") + "*" + SUFFIXE;
+        try (DirectoryStream<Path> contenu = Files.newDirectoryStream(dossierTable, filtre)) {
+            contenu.forEach(segments::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lecture du répertoire d'archives " + dossierTable + " impossible", e);
+        }
+        segments.sort(Comparator.comparing(Path::getFileName));
+        return segments;
+    }
+
+    private static InputStream ouvrir(Path segment) throws IOException {
+        return new GZIPInputStream(new BufferedInputStream(Files.newInputStream(segment), TAMPON), TAMPON);
+    }
+
+    private static String cle(String table, YearMonth mois) {
+        return table + "/" + mois;
+    }
+
+    /**
+     * Segment écrit sous un nom temporaire, en attente de publication
+     */
+    public static final class Segment implements AutoCloseable {
+        private final String table;
+        private final YearMonth mois;
+        private final Path cible;
+        private final Path temporaire;
+        private long lignes;
+        private boolean publie;
+
+        private Segment(String table, YearMonth mois, Path cible, Path temporaire) {
+            this.table = table;
+            this.mois = mois;
+            this.cible = cible;
+            this.temporaire = temporaire;
+        }
+
+        public long getLignes() {
+            return lignes;
+        }
+
+        /**
+         * Supprime le fichier temporaire d'un segment non publié
+         */
+        @Override
+        public void close() {
+            if (publie) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(temporaire);
+            } catch (IOException e) {
+                log.warn("Fichier temporaire {} non supprimé: {}", temporaire, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Fusion k voies des segments d'un groupe, groupe après groupe
+     */
+    private static final class LectureFusionnee<T> implements Iterator<T> {
+        private final Iterator<List<Path>> groupes;
+        private final ObjectReader reader;
+        private final Comparator<? super T> ordre;
+        private final PriorityQueue<Curseur<T>> file;
+        private final List<Curseur<T>> ouverts = new ArrayList<>();
+        private T derniere;
+        private T suivante;
+
+        private LectureFusionnee(List<List<Path>> groupes, ObjectReader reader, Comparator<? super T> ordre) {
+            this.groupes = groupes.iterator();
+            this.reader = reader;
+            this.ordre = ordre;
+            this.file = new PriorityQueue<>((a, b) -> ordre.compare(a.tete, b.tete));
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (suivante == null) {
+                if (file.isEmpty() && !ouvrirGroupe()) {
+                    return false;
+                }
+                Curseur<T> curseur = file.poll();
+                if (curseur == null) {
+                    continue;
+                }
+                T ligne = curseur.tete;
+                if (curseur.avancer()) {
+                    file.add(curseur);
+                }
+                if (derniere == null || ordre.compare(derniere, ligne) != 0) {
+                    derniere = ligne;
+                    suivante = ligne;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T ligne = suivante;
+            suivante = null;
+            return ligne;
+        }
+
+        /**
+         * @return false s'il ne reste aucun groupe à lire
+         */
+        private boolean ouvrirGroupe() {
+            close();
+            if (!groupes.hasNext()) {
+                return false;
+            }
+            for (Path segment : groupes.next()) {
+                Curseur<T> curseur = new Curseur<>(segment, reader);
+                ouverts.add(curseur);
+                if (curseur.avancer()) {
+                    file.add(curseur);
+                }
+            }
+            return true;
+        }
+
+        private void close() {
+            file.clear();
+            ouverts.forEach(Curseur::close);
+            ouverts.clear();
+        }
+    }
+
+    /**
+     * Lecture séquentielle d'un segment, ligne courante en tête
+     */
+    private static final class Curseur<T> {
+        private final Path segment;
+        private final InputStream entree;
+        private final MappingIterator<T> iterateur;
+        private T tete;
+
+        private Curseur(Path segment, ObjectReader reader) {
+            this.segment = segment;
+            try {
+                this.entree = ouvrir(segment);
+                this.iterateur = reader.readValues(entree);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Lecture de l'archive " + segment + " impossible", e);
+            }
+        }
+
+        /**
+         * @return false (segment fermé) à la fin du segment
+         */
+        private boolean avancer() {
+            if (iterateur.hasNext()) {
+                tete = iterateur.next();
+                return true;
+            }
+            close();
+            return false;
+        }
+
+        private void close() {
+            try {
+                iterateur.close();
+                entree.close();
+            } catch (IOException e) {
+                log.warn("Fermeture de l'archive {} impossible: {}", segment, e.getMessage());
+            }
+        }
+    }
+}
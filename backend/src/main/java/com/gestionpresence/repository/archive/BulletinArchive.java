@@ -0,0 +1,37 @@
+package com.gestionpresence.repository.archive;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Ligne de la table bulletins_salaire telle qu'écrite dans les fichiers d'archive
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulletinArchive {
+
+    private Long id;
+    private Long employeeId;
+    private LocalDate periodeDebut;
+    private LocalDate periodeFin;
+    private double salaireBase;
+    private int joursTravailles;
+    private int joursAbsence;
+    private int totalRetardsMinutes;
+    private double heuresSupplementaires;
+    private double deductionAbsences;
+    private double deductionRetards;
+    private double salaireNet;
+    private boolean envoye;
+    private LocalDate dateEnvoi;
+    private int tentativesEnvoi;
+    private LocalDateTime prochainEssaiEnvoi;
+    private String derniereErreurEnvoi;
+}
@@ -0,0 +1,113 @@
+package com.gestionpresence.repository.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Maintenance des tables partitionnées par mois (RANGE COLUMNS, partitions pAAAAMM et pmax,
+ * voir migration_partitionnement.sql). Sur une base non partitionnée (H2, base non migrée),
+ * la création de partitions est ignorée.
+ */
+@Slf4j
+@Component
+public class PartitionsMensuelles {
+
+    private static final String PARTITION_MAX = "pmax";
+    private static final DateTimeFormatter FORMAT_NOM = DateTimeFormatter.ofPattern("'p'uuuuMM");
+    private static final Pattern NOM_MENSUEL = Pattern.compile("p\\d{6}");
+
+    private static final String SQL_PARTITIONS = "SELECT partition_name FROM information_schema.partitions " +
+            "WHERE table_schema = DATABASE() AND table_name = ? AND partition_name IS NOT NULL " +
+            "ORDER BY partition_ordinal_position";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Partitions de la table dans l'ordre des bornes (vide si la table n'est pas partitionnée)
+     */
+    public List<String> partitions(String table) {
+        try {
+            return jdbcTemplate.queryForList(SQL_PARTITIONS, String.class, table);
+        } catch (DataAccessException e) {
+            // information_schema.partitions propre à MySQL
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Découpe pmax pour que chaque mois jusqu'à dernier ait sa partition (pmax reste vide
+     * tant que la tâche passe avant l'échéance : le découpage ne déplace aucune ligne)
+     *
+     * @return le nombre de partitions créées
+     */
+    public int creerJusqua(String table, YearMonth dernier) {
+        List<String> partitions = partitions(table);
+        if (partitions.isEmpty()) {
+            return 0;
+        }
+        if (!partitions.contains(PARTITION_MAX)) {
+            log.warn("Table {} partitionnée sans partition {} : aucune partition créée", table, PARTITION_MAX);
+            return 0;
+        }
+        Optional<YearMonth> derniereExistante = partitions.stream()
+                .filter(nom -> NOM_MENSUEL.matcher(nom).matches())
+                .map(nom -> YearMonth.parse(nom, FORMAT_NOM))
+                .max(YearMonth::compareTo);
+        int creees = 0;
+        for (YearMonth mois = derniereExistante.map(m -> m.plusMonths(1)).orElse(YearMonth.now());
+             !mois.isAfter(dernier); mois = mois.plusMonths(1)) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " REORGANIZE PARTITION " + PARTITION_MAX + " INTO (" +
+                    "PARTITION " + nom(mois) + " VALUES LESS THAN ('" + mois.plusMonths(1).atDay(1) + "'), " +
+                    "PARTITION " + PARTITION_MAX + " VALUES LESS THAN (MAXVALUE))");
+            creees++;
+        }
+        if (creees > 0) {
+            log.info("Table {} : {} partition(s) mensuelle(s) créée(s) jusqu'à {}", table, creees, dernier);
+        }
+        return creees;
+    }
+
+    /**
+     * Supprime du mois les lignes d'identifiants donnés (celles qui viennent d'être archivées),
+     * par tranches, une transaction courte par tranche. Seules les lignes exportées sont
+     * supprimées : une ligne arrivée dans le mois après l'export reste en base
+     * et part dans le segment suivant. La partition du mois, même vidée, est conservée.
+     *
+     * @return le nombre de lignes supprimées
+     */
+    public long supprimerMois(String table, String colonne, YearMonth mois, long[] ids, int tranche) {
+        Timestamp debut = Timestamp.valueOf(mois.atDay(1).atStartOfDay());
+        Timestamp fin = Timestamp.valueOf(mois.plusMonths(1).atDay(1).atStartOfDay());
+        long supprimees = 0;
+        for (int i = 0; i < ids.length; i += tranche) {
+            int taille = Math.min(tranche, ids.length - i);
+            Object[] parametres = new Object[taille + 2];
+            parametres[0] = debut;
+            parametres[1] = fin;
+            for (int j = 0; j < taille; j++) {
+                parametres[j + 2] = ids[i + j];
+            }
+            // La borne sur la colonne de partitionnement limite la suppression à la partition du mois
+            supprimees += jdbcTemplate.update("DELETE FROM " + table + " WHERE " + colonne + " >= ? AND "
+                    + colonne + " < ? AND id IN (" + String.join(", ", Collections.nCopies(taille, "?")) + ")",
+                    parametres);
+        }
+        return supprimees;
+    }
+
+    private static String nom(YearMonth mois) {
+        return mois.format(FORMAT_NOM);
+    }
+}
@@ -0,0 +1,27 @@
+package com.gestionpresence.repository.archive;
+
+import com.gestionpresence.repository.projection.PointageProjection;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ligne de la table presences telle qu'écrite dans les fichiers d'archive
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointageArchive implements PointageProjection {
+
+    private Long id;
+    private Long employeeId;
+    private LocalDateTime dateHeurePointage;
+    private String typePointage;
+    private boolean retard;
+    private int minutesRetard;
+    private String cleDeduplication;
+}
@@ -0,0 +1,47 @@
+package com.gestionpresence.repository.projection;
+
+import com.gestionpresence.model.Employee;
+
+/**
+ * Vue compacte et immuable d'un employé (sans le QR code) pour les résolutions de matricule
+ */
+public final class EmployeResume {
+
+    private final Long id;
+    private final String matricule;
+    private final String nom;
+    private final String prenom;
+    private final String email;
+    private final String poste;
+    private final double salaireBase;
+
+    public EmployeResume(Long id, String matricule, String nom, String prenom, String email, String poste,
+                         double salaireBase) {
+        this.id = id;
+        this.matricule = matricule;
+        this.nom = nom;
+        this.prenom = prenom;
+        this.email = email;
+        this.poste = poste;
+        this.salaireBase = salaireBase;
+    }
+
+    public static EmployeResume de(Employee employee) {
+        return new EmployeResume(employee.getId(), employee.getMatricule(), employee.getNom(),
+                employee.getPrenom(), employee.getEmail(), employee.getPoste(), employee.getSalaireBase());
+    }
+
+    public Long getId() { return id; }
+
+    public String getMatricule() { return matricule; }
+
+    public String getNom() { return nom; }
+
+    public String getPrenom() { return prenom; }
+
+    public String getEmail() { return email; }
+
+    public String getPoste() { return poste; }
+
+    public double getSalaireBase() { return salaireBase; }
+}
@@ -0,0 +1,18 @@
+package com.gestionpresence.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vue minimale d'un pointage pour l'analyse des présences (sans hydratation de l'employé).
+ * L'identifiant départage les pointages de même date (fusion base / archives).
+ */
+public interface PointageProjection {
+
+    Long getId();
+
+    Long getEmployeeId();
+
+    LocalDateTime getDateHeurePointage();
+
+    String getTypePointage();
+}
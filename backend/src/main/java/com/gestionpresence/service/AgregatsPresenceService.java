@@ -0,0 +1,358 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.dto.AgregatPresenceDTO;
+import com.gestionpresence.dto.RapportReconciliationDTO;
+import com.gestionpresence.model.AgregatPresence;
+import com.gestionpresence.model.Presence;
+import com.gestionpresence.repository.AgregatPresenceRepository;
+import com.gestionpresence.repository.PresenceRepository;
+import com.gestionpresence.repository.projection.PointageProjection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tenue incrémentale des agrégats mensuels de présence (AgregatPresence).
+ * Chaque écriture de pointage met à jour l'agrégat dans sa propre transaction, sous
+ * verrou de ligne : l'agrégat ne peut pas diverger d'une insertion validée.
+ * Mêmes règles que PointagesMensuels.analyser :
+ * - chaque ENTREE après l'heure de début compte en retard;
+ * - chaque SORTIE après l'heure de fin, hors weekend, compte en heures supplémentaires;
+ * - un jour avec ENTREE est marqué dans le masque (weekends et fériés filtrés par la paie).
+ * La réconciliation recalcule les agrégats depuis les pointages bruts et corrige les écarts
+ * (écritures SQL directes, agrégats antérieurs à la mise en place, etc.).
+ */
+@Slf4j
+@Service
+public class AgregatsPresenceService {
+
+    @Autowired
+    private AgregatPresenceRepository agregatPresenceRepository;
+
+    @Autowired
+    private PresenceRepository presenceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.salaire.heure.debut:09:00}")
+    @DateTimeFormat(pattern = "HH:mm")
+    private LocalTime heureDebutTravail;
+
+    @Value("${app.salaire.heure.fin:17:00}")
+    @DateTimeFormat(pattern = "HH:mm")
+    private LocalTime heureFinTravail;
+
+    /**
+     * Ajoute aux agrégats des pointages qui viennent d'être insérés, dans la transaction
+     * de l'insertion. Un verrou par (employé, mois), pris dans l'ordre des employés.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ajouter(Collection<Presence> presences) {
+        Map<LocalDate, TreeMap<Long, List<Presence>>> parMois = new TreeMap<>();
+        for (Presence presence : presences) {
+            parMois.computeIfAbsent(premierJour(presence.getDateHeurePointage()), mois -> new TreeMap<>())
+                    .computeIfAbsent(presence.getEmployee().getId(), id -> new ArrayList<>())
+                    .add(presence);
+        }
+
+        LocalDateTime maintenant = LocalDateTime.now();
+        parMois.forEach((mois, parEmploye) -> {
+            Map<Long, AgregatPresence> agregats = verrouillerOuCreer(mois, parEmploye.keySet());
+            parEmploye.forEach((employeeId, pointages) -> {
+                AgregatPresence agregat = agregats.get(employeeId);
+                for (Presence presence : pointages) {
+                    ajouter(agregat, presence.getDateHeurePointage(), presence.getTypePointage());
+                    agregat.setJoursACompacter(agregat.getJoursACompacter() | bitJour(presence.getDateHeurePointage()));
+                }
+                agregat.setDateMaj(maintenant);
+            });
+        });
+    }
+
+    /**
+     * Crée si besoin l'agrégat du mois, hors de la transaction du pointage (à appeler avant de
+     * l'ouvrir) : créé dans ajouter(), il le serait dans une transaction séparée qui emprunterait
+     * une seconde connexion pendant que celle du pointage est tenue (famine du pool sous charge).
+     * Vérification et création se font dans la même transaction, sur une seule connexion.
+     */
+    public void preparer(Long employeeId, LocalDateTime dateHeure) {
+        LocalDate mois = premierJour(dateHeure);
+        try {
+            nouvelleTransaction().executeWithoutResult(status -> {
+                if (agregatPresenceRepository.findEmployeeIdsExistants(mois, List.of(employeeId)).isEmpty()) {
+                    agregatPresenceRepository.save(new AgregatPresence(employeeId, mois));
+                }
+            });
+        } catch (DataIntegrityViolationException dejaCree) {
+            log.debug("Agrégat de l'employé {} pour {} créé par une autre transaction", employeeId, mois);
+        }
+    }
+
+    /**
+     * Retire un pointage supprimé (suppression déjà exécutée dans la transaction courante)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void retirer(Long employeeId, LocalDateTime dateHeure, String typePointage) {
+        LocalDate mois = premierJour(dateHeure);
+        List<AgregatPresence> verrouilles = agregatPresenceRepository.verrouiller(mois, List.of(employeeId));
+        if (verrouilles.isEmpty()) {
+            log.warn("Aucun agrégat pour l'employé {} en {} lors d'une suppression, laissé à la réconciliation",
+                    employeeId, mois);
+            return;
+        }
+        AgregatPresence agregat = verrouilles.get(0);
+        int minuteDuJour = dateHeure.getHour() * 60 + dateHeure.getMinute();
+
+        agregat.setNombrePointages(agregat.getNombrePointages() - 1);
+        agregat.setJoursACompacter(agregat.getJoursACompacter() | bitJour(dateHeure));
+        if ("ENTREE".equals(typePointage)) {
+            agregat.setRetardsMinutes(agregat.getRetardsMinutes() - minutesRetard(minuteDuJour));
+            // Le jour reste marqué tant qu'il lui reste une ENTREE
+            if (presenceRepository.countEntreesByEmployeeAndDate(employeeId, dateHeure.toLocalDate()) == 0) {
+                agregat.setJoursAvecEntree(agregat.getJoursAvecEntree() & ~bitJour(dateHeure));
+            }
+        } else if ("SORTIE".equals(typePointage)) {
+            agregat.setSupplementairesMinutes(agregat.getSupplementairesMinutes()
+                    - minutesSupplementaires(dateHeure, minuteDuJour));
+        }
+
+        if (dateHeure.equals(agregat.getDernierPointage())) {
+            List<PointageProjection> dernier = presenceRepository.findDerniersPointages(employeeId,
+                    mois.atStartOfDay(), mois.plusMonths(1).atStartOfDay(), PageRequest.of(0, 1));
+            agregat.setDernierPointage(dernier.isEmpty() ? null : dernier.get(0).getDateHeurePointage());
+            agregat.setDernierType(dernier.isEmpty() ? null : dernier.get(0).getTypePointage());
+        }
+        agregat.setDateMaj(LocalDateTime.now());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<AgregatPresence> findByEmployeeIdAndMois(Long employeeId, LocalDate mois) {
+        return agregatPresenceRepository.findByEmployeeIdAndMois(employeeId, mois.withDayOfMonth(1));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<AgregatPresenceDTO> findDTOByEmployeeIdAndMois(Long employeeId, LocalDate mois) {
+        return findByEmployeeIdAndMois(employeeId, mois).map(this::convertToDTO);
+    }
+
+    /**
+     * Agrégats du mois pour un lot d'employés, en une requête (employé sans agrégat : aucun pointage)
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, AgregatPresence> findByMois(Collection<Long> employeeIds, LocalDate mois) {
+        return agregatPresenceRepository.findByMoisAndEmployeeIds(mois.withDayOfMonth(1), employeeIds).stream()
+                .collect(Collectors.toMap(AgregatPresence::getEmployeeId, agregat -> agregat));
+    }
+
+    /**
+     * Compare les agrégats du mois aux pointages bruts (une lecture en flux de la table des
+     * présences) puis corrige chaque écart sous verrou, après un nouveau calcul qui écarte
+     * les faux positifs dus aux pointages arrivés pendant la lecture.
+     */
+    public RapportReconciliationDTO reconcilier(LocalDate mois) {
+        long debut = System.currentTimeMillis();
+        LocalDate premierJour = mois.withDayOfMonth(1);
+
+        Map<Long, AgregatPresence> attendus = new HashMap<>();
+        Map<Long, AgregatPresence> existants = new HashMap<>();
+        TransactionTemplate lecture = new TransactionTemplate(transactionManager);
+        lecture.setReadOnly(true);
+        lecture.executeWithoutResult(status -> {
+            try (Stream<PointageProjection> flux = presenceRepository.streamPointagesByIntervalle(
+                    premierJour.atStartOfDay(), premierJour.plusMonths(1).atStartOfDay())) {
+                flux.forEach(pointage -> ajouter(
+                        attendus.computeIfAbsent(pointage.getEmployeeId(), id -> new AgregatPresence(id, premierJour)),
+                        pointage.getDateHeurePointage(), pointage.getTypePointage()));
+            }
+            for (AgregatPresence agregat : agregatPresenceRepository.findByMois(premierJour)) {
+                existants.put(agregat.getEmployeeId(), agregat);
+            }
+        });
+
+        Set<Long> employeeIds = new TreeSet<>(attendus.keySet());
+        employeeIds.addAll(existants.keySet());
+        List<Long> ecarts = new ArrayList<>();
+        for (Long employeeId : employeeIds) {
+            AgregatPresence attendu = attendus.getOrDefault(employeeId, new AgregatPresence(employeeId, premierJour));
+            AgregatPresence existant = existants.get(employeeId);
+            boolean conforme = existant != null ? existant.memesCumuls(attendu) : attendu.getNombrePointages() == 0;
+            if (!conforme) {
+                ecarts.add(employeeId);
+            }
+        }
+
+        int corriges = 0;
+        for (Long employeeId : ecarts) {
+            try {
+                if (Boolean.TRUE.equals(nouvelleTransaction().execute(status -> corriger(employeeId, premierJour)))) {
+                    corriges++;
+                }
+            } catch (Exception e) {
+                log.error("Échec de la correction de l'agrégat de l'employé {} pour {}", employeeId, premierJour, e);
+            }
+        }
+
+        RapportReconciliationDTO rapport = RapportReconciliationDTO.builder()
+                .mois(premierJour)
+                .employesVerifies(employeeIds.size())
+                .ecartsDetectes(ecarts.size())
+                .agregatsCorriges(corriges)
+                .dureeMs(System.currentTimeMillis() - debut)
+                .build();
+        log.info("Réconciliation des agrégats de {} : {} employés vérifiés, {} écarts, {} corrigés en {} ms",
+                premierJour, rapport.getEmployesVerifies(), rapport.getEcartsDetectes(),
+                rapport.getAgregatsCorriges(), rapport.getDureeMs());
+        return rapport;
+    }
+
+    /**
+     * Recalcule un agrégat depuis les pointages bruts de l'employé, sous verrou
+     * @return true si l'agrégat a été modifié
+     */
+    private boolean corriger(Long employeeId, LocalDate mois) {
+        AgregatPresence agregat = verrouillerOuCreer(mois, List.of(employeeId)).get(employeeId);
+        AgregatPresence recalcule = new AgregatPresence(employeeId, mois);
+        for (PointageProjection pointage : presenceRepository.findPointagesByEmployeeIdAndIntervalle(
+                employeeId, mois.atStartOfDay(), mois.plusMonths(1).atStartOfDay())) {
+            ajouter(recalcule, pointage.getDateHeurePointage(), pointage.getTypePointage());
+        }
+        if (agregat.memesCumuls(recalcule)) {
+            return false;
+        }
+        log.warn("Agrégat corrigé pour l'employé {} en {} : {} pointages / {} min de retard / {} min sup. " +
+                        "au lieu de {} / {} / {}", employeeId, mois,
+                recalcule.getNombrePointages(), recalcule.getRetardsMinutes(), recalcule.getSupplementairesMinutes(),
+                agregat.getNombrePointages(), agregat.getRetardsMinutes(), agregat.getSupplementairesMinutes());
+        agregat.copierCumuls(recalcule);
+        // Les résumés journaliers du mois ont pu diverger eux aussi
+        agregat.setJoursACompacter(tousLesJours(mois));
+        agregat.setDateMaj(LocalDateTime.now());
+        return true;
+    }
+
+    /**
+     * Crée les agrégats manquants (transaction séparée, une création concurrente n'est pas
+     * une erreur) puis verrouille ceux du lot. La vérification préalable se fait sans verrou :
+     * un SELECT ... FOR UPDATE sur une ligne absente poserait un verrou d'intervalle qui
+     * bloquerait la création.
+     */
+    private Map<Long, AgregatPresence> verrouillerOuCreer(LocalDate mois, Collection<Long> employeeIds) {
+        Set<Long> manquants = new TreeSet<>(employeeIds);
+        manquants.removeAll(new HashSet<>(agregatPresenceRepository.findEmployeeIdsExistants(mois, employeeIds)));
+        if (!manquants.isEmpty()) {
+            creer(mois, manquants);
+        }
+
+        Map<Long, AgregatPresence> agregats = new HashMap<>();
+        for (AgregatPresence agregat : agregatPresenceRepository.verrouiller(mois, employeeIds)) {
+            agregats.put(agregat.getEmployeeId(), agregat);
+        }
+        return agregats;
+    }
+
+    private void creer(LocalDate mois, Set<Long> employeeIds) {
+        try {
+            nouvelleTransaction().executeWithoutResult(status -> agregatPresenceRepository.saveAll(
+                    employeeIds.stream().map(id -> new AgregatPresence(id, mois)).collect(Collectors.toList())));
+        } catch (DataIntegrityViolationException e) {
+            // Une autre transaction en a créé une partie : création une à une
+            for (Long employeeId : employeeIds) {
+                try {
+                    nouvelleTransaction().executeWithoutResult(status ->
+                            agregatPresenceRepository.save(new AgregatPresence(employeeId, mois)));
+                } catch (DataIntegrityViolationException dejaCree) {
+                    log.debug("Agrégat de l'employé {} pour {} créé par une autre transaction", employeeId, mois);
+                }
+            }
+        }
+    }
+
+    private void ajouter(AgregatPresence agregat, LocalDateTime dateHeure, String typePointage) {
+        int minuteDuJour = dateHeure.getHour() * 60 + dateHeure.getMinute();
+
+        agregat.setNombrePointages(agregat.getNombrePointages() + 1);
+        if ("ENTREE".equals(typePointage)) {
+            agregat.setRetardsMinutes(agregat.getRetardsMinutes() + minutesRetard(minuteDuJour));
+            agregat.setJoursAvecEntree(agregat.getJoursAvecEntree() | bitJour(dateHeure));
+        } else if ("SORTIE".equals(typePointage)) {
+            agregat.setSupplementairesMinutes(agregat.getSupplementairesMinutes()
+                    + minutesSupplementaires(dateHeure, minuteDuJour));
+        }
+
+        // À heure égale, le dernier inséré l'emporte (même ordre que (dateHeurePointage, id))
+        if (agregat.getDernierPointage() == null || !dateHeure.isBefore(agregat.getDernierPointage())) {
+            agregat.setDernierPointage(dateHeure);
+            agregat.setDernierType(typePointage);
+        }
+    }
+
+    private int minutesRetard(int minuteDuJour) {
+        return Math.max(0, minuteDuJour - heureDebutTravail.toSecondOfDay() / 60);
+    }
+
+    private int minutesSupplementaires(LocalDateTime dateHeure, int minuteDuJour) {
+        if (PointagesMensuels.estWeekend(dateHeure.toLocalDate().toEpochDay())) {
+            return 0;
+        }
+        return Math.max(0, minuteDuJour - heureFinTravail.toSecondOfDay() / 60);
+    }
+
+    private static int bitJour(LocalDateTime dateHeure) {
+        return 1 << (dateHeure.getDayOfMonth() - 1);
+    }
+
+    static int tousLesJours(LocalDate mois) {
+        return (int) ((1L << mois.lengthOfMonth()) - 1);
+    }
+
+    private static LocalDate premierJour(LocalDateTime dateHeure) {
+        return dateHeure.toLocalDate().withDayOfMonth(1);
+    }
+
+    private TransactionTemplate nouvelleTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    AgregatPresenceDTO convertToDTO(AgregatPresence agregat) {
+        return AgregatPresenceDTO.builder()
+                .employeeId(agregat.getEmployeeId())
+                .mois(agregat.getMois())
+                .joursAvecEntree(Integer.bitCount(agregat.getJoursAvecEntree()))
+                .retardsMinutes(agregat.getRetardsMinutes())
+                .supplementairesMinutes(agregat.getSupplementairesMinutes())
+                .nombrePointages(agregat.getNombrePointages())
+                .dernierPointage(agregat.getDernierPointage())
+                .dernierType(agregat.getDernierType())
+                .version(agregat.getVersion())
+                .dateMaj(agregat.getDateMaj())
+                .build();
+    }
+}
@@ -0,0 +1,189 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.repository.BulletinSalaireRepository;
+import com.gestionpresence.repository.PresenceRepository;
+import com.gestionpresence.repository.archive.ArchivesDonnees;
+import com.gestionpresence.repository.archive.BulletinArchive;
+import com.gestionpresence.repository.archive.PartitionsMensuelles;
+import com.gestionpresence.repository.archive.PointageArchive;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Archivage hebdomadaire des périodes closes (ScheduledTasks.nettoyageDonnees) :
+ * - les pointages des mois antérieurs à app.archivage.presences.retention-mois et les bulletins
+ *   des mois antérieurs à app.archivage.bulletins.retention-mois sont exportés dans les
+ *   archives (ArchivesDonnees) puis supprimés de la base par identifiant, mois par mois;
+ * - un mois de bulletins n'est pas archivé tant qu'il reste des envois en attente;
+ * - les partitions des app.archivage.partitions-avance-mois mois à venir sont créées.
+ * Les lectures historiques des repositories fusionnent la base et les archives.
+ */
+@Slf4j
+@Service
+public class ArchivageService {
+
+    @Autowired
+    private PresenceRepository presenceRepository;
+
+    @Autowired
+    private BulletinSalaireRepository bulletinSalaireRepository;
+
+    @Autowired
+    private ArchivesDonnees archives;
+
+    @Autowired
+    private PartitionsMensuelles partitions;
+
+    @Value("${app.archivage.active:false}")
+    private boolean active;
+
+    @Value("${app.archivage.presences.retention-mois:13}")
+    private int retentionPresences;
+
+    @Value("${app.archivage.bulletins.retention-mois:24}")
+    private int retentionBulletins;
+
+    @Value("${app.archivage.taille-lot:5000}")
+    private int tailleLot;
+
+    @Value("${app.archivage.partitions-avance-mois:3}")
+    private int partitionsAvance;
+
+    @Value("${app.mail.envoi-masse.tentatives-max:5}")
+    private int tentativesMax;
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Crée les partitions mensuelles à venir (sans effet sur une base non partitionnée)
+     */
+    public int preparerPartitions() {
+        YearMonth dernier = YearMonth.now().plusMonths(partitionsAvance);
+        return partitions.creerJusqua(ArchivesDonnees.PRESENCES, dernier)
+                + partitions.creerJusqua(ArchivesDonnees.BULLETINS, dernier);
+    }
+
+    /**
+     * Archive tous les mois clos hors rétention encore présents en base
+     *
+     * @return le nombre de lignes archivées
+     */
+    public long archiver() {
+        return archiverPresences(YearMonth.now().minusMonths(retentionPresences))
+                + archiverBulletins(YearMonth.now().minusMonths(retentionBulletins));
+    }
+
+    /**
+     * Archive les pointages des mois antérieurs à limite
+     */
+    public long archiverPresences(YearMonth limite) {
+        LocalDateTime premier = presenceRepository.findPremierPointage();
+        long total = 0;
+        if (premier == null) {
+            return total;
+        }
+        for (YearMonth mois = YearMonth.from(premier); mois.isBefore(limite); mois = mois.plusMonths(1)) {
+            LocalDateTime debut = mois.atDay(1).atStartOfDay();
+            LocalDateTime fin = mois.plusMonths(1).atDay(1).atStartOfDay();
+            total += archiverMois(ArchivesDonnees.PRESENCES, "date_heure_pointage", mois,
+                    (apres, taille) -> presenceRepository.findArchivablesApres(debut, fin, apres, taille),
+                    PointageArchive::getId,
+                    Map.of(ArchivesDonnees.PRESENCES_PAR_EMPLOYE, (apres, taille) ->
+                            presenceRepository.findArchivablesParEmployeApres(debut, fin, apres, taille)));
+        }
+        return total;
+    }
+
+    /**
+     * Archive les bulletins des mois antérieurs à limite dont tous les envois sont terminés
+     */
+    public long archiverBulletins(YearMonth limite) {
+        LocalDate premiere = bulletinSalaireRepository.findPremierePeriode();
+        long total = 0;
+        if (premiere == null) {
+            return total;
+        }
+        for (YearMonth mois = YearMonth.from(premiere); mois.isBefore(limite); mois = mois.plusMonths(1)) {
+            LocalDate debut = mois.atDay(1);
+            LocalDate fin = mois.atEndOfMonth();
+            long enAttente = bulletinSalaireRepository.countAEnvoyerByPeriode(debut, fin, tentativesMax);
+            if (enAttente > 0) {
+                log.info("Archivage des bulletins de {} reporté : {} envoi(s) en attente", mois, enAttente);
+                continue;
+            }
+            total += archiverMois(ArchivesDonnees.BULLETINS, "periode_debut", mois,
+                    (apres, taille) -> bulletinSalaireRepository.findArchivablesApres(debut, fin,
+                            apres != null ? apres.getId() : 0L, taille),
+                    BulletinArchive::getId, Map.of());
+        }
+        return total;
+    }
+
+    /**
+     * Exporte le mois par lots (pagination par clé, aucune transaction longue), puis supprime
+     * de la base les lignes exportées une fois l'archive relue et publiée. Chaque vue (table
+     * d'archive triée dans un autre ordre) reçoit les mêmes lignes, relues dans son ordre :
+     * si l'une d'elles a disparu entre-temps, le mois est reporté à la prochaine exécution.
+     */
+    private <T> long archiverMois(String table, String colonne, YearMonth mois, BiFunction<T, Integer, List<T>> lotApres,
+                                  ToLongFunction<T> identifiant, Map<String, BiFunction<T, Integer, List<T>>> vues) {
+        LongStream.Builder exportes = LongStream.builder();
+        List<ArchivesDonnees.Segment> segments = new ArrayList<>();
+        try {
+            ArchivesDonnees.Segment principal = archives.preparer(table, mois,
+                    lots(lotApres).peek(ligne -> exportes.add(identifiant.applyAsLong(ligne))));
+            segments.add(principal);
+            long archivees = principal.getLignes();
+            if (archivees == 0) {
+                return 0;
+            }
+            long[] ids = exportes.build().toArray();
+            long[] idsTries = ids.clone();
+            Arrays.sort(idsTries);
+            for (Map.Entry<String, BiFunction<T, Integer, List<T>>> vue : vues.entrySet()) {
+                // Lignes arrivées après l'export principal exclues : elles iront dans le segment suivant
+                ArchivesDonnees.Segment segment = archives.preparer(vue.getKey(), mois, lots(vue.getValue())
+                        .filter(ligne -> Arrays.binarySearch(idsTries, identifiant.applyAsLong(ligne)) >= 0));
+                segments.add(segment);
+                if (segment.getLignes() != archivees) {
+                    log.warn("Archivage {} {} reporté : {} ligne(s) exportée(s) mais {} relue(s) pour {}",
+                            table, mois, archivees, segment.getLignes(), vue.getKey());
+                    return 0;
+                }
+            }
+            archives.publier(segments);
+
+            long supprimees = partitions.supprimerMois(table, colonne, mois, ids, tailleLot);
+            if (supprimees != archivees) {
+                log.warn("Archivage {} {} : {} ligne(s) archivée(s) mais {} supprimée(s) de la base",
+                        table, mois, archivees, supprimees);
+            }
+            log.info("Archivage {} {} : {} ligne(s) déplacée(s) vers les archives", table, mois, archivees);
+            return archivees;
+        } finally {
+            segments.forEach(ArchivesDonnees.Segment::close);
+        }
+    }
+
+    private <T> Stream<T> lots(BiFunction<T, Integer, List<T>> lotApres) {
+        return Stream.iterate(lotApres.apply(null, tailleLot), lot -> !lot.isEmpty(),
+                        lot -> lot.size() < tailleLot ? List.of() : lotApres.apply(lot.get(lot.size() - 1), tailleLot))
+                .flatMap(List::stream);
+    }
+}
@@ -1,35 +1,51 @@
 package com.gestionpresence.service;
 
 import com.gestionpresence.dto.BulletinSalaireDTO;
-import com.gestionpresence.exception.BusinessException;
 import com.gestionpresence.exception.ResourceNotFoundException;
+import com.gestionpresence.model.AgregatPresence;
 import com.gestionpresence.model.Employee;
 import com.gestionpresence.model.Presence;
+import com.gestionpresence.model.ResumeJournalier;
 import com.gestionpresence.model.BulletinSalaire;
 import com.gestionpresence.repository.PresenceRepository;
 import com.gestionpresence.repository.EmployeeRepository;
 import com.gestionpresence.repository.BulletinSalaireRepository;
+import com.gestionpresence.config.CacheConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.DayOfWeek;
+import javax.annotation.PostConstruct;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.temporal.ChronoUnit;
+import java.time.YearMonth;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
-import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 
 @Slf4j
 @Service
 @Transactional
 public class CalculSalaireService {
+
+    /**
+     * Origine des données de paie : PRESENCES relit les pointages bruts du mois,
+     * AGREGATS lit l'agrégat mensuel tenu à jour à chaque pointage (une ligne par employé),
+     * RESUMES lit les résumés journaliers compactés (sessions ENTREE/SORTIE appariées :
+     * un retard par jour, heures supplémentaires au temps réellement travaillé)
+     */
+    public enum SourcePaie { PRESENCES, AGREGATS, RESUMES }
     
     @Autowired
     private PresenceRepository presenceRepository;
@@ -39,6 +55,24 @@ public class CalculSalaireService {
 
     @Autowired
     private BulletinSalaireRepository bulletinSalaireRepository;
+
+    @Autowired
+    private AgregatsPresenceService agregatsPresenceService;
+
+    @Autowired
+    private ResumesJournaliersService resumesJournaliersService;
+
+    @Autowired
+    private CalendrierService calendrierService;
+
+    @Autowired(required = false)
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
     
     // Configuration externalisée
     @Value("${app.salaire.deduction.jour-absence:200.0}")
@@ -48,24 +82,97 @@ public class CalculSalaireService {
     private double deductionParMinuteRetard;
     
     @Value("${app.salaire.heure.debut:09:00}")
+    @DateTimeFormat(pattern = "HH:mm")
     private LocalTime heureDebutTravail;
     
     @Value("${app.salaire.heure.fin:17:00}")
+    @DateTimeFormat(pattern = "HH:mm")
     private LocalTime heureFinTravail;
     
     @Value("${app.salaire.jours.ouvrables:5}")
     private int joursOuvrablesParSemaine;
+
+    @Value("${app.salaire.source:PRESENCES}")
+    private SourcePaie sourcePaie;
     
-    // Cache pour optimiser les calculs répétitifs
-    private final Map<String, Double> cacheCalculSalaire = new ConcurrentHashMap<>();
+    // Bulletins calculés, par (employé, mois, version de l'agrégat, salaire de base, version des paramètres)
+    private Cache cacheBulletins;
+
+    // Empreinte des paramètres de paie et du calendrier : un changement de configuration
+    // (redémarrage) ne relit jamais un bulletin calculé avec les anciens paramètres
+    private int versionParametres;
+
+    @PostConstruct
+    public void initialiser() {
+        cacheBulletins = cacheManager != null ? cacheManager.getCache(CacheConfig.CACHE_BULLETINS) : null;
+        versionParametres = Objects.hash(deductionParJourAbsence, deductionParMinuteRetard, heureDebutTravail,
+                heureFinTravail, joursOuvrablesParSemaine, sourcePaie, calendrierService.getSignature());
+    }
     
     /**
-     * Calcule le salaire mensuel avec toutes les déductions
+     * Calcule le salaire mensuel avec toutes les déductions.
+     * Un échec n'invalide pas la transaction appelante (campagne de paie par lots).
+     * Avec la source RESUMES, les jours de l'employé doivent avoir été compactés avant l'appel.
      */
+    @Transactional(noRollbackFor = CalculSalaireException.class)
     public BulletinSalaire calculerSalaireMensuel(Employee employee, LocalDate mois) {
+        if (sourcePaie == SourcePaie.AGREGATS) {
+            return calculerSalaireMensuelDepuisAgregat(employee, mois,
+                    agregatsPresenceService.findByEmployeeIdAndMois(employee.getId(), mois).orElse(null));
+        }
+        if (sourcePaie == SourcePaie.RESUMES) {
+            return calculerSalaireMensuelDepuisResumes(employee, mois,
+                    resumesJournaliersService.findByEmployeeIdAndMois(employee.getId(), mois));
+        }
+        return calculerSalaireMensuel(employee, mois, null);
+    }
+
+    public SourcePaie getSourcePaie() {
+        return sourcePaie;
+    }
+
+    /**
+     * Calcule le salaire mensuel à partir des pointages du mois déjà chargés
+     * (campagne de paie); si pointagesDuMois est null, ils sont lus en base.
+     */
+    @Transactional(noRollbackFor = CalculSalaireException.class)
+    public BulletinSalaire calculerSalaireMensuel(Employee employee, LocalDate mois, PointagesMensuels pointagesDuMois) {
+        return calculer(employee, mois, SourcePaie.PRESENCES, (debutMois, finMois) -> {
+            PointagesMensuels pointages = pointagesDuMois != null
+                    ? pointagesDuMois
+                    : PointagesMensuels.depuis(recupererPresencesMensuelles(employee, debutMois, finMois));
+            return analyserPresences(pointages, debutMois, finMois);
+        });
+    }
+
+    /**
+     * Calcule le salaire mensuel depuis l'agrégat du mois, sans lire les pointages;
+     * un agrégat null signifie qu'aucun pointage n'a été enregistré
+     */
+    @Transactional(noRollbackFor = CalculSalaireException.class)
+    public BulletinSalaire calculerSalaireMensuelDepuisAgregat(Employee employee, LocalDate mois, AgregatPresence agregat) {
+        return calculer(employee, mois, SourcePaie.AGREGATS, (debutMois, finMois) -> analyserAgregat(agregat, debutMois, finMois));
+    }
+
+    /**
+     * Calcule le salaire mensuel depuis les résumés journaliers du mois (déjà compactés)
+     */
+    @Transactional(noRollbackFor = CalculSalaireException.class)
+    public BulletinSalaire calculerSalaireMensuelDepuisResumes(Employee employee, LocalDate mois,
+                                                               List<ResumeJournalier> resumes) {
+        return calculer(employee, mois, SourcePaie.RESUMES, (debutMois, finMois) -> analyserResumes(resumes, debutMois, finMois));
+    }
+
+    /**
+     * Calcul d'un bulletin, mesuré par le timer salaire.calcul (source, resultat)
+     */
+    private BulletinSalaire calculer(Employee employee, LocalDate mois, SourcePaie source,
+                                     BiFunction<LocalDate, LocalDate, AnalysePresence> analyseur) {
         log.info("Calcul du salaire pour l'employé {} - Mois: {}", 
                  employee.getMatricule(), mois);
         
+        long debut = System.nanoTime();
+        String resultat = "echec";
         try {
             LocalDate debutMois = mois.withDayOfMonth(1);
             LocalDate finMois = mois.withDayOfMonth(mois.lengthOfMonth());
@@ -74,68 +181,119 @@ public class CalculSalaireService {
             validerPeriode(debutMois, finMois);
             
             // Récupération et analyse des présences
-            List<Presence> presences = recupererPresencesMensuelles(employee, debutMois, finMois);
-            AnalysePresence analyse = analyserPresences(presences, debutMois, finMois);
+            AnalysePresence analyse = analyseur.apply(debutMois, finMois);
             
             // Calcul des déductions
             CalculDeductions deductions = calculerDeductions(analyse, employee.getSalaireBase());
             
             // Création du bulletin
-            return creerBulletinSalaire(employee, debutMois, finMois, analyse, deductions);
+            BulletinSalaire bulletin = creerBulletinSalaire(employee, debutMois, finMois, analyse, deductions);
+            resultat = "succes";
+            return bulletin;
             
         } catch (Exception e) {
             log.error("Erreur lors du calcul du salaire pour l'employé {}", 
                      employee.getMatricule(), e);
             throw new CalculSalaireException(
                 "Erreur lors du calcul du salaire: " + e.getMessage(), e);
+        } finally {
+            Timer.builder("salaire.calcul")
+                    .description("Calcul du bulletin d'un employé")
+                    .tag("source", source.name())
+                    .tag("resultat", resultat)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
         }
     }
     
 
 
     /**
-     * Calcule le salaire mensuel avec signature compatible avec l'ancien appel
+     * Calcule le salaire mensuel avec signature compatible avec l'ancien appel.
+     * Les jours en attente sont compactés avant d'ouvrir la transaction du calcul :
+     * une seule connexion est empruntée à la fois.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public BulletinSalaireDTO calculerSalaireMensuel(Long employeeId, LocalDate mois) throws ResourceNotFoundException {
+        if (sourcePaie == SourcePaie.RESUMES) {
+            resumesJournaliersService.compacter(employeeId, mois);
+        }
+        return new TransactionTemplate(transactionManager).execute(status -> calculerBulletin(employeeId, mois));
+    }
+
+    private BulletinSalaireDTO calculerBulletin(Long employeeId, LocalDate mois) {
         Employee employee = employeeRepository.findById(employeeId)
                 .orElseThrow(() -> new ResourceNotFoundException("Employé non trouvé avec l'id: " + employeeId));
-        BulletinSalaire bulletin = calculerSalaireMensuel(employee, mois);
-        return convertToDTO(bulletin);
+        if (cacheBulletins == null) {
+            return convertToDTO(calculerSalaireMensuel(employee, mois));
+        }
+
+        // La version de l'agrégat du mois change à chaque pointage enregistré ou supprimé;
+        // elle est lue avant le calcul, qui ne peut donc pas voir de pointages plus anciens qu'elle
+        LocalDate premierJour = mois.withDayOfMonth(1);
+        long versionPresences = agregatsPresenceService.findByEmployeeIdAndMois(employeeId, premierJour)
+                .map(AgregatPresence::getVersion)
+                .orElse(-1L);
+        List<Object> cle = List.of(employeeId, premierJour, versionPresences,
+                employee.getSalaireBase(), versionParametres);
+        try {
+            BulletinSalaireDTO bulletin = cacheBulletins.get(cle,
+                    () -> convertToDTO(calculerSalaireMensuel(employee, mois)));
+            return copier(bulletin, employee);
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
     }
 
     /**
-     * Calcule les salaires pour tous les employés
+     * Copie d'un bulletin en cache, avec l'identité courante de l'employé
+     * (le cache n'est jamais exposé aux modifications de l'appelant)
      */
-    public void calculerTousLesSalaires(LocalDate mois) throws BusinessException {
-        log.info("Calcul des salaires pour tous les employés - Mois: {}", mois);
-
-        List<Employee> employees = employeeRepository.findAll();
-        List<BulletinSalaire> bulletins = new ArrayList<>();
-
-        for (Employee employee : employees) {
-            try {
-                BulletinSalaire bulletin = calculerSalaireMensuel(employee, mois);
-                bulletins.add(bulletin);
-                bulletinSalaireRepository.save(bulletin);
-                log.info("Bulletin calculé et sauvegardé pour {}", employee.getMatricule());
-            } catch (Exception e) {
-                log.error("Erreur lors du calcul du salaire pour {}", employee.getMatricule(), e);
-                throw new BusinessException("Erreur lors du calcul des salaires: " + e.getMessage(), e);
-            }
-        }
+    private static BulletinSalaireDTO copier(BulletinSalaireDTO bulletin, Employee employee) {
+        return BulletinSalaireDTO.builder()
+                .id(bulletin.getId())
+                .employeeId(employee.getId())
+                .employeeMatricule(employee.getMatricule())
+                .employeeNom(employee.getNom())
+                .employeePrenom(employee.getPrenom())
+                .periodeDebut(bulletin.getPeriodeDebut())
+                .periodeFin(bulletin.getPeriodeFin())
+                .salaireBase(bulletin.getSalaireBase())
+                .joursTravailles(bulletin.getJoursTravailles())
+                .joursAbsence(bulletin.getJoursAbsence())
+                .totalRetardsMinutes(bulletin.getTotalRetardsMinutes())
+                .heuresSupplementaires(bulletin.getHeuresSupplementaires())
+                .deductionAbsences(bulletin.getDeductionAbsences())
+                .deductionRetards(bulletin.getDeductionRetards())
+                .salaireNet(bulletin.getSalaireNet())
+                .envoye(bulletin.isEnvoye())
+                .build();
+    }
 
-        log.info("Calcul terminé pour {} employés", bulletins.size());
+    /**
+     * Bulletins d'un employé, lus en projection (sans entité BulletinSalaire ni Employee)
+     */
+    @Transactional(readOnly = true)
+    public List<BulletinSalaireDTO> findBulletinsByEmployeeId(Long employeeId) {
+        return bulletinSalaireRepository.findDTOByEmployeeId(employeeId);
     }
-    
+
+    /**
+     * Bulletins de tous les employés pour le mois donné
+     */
+    @Transactional(readOnly = true)
+    public List<BulletinSalaireDTO> findBulletinsByMois(LocalDate mois) {
+        return bulletinSalaireRepository.findDTOByPeriode(mois.withDayOfMonth(1), mois.withDayOfMonth(mois.lengthOfMonth()));
+    }
+
     /**
      * Récupère et valide les présences du mois
      */
     private List<Presence> recupererPresencesMensuelles(Employee employee, LocalDate debut, LocalDate fin) {
-        List<Presence> presences = presenceRepository.findByEmployeeIdAndDateHeurePointageBetween(
-            employee.getId(),
-            debut.atStartOfDay(),
-            fin.atTime(23, 59, 59)
-        );
+        List<Presence> presences = presenceRepository.findByEmployeeIdAndPeriode(employee.getId(), debut, fin);
 
         if (presences.isEmpty()) {
             log.warn("Aucune présence trouvée pour l'employé {} sur la période {}-{}",
@@ -146,148 +304,90 @@ public class CalculSalaireService {
     }
     
     /**
-     * Analyse complète des présences
+     * Analyse complète des présences, en un seul passage sur les pointages triés
      */
-    private AnalysePresence analyserPresences(List<Presence> presences, LocalDate debut, LocalDate fin) {
-        Map<LocalDate, List<Presence>> presencesParJour = grouperPresencesParJour(presences);
+    AnalysePresence analyserPresences(PointagesMensuels pointages, LocalDate debut, LocalDate fin) {
+        PointagesMensuels.Bilan bilan = pointages.analyser(
+                heureDebutTravail.toSecondOfDay() / 60,
+                heureFinTravail.toSecondOfDay() / 60,
+                jour -> calendrierService.estJourFerie(LocalDate.ofEpochDay(jour)));
         
-        int joursTravailles = calculerJoursTravailles(presencesParJour);
         int joursOuvrables = calculerJoursOuvrables(debut, fin);
-        int joursAbsence = Math.max(0, joursOuvrables - joursTravailles);
-        int totalRetardsMinutes = calculerTotalRetards(presencesParJour);
-        double heuresSupplementaires = calculerHeuresSupplementaires(presencesParJour);
+        int joursAbsence = Math.max(0, joursOuvrables - bilan.getJoursTravailles());
         
         return AnalysePresence.builder()
-                .joursTravailles(joursTravailles)
+                .joursTravailles(bilan.getJoursTravailles())
                 .joursOuvrables(joursOuvrables)
                 .joursAbsence(joursAbsence)
-                .totalRetardsMinutes(totalRetardsMinutes)
-                .heuresSupplementaires(heuresSupplementaires)
-                .presencesParJour(presencesParJour)
+                .totalRetardsMinutes(bilan.getTotalRetardsMinutes())
+                .heuresSupplementaires(bilan.getHeuresSupplementaires())
                 .build();
     }
     
     /**
-     * Groupe les présences par date
-     */
-    private Map<LocalDate, List<Presence>> grouperPresencesParJour(List<Presence> presences) {
-        return presences.stream()
-                .collect(Collectors.groupingBy(
-                    p -> p.getDateHeurePointage().toLocalDate()
-                ));
-    }
-    
-    /**-----------------------------------------------------------------------------------------------------------------
-     * Calcule les jours effectivement travaillés
-     */
-    private int calculerJoursTravailles(Map<LocalDate, List<Presence>> presencesParJour) {
-        return (int) presencesParJour.entrySet().stream()
-                .filter(entry -> estJourTravaillé(entry.getKey(), entry.getValue()))
-                .count();
-    }
-    
-    /**
-     * Détermine si un jour est considéré comme travaillé
+     * Analyse à partir de l'agrégat mensuel : les jours avec ENTREE sont filtrés
+     * par le masque des jours ouvrables du mois, retards et heures supplémentaires sont lus tels quels
      */
-    private boolean estJourTravaillé(LocalDate date, List<Presence> presencesDuJour) {
-        if (estWeekend(date) || estJourFerie(date)) {
-            return false;
+    AnalysePresence analyserAgregat(AgregatPresence agregat, LocalDate debut, LocalDate fin) {
+        int joursOuvrables = calculerJoursOuvrables(debut, fin);
+        int joursTravailles = 0;
+        int retardsMinutes = 0;
+        int supplementairesMinutes = 0;
+        if (agregat != null) {
+            int masqueOuvrables = calendrierService.masqueJoursOuvrables(YearMonth.from(debut));
+            joursTravailles = Integer.bitCount(agregat.getJoursAvecEntree() & masqueOuvrables);
+            retardsMinutes = agregat.getRetardsMinutes();
+            supplementairesMinutes = agregat.getSupplementairesMinutes();
         }
-        
-        // Un jour est travaillé s'il y a au moins un pointage "ENTREE"
-        return presencesDuJour.stream()
-                .anyMatch(p -> "ENTREE".equals(p.getTypePointage()));
-    }
-    
-    /**
-     * Calcule les jours ouvrables (hors weekends et jours fériés)
-     */
-    private int calculerJoursOuvrables(LocalDate debut, LocalDate fin) {
-        return (int) debut.datesUntil(fin.plusDays(1))
-                .filter(date -> !estWeekend(date) && !estJourFerie(date))
-                .count();
-    }
-    
-    /**
-     * Vérifie si c'est un weekend
-     */
-    private boolean estWeekend(LocalDate date) {
-        DayOfWeek dayOfWeek = date.getDayOfWeek();
-        return dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY;
-    }
-    
-    /**
-     * Vérifie si c'est un jour férié (à implémenter selon le pays)
-     */
-    private boolean estJourFerie(LocalDate date) {
-        // TODO: Implémenter la logique des jours fériés
-        // Pour l'instant, retourne false
-        return false;
-    }
-    
-    /**
-     * Calcule le total des retards en minutes
-     */
-    private int calculerTotalRetards(Map<LocalDate, List<Presence>> presencesParJour) {
-        return presencesParJour.values().stream()
-                .mapToInt(this::calculerRetardJour)
-                .sum();
-    }
-    
-    /**
-     * Calcule le retard pour une journée
-     */
-    private int calculerRetardJour(List<Presence> presencesDuJour) {
-        return presencesDuJour.stream()
-                .filter(p -> "ENTREE".equals(p.getTypePointage()))
-                .mapToInt(this::calculerRetardPresence)
-                .sum();
+
+        return AnalysePresence.builder()
+                .joursTravailles(joursTravailles)
+                .joursOuvrables(joursOuvrables)
+                .joursAbsence(Math.max(0, joursOuvrables - joursTravailles))
+                .totalRetardsMinutes(retardsMinutes)
+                .heuresSupplementaires(supplementairesMinutes / 60.0)
+                .build();
     }
     
     /**
-     * Calcule le retard en minutes pour une présence
+     * Analyse à partir des résumés journaliers : un jour est travaillé s'il a une première ENTREE
+     * et n'est ni weekend ni férié
      */
-    private int calculerRetardPresence(Presence presence) {
-        LocalDateTime heurePointage = presence.getDateHeurePointage();
-        LocalDateTime heureNormale = heurePointage.toLocalDate().atTime(heureDebutTravail);
-        
-        if (heurePointage.isAfter(heureNormale)) {
-            return (int) ChronoUnit.MINUTES.between(heureNormale, heurePointage);
+    AnalysePresence analyserResumes(List<ResumeJournalier> resumes, LocalDate debut, LocalDate fin) {
+        int joursOuvrables = calculerJoursOuvrables(debut, fin);
+        int joursTravailles = 0;
+        int retardsMinutes = 0;
+        int supplementairesMinutes = 0;
+        if (resumes != null) {
+            for (ResumeJournalier resume : resumes) {
+                if (resume.getPremiereEntree() != null && calendrierService.estJourOuvrable(resume.getJour())) {
+                    joursTravailles++;
+                }
+                retardsMinutes += resume.getMinutesRetard();
+                supplementairesMinutes += resume.getMinutesSupplementaires();
+            }
         }
-        return 0;
-    }
-    
-    /**
-     * Calcule les heures supplémentaires
-     */
-    private double calculerHeuresSupplementaires(Map<LocalDate, List<Presence>> presencesParJour) {
-        return presencesParJour.entrySet().stream()
-                .filter(entry -> !estWeekend(entry.getKey()))
-                .mapToDouble(entry -> calculerHeuresSupplementairesJour(entry.getKey(), entry.getValue()))
-                .sum();
+
+        return AnalysePresence.builder()
+                .joursTravailles(joursTravailles)
+                .joursOuvrables(joursOuvrables)
+                .joursAbsence(Math.max(0, joursOuvrables - joursTravailles))
+                .totalRetardsMinutes(retardsMinutes)
+                .heuresSupplementaires(supplementairesMinutes / 60.0)
+                .build();
     }
     
     /**
-     * Calcule les heures supplémentaires pour une journée
+     * Calcule les jours ouvrables (hors weekends et jours fériés), par masques mensuels précalculés
      */
-    private double calculerHeuresSupplementairesJour(LocalDate date, List<Presence> presencesDuJour) {
-        // Simplifié: heures après l'heure de fin normale
-        return presencesDuJour.stream()
-                .filter(p -> "SORTIE".equals(p.getTypePointage()))
-                .mapToDouble(p -> {
-                    LocalDateTime heureFinNormale = date.atTime(heureFinTravail);
-                    if (p.getDateHeurePointage().isAfter(heureFinNormale)) {
-                        return ChronoUnit.MINUTES.between(heureFinNormale, p.getDateHeurePointage()) / 60.0;
-                    }
-                    return 0;
-                })
-                .sum();
+    private int calculerJoursOuvrables(LocalDate debut, LocalDate fin) {
+        return calendrierService.joursOuvrables(debut, fin);
     }
     
     /**
      * Calcule toutes les déductions
      */
-    private CalculDeductions calculerDeductions(AnalysePresence analyse, double salaireBase) {
+    CalculDeductions calculerDeductions(AnalysePresence analyse, double salaireBase) {
         double deductionAbsences = analyse.getJoursAbsence() * deductionParJourAbsence;
         double deductionRetards = analyse.getTotalRetardsMinutes() * deductionParMinuteRetard;
         
@@ -351,18 +451,17 @@ public class CalculSalaireService {
     
     @lombok.Builder
     @lombok.Data
-    private static class AnalysePresence {
+    static class AnalysePresence {
         private int joursTravailles;
         private int joursOuvrables;
         private int joursAbsence;
         private int totalRetardsMinutes;
         private double heuresSupplementaires;
-        private Map<LocalDate, List<Presence>> presencesParJour;
     }
     
     @lombok.Builder
     @lombok.Data
-    private static class CalculDeductions {
+    static class CalculDeductions {
         private double deductionAbsences;
         private double deductionRetards;
         private double salaireNet;
@@ -381,7 +480,7 @@ public class CalculSalaireService {
         }
     }
 
-    private BulletinSalaireDTO convertToDTO(BulletinSalaire bulletin) {
+    BulletinSalaireDTO convertToDTO(BulletinSalaire bulletin) {
         return BulletinSalaireDTO.builder()
                 .id(bulletin.getId())
                 .employeeId(bulletin.getEmployee().getId())
@@ -0,0 +1,203 @@
+package com.gestionpresence.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Calendrier des jours ouvrables : weekends, jours fériés fixes (MM-jj), jours fériés
+ * mobiles (décalage en jours depuis le dimanche de Pâques) et dates exceptionnelles.
+ * Chaque mois est réduit à deux masques de bits (bit 0 = 1er du mois) : jours ouvrables et
+ * jours fériés. Les années autour de l'année courante sont calculées au démarrage, les
+ * autres à la première demande; les réponses ne font ensuite qu'un accès tableau.
+ */
+@Slf4j
+@Service
+public class CalendrierService {
+
+    @Value("${app.calendrier.feries-fixes:01-01,05-01,05-08,07-14,08-15,11-01,11-11,12-25}")
+    private String feriesFixes;
+
+    @Value("${app.calendrier.feries-paques:1,39,50}")
+    private String feriesPaques;
+
+    @Value("${app.calendrier.feries-exceptionnels:}")
+    private String feriesExceptionnels;
+
+    @Value("${app.calendrier.annees-precalculees:2}")
+    private int anneesPrecalculees;
+
+    private final List<MonthDay> joursFixes = new ArrayList<>();
+    private final List<Integer> decalagesPaques = new ArrayList<>();
+    private final Set<LocalDate> joursExceptionnels = new HashSet<>();
+
+    private final Map<Integer, Annee> annees = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void initialiser() {
+        for (String valeur : decouper(feriesFixes)) {
+            joursFixes.add(MonthDay.parse("--" + valeur));
+        }
+        for (String valeur : decouper(feriesPaques)) {
+            decalagesPaques.add(Integer.parseInt(valeur));
+        }
+        for (String valeur : decouper(feriesExceptionnels)) {
+            joursExceptionnels.add(LocalDate.parse(valeur));
+        }
+
+        int anneeCourante = LocalDate.now().getYear();
+        for (int annee = anneeCourante - anneesPrecalculees; annee <= anneeCourante + anneesPrecalculees; annee++) {
+            annee(annee);
+        }
+        log.info("Calendrier initialisé - {} fériés fixes, {} fériés mobiles, {} dates exceptionnelles, " +
+                        "{} jours ouvrables en {}", joursFixes.size(), decalagesPaques.size(),
+                joursExceptionnels.size(), joursOuvrables(LocalDate.of(anneeCourante, 1, 1),
+                        LocalDate.of(anneeCourante, 12, 31)), anneeCourante);
+    }
+
+    /**
+     * Configuration du calendrier, pour invalider ce qui a été calculé avec un autre calendrier
+     */
+    public String getSignature() {
+        return feriesFixes + "|" + feriesPaques + "|" + feriesExceptionnels;
+    }
+
+    public boolean estJourOuvrable(LocalDate date) {
+        return (masqueJoursOuvrables(date.getYear(), date.getMonthValue()) & bit(date.getDayOfMonth())) != 0;
+    }
+
+    public boolean estJourFerie(LocalDate date) {
+        return (annee(date.getYear()).feries[date.getMonthValue() - 1] & bit(date.getDayOfMonth())) != 0;
+    }
+
+    public boolean estWeekend(LocalDate date) {
+        DayOfWeek jour = date.getDayOfWeek();
+        return jour == DayOfWeek.SATURDAY || jour == DayOfWeek.SUNDAY;
+    }
+
+    /**
+     * Jours ouvrables du mois, bit 0 = 1er du mois
+     */
+    public int masqueJoursOuvrables(YearMonth mois) {
+        return masqueJoursOuvrables(mois.getYear(), mois.getMonthValue());
+    }
+
+    /**
+     * Nombre de jours ouvrables de [debut, fin] (bornes incluses), un comptage de bits par mois
+     */
+    public int joursOuvrables(LocalDate debut, LocalDate fin) {
+        int total = 0;
+        YearMonth mois = YearMonth.from(debut);
+        YearMonth dernier = YearMonth.from(fin);
+        while (!mois.isAfter(dernier)) {
+            int premierJour = mois.equals(YearMonth.from(debut)) ? debut.getDayOfMonth() : 1;
+            int dernierJour = mois.equals(dernier) ? fin.getDayOfMonth() : mois.lengthOfMonth();
+            if (premierJour <= dernierJour) {
+                int plage = (int) (((1L << dernierJour) - 1) & ~((1L << (premierJour - 1)) - 1));
+                total += Integer.bitCount(masqueJoursOuvrables(mois) & plage);
+            }
+            mois = mois.plusMonths(1);
+        }
+        return total;
+    }
+
+    /**
+     * Dimanche de Pâques (algorithme grégorien de Meeus/Jones/Butcher)
+     */
+    static LocalDate paques(int annee) {
+        int a = annee % 19;
+        int b = annee / 100;
+        int c = annee % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int mois = (h + l - 7 * m + 114) / 31;
+        int jour = (h + l - 7 * m + 114) % 31 + 1;
+        return LocalDate.of(annee, mois, jour);
+    }
+
+    private int masqueJoursOuvrables(int annee, int mois) {
+        return annee(annee).ouvrables[mois - 1];
+    }
+
+    private Annee annee(int annee) {
+        return annees.computeIfAbsent(annee, this::calculer);
+    }
+
+    private Annee calculer(int annee) {
+        Annee resultat = new Annee();
+        for (MonthDay jour : joursFixes) {
+            if (jour.isValidYear(annee)) {
+                marquerFerie(resultat, jour.atYear(annee));
+            }
+        }
+        LocalDate dimanchePaques = paques(annee);
+        for (int decalage : decalagesPaques) {
+            LocalDate date = dimanchePaques.plusDays(decalage);
+            if (date.getYear() == annee) {
+                marquerFerie(resultat, date);
+            }
+        }
+        for (LocalDate date : joursExceptionnels) {
+            if (date.getYear() == annee) {
+                marquerFerie(resultat, date);
+            }
+        }
+
+        for (int mois = 1; mois <= 12; mois++) {
+            int masque = 0;
+            LocalDate date = LocalDate.of(annee, mois, 1);
+            for (int jour = 1; jour <= date.lengthOfMonth(); jour++, date = date.plusDays(1)) {
+                if (!estWeekend(date)) {
+                    masque |= bit(jour);
+                }
+            }
+            resultat.ouvrables[mois - 1] = masque & ~resultat.feries[mois - 1];
+        }
+        return resultat;
+    }
+
+    private static void marquerFerie(Annee annee, LocalDate date) {
+        annee.feries[date.getMonthValue() - 1] |= bit(date.getDayOfMonth());
+    }
+
+    private static int bit(int jourDuMois) {
+        return 1 << (jourDuMois - 1);
+    }
+
+    private static List<String> decouper(String valeurs) {
+        List<String> resultat = new ArrayList<>();
+        for (String valeur : valeurs.split(",")) {
+            if (!valeur.isBlank()) {
+                resultat.add(valeur.trim());
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Masques d'une année, indexés par mois (0 = janvier)
+     */
+    private static final class Annee {
+        final int[] ouvrables = new int[12];
+        final int[] feries = new int[12];
+    }
+}
@@ -0,0 +1,382 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.config.ExecuteurAdaptatif;
+import com.gestionpresence.config.ExecuteursConfig;
+import com.gestionpresence.dto.RapportCampagnePaieDTO;
+import com.gestionpresence.dto.RapportCampagnePaieDTO.EchecCalcul;
+import com.gestionpresence.exception.BusinessException;
+import com.gestionpresence.model.AgregatPresence;
+import com.gestionpresence.model.BulletinSalaire;
+import com.gestionpresence.model.Employee;
+import com.gestionpresence.model.ResumeJournalier;
+import com.gestionpresence.repository.BulletinSalaireRepository;
+import com.gestionpresence.repository.EmployeeRepository;
+import com.gestionpresence.repository.PresenceRepository;
+import com.gestionpresence.repository.projection.PointageProjection;
+import com.gestionpresence.service.CalculSalaireService.SourcePaie;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Campagne de paie mensuelle : calcul des bulletins de tous les employés
+ * par lots, chaque lot dans sa propre transaction, sur un pool de threads borné.
+ * La table des présences n'est lue qu'une fois pour toute la campagne
+ * (et pas du tout avec app.salaire.source=AGREGATS ou RESUMES).
+ */
+@Slf4j
+@Service
+public class CampagnePaieService {
+
+    @Autowired
+    private CalculSalaireService calculSalaireService;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private BulletinSalaireRepository bulletinSalaireRepository;
+
+    @Autowired
+    private PresenceRepository presenceRepository;
+
+    @Autowired
+    private AgregatsPresenceService agregatsPresenceService;
+
+    @Autowired
+    private ResumesJournaliersService resumesJournaliersService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.salaire.campagne.taille-lot:200}")
+    private int tailleLot;
+
+    @Autowired
+    private ExecuteursConfig executeursConfig;
+
+    private final AtomicBoolean enCours = new AtomicBoolean(false);
+    private final AtomicReference<Suivi> suiviCourant = new AtomicReference<>();
+
+    /**
+     * Calcule les salaires pour tous les employés
+     */
+    public RapportCampagnePaieDTO calculerTousLesSalaires(LocalDate mois) throws BusinessException {
+        if (!enCours.compareAndSet(false, true)) {
+            throw new BusinessException("Une campagne de paie est déjà en cours");
+        }
+        LongTaskTimer.Sample enCoursDepuis = LongTaskTimer.builder("paie.campagne.active")
+                .description("Campagne de paie en cours")
+                .register(meterRegistry)
+                .start();
+        long debut = System.nanoTime();
+        String resultat = "echec";
+        try {
+            RapportCampagnePaieDTO rapport = executerCampagne(mois);
+            resultat = "succes";
+            return rapport;
+        } finally {
+            enCoursDepuis.stop();
+            Timer.builder("paie.campagne")
+                    .description("Durée d'une campagne de paie complète")
+                    .tag("source", calculSalaireService.getSourcePaie().name())
+                    .tag("resultat", resultat)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+            enCours.set(false);
+        }
+    }
+
+    /**
+     * Instantané de la campagne en cours (ou de la dernière exécutée)
+     */
+    public RapportCampagnePaieDTO getProgression() {
+        Suivi suivi = suiviCourant.get();
+        return suivi != null ? suivi.rapport() : null;
+    }
+
+    private RapportCampagnePaieDTO executerCampagne(LocalDate mois) {
+        List<Long> ids = employeeRepository.findAllIds();
+        int totalLots = (ids.size() + tailleLot - 1) / tailleLot;
+
+        Suivi suivi = new Suivi(mois, ids.size(), totalLots);
+        suiviCourant.set(suivi);
+        ExecuteurAdaptatif executor = executeursConfig.get(ExecuteursConfig.Charge.PAIE);
+        log.info("Début de la campagne de paie - Mois: {} - {} employés en {} lots de {} sur {} threads au plus",
+                mois, ids.size(), totalLots, tailleLot, executor.getMaximumPoolSize());
+
+        // Résumés à jour avant lecture (jours modifiés depuis la dernière compaction)
+        if (calculSalaireService.getSourcePaie() == SourcePaie.RESUMES) {
+            resumesJournaliersService.compacterEnAttente();
+        }
+
+        List<CompletableFuture<Void>> taches = lireEtDistribuer(ids, mois, suivi, executor);
+        CompletableFuture.allOf(taches.toArray(new CompletableFuture<?>[0])).join();
+
+        suivi.terminer();
+        RapportCampagnePaieDTO rapport = suivi.rapport();
+        log.info("Campagne de paie terminée - {} bulletins, {} échecs en {} ms ({} employés/s)",
+                rapport.getBulletinsCrees(), rapport.getEchecs().size(),
+                rapport.getDureeMs(), String.format("%.1f", rapport.getEmployesParSeconde()));
+        return rapport;
+    }
+
+    /**
+     * Lit les présences du mois en un seul passage (curseur trié par employé) et
+     * distribue les lots aux workers au fil de la lecture. Le sémaphore borne le
+     * nombre de lots en mémoire, donc la mémoire à quelques lots d'un mois chacun.
+     */
+    private List<CompletableFuture<Void>> lireEtDistribuer(List<Long> ids, LocalDate mois, Suivi suivi,
+                                                          ExecuteurAdaptatif executor) {
+        LocalDate debutMois = mois.withDayOfMonth(1);
+        LocalDate finMois = mois.withDayOfMonth(mois.lengthOfMonth());
+        Semaphore lotsEnVol = new Semaphore(executor.getMaximumPoolSize() * 2);
+        List<CompletableFuture<Void>> taches = new ArrayList<>();
+
+        // Paie sur agrégats ou résumés : les lots ne portent que les ids, chaque worker lit les données de son lot
+        if (calculSalaireService.getSourcePaie() != SourcePaie.PRESENCES) {
+            Map<Long, PointagesMensuels> lot = new LinkedHashMap<>();
+            for (Long id : ids) {
+                lot.put(id, null);
+                if (lot.size() == tailleLot) {
+                    taches.add(soumettre(lot, mois, suivi, executor, lotsEnVol));
+                    lot = new LinkedHashMap<>();
+                }
+            }
+            if (!lot.isEmpty()) {
+                taches.add(soumettre(lot, mois, suivi, executor, lotsEnVol));
+            }
+            return taches;
+        }
+
+        TransactionTemplate lecture = new TransactionTemplate(transactionManager);
+        lecture.setReadOnly(true);
+        lecture.executeWithoutResult(status -> {
+            try (Stream<PointageProjection> flux = presenceRepository.streamPointagesByIntervalle(
+                    debutMois.atStartOfDay(), finMois.plusDays(1).atStartOfDay())) {
+                Iterator<PointageProjection> curseur = flux.iterator();
+                PointageProjection courant = curseur.hasNext() ? curseur.next() : null;
+                Map<Long, PointagesMensuels> lot = new LinkedHashMap<>();
+
+                for (Long id : ids) {
+                    // Pointages d'employés supprimés entre-temps
+                    while (courant != null && courant.getEmployeeId() < id) {
+                        courant = curseur.hasNext() ? curseur.next() : null;
+                    }
+                    PointagesMensuels tranche = new PointagesMensuels();
+                    while (courant != null && courant.getEmployeeId().equals(id)) {
+                        tranche.ajouter(courant.getDateHeurePointage(), courant.getTypePointage());
+                        courant = curseur.hasNext() ? curseur.next() : null;
+                    }
+                    lot.put(id, tranche);
+
+                    if (lot.size() == tailleLot) {
+                        taches.add(soumettre(lot, mois, suivi, executor, lotsEnVol));
+                        lot = new LinkedHashMap<>();
+                    }
+                }
+                if (!lot.isEmpty()) {
+                    taches.add(soumettre(lot, mois, suivi, executor, lotsEnVol));
+                }
+            }
+        });
+        return taches;
+    }
+
+    private CompletableFuture<Void> soumettre(Map<Long, PointagesMensuels> lot, LocalDate mois, Suivi suivi,
+                                              ExecuteurAdaptatif executor, Semaphore lotsEnVol) {
+        lotsEnVol.acquireUninterruptibly();
+        try {
+            return CompletableFuture.runAsync(() -> traiterLot(lot, mois, suivi), executor)
+                    .whenComplete((ignore, erreur) -> lotsEnVol.release());
+        } catch (RejectedExecutionException e) {
+            // Exécuteur saturé ou en délestage : le lot est traité par le thread de lecture, la
+            // campagne continue (l'interrompre laisserait les lots soumis insérer leurs bulletins)
+            log.warn("Lot de {} employés refusé par l'exécuteur paie, traité par le thread appelant", lot.size());
+            try {
+                traiterLot(lot, mois, suivi);
+            } finally {
+                lotsEnVol.release();
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Traite un lot dans une transaction dédiée; les échecs individuels n'interrompent pas le lot.
+     * Les employés ayant déjà un bulletin pour le mois (campagne relancée) sont ignorés.
+     */
+    private void traiterLot(Map<Long, PointagesMensuels> lot, LocalDate mois, Suivi suivi) {
+        List<EchecCalcul> echecs = new ArrayList<>();
+        Timer.Sample chrono = Timer.start(meterRegistry);
+        AtomicInteger existants = new AtomicInteger();
+        try {
+            Integer crees = nouvelleTransaction().execute(status -> {
+                Set<Long> dejaCalcules = new HashSet<>(bulletinSalaireRepository.findEmployeeIdsAvecBulletin(
+                        lot.keySet(), mois.withDayOfMonth(1)));
+                existants.set(dejaCalcules.size());
+                List<Employee> employees = new ArrayList<>(employeeRepository.findAllById(lot.keySet()));
+                employees.removeIf(employee -> dejaCalcules.contains(employee.getId()));
+                SourcePaie source = calculSalaireService.getSourcePaie();
+                Map<Long, AgregatPresence> agregats = source == SourcePaie.AGREGATS
+                        ? agregatsPresenceService.findByMois(lot.keySet(), mois)
+                        : null;
+                Map<Long, List<ResumeJournalier>> resumes = source == SourcePaie.RESUMES
+                        ? resumesJournaliersService.findByMois(lot.keySet(), mois)
+                        : null;
+                List<BulletinSalaire> bulletins = new ArrayList<>(employees.size());
+                for (Employee employee : employees) {
+                    try {
+                        if (agregats != null) {
+                            bulletins.add(calculSalaireService.calculerSalaireMensuelDepuisAgregat(
+                                    employee, mois, agregats.get(employee.getId())));
+                        } else if (resumes != null) {
+                            bulletins.add(calculSalaireService.calculerSalaireMensuelDepuisResumes(
+                                    employee, mois, resumes.get(employee.getId())));
+                        } else {
+                            bulletins.add(calculSalaireService.calculerSalaireMensuel(
+                                    employee, mois, lot.get(employee.getId())));
+                        }
+                    } catch (Exception e) {
+                        echecs.add(echec(employee.getId(), employee.getMatricule(), e));
+                    }
+                }
+                return bulletinSalaireRepository.insererEnLot(bulletins);
+            });
+            suivi.lotTermine(lot.size(), crees != null ? crees : 0, existants.get(), echecs);
+            compterBulletins(crees != null ? crees : 0, echecs.size());
+        } catch (Exception e) {
+            log.error("Échec du lot de {} employés (premier id: {})", lot.size(), lot.keySet().iterator().next(), e);
+            List<EchecCalcul> echecsLot = new ArrayList<>(lot.size());
+            for (Long id : lot.keySet()) {
+                echecsLot.add(echec(id, null, e));
+            }
+            suivi.lotTermine(lot.size(), 0, 0, echecsLot);
+            compterBulletins(0, echecsLot.size());
+        } finally {
+            chrono.stop(Timer.builder("paie.campagne.lot")
+                    .description("Calcul et insertion d'un lot de bulletins")
+                    .register(meterRegistry));
+        }
+    }
+
+    private void compterBulletins(int crees, int echecs) {
+        meterRegistry.counter("paie.campagne.bulletins", "resultat", "cree").increment(crees);
+        meterRegistry.counter("paie.campagne.bulletins", "resultat", "echec").increment(echecs);
+    }
+
+    private EchecCalcul echec(Long employeeId, String matricule, Exception e) {
+        return EchecCalcul.builder()
+                .employeeId(employeeId)
+                .matricule(matricule)
+                .message(e.getMessage())
+                .build();
+    }
+
+    private TransactionTemplate nouvelleTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    /**
+     * État partagé de la campagne, mis à jour à la fin de chaque lot
+     */
+    private static class Suivi {
+        private final LocalDate mois;
+        private final int totalEmployes;
+        private final int totalLots;
+        private final LocalDateTime debut = LocalDateTime.now();
+        private final long debutNanos = System.nanoTime();
+        private final List<EchecCalcul> echecs = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger employesTraites = new AtomicInteger();
+        private final AtomicInteger bulletinsCrees = new AtomicInteger();
+        private final AtomicInteger bulletinsExistants = new AtomicInteger();
+        private final AtomicInteger lotsTermines = new AtomicInteger();
+        private volatile LocalDateTime fin;
+        private volatile long finNanos;
+
+        Suivi(LocalDate mois, int totalEmployes, int totalLots) {
+            this.mois = mois;
+            this.totalEmployes = totalEmployes;
+            this.totalLots = totalLots;
+        }
+
+        void lotTermine(int employes, int crees, int existants, List<EchecCalcul> echecsLot) {
+            echecs.addAll(echecsLot);
+            int traites = employesTraites.addAndGet(employes);
+            bulletinsCrees.addAndGet(crees);
+            bulletinsExistants.addAndGet(existants);
+            int lots = lotsTermines.incrementAndGet();
+            log.info("Lot {}/{} terminé - {} bulletins, {} déjà calculés, {} échecs - progression {}/{} employés ({} employés/s)",
+                    lots, totalLots, crees, existants, echecsLot.size(), traites, totalEmployes,
+                    String.format("%.1f", debit(traites)));
+        }
+
+        void terminer() {
+            finNanos = System.nanoTime();
+            fin = LocalDateTime.now();
+        }
+
+        long dureeNanos() {
+            return (fin != null ? finNanos : System.nanoTime()) - debutNanos;
+        }
+
+        double debit(int traites) {
+            double secondes = dureeNanos() / 1_000_000_000.0;
+            return secondes > 0 ? traites / secondes : 0;
+        }
+
+        RapportCampagnePaieDTO rapport() {
+            int traites = employesTraites.get();
+            List<EchecCalcul> copieEchecs;
+            synchronized (echecs) {
+                copieEchecs = new ArrayList<>(echecs);
+            }
+            return RapportCampagnePaieDTO.builder()
+                    .mois(mois)
+                    .debut(debut)
+                    .fin(fin)
+                    .terminee(fin != null)
+                    .totalEmployes(totalEmployes)
+                    .employesTraites(traites)
+                    .bulletinsCrees(bulletinsCrees.get())
+                    .bulletinsExistants(bulletinsExistants.get())
+                    .lotsTermines(lotsTermines.get())
+                    .totalLots(totalLots)
+                    .dureeMs(dureeNanos() / 1_000_000)
+                    .employesParSeconde(debit(traites))
+                    .echecs(copieEchecs)
+                    .build();
+        }
+    }
+}
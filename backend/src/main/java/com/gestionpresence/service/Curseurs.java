@@ -0,0 +1,83 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.dto.PageCurseurDTO;
+import com.gestionpresence.exception.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Encodage des curseurs de pagination : clé de tri (date, id) ou id, en base64 url
+ */
+final class Curseurs {
+
+    /** Borne basse des pointages quand aucun curseur n'est fourni */
+    static final LocalDateTime ORIGINE = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private Curseurs() {}
+
+    static String encoder(LocalDateTime date, Long id) {
+        return encoder(date + "_" + id);
+    }
+
+    static String encoder(Long id) {
+        return encoder(String.valueOf(id));
+    }
+
+    static long decoderId(String curseur) {
+        if (curseur == null || curseur.isEmpty()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(decoder(curseur));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("Curseur de pagination invalide: " + curseur);
+        }
+    }
+
+    /**
+     * @return [date, id] de la dernière ligne lue, ou null sans curseur
+     */
+    static Object[] decoderDateEtId(String curseur) {
+        if (curseur == null || curseur.isEmpty()) {
+            return null;
+        }
+        try {
+            String[] champs = decoder(curseur).split("_");
+            return new Object[]{LocalDateTime.parse(champs[0]), Long.parseLong(champs[1])};
+        } catch (RuntimeException e) {
+            throw new BusinessException("Curseur de pagination invalide: " + curseur);
+        }
+    }
+
+    /**
+     * Construit la page à partir de taille + 1 lignes lues (la ligne en trop signale une page suivante)
+     */
+    static <E, D> PageCurseurDTO<D> page(List<E> lignes, int taille, Function<E, D> conversion,
+                                         Function<E, String> curseur) {
+        boolean dernierePage = lignes.size() <= taille;
+        List<E> retenues = dernierePage ? lignes : lignes.subList(0, taille);
+        List<D> elements = new ArrayList<>(retenues.size());
+        for (E ligne : retenues) {
+            elements.add(conversion.apply(ligne));
+        }
+        return PageCurseurDTO.<D>builder()
+                .elements(elements)
+                .taille(elements.size())
+                .curseurSuivant(dernierePage || retenues.isEmpty() ? null : curseur.apply(retenues.get(retenues.size() - 1)))
+                .dernierePage(dernierePage)
+                .build();
+    }
+
+    private static String encoder(String valeur) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valeur.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String decoder(String curseur) {
+        return new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.US_ASCII);
+    }
+}
@@ -1,53 +1,158 @@
 package com.gestionpresence.service;
 
+import com.gestionpresence.config.ExecutionConfig;
+import com.gestionpresence.exception.ResourceNotFoundException;
+import com.gestionpresence.exception.SurchargeException;
 import com.gestionpresence.model.BulletinSalaire;
 import com.gestionpresence.model.Employee;
+import com.gestionpresence.repository.BulletinSalaireRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class EmailService {
-    
+
     @Autowired
     private JavaMailSender mailSender;
-    
+
     @Autowired
-    private TemplateEngine templateEngine;
-    
+    private RenduBulletin renduBulletin;
+
+    @Autowired
+    private BulletinSalaireRepository bulletinSalaireRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ExecutionConfig executionConfig;
+
+    @Value("${app.bulletin.pdf.active:false}")
+    private boolean pieceJointePdf;
+
+    @Value("${app.execution.smtp.permis:4}")
+    private int permisSmtp;
+
+    @Value("${app.execution.smtp.attente-ms:30000}")
+    private long attenteSmtpMs;
+
+    // Transmissions SMTP simultanées (mode threads virtuels uniquement, null sinon)
+    private Semaphore transmissions;
+
+    @PostConstruct
+    public void initialiser() {
+        transmissions = executionConfig.isVirtuel() ? new Semaphore(permisSmtp, true) : null;
+    }
+
     public void envoyerBulletinSalaire(Employee employee, BulletinSalaire bulletin) {
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            helper.setTo(employee.getEmail());
-            helper.setSubject("Votre Bulletin de Salaire - " + 
-                bulletin.getPeriodeDebut().format(DateTimeFormatter.ofPattern("MMMM yyyy")));
-            
-            // Préparer le contexte pour le template Thymeleaf
-            Context context = new Context();
-            context.setVariable("employee", employee);
-            context.setVariable("bulletin", bulletin);
-            
-            // Générer le HTML du bulletin
-            String htmlContent = templateEngine.process("bulletin-salaire", context);
-            helper.setText(htmlContent, true);
-            
-            mailSender.send(message);
-            
+            MimeMessage message = preparerMessage(employee, bulletin);
+            acquerirTransmission();
+            long debut = System.nanoTime();
+            String resultat = "echec";
+            try {
+                mailSender.send(message);
+                resultat = "envoye";
+            } finally {
+                enregistrerEnvoi("unitaire", resultat, System.nanoTime() - debut);
+                libererTransmission();
+            }
+
             // Marquer le bulletin comme envoyé
             bulletin.setEnvoye(true);
-            bulletin.setDateEnvoi(java.time.LocalDate.now());
-            
+            bulletin.setDateEnvoi(LocalDate.now());
+
         } catch (MessagingException e) {
             throw new RuntimeException("Erreur lors de l'envoi de l'email", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Envoi unitaire d'un bulletin déjà calculé
+     */
+    @Transactional
+    public void envoyerBulletinSalaire(Long bulletinId) {
+        BulletinSalaire bulletin = bulletinSalaireRepository.findAvecEmployeeById(bulletinId)
+                .orElseThrow(() -> new ResourceNotFoundException("Bulletin non trouvé avec l'id: " + bulletinId));
+        envoyerBulletinSalaire(bulletin.getEmployee(), bulletin);
+    }
+
+    /**
+     * Rend le bulletin et construit le message prêt à l'envoi, sans toucher au serveur SMTP.
+     * Sans état : appelable en parallèle (tampons de rendu par thread).
+     */
+    public MimeMessage preparerMessage(Employee employee, BulletinSalaire bulletin) throws MessagingException {
+        long debut = System.nanoTime();
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+
+        helper.setTo(employee.getEmail());
+        helper.setSubject("Votre Bulletin de Salaire - " +
+            bulletin.getPeriodeDebut().format(DateTimeFormatter.ofPattern("MMMM yyyy")));
+
+        // Générer le HTML du bulletin (template précompilé)
+        helper.setText(renduBulletin.rendre(employee, bulletin), true);
+
+        if (pieceJointePdf) {
+            helper.addAttachment("bulletin-" + employee.getMatricule() + "-"
+                            + bulletin.getPeriodeDebut().format(DateTimeFormatter.ofPattern("yyyy-MM")) + ".pdf",
+                    new ByteArrayResource(renduBulletin.rendrePdf(employee, bulletin)), "application/pdf");
+        }
+        Timer.builder("email.preparation")
+                .description("Rendu du bulletin et construction du message")
+                .tag("pdf", String.valueOf(pieceJointePdf))
+                .register(meterRegistry)
+                .record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+        return message;
+    }
+
+    /**
+     * Réserve une transmission SMTP; serveur saturé au-delà de attente-ms : SurchargeException (503)
+     */
+    void acquerirTransmission() {
+        if (transmissions == null) {
+            return;
+        }
+        try {
+            if (!transmissions.tryAcquire(attenteSmtpMs, TimeUnit.MILLISECONDS)) {
+                throw new SurchargeException("Trop d'envois d'emails en cours, réessayez", 5);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SurchargeException("Envoi d'email interrompu", 5);
+        }
+    }
+
+    void libererTransmission() {
+        if (transmissions != null) {
+            transmissions.release();
+        }
+    }
+
+    /**
+     * Timer email.envoi : transmission SMTP seule, unitaire ou en masse (EnvoiBulletinsService)
+     */
+    void enregistrerEnvoi(String mode, String resultat, long dureeNanos) {
+        Timer.builder("email.envoi")
+                .description("Transmission d'un bulletin au serveur SMTP")
+                .tag("mode", mode)
+                .tag("resultat", resultat)
+                .register(meterRegistry)
+                .record(dureeNanos, TimeUnit.NANOSECONDS);
+    }
+}
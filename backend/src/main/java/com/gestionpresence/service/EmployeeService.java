@@ -1,20 +1,35 @@
 package com.gestionpresence.service;
 
 import com.gestionpresence.dto.EmployeeDTO;
+import com.gestionpresence.dto.PageCurseurDTO;
 import com.gestionpresence.exception.BusinessException;
 import com.gestionpresence.exception.ResourceNotFoundException;
 import com.gestionpresence.model.Employee;
+import com.gestionpresence.model.EmployeeQrCode;
+import com.gestionpresence.repository.AgregatPresenceRepository;
+import com.gestionpresence.repository.BulletinSalaireRepository;
+import com.gestionpresence.repository.EmployeeQrCodeRepository;
 import com.gestionpresence.repository.EmployeeRepository;
+import com.gestionpresence.repository.PresenceRepository;
+import com.gestionpresence.repository.ResumeJournalierRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -24,9 +39,30 @@ public class EmployeeService implements IEmployeeService {
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private EmployeeQrCodeRepository employeeQrCodeRepository;
+
+    @Autowired
+    private AgregatPresenceRepository agregatPresenceRepository;
+
+    @Autowired
+    private ResumeJournalierRepository resumeJournalierRepository;
+
+    @Autowired
+    private PresenceRepository presenceRepository;
+
+    @Autowired
+    private BulletinSalaireRepository bulletinSalaireRepository;
+
+    @Autowired
+    private ExportNdjson exportNdjson;
+
     @Autowired
     private QRCodeService qrCodeService;
 
+    @Autowired
+    private IndexMatricules indexMatricules;
+
     public List<Employee> findAll() {
         return employeeRepository.findAll();
     }
@@ -49,16 +85,22 @@ public class EmployeeService implements IEmployeeService {
         }
 
         // Générer le QR code pour l'employé
+        byte[] qrCode;
         try {
             String qrData = employee.getMatricule();
-            byte[] qrCode = qrCodeService.generateQRCode(qrData, 200, 200);
-            employee.setQrCode(qrCode);
+            qrCode = qrCodeService.generateQRCode(qrData);
         } catch (Exception e) {
             log.error("Erreur lors de la génération du QR code pour {}", employee.getMatricule(), e);
             throw new BusinessException("Erreur lors de la génération du QR code");
         }
 
-        return employeeRepository.save(employee);
+        // L'image est stockée à part, l'employé ne porte que son empreinte
+        String etag = empreinte(qrCode);
+        employee.setQrCodeEtag(etag);
+        Employee savedEmployee = employeeRepository.save(employee);
+        employeeQrCodeRepository.save(new EmployeeQrCode(savedEmployee.getId(), qrCode, etag));
+        indexMatricules.enregistrer(savedEmployee);
+        return savedEmployee;
     }
 
     @Override
@@ -91,7 +133,9 @@ public class EmployeeService implements IEmployeeService {
         employee.setPoste(employeeDetails.getPoste());
         employee.setSalaireBase(employeeDetails.getSalaireBase());
 
-        return employeeRepository.save(employee);
+        Employee savedEmployee = employeeRepository.save(employee);
+        indexMatricules.enregistrer(savedEmployee);
+        return savedEmployee;
     }
 
     @Override
@@ -105,19 +149,32 @@ public class EmployeeService implements IEmployeeService {
     public void deleteEmployee(Long id) {
         Employee employee = employeeRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Employé non trouvé avec l'id: " + id));
+        employeeQrCodeRepository.deleteByEmployeeId(id);
+        agregatPresenceRepository.deleteByEmployeeId(id);
+        resumeJournalierRepository.deleteByEmployeeId(id);
+        // Pas de clé étrangère sur les tables partitionnées : suppression en masse, sans charger les lignes
+        presenceRepository.deleteByEmployeeId(id);
+        bulletinSalaireRepository.deleteByEmployeeId(id);
         employeeRepository.delete(employee);
+        indexMatricules.retirer(id);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public byte[] getEmployeeQRCode(Long id) {
-        Employee employee = employeeRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Employé non trouvé avec l'id: " + id));
-
-        if (employee.getQrCode() == null) {
-            throw new BusinessException("QR code non généré pour cet employé");
-        }
+        return employeeQrCodeRepository.findImageByEmployeeId(id)
+                .orElseThrow(() -> employeeRepository.existsById(id)
+                        ? new BusinessException("QR code non généré pour cet employé")
+                        : new ResourceNotFoundException("Employé non trouvé avec l'id: " + id));
+    }
 
-        return employee.getQrCode();
+    /**
+     * Empreinte du QR code, sans lire l'image (revalidation HTTP par ETag)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<String> getEmployeeQRCodeEtag(Long id) {
+        return employeeRepository.findQrCodeEtagById(id);
     }
 
     @Override
@@ -128,20 +185,21 @@ public class EmployeeService implements IEmployeeService {
 
     @Override
     public String scanQRCode(MultipartFile file) {
-        try {
-            // Extraire le matricule du QR code scanné
-            String matricule = qrCodeService.extractDataFromQRCode(file.getBytes());
-
-            // Vérifier que l'employé existe
-            if (!employeeRepository.existsByMatricule(matricule)) {
-                throw new BusinessException("Employé non trouvé avec le matricule: " + matricule);
-            }
-
-            return matricule;
-        } catch (Exception e) {
+        // Extraire le matricule du QR code scanné, en lisant l'upload en flux
+        String matricule;
+        try (InputStream image = file.getInputStream()) {
+            matricule = qrCodeService.extractDataFromQRCode(image);
+        } catch (IOException e) {
             log.error("Erreur lors du scan du QR code", e);
             throw new BusinessException("Erreur lors du scan du QR code: " + e.getMessage());
         }
+
+        // Vérifier que l'employé existe
+        if (!indexMatricules.contient(matricule)) {
+            throw new BusinessException("Employé non trouvé avec le matricule: " + matricule);
+        }
+
+        return matricule;
     }
 
     // DTO conversion methods
@@ -156,10 +214,19 @@ public class EmployeeService implements IEmployeeService {
                 .poste(employee.getPoste())
                 .salaireBase(employee.getSalaireBase())
                 .dateEmbauche(employee.getDateEmbauche())
-                .qrCodeBase64(employee.getQrCode() != null ? Base64.getEncoder().encodeToString(employee.getQrCode()) : null)
+                .qrCodeUrl(EmployeeDTO.urlQrCode(employee.getId(), employee.getQrCodeEtag()))
+                .qrCodeEtag(employee.getQrCodeEtag())
                 .build();
     }
 
+    private static String empreinte(byte[] contenu) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(contenu));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
     @Override
     public Employee convertToEntity(EmployeeDTO employeeDTO) {
         Employee employee = new Employee();
@@ -182,13 +249,39 @@ public class EmployeeService implements IEmployeeService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Lectures en projection : seules les colonnes du DTO sont lues, sans entité gérée
+     */
     @Override
+    @Transactional(readOnly = true)
     public List<EmployeeDTO> findAllAsDTO() {
-        return convertToDTOList(findAll());
+        return employeeRepository.findAllDTO();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<EmployeeDTO> findByIdAsDTO(Long id) {
-        return findById(id).map(this::convertToDTO);
+        return employeeRepository.findDTOById(id);
+    }
+
+    /**
+     * Page d'employés triée par id, après le curseur
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public PageCurseurDTO<EmployeeDTO> findPage(String apres, int taille) {
+        List<EmployeeDTO> lignes = employeeRepository.findPageDTOApres(Curseurs.decoderId(apres), PageRequest.ofSize(taille + 1));
+        return Curseurs.page(lignes, taille, dto -> dto, dto -> Curseurs.encoder(dto.getId()));
+    }
+
+    /**
+     * Écrit tous les employés en NDJSON depuis un flux de projections
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exporterTous(OutputStream sortie) {
+        try (Stream<EmployeeDTO> flux = employeeRepository.streamDTO()) {
+            return exportNdjson.ecrire(flux, sortie);
+        }
     }
 }
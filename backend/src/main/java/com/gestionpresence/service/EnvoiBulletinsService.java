@@ -0,0 +1,382 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.config.ExecuteurAdaptatif;
+import com.gestionpresence.config.ExecuteursConfig;
+import com.gestionpresence.dto.RapportEnvoiBulletinsDTO;
+import com.gestionpresence.exception.BusinessException;
+import com.gestionpresence.model.BulletinSalaire;
+import com.gestionpresence.repository.BulletinSalaireRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Envoi en masse des bulletins non envoyés : rendu Thymeleaf en parallèle, envoi par un
+ * seul thread sur une connexion SMTP réutilisée, débit borné par un seau à jetons.
+ * L'avancement est persisté bulletin par bulletin (envoye, date_envoi, tentatives_envoi),
+ * un redémarrage reprend donc là où l'envoi s'était arrêté. Un arrêt entre l'envoi SMTP et
+ * la mise à jour peut renvoyer ce seul bulletin (au moins une fois).
+ */
+@Slf4j
+@Service
+public class EnvoiBulletinsService {
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private BulletinSalaireRepository bulletinSalaireRepository;
+
+    @Autowired
+    private JavaMailSenderImpl mailSender;
+
+    @Value("${app.mail.envoi-masse.active:true}")
+    private boolean active;
+
+    @Autowired
+    private ExecuteursConfig executeursConfig;
+
+    @Value("${app.mail.envoi-masse.taille-lot:100}")
+    private int tailleLot;
+
+    @Value("${app.mail.envoi-masse.debit-par-seconde:5}")
+    private double debitParSeconde;
+
+    @Value("${app.mail.envoi-masse.rafale:10}")
+    private int rafale;
+
+    @Value("${app.mail.envoi-masse.messages-par-connexion:500}")
+    private int messagesParConnexion;
+
+    @Value("${app.mail.envoi-masse.tentatives-max:5}")
+    private int tentativesMax;
+
+    @Value("${app.mail.envoi-masse.report-initial-s:60}")
+    private long reportInitialSecondes;
+
+    @Value("${app.mail.envoi-masse.report-max-s:3600}")
+    private long reportMaxSecondes;
+
+    @Value("${app.mail.envoi-masse.reconnexions:3}")
+    private int reconnexionsMax;
+
+    @Value("${app.mail.envoi-masse.attente-reconnexion-ms:1000}")
+    private long attenteReconnexionMs;
+
+    private final AtomicBoolean enCours = new AtomicBoolean(false);
+    private final AtomicReference<Suivi> suiviCourant = new AtomicReference<>();
+    private final ExecutorService lanceur = Executors.newSingleThreadExecutor(r -> new Thread(r, "EnvoiBulletins"));
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Lance l'envoi des bulletins en attente en arrière-plan
+     */
+    public RapportEnvoiBulletinsDTO lancer() throws BusinessException {
+        if (!enCours.compareAndSet(false, true)) {
+            throw new BusinessException("Un envoi des bulletins est déjà en cours");
+        }
+        Suivi suivi;
+        try {
+            suivi = new Suivi(bulletinSalaireRepository.countAEnvoyer(tentativesMax));
+            suiviCourant.set(suivi);
+            lanceur.execute(() -> {
+                try {
+                    executer(suivi);
+                } catch (Exception e) {
+                    log.error("Envoi des bulletins interrompu", e);
+                    suivi.erreur(e);
+                } finally {
+                    enCours.set(false);
+                    suivi.terminer();
+                    RapportEnvoiBulletinsDTO rapport = suivi.rapport();
+                    log.info("Envoi des bulletins terminé - {} envoyés, {} échecs, {} connexion(s) SMTP en {} ms",
+                            rapport.getEnvoyes(), rapport.getEchecs(), rapport.getConnexionsSmtp(), rapport.getDureeMs());
+                }
+            });
+        } catch (RuntimeException e) {
+            enCours.set(false);
+            throw e;
+        }
+        return suivi.rapport();
+    }
+
+    /**
+     * Lance l'envoi s'il reste des bulletins à envoyer et qu'aucun envoi n'est en cours
+     */
+    public boolean lancerSiNecessaire() {
+        if (enCours.get() || bulletinSalaireRepository.countAEnvoyer(tentativesMax) == 0) {
+            return false;
+        }
+        try {
+            lancer();
+            return true;
+        } catch (BusinessException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Instantané de l'envoi en cours (ou du dernier exécuté)
+     */
+    public RapportEnvoiBulletinsDTO getProgression() {
+        Suivi suivi = suiviCourant.get();
+        return suivi != null ? suivi.rapport() : null;
+    }
+
+    @PreDestroy
+    public void arreter() {
+        lanceur.shutdownNow();
+    }
+
+    private void executer(Suivi suivi) throws InterruptedException {
+        ExecuteurAdaptatif rendu = executeursConfig.get(ExecuteursConfig.Charge.EMAIL);
+        log.info("Début de l'envoi de {} bulletin(s) - {} msg/s, rendu sur {} threads au plus",
+                suivi.totalAEnvoyer, debitParSeconde, rendu.getMaximumPoolSize());
+        // Les bulletins reportés pendant ce passage ne sont pas repris avant le suivant
+        LocalDateTime debut = LocalDateTime.now();
+        LimiteurDebit limiteur = new LimiteurDebit(debitParSeconde, rafale);
+
+        try (ConnexionSmtp connexion = new ConnexionSmtp(suivi)) {
+            List<BulletinSalaire> lot = lireLot(0L, debut);
+            while (!lot.isEmpty()) {
+                List<CompletableFuture<MimeMessage>> messages = new ArrayList<>(lot.size());
+                for (BulletinSalaire bulletin : lot) {
+                    messages.add(rendre(bulletin, rendu));
+                }
+                // Lecture du lot suivant pendant le rendu de celui-ci
+                List<BulletinSalaire> suivant = lireLot(lot.get(lot.size() - 1).getId(), debut);
+
+                for (int i = 0; i < lot.size(); i++) {
+                    if (!envoyer(lot.get(i), messages.get(i), connexion, limiteur, suivi)) {
+                        log.warn("Serveur SMTP indisponible, envoi suspendu jusqu'au prochain passage");
+                        // Rendus pas encore démarrés abandonnés : l'exécuteur est partagé
+                        messages.forEach(message -> message.cancel(false));
+                        return;
+                    }
+                }
+                lot = suivant;
+            }
+        }
+    }
+
+    /**
+     * Rendu sur l'exécuteur email; rendu délesté (politique DELESTAGE) : échec reporté au passage suivant
+     */
+    private CompletableFuture<MimeMessage> rendre(BulletinSalaire bulletin, ExecuteurAdaptatif rendu) {
+        try {
+            return CompletableFuture.supplyAsync(() -> preparer(bulletin), rendu);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private List<BulletinSalaire> lireLot(Long apresId, LocalDateTime maintenant) {
+        return bulletinSalaireRepository.findLotAEnvoyer(apresId, maintenant, tentativesMax, PageRequest.ofSize(tailleLot));
+    }
+
+    private MimeMessage preparer(BulletinSalaire bulletin) {
+        try {
+            MimeMessage message = emailService.preparerMessage(bulletin.getEmployee(), bulletin);
+            message.setSentDate(new Date());
+            message.saveChanges();
+            return message;
+        } catch (MessagingException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * @return false si le serveur SMTP reste injoignable après les reconnexions
+     */
+    private boolean envoyer(BulletinSalaire bulletin, CompletableFuture<MimeMessage> rendu, ConnexionSmtp connexion,
+                            LimiteurDebit limiteur, Suivi suivi) throws InterruptedException {
+        MimeMessage message;
+        try {
+            message = rendu.join();
+        } catch (CompletionException e) {
+            echec(bulletin, e.getCause(), suivi);
+            return true;
+        }
+
+        for (int essai = 0; ; essai++) {
+            limiteur.acquerir();
+            long debut = System.nanoTime();
+            try {
+                transmettre(connexion, message);
+                emailService.enregistrerEnvoi("masse", "envoye", System.nanoTime() - debut);
+                bulletinSalaireRepository.marquerEnvoye(bulletin.getId(), LocalDate.now());
+                suivi.envoye();
+                return true;
+            } catch (SendFailedException e) {
+                // Destinataire refusé : la connexion reste utilisable
+                emailService.enregistrerEnvoi("masse", "refuse", System.nanoTime() - debut);
+                echec(bulletin, e, suivi);
+                return true;
+            } catch (MessagingException e) {
+                emailService.enregistrerEnvoi("masse", "echec", System.nanoTime() - debut);
+                connexion.fermer();
+                if (essai >= reconnexionsMax) {
+                    echec(bulletin, e, suivi);
+                    return false;
+                }
+                long attente = attenteReconnexionMs << essai;
+                log.warn("Échec SMTP pour le bulletin {} ({}), nouvel essai dans {} ms",
+                        bulletin.getId(), e.getMessage(), attente);
+                Thread.sleep(attente);
+            }
+        }
+    }
+
+    /**
+     * Transmission bornée par le sémaphore SMTP partagé avec les envois unitaires (mode threads virtuels)
+     */
+    private void transmettre(ConnexionSmtp connexion, MimeMessage message) throws MessagingException {
+        emailService.acquerirTransmission();
+        try {
+            connexion.envoyer(message);
+        } finally {
+            emailService.libererTransmission();
+        }
+    }
+
+    /**
+     * Enregistre l'échec et reporte le bulletin de façon exponentielle (report-initial x 2^tentatives)
+     */
+    private void echec(BulletinSalaire bulletin, Throwable erreur, Suivi suivi) {
+        int tentatives = bulletin.getTentativesEnvoi();
+        long report = Math.min(reportMaxSecondes, reportInitialSecondes << Math.min(tentatives, 20));
+        String message = erreur.getMessage() != null ? erreur.getMessage() : erreur.getClass().getSimpleName();
+        log.warn("Échec de l'envoi du bulletin {} (tentative {}/{}): {}",
+                bulletin.getId(), tentatives + 1, tentativesMax, message);
+        bulletinSalaireRepository.enregistrerEchecEnvoi(bulletin.getId(), LocalDateTime.now().plusSeconds(report),
+                message.length() > 500 ? message.substring(0, 500) : message);
+        suivi.echec(message);
+    }
+
+    /**
+     * Connexion SMTP unique pour tout le passage, renouvelée après messages-par-connexion envois
+     * (limite usuelle des serveurs) ou après une erreur
+     */
+    private class ConnexionSmtp implements AutoCloseable {
+        private final Suivi suivi;
+        private Transport transport;
+        private int envoyesSurConnexion;
+
+        ConnexionSmtp(Suivi suivi) {
+            this.suivi = suivi;
+        }
+
+        void envoyer(MimeMessage message) throws MessagingException {
+            if (transport == null || envoyesSurConnexion >= messagesParConnexion) {
+                fermer();
+                transport = mailSender.getSession().getTransport(mailSender.getProtocol());
+                transport.connect(mailSender.getHost(), mailSender.getPort(),
+                        mailSender.getUsername(), mailSender.getPassword());
+                envoyesSurConnexion = 0;
+                suivi.connexion();
+            }
+            transport.sendMessage(message, message.getAllRecipients());
+            envoyesSurConnexion++;
+        }
+
+        void fermer() {
+            if (transport != null) {
+                try {
+                    transport.close();
+                } catch (MessagingException e) {
+                    log.debug("Fermeture de la connexion SMTP: {}", e.getMessage());
+                }
+                transport = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            fermer();
+        }
+    }
+
+    /**
+     * État partagé de l'envoi, lu par l'endpoint de progression
+     */
+    private static class Suivi {
+        private final long totalAEnvoyer;
+        private final LocalDateTime debut = LocalDateTime.now();
+        private final long debutNanos = System.nanoTime();
+        private final AtomicInteger envoyes = new AtomicInteger();
+        private final AtomicInteger echecs = new AtomicInteger();
+        private final AtomicInteger connexions = new AtomicInteger();
+        private volatile String derniereErreur;
+        private volatile LocalDateTime fin;
+        private volatile long finNanos;
+
+        Suivi(long totalAEnvoyer) {
+            this.totalAEnvoyer = totalAEnvoyer;
+        }
+
+        void envoye() {
+            envoyes.incrementAndGet();
+        }
+
+        void echec(String message) {
+            echecs.incrementAndGet();
+            derniereErreur = message;
+        }
+
+        void erreur(Exception e) {
+            derniereErreur = e.getMessage();
+        }
+
+        void connexion() {
+            connexions.incrementAndGet();
+        }
+
+        void terminer() {
+            finNanos = System.nanoTime();
+            fin = LocalDateTime.now();
+        }
+
+        RapportEnvoiBulletinsDTO rapport() {
+            long dureeNanos = (fin != null ? finNanos : System.nanoTime()) - debutNanos;
+            double secondes = dureeNanos / 1_000_000_000.0;
+            int envoyesCourants = envoyes.get();
+            return RapportEnvoiBulletinsDTO.builder()
+                    .debut(debut)
+                    .fin(fin)
+                    .terminee(fin != null)
+                    .totalAEnvoyer(totalAEnvoyer)
+                    .envoyes(envoyesCourants)
+                    .echecs(echecs.get())
+                    .connexionsSmtp(connexions.get())
+                    .dureeMs(dureeNanos / 1_000_000)
+                    .messagesParSeconde(secondes > 0 ? envoyesCourants / secondes : 0)
+                    .derniereErreur(derniereErreur)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.gestionpresence.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Écriture d'un flux de lignes en NDJSON (un objet JSON par ligne) directement dans la
+ * réponse : aucune liste intermédiaire, le tampon de la réponse est vidé par Tomcat
+ */
+@Component
+public class ExportNdjson {
+
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private final ObjectWriter writer;
+
+    @Autowired
+    public ExportNdjson(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+    }
+
+    /**
+     * @return le nombre de lignes écrites
+     */
+    public <T> long ecrire(Stream<T> lignes, OutputStream sortie) {
+        long nombre = 0;
+        try (SequenceWriter sequence = writer.writeValues(sortie)) {
+            Iterator<T> iterateur = lignes.iterator();
+            while (iterateur.hasNext()) {
+                T ligne = iterateur.next();
+                sequence.write(ligne);
+                nombre++;
+            }
+            if (nombre > 0) {
+                sequence.flush();
+                sortie.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Écriture du flux NDJSON interrompue", e);
+        }
+        return nombre;
+    }
+}
@@ -1,9 +1,11 @@
 package com.gestionpresence.service;
 
 import com.gestionpresence.dto.EmployeeDTO;
+import com.gestionpresence.dto.PageCurseurDTO;
 import com.gestionpresence.model.Employee;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +15,10 @@ public interface IEmployeeService {
 
     List<EmployeeDTO> findAllAsDTO();
 
+    PageCurseurDTO<EmployeeDTO> findPage(String apres, int taille);
+
+    long exporterTous(OutputStream sortie);
+
     Optional<Employee> findById(Long id);
 
     Optional<EmployeeDTO> findByIdAsDTO(Long id);
@@ -33,6 +39,8 @@ public interface IEmployeeService {
 
     String getEmployeeQRCodeBase64(Long id);
 
+    Optional<String> getEmployeeQRCodeEtag(Long id);
+
     String scanQRCode(MultipartFile file);
 
     // Conversion methods
@@ -0,0 +1,127 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.model.Employee;
+import com.gestionpresence.repository.EmployeeRepository;
+import com.gestionpresence.repository.projection.EmployeResume;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index en mémoire matricule -> résumé de l'employé, chargé au démarrage et tenu à jour
+ * par EmployeeService après validation des transactions. Un matricule absent de l'index
+ * est recherché en base (cas d'une écriture hors application) puis indexé.
+ */
+@Slf4j
+@Component
+public class IndexMatricules {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, EmployeResume> parMatricule = new ConcurrentHashMap<>();
+    private final Map<Long, String> matriculeParId = new ConcurrentHashMap<>();
+
+    private Counter succes;
+    private Counter echecs;
+
+    @PostConstruct
+    public void initialiserMetriques() {
+        succes = Counter.builder("employes.index.recherches").tag("resultat", "hit")
+                .description("Résolutions de matricule servies par l'index").register(meterRegistry);
+        echecs = Counter.builder("employes.index.recherches").tag("resultat", "miss")
+                .description("Résolutions de matricule renvoyées à la base").register(meterRegistry);
+        Gauge.builder("employes.index.taille", parMatricule, Map::size)
+                .description("Nombre d'employés indexés").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void charger() {
+        employeeRepository.findAllResumes().forEach(this::indexer);
+        log.info("Index des matricules chargé: {} employés", parMatricule.size());
+    }
+
+    public Optional<EmployeResume> resoudre(String matricule) {
+        EmployeResume resume = parMatricule.get(matricule);
+        if (resume != null) {
+            succes.increment();
+            return Optional.of(resume);
+        }
+        echecs.increment();
+        Optional<EmployeResume> trouve = employeeRepository.findResumeByMatricule(matricule);
+        trouve.ifPresent(this::indexer);
+        return trouve;
+    }
+
+    public boolean contient(String matricule) {
+        return resoudre(matricule).isPresent();
+    }
+
+    /**
+     * Résolution par identifiant, en mémoire uniquement (pas de recherche en base)
+     */
+    public Optional<EmployeResume> parId(Long employeeId) {
+        String matricule = matriculeParId.get(employeeId);
+        return matricule != null ? Optional.ofNullable(parMatricule.get(matricule)) : Optional.empty();
+    }
+
+    public int taille() {
+        return parMatricule.size();
+    }
+
+    /**
+     * Indexe l'employé créé ou modifié, après validation de la transaction en cours
+     */
+    public void enregistrer(Employee employee) {
+        EmployeResume resume = EmployeResume.de(employee);
+        apresCommit(() -> indexer(resume));
+    }
+
+    /**
+     * Retire l'employé supprimé, après validation de la transaction en cours
+     */
+    public void retirer(Long employeeId) {
+        apresCommit(() -> {
+            String matricule = matriculeParId.remove(employeeId);
+            if (matricule != null) {
+                parMatricule.remove(matricule);
+            }
+        });
+    }
+
+    private void indexer(EmployeResume resume) {
+        String ancien = matriculeParId.put(resume.getId(), resume.getMatricule());
+        if (ancien != null && !ancien.equals(resume.getMatricule())) {
+            parMatricule.remove(ancien);
+        }
+        parMatricule.put(resume.getMatricule(), resume);
+    }
+
+    private void apresCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
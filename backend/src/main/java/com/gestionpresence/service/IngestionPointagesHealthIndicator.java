@@ -0,0 +1,53 @@
+package com.gestionpresence.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+/**
+ * État du thread d'écriture des pointages (/actuator/health, composant ingestionPointages) :
+ * DOWN si la boucle d'écriture s'est arrêtée, si le journal est en échec ou si les écritures
+ * échouent depuis app.pointage.ingestion.echecs-avant-alerte tentatives, les pointages
+ * acquittés n'atteignant alors plus la base
+ */
+@Component
+public class IngestionPointagesHealthIndicator extends AbstractHealthIndicator {
+
+    @Autowired
+    private PointageIngestionService pointageIngestionService;
+
+    @Value("${app.pointage.ingestion.echecs-avant-alerte:5}")
+    private int echecsAvantAlerte;
+
+    @Override
+    protected void doHealthCheck(Health.Builder etat) {
+        if (!pointageIngestionService.isActive()) {
+            etat.up().withDetail("active", false);
+            return;
+        }
+        int echecs = pointageIngestionService.getEchecsConsecutifs();
+        if (!pointageIngestionService.isEcrivainActif()) {
+            etat.down().withDetail("raison", "boucle d'écriture arrêtée");
+        } else if (pointageIngestionService.isJournalEnEchec()) {
+            etat.down().withDetail("raison", "journal des pointages en échec")
+                    .withDetail("defaillanceJournal", pointageIngestionService.getDefaillanceJournal());
+        } else if (echecs >= echecsAvantAlerte) {
+            etat.down().withDetail("raison", "écritures en échec");
+        } else {
+            etat.up();
+        }
+        etat.withDetail("active", true)
+                .withDetail("durabilite", pointageIngestionService.getDurabilite())
+                .withDetail("enAttente", pointageIngestionService.getTailleFile())
+                .withDetail("echecsConsecutifs", echecs)
+                .withDetail("pointagesRefuses", pointageIngestionService.getPointagesRefuses());
+        if (pointageIngestionService.getDerniereEcriture() != null) {
+            etat.withDetail("derniereEcriture", pointageIngestionService.getDerniereEcriture().toString());
+        }
+        if (pointageIngestionService.getDerniereErreur() != null) {
+            etat.withDetail("derniereErreur", pointageIngestionService.getDerniereErreur());
+        }
+    }
+}
@@ -0,0 +1,606 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.exception.SurchargeException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Journal local des pointages (write-ahead log) en segments mappés en mémoire.
+ *
+ * Enregistrement : [longueur int][crc32c int][séquence long][secondes long][nanos int]
+ * [type short+octets][matricule short+octets]. Une longueur nulle marque la fin des données.
+ * Les écritures sont synchronisées sur disque par groupe (un force() pour tous les
+ * pointages arrivés pendant le précédent) avant d'être acquittées.
+ *
+ * Un seul lecteur (le thread d'écriture en base) consomme le journal depuis le point de
+ * reprise; chaque événement porte une clé de déduplication "identifiant-séquence".
+ */
+@Slf4j
+@Component
+public class JournalPointages {
+
+    private static final int EN_TETE = 8;
+    private static final String PREFIXE_SEGMENT = "segment-";
+    private static final String SUFFIXE_SEGMENT = ".journal";
+    private static final String FICHIER_IDENTIFIANT = "journal.id";
+    private static final String FICHIER_REPRISE = "reprise";
+
+    @Value("${app.pointage.journal.repertoire:./data/journal-pointages}")
+    private String repertoire;
+
+    @Value("${app.pointage.journal.taille-segment-mo:64}")
+    private int tailleSegmentMo;
+
+    @Value("${app.pointage.journal.attente-synchronisation-ms:5000}")
+    private long attenteSynchronisationMs;
+
+    private Path dossier;
+    private String identifiant;
+    private int tailleSegment;
+
+    // Écriture, protégée par le verrou. ReentrantLock plutôt que synchronized : un thread
+    // virtuel (app.execution.mode VIRTUEL, JRE 21) qui attend sa synchronisation libère
+    // son thread porteur au lieu de l'épingler
+    private final ReentrantLock verrou = new ReentrantLock();
+    // Signalée à chaque pointage écrit et à la fermeture (thread de synchronisation)
+    private final Condition aSynchroniser = verrou.newCondition();
+    // Signalée à chaque synchronisation, à la fermeture et en cas d'échec (appelants, lecteur)
+    private final Condition synchronise = verrou.newCondition();
+    private MappedByteBuffer segmentCourant;
+    private long numeroSegmentCourant;
+    private int debutNonSynchronise;
+    private long prochaineSequence;
+    private long derniereSequenceEcrite;
+    private long derniereSequenceSynchronisee;
+    private volatile Position positionSynchronisee;
+
+    // Lecture, réservée au thread consommateur
+    private MappedByteBuffer segmentLu;
+    private long numeroSegmentLu;
+    private int offsetLu;
+
+    private volatile long sequenceValidee;
+    private volatile Position positionValidee;
+
+    private Thread synchroniseur;
+    private volatile boolean ferme = true;
+    // Échec d'un force() : l'état du disque est inconnu, plus aucun pointage n'est accepté
+    private volatile Throwable defaillance;
+
+    /**
+     * Ouvre le journal : lit le point de reprise, retrouve la fin des données
+     * (un enregistrement tronqué par un arrêt brutal est ignoré) et démarre la synchronisation
+     */
+    public void ouvrir() {
+        try {
+            dossier = Paths.get(repertoire).toAbsolutePath();
+            Files.createDirectories(dossier);
+            tailleSegment = tailleSegmentMo * 1024 * 1024;
+            identifiant = lireOuCreerIdentifiant();
+
+            Position reprise = lireReprise();
+            List<Long> segments = listerSegments();
+            if (segments.isEmpty()) {
+                segments.add(Math.max(reprise.segment, 1));
+            }
+            if (reprise.segment == 0) {
+                reprise = new Position(segments.get(0), 0, 0);
+            }
+
+            // Parcours des données non reprises pour retrouver la dernière séquence écrite
+            long derniereSequence = reprise.sequence;
+            long numero = reprise.segment;
+            int offset = reprise.offset;
+            long dernierSegment = segments.get(segments.size() - 1);
+            while (true) {
+                MappedByteBuffer segment = mapper(numero);
+                Evenement evenement;
+                while ((evenement = decoder(segment, numero, offset)) != null) {
+                    derniereSequence = evenement.sequence;
+                    offset = evenement.offsetSuivant;
+                }
+                if (numero >= dernierSegment) {
+                    ouvrirEnEcriture(numero, segment, offset);
+                    break;
+                }
+                numero++;
+                offset = 0;
+            }
+
+            prochaineSequence = derniereSequence + 1;
+            derniereSequenceEcrite = derniereSequence;
+            derniereSequenceSynchronisee = derniereSequence;
+            positionSynchronisee = new Position(numeroSegmentCourant, segmentCourant.position(), derniereSequence);
+
+            sequenceValidee = reprise.sequence;
+            positionValidee = reprise;
+            segmentLu = mapper(reprise.segment);
+            numeroSegmentLu = reprise.segment;
+            offsetLu = reprise.offset;
+
+            ferme = false;
+            synchroniseur = new Thread(this::boucleSynchronisation, "JournalPointages-fsync");
+            synchroniseur.setDaemon(true);
+            synchroniseur.start();
+            log.info("Journal des pointages ouvert: {} - reprise à la séquence {}, {} pointages à rejouer",
+                    dossier, reprise.sequence, derniereSequence - reprise.sequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ouverture du journal des pointages impossible: " + repertoire, e);
+        }
+    }
+
+    /**
+     * Ajoute un pointage et attend sa synchronisation sur disque, au plus attente-synchronisation-ms
+     *
+     * @return false si la synchronisation n'est pas confirmée dans le délai : le pointage est
+     * dans le journal et sera rejoué une fois synchronisé
+     * @throws SurchargeException journal fermé ou en échec
+     */
+    public boolean ajouter(String matricule, String typePointage, LocalDateTime dateHeurePointage) {
+        byte[] type = typePointage.getBytes(StandardCharsets.UTF_8);
+        byte[] mat = matricule.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer contenu = ByteBuffer.allocate(8 + 8 + 4 + 2 + type.length + 2 + mat.length);
+
+        long sequence;
+        verrou.lock();
+        try {
+            if (ferme) {
+                throw new SurchargeException("Journal des pointages fermé", 1);
+            }
+            if (defaillance != null) {
+                throw new SurchargeException("Journal des pointages en échec", 1);
+            }
+            sequence = prochaineSequence++;
+            contenu.putLong(sequence)
+                    .putLong(dateHeurePointage.toEpochSecond(ZoneOffset.UTC))
+                    .putInt(dateHeurePointage.getNano())
+                    .putShort((short) type.length).put(type)
+                    .putShort((short) mat.length).put(mat);
+            CRC32C crc = new CRC32C();
+            crc.update(contenu.array());
+
+            // 4 octets de plus pour que la marque de fin tienne toujours dans le segment
+            if (segmentCourant.remaining() < EN_TETE + contenu.capacity() + 4) {
+                try {
+                    changerDeSegment();
+                } catch (UncheckedIOException e) {
+                    mettreEnEchec(e);
+                    throw new SurchargeException("Journal des pointages en échec", 1);
+                }
+            }
+            segmentCourant.putInt(contenu.capacity())
+                    .putInt((int) crc.getValue())
+                    .put(contenu.array());
+            derniereSequenceEcrite = sequence;
+            aSynchroniser.signal();
+
+            long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(attenteSynchronisationMs);
+            while (derniereSequenceSynchronisee < sequence) {
+                if (ferme) {
+                    throw new SurchargeException("Journal des pointages fermé avant synchronisation", 1);
+                }
+                if (defaillance != null) {
+                    throw new SurchargeException("Synchronisation du journal des pointages en échec", 1);
+                }
+                long resteMs = TimeUnit.NANOSECONDS.toMillis(limite - System.nanoTime());
+                if (resteMs <= 0) {
+                    log.warn("Synchronisation du pointage {} non confirmée après {} ms", cle(sequence),
+                            attenteSynchronisationMs);
+                    return false;
+                }
+                try {
+                    synchronise.await(resteMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SurchargeException("Synchronisation du journal interrompue", 1);
+                }
+            }
+        } finally {
+            verrou.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Lit au plus max événements synchronisés à partir de la position de lecture
+     */
+    public List<Evenement> lire(int max) {
+        Position limite = positionSynchronisee;
+        List<Evenement> evenements = new ArrayList<>();
+        try {
+            while (evenements.size() < max) {
+                if (numeroSegmentLu == limite.segment && offsetLu >= limite.offset) {
+                    break;
+                }
+                Evenement evenement = decoder(segmentLu, numeroSegmentLu, offsetLu);
+                if (evenement == null) {
+                    if (numeroSegmentLu >= limite.segment) {
+                        break;
+                    }
+                    numeroSegmentLu++;
+                    segmentLu = mapper(numeroSegmentLu);
+                    offsetLu = 0;
+                    continue;
+                }
+                evenements.add(evenement);
+                offsetLu = evenement.offsetSuivant;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return evenements;
+    }
+
+    /**
+     * Replace la lecture au dernier point de reprise : les événements lus mais non validés
+     * (écriture en base interrompue par une erreur) seront relus
+     */
+    public void reprendreLecture() {
+        Position reprise = positionValidee;
+        try {
+            segmentLu = mapper(reprise.segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Relecture du journal des pointages impossible", e);
+        }
+        numeroSegmentLu = reprise.segment;
+        offsetLu = reprise.offset;
+    }
+
+    /**
+     * Attend de nouveaux pointages synchronisés, au plus delaiMs
+     */
+    public void attendre(long delaiMs) throws InterruptedException {
+        verrou.lock();
+        try {
+            Position limite = positionSynchronisee;
+            if (limite.segment == numeroSegmentLu && limite.offset <= offsetLu && !ferme) {
+                synchronise.await(delaiMs, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Enregistre le point de reprise après écriture en base et supprime les segments entièrement rejoués.
+     * Un segment encore mappé ne peut pas être supprimé sous Windows : il est laissé en place et
+     * retenté à la validation suivante (la reprise ne relit que les segments postérieurs).
+     */
+    public void valider(Evenement dernier) {
+        try {
+            Path temporaire = dossier.resolve(FICHIER_REPRISE + ".tmp");
+            String contenu = dernier.segment + " " + dernier.offsetSuivant + " " + dernier.sequence;
+            try (FileChannel canal = FileChannel.open(temporaire, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                canal.write(ByteBuffer.wrap(contenu.getBytes(StandardCharsets.US_ASCII)));
+                canal.force(true);
+            }
+            Files.move(temporaire, dossier.resolve(FICHIER_REPRISE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            sequenceValidee = dernier.sequence;
+            positionValidee = new Position(dernier.segment, dernier.offsetSuivant, dernier.sequence);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException("Écriture du point de reprise impossible", e);
+        }
+        supprimerSegmentsAvant(dernier.segment);
+    }
+
+    private void supprimerSegmentsAvant(long segment) {
+        List<Long> segments;
+        try {
+            segments = listerSegments();
+        } catch (IOException e) {
+            log.warn("Liste des segments du journal impossible, suppression reportée: {}", e.getMessage());
+            return;
+        }
+        for (Long numero : segments) {
+            if (numero >= segment) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(cheminSegment(numero));
+                log.debug("Segment {} du journal rejoué et supprimé", numero);
+            } catch (IOException e) {
+                log.warn("Segment {} du journal rejoué non supprimé, nouvel essai à la prochaine validation: {}",
+                        numero, e.toString());
+            }
+        }
+    }
+
+    public String cle(long sequence) {
+        return identifiant + "-" + sequence;
+    }
+
+    /**
+     * Nombre de pointages synchronisés pas encore rejoués en base
+     */
+    public long getNombreNonRejoues() {
+        return ferme ? 0 : positionSynchronisee.sequence - sequenceValidee;
+    }
+
+    /**
+     * Vrai après l'échec d'une synchronisation sur disque : les pointages sont refusés
+     * jusqu'au redémarrage, qui relit le journal depuis le point de reprise
+     */
+    public boolean isEnEchec() {
+        return defaillance != null;
+    }
+
+    public String getDefaillance() {
+        Throwable erreur = defaillance;
+        return erreur != null ? erreur.getClass().getSimpleName() + ": " + erreur.getMessage() : null;
+    }
+
+    public void fermer() {
+        verrou.lock();
+        try {
+            if (ferme) {
+                return;
+            }
+            ferme = true;
+            aSynchroniser.signalAll();
+            synchronise.signalAll();
+        } finally {
+            verrou.unlock();
+        }
+        try {
+            synchroniseur.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        verrou.lock();
+        try {
+            segmentCourant.force();
+        } finally {
+            verrou.unlock();
+        }
+        log.info("Journal des pointages fermé à la séquence {}", derniereSequenceEcrite);
+    }
+
+    /**
+     * Synchronisation groupée : un force() couvre tous les pointages écrits depuis le précédent
+     */
+    private void boucleSynchronisation() {
+        while (true) {
+            MappedByteBuffer segment;
+            long numero;
+            int debut;
+            int fin;
+            long sequence;
+            verrou.lock();
+            try {
+                while (derniereSequenceEcrite == derniereSequenceSynchronisee && !ferme) {
+                    try {
+                        aSynchroniser.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (ferme) {
+                    return;
+                }
+                segment = segmentCourant;
+                numero = numeroSegmentCourant;
+                debut = debutNonSynchronise;
+                fin = segmentCourant.position();
+                sequence = derniereSequenceEcrite;
+            } finally {
+                verrou.unlock();
+            }
+
+            try {
+                segment.force(debut, fin - debut);
+            } catch (RuntimeException | InternalError e) {
+                // InternalError : erreur d'entrée-sortie sur la zone mappée
+                verrou.lock();
+                try {
+                    mettreEnEchec(e);
+                } finally {
+                    verrou.unlock();
+                }
+                return;
+            }
+
+            verrou.lock();
+            try {
+                if (numero == numeroSegmentCourant) {
+                    debutNonSynchronise = fin;
+                }
+                if (sequence > derniereSequenceSynchronisee) {
+                    derniereSequenceSynchronisee = sequence;
+                    positionSynchronisee = new Position(numero, fin, sequence);
+                }
+                synchronise.signalAll();
+            } finally {
+                verrou.unlock();
+            }
+        }
+    }
+
+    /**
+     * Appelé sous le verrou : réveille les pointages en attente, qui échouent
+     */
+    private void mettreEnEchec(Throwable erreur) {
+        defaillance = erreur;
+        synchronise.signalAll();
+        log.error("Synchronisation du journal des pointages en échec, pointages refusés jusqu'au redémarrage", erreur);
+    }
+
+    /**
+     * Appelé sous le verrou : le segment plein est synchronisé avant d'ouvrir le suivant
+     */
+    private void changerDeSegment() {
+        try {
+            segmentCourant.force(debutNonSynchronise, segmentCourant.position() - debutNonSynchronise);
+            if (derniereSequenceEcrite > derniereSequenceSynchronisee) {
+                derniereSequenceSynchronisee = derniereSequenceEcrite;
+            }
+            positionSynchronisee = new Position(numeroSegmentCourant, segmentCourant.position(), derniereSequenceSynchronisee);
+            synchronise.signalAll();
+            ouvrirEnEcriture(numeroSegmentCourant + 1, mapper(numeroSegmentCourant + 1), 0);
+            log.info("Nouveau segment du journal des pointages: {}", numeroSegmentCourant);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Création d'un segment du journal impossible", e);
+        }
+    }
+
+    private void ouvrirEnEcriture(long numero, MappedByteBuffer segment, int offset) {
+        // Efface un éventuel enregistrement tronqué après la fin des données valides
+        byte[] zeros = new byte[64 * 1024];
+        segment.position(offset);
+        while (segment.hasRemaining()) {
+            segment.put(zeros, 0, Math.min(zeros.length, segment.remaining()));
+        }
+        segment.position(offset);
+        segmentCourant = segment;
+        numeroSegmentCourant = numero;
+        debutNonSynchronise = offset;
+    }
+
+    /**
+     * Décode l'enregistrement à l'offset donné, null en fin de données ou si le crc est invalide
+     */
+    private Evenement decoder(MappedByteBuffer segment, long numero, int offset) {
+        if (offset + EN_TETE > segment.capacity()) {
+            return null;
+        }
+        int longueur = segment.getInt(offset);
+        if (longueur <= 0 || offset + EN_TETE + longueur > segment.capacity()) {
+            return null;
+        }
+        byte[] contenu = new byte[longueur];
+        segment.get(offset + EN_TETE, contenu);
+        CRC32C crc = new CRC32C();
+        crc.update(contenu);
+        if ((int) crc.getValue() != segment.getInt(offset + 4)) {
+            log.warn("Enregistrement tronqué ignoré dans le segment {} à l'offset {}", numero, offset);
+            return null;
+        }
+
+        ByteBuffer lecture = ByteBuffer.wrap(contenu);
+        long sequence = lecture.getLong();
+        LocalDateTime dateHeure = LocalDateTime.ofEpochSecond(lecture.getLong(), lecture.getInt(), ZoneOffset.UTC);
+        String type = lireChaine(lecture);
+        String matricule = lireChaine(lecture);
+        return new Evenement(sequence, cle(sequence), matricule, type, dateHeure,
+                numero, offset + EN_TETE + longueur);
+    }
+
+    private static String lireChaine(ByteBuffer lecture) {
+        byte[] octets = new byte[lecture.getShort()];
+        lecture.get(octets);
+        return new String(octets, StandardCharsets.UTF_8);
+    }
+
+    private MappedByteBuffer mapper(long numero) throws IOException {
+        try (FileChannel canal = FileChannel.open(cheminSegment(numero), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return canal.map(FileChannel.MapMode.READ_WRITE, 0, tailleSegment);
+        }
+    }
+
+    private Path cheminSegment(long numero) {
+        return dossier.resolve(String.format("%s%020d%s", PREFIXE_SEGMENT, numero, SUFFIXE_SEGMENT));
+    }
+
+    private List<Long> listerSegments() throws IOException {
+        try (Stream<Path> fichiers = Files.list(dossier)) {
+            return fichiers.map(f -> f.getFileName().toString())
+                    .filter(nom -> nom.startsWith(PREFIXE_SEGMENT) && nom.endsWith(SUFFIXE_SEGMENT))
+                    .map(nom -> Long.parseLong(nom.substring(PREFIXE_SEGMENT.length(),
+                            nom.length() - SUFFIXE_SEGMENT.length())))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private String lireOuCreerIdentifiant() throws IOException {
+        Path fichier = dossier.resolve(FICHIER_IDENTIFIANT);
+        if (Files.exists(fichier)) {
+            return Files.readString(fichier, StandardCharsets.US_ASCII).trim();
+        }
+        String nouveau = UUID.randomUUID().toString().replace("-", "").substring(0, 16);
+        Files.writeString(fichier, nouveau, StandardCharsets.US_ASCII);
+        return nouveau;
+    }
+
+    private Position lireReprise() throws IOException {
+        Path fichier = dossier.resolve(FICHIER_REPRISE);
+        if (!Files.exists(fichier)) {
+            return new Position(0, 0, 0);
+        }
+        String[] champs = Files.readString(fichier, StandardCharsets.US_ASCII).trim().split(" ");
+        return new Position(Long.parseLong(champs[0]), Integer.parseInt(champs[1]), Long.parseLong(champs[2]));
+    }
+
+    private static final class Position {
+        private final long segment;
+        private final int offset;
+        private final long sequence;
+
+        Position(long segment, int offset, long sequence) {
+            this.segment = segment;
+            this.offset = offset;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Pointage lu dans le journal
+     */
+    public static final class Evenement {
+        private final long sequence;
+        private final String cleDeduplication;
+        private final String matricule;
+        private final String typePointage;
+        private final LocalDateTime dateHeurePointage;
+        private final long segment;
+        private final int offsetSuivant;
+
+        Evenement(long sequence, String cleDeduplication, String matricule, String typePointage,
+                  LocalDateTime dateHeurePointage, long segment, int offsetSuivant) {
+            this.sequence = sequence;
+            this.cleDeduplication = cleDeduplication;
+            this.matricule = matricule;
+            this.typePointage = typePointage;
+            this.dateHeurePointage = dateHeurePointage;
+            this.segment = segment;
+            this.offsetSuivant = offsetSuivant;
+        }
+
+        public long getSequence() { return sequence; }
+
+        public String getCleDeduplication() { return cleDeduplication; }
+
+        public String getMatricule() { return matricule; }
+
+        public String getTypePointage() { return typePointage; }
+
+        public LocalDateTime getDateHeurePointage() { return dateHeurePointage; }
+    }
+}
@@ -0,0 +1,46 @@
+package com.gestionpresence.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seau à jetons : débit moyen borné, rafales limitées à la capacité du seau.
+ * Utilisé par un seul thread (l'expéditeur), donc sans synchronisation.
+ */
+final class LimiteurDebit {
+
+    private final double jetonsParNano;
+    private final double capacite;
+    private double jetons;
+    private long derniereRecharge;
+
+    /**
+     * @param parSeconde débit moyen; 0 ou moins pour ne pas limiter
+     */
+    LimiteurDebit(double parSeconde, int rafale) {
+        this.jetonsParNano = parSeconde / 1_000_000_000.0;
+        this.capacite = Math.max(1, rafale);
+        this.jetons = capacite;
+        this.derniereRecharge = System.nanoTime();
+    }
+
+    /**
+     * Bloque jusqu'à ce qu'un jeton soit disponible puis le consomme
+     */
+    void acquerir() throws InterruptedException {
+        if (jetonsParNano <= 0) {
+            return;
+        }
+        recharger();
+        while (jetons < 1) {
+            TimeUnit.NANOSECONDS.sleep((long) Math.ceil((1 - jetons) / jetonsParNano));
+            recharger();
+        }
+        jetons -= 1;
+    }
+
+    private void recharger() {
+        long maintenant = System.nanoTime();
+        jetons = Math.min(capacite, jetons + (maintenant - derniereRecharge) * jetonsParNano);
+        derniereRecharge = maintenant;
+    }
+}
@@ -0,0 +1,494 @@
+package com.gestionpresence.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gestionpresence.config.ExecuteursConfig;
+import com.gestionpresence.dto.OccupationDTO;
+import com.gestionpresence.dto.OccupationDTO.EtatEmploye;
+import com.gestionpresence.exception.SurchargeException;
+import com.gestionpresence.model.Presence;
+import com.gestionpresence.repository.PresenceRepository;
+import com.gestionpresence.repository.projection.EmployeResume;
+import com.gestionpresence.repository.projection.PointageProjection;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Occupation du site en temps réel : état du jour de chaque employé (présent, sorti,
+ * absent, retard), tenu en mémoire à partir des pointages validés et diffusé en SSE.
+ *
+ * Les pointages ne font que marquer l'employé comme modifié; toutes les
+ * app.occupation.intervalle-ms, les modifications accumulées sont regroupées en un seul
+ * delta, sérialisé une fois puis écrit à tous les abonnés (thread dédié, exécuteur
+ * diffusion). Un abonné reçoit l'instantané complet à la connexion puis les deltas :
+ * le nombre d'abonnés ne coûte aucune requête en base.
+ *
+ * Les envois, bloquants avec un abonné lent, se font hors du verrou d'état : un pointage
+ * ou un GET de l'instantané n'attend jamais une diffusion.
+ */
+@Slf4j
+@Service
+public class OccupationService {
+
+    public static final String PRESENT = "PRESENT";
+    public static final String SORTI = "SORTI";
+    public static final String ABSENT = "ABSENT";
+
+    private static final String POSTE_NON_RENSEIGNE = "Non renseigné";
+
+    @Autowired
+    private PresenceRepository presenceRepository;
+
+    @Autowired
+    private IndexMatricules indexMatricules;
+
+    @Autowired
+    private ExecuteursConfig executeursConfig;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.occupation.sse.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${app.occupation.sse.abonnes-max:5000}")
+    private int abonnesMax;
+
+    @Value("${app.occupation.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    private final Map<Long, Etat> etats = new ConcurrentHashMap<>();
+    private final Set<Long> modifies = ConcurrentHashMap.newKeySet();
+    private final List<SseEmitter> abonnes = new CopyOnWriteArrayList<>();
+    // Abonnés en attente de leur instantané, envoyé par la diffusion suivante
+    private final Queue<SseEmitter> nouveaux = new ConcurrentLinkedQueue<>();
+
+    // État diffusé (séquence, instantané, jour), tenu le temps d'en prendre une copie.
+    // ReentrantLock plutôt que synchronized : pas d'épinglage des threads virtuels (mode VIRTUEL)
+    private final ReentrantLock verrou = new ReentrantLock();
+    // Diffusions sérialisées : chaque abonné reçoit instantané puis deltas dans l'ordre
+    private final ReentrantLock envoi = new ReentrantLock();
+    private volatile LocalDate jour = LocalDate.now();
+    private long sequence;
+    private long derniereDiffusion = System.nanoTime();
+    private volatile String instantane;
+
+    @PostConstruct
+    public void initialiserMetriques() {
+        Gauge.builder("occupation.abonnes", abonnes, List::size)
+                .description("Tableaux de bord abonnés au flux d'occupation").register(meterRegistry);
+        Gauge.builder("occupation.presents", etats, e -> e.values().stream().filter(x -> PRESENT.equals(x.etat)).count())
+                .description("Employés présents sur site").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void charger() {
+        recharger(null);
+        log.info("Occupation du {} chargée : {} employé(s) ayant pointé", jour, etats.size());
+    }
+
+    /**
+     * Flux terminés avant l'arrêt du serveur web : les navigateurs se reconnectent
+     * (EventSource) au lieu d'attendre l'expiration de la requête asynchrone
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void fermer() {
+        nouveaux.forEach(SseEmitter::complete);
+        nouveaux.clear();
+        abonnes.forEach(SseEmitter::complete);
+        abonnes.clear();
+    }
+
+    /**
+     * Pointages enregistrés : appliqués après validation de la transaction en cours
+     */
+    public void enregistrer(List<Presence> presences) {
+        if (presences.isEmpty()) {
+            return;
+        }
+        apresCommit(() -> presences.forEach(p ->
+                appliquer(p.getEmployee().getId(), p.getTypePointage(), p.getDateHeurePointage())));
+    }
+
+    /**
+     * Pointage supprimé ou corrigé : état de l'employé relu en base après validation
+     */
+    public void recalculer(Long employeeId) {
+        apresCommit(() -> recharger(employeeId));
+    }
+
+    /**
+     * Abonnement au flux : instantané (événement "instantane") puis deltas (événement "delta")
+     */
+    public SseEmitter abonner() {
+        if (abonnes.size() + nouveaux.size() >= abonnesMax) {
+            throw new SurchargeException("Trop d'abonnés au flux d'occupation, réessayez", 30);
+        }
+        SseEmitter abonne = new SseEmitter(timeoutMs);
+        Runnable retirer = () -> {
+            nouveaux.remove(abonne);
+            abonnes.remove(abonne);
+        };
+        abonne.onCompletion(retirer);
+        abonne.onTimeout(retirer);
+        abonne.onError(erreur -> retirer.run());
+        // L'instantané part du thread de diffusion, avant tout delta postérieur
+        nouveaux.add(abonne);
+        diffuser();
+        return abonne;
+    }
+
+    /**
+     * Instantané JSON courant, sérialisé au plus une fois par diffusion
+     */
+    public String getInstantane() {
+        String courant = instantane;
+        if (courant == null) {
+            verrou.lock();
+            try {
+                if (instantane == null) {
+                    instantane = serialiser(construire(new ArrayList<>(etats.keySet()), true));
+                }
+                courant = instantane;
+            } finally {
+                verrou.unlock();
+            }
+        }
+        return courant;
+    }
+
+    /**
+     * Déclenche une diffusion sur l'exécuteur dédié; diffusion précédente encore en cours
+     * (abonné lent) : les modifications restent accumulées pour la suivante
+     */
+    public void diffuser() {
+        try {
+            executeursConfig.get(ExecuteursConfig.Charge.DIFFUSION).execute(this::diffuserMaintenant);
+        } catch (RejectedExecutionException e) {
+            log.debug("Diffusion de l'occupation ignorée, la précédente est en cours");
+        }
+    }
+
+    private void diffuserMaintenant() {
+        envoi.lock();
+        try {
+            // Sous le verrou : copie des abonnés arrivés et sérialisation du message, sans envoi
+            List<SseEmitter> arrivants = new ArrayList<>();
+            String evenement = null;
+            String donnees = null;
+            String initial = null;
+            long numero;
+            verrou.lock();
+            try {
+                SseEmitter arrivant;
+                while ((arrivant = nouveaux.poll()) != null) {
+                    arrivants.add(arrivant);
+                }
+                if (changerDeJour(LocalDate.now())) {
+                    evenement = "instantane";
+                    donnees = getInstantane();
+                } else if (!modifies.isEmpty()) {
+                    List<Long> ids = new ArrayList<>(modifies.size());
+                    for (Long id : modifies) {
+                        modifies.remove(id);
+                        ids.add(id);
+                    }
+                    sequence++;
+                    instantane = null;
+                    evenement = "delta";
+                    donnees = serialiser(construire(ids, false));
+                } else if (System.nanoTime() - derniereDiffusion > TimeUnit.MILLISECONDS.toNanos(heartbeatMs)) {
+                    // Commentaire SSE : maintient les connexions et détecte les abonnés partis
+                    donnees = "ping";
+                }
+                numero = sequence;
+                if (!arrivants.isEmpty()) {
+                    // État après ce delta : les arrivants reçoivent ensuite les deltas suivants
+                    initial = getInstantane();
+                }
+            } finally {
+                verrou.unlock();
+            }
+
+            if (donnees != null) {
+                derniereDiffusion = System.nanoTime();
+                abonnes.removeAll(envoyer(abonnes, evenement, numero, donnees));
+            }
+            if (!arrivants.isEmpty()) {
+                arrivants.removeAll(envoyer(arrivants, "instantane", numero, initial));
+                abonnes.addAll(arrivants);
+            }
+        } finally {
+            envoi.unlock();
+        }
+    }
+
+    /**
+     * Écrit le message à chaque abonné
+     *
+     * @return les abonnés dont la connexion est fermée, à retirer
+     */
+    private List<SseEmitter> envoyer(List<SseEmitter> cibles, String evenement, long numero, String donnees) {
+        List<SseEmitter> fermes = new ArrayList<>();
+        if (cibles.isEmpty()) {
+            return fermes;
+        }
+        SseEmitter.SseEventBuilder message = evenement == null
+                ? SseEmitter.event().comment(donnees)
+                : SseEmitter.event().name(evenement).id(String.valueOf(numero)).data(donnees);
+        for (SseEmitter abonne : cibles) {
+            try {
+                abonne.send(message);
+            } catch (IOException | IllegalStateException e) {
+                // Connexion fermée : le conteneur signale l'erreur, l'abonné est simplement retiré
+                fermes.add(abonne);
+            }
+        }
+        return fermes;
+    }
+
+    private OccupationDTO construire(List<Long> ids, boolean complet) {
+        int presents = 0;
+        int sortis = 0;
+        int absents = 0;
+        int retards = 0;
+        Map<String, Integer> parPoste = new TreeMap<>();
+        for (Map.Entry<Long, Etat> entree : etats.entrySet()) {
+            Etat etat = entree.getValue();
+            if (etat.minutesRetard > 0) {
+                retards++;
+            }
+            switch (etat.etat) {
+                case PRESENT:
+                    presents++;
+                    parPoste.merge(poste(indexMatricules.parId(entree.getKey())), 1, Integer::sum);
+                    break;
+                case SORTI:
+                    sortis++;
+                    break;
+                default:
+                    absents++;
+            }
+        }
+        int effectif = Math.max(indexMatricules.taille(), etats.size());
+
+        List<EtatEmploye> employes = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Etat etat = etats.get(id);
+            if (etat != null) {
+                employes.add(dto(id, etat));
+            }
+        }
+        employes.sort(Comparator.comparing(EtatEmploye::getEmployeeId));
+
+        return OccupationDTO.builder()
+                .jour(jour)
+                .sequence(sequence)
+                .horodatage(LocalDateTime.now())
+                .complet(complet)
+                .effectif(effectif)
+                .presents(presents)
+                .sortis(sortis)
+                .absents(absents)
+                .nonArrives(effectif - presents - sortis - absents)
+                .retards(retards)
+                .presentsParPoste(parPoste)
+                .employes(employes)
+                .build();
+    }
+
+    private EtatEmploye dto(Long employeeId, Etat etat) {
+        Optional<EmployeResume> employe = indexMatricules.parId(employeeId);
+        return EtatEmploye.builder()
+                .employeeId(employeeId)
+                .matricule(employe.map(EmployeResume::getMatricule).orElse(null))
+                .nom(employe.map(EmployeResume::getNom).orElse(null))
+                .prenom(employe.map(EmployeResume::getPrenom).orElse(null))
+                .poste(poste(employe))
+                .etat(etat.etat)
+                .arrivee(etat.arrivee)
+                .minutesRetard(etat.minutesRetard)
+                .dernierPointage(etat.dernierPointage)
+                .build();
+    }
+
+    private static String poste(Optional<EmployeResume> employe) {
+        return employe.map(EmployeResume::getPoste).filter(p -> !p.isBlank()).orElse(POSTE_NON_RENSEIGNE);
+    }
+
+    private String serialiser(OccupationDTO occupation) {
+        try {
+            return objectMapper.writeValueAsString(occupation);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Sérialisation de l'occupation impossible", e);
+        }
+    }
+
+    private void appliquer(Long employeeId, String typePointage, LocalDateTime dateHeure) {
+        LocalDate date = dateHeure.toLocalDate();
+        if (date.isAfter(jour)) {
+            verrou.lock();
+            try {
+                changerDeJour(date);
+            } finally {
+                verrou.unlock();
+            }
+        }
+        if (!date.equals(jour)) {
+            return;
+        }
+        etats.compute(employeeId, (id, ancien) -> Etat.appliquer(ancien, typePointage, dateHeure));
+        modifies.add(employeeId);
+    }
+
+    /**
+     * Relit les pointages du jour (d'un employé, ou de tous si null) et reconstruit leur état
+     */
+    private void recharger(Long employeeId) {
+        LocalDate aujourdhui = jour;
+        Map<Long, Etat> relus = new ConcurrentHashMap<>();
+        TransactionTemplate lecture = new TransactionTemplate(transactionManager);
+        // Appelé aussi depuis afterCommit : la transaction validée est encore liée au thread
+        lecture.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        lecture.setReadOnly(true);
+        lecture.executeWithoutResult(status -> {
+            LocalDateTime debut = aujourdhui.atStartOfDay();
+            LocalDateTime fin = aujourdhui.plusDays(1).atStartOfDay();
+            if (employeeId != null) {
+                presenceRepository.findPointagesByEmployeeIdAndIntervalle(employeeId, debut, fin)
+                        .forEach(p -> relire(relus, p));
+                return;
+            }
+            try (Stream<PointageProjection> flux = presenceRepository.streamPointagesByIntervalle(debut, fin)) {
+                flux.forEach(p -> relire(relus, p));
+            }
+        });
+        if (employeeId != null) {
+            Etat etat = relus.get(employeeId);
+            if (etat != null) {
+                etats.put(employeeId, etat);
+            } else {
+                etats.remove(employeeId);
+            }
+            modifies.add(employeeId);
+        } else {
+            etats.putAll(relus);
+            modifies.addAll(relus.keySet());
+        }
+    }
+
+    private static void relire(Map<Long, Etat> relus, PointageProjection pointage) {
+        relus.compute(pointage.getEmployeeId(),
+                (id, ancien) -> Etat.appliquer(ancien, pointage.getTypePointage(), pointage.getDateHeurePointage()));
+    }
+
+    /**
+     * @return true si le jour a changé (états remis à zéro), appelé sous le verrou
+     */
+    private boolean changerDeJour(LocalDate date) {
+        if (!date.isAfter(jour)) {
+            return false;
+        }
+        log.info("Occupation : passage du {} au {}", jour, date);
+        jour = date;
+        etats.clear();
+        modifies.clear();
+        sequence++;
+        instantane = null;
+        return true;
+    }
+
+    private void apresCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * État du jour d'un employé (immuable, remplacé à chaque pointage)
+     */
+    private static final class Etat {
+        private final String etat;
+        private final LocalDateTime arrivee;
+        private final int minutesRetard;
+        private final LocalDateTime dernierPointage;
+
+        private Etat(String etat, LocalDateTime arrivee, LocalDateTime dernierPointage) {
+            this.etat = etat;
+            this.arrivee = arrivee;
+            this.minutesRetard = arrivee != null ? PresenceService.minutesRetard(arrivee.toLocalTime()) : 0;
+            this.dernierPointage = dernierPointage;
+        }
+
+        /**
+         * Les pointages peuvent arriver dans le désordre (ingestion par lots) : un pointage
+         * antérieur au dernier connu ne peut qu'avancer l'heure d'arrivée
+         */
+        static Etat appliquer(Etat ancien, String typePointage, LocalDateTime dateHeure) {
+            LocalDateTime arrivee = ancien != null ? ancien.arrivee : null;
+            if ("ENTREE".equals(typePointage) && (arrivee == null || dateHeure.isBefore(arrivee))) {
+                arrivee = dateHeure;
+            }
+            if (ancien != null && dateHeure.isBefore(ancien.dernierPointage)) {
+                return new Etat(ancien.etat, arrivee, ancien.dernierPointage);
+            }
+            switch (typePointage) {
+                case "ENTREE":
+                    return new Etat(PRESENT, arrivee, dateHeure);
+                case "SORTIE":
+                    return new Etat(SORTI, arrivee, dateHeure);
+                case "ABSENT":
+                    // Absence marquée après une arrivée : l'état du jour est conservé
+                    return ancien != null && ancien.arrivee != null ? ancien : new Etat(ABSENT, null, dateHeure);
+                default:
+                    return ancien;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.gestionpresence.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Écriture d'un bulletin en PDF d'une page, sans dépendance : polices standard Helvetica
+ * (encodage WinAnsi, donc accents et symbole euro), une ligne "libellé / valeur" par champ.
+ * Le tampon de sortie est réutilisé par thread.
+ */
+final class PdfBulletin {
+
+    private static final Charset WIN_ANSI = Charset.forName("windows-1252");
+    private static final int HAUTEUR_PAGE = 842;
+    private static final int MARGE = 50;
+    private static final int COLONNE_VALEUR = 330;
+    private static final int INTERLIGNE = 20;
+
+    private static final ThreadLocal<Tampons> TAMPONS = ThreadLocal.withInitial(Tampons::new);
+
+    private PdfBulletin() {
+    }
+
+    /**
+     * @param lignes paires {libellé, valeur}; une valeur null produit un intertitre en gras
+     */
+    static byte[] generer(String titre, String sousTitre, List<String[]> lignes) {
+        Tampons tampons = TAMPONS.get();
+        ByteArrayOutputStream contenu = tampons.contenu;
+        contenu.reset();
+        int y = HAUTEUR_PAGE - MARGE - 16;
+        texte(contenu, "F2", 16, MARGE, y, titre);
+        y -= INTERLIGNE;
+        texte(contenu, "F1", 11, MARGE, y, sousTitre);
+        y -= INTERLIGNE;
+        for (String[] ligne : lignes) {
+            y -= INTERLIGNE;
+            if (ligne[1] == null) {
+                y -= INTERLIGNE / 2;
+                texte(contenu, "F2", 12, MARGE, y, ligne[0]);
+            } else {
+                texte(contenu, "F1", 11, MARGE, y, ligne[0]);
+                texte(contenu, "F1", 11, COLONNE_VALEUR, y, ligne[1]);
+            }
+        }
+
+        ByteArrayOutputStream pdf = tampons.pdf;
+        pdf.reset();
+        int[] positions = new int[7];
+        ecrire(pdf, "%PDF-1.4\n%âãÏÓ\n");
+        positions[1] = pdf.size();
+        ecrire(pdf, "1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
+        positions[2] = pdf.size();
+        ecrire(pdf, "2 0 obj\n<< /Type /Pages /Kids [3 0 R] /Count 1 >>\nendobj\n");
+        positions[3] = pdf.size();
+        ecrire(pdf, "3 0 obj\n<< /Type /Page /Parent 2 0 R /MediaBox [0 0 595 " + HAUTEUR_PAGE + "] " +
+                "/Resources << /Font << /F1 4 0 R /F2 5 0 R >> >> /Contents 6 0 R >>\nendobj\n");
+        positions[4] = pdf.size();
+        ecrire(pdf, "4 0 obj\n<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>\nendobj\n");
+        positions[5] = pdf.size();
+        ecrire(pdf, "5 0 obj\n<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding /WinAnsiEncoding >>\nendobj\n");
+        positions[6] = pdf.size();
+        ecrire(pdf, "6 0 obj\n<< /Length " + contenu.size() + " >>\nstream\n");
+        try {
+            contenu.writeTo(pdf);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ecrire(pdf, "\nendstream\nendobj\n");
+
+        int xref = pdf.size();
+        StringBuilder table = new StringBuilder("xref\n0 7\n0000000000 65535 f \n");
+        for (int i = 1; i < positions.length; i++) {
+            table.append(String.format("%010d 00000 n \n", positions[i]));
+        }
+        table.append("trailer\n<< /Size 7 /Root 1 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+        ecrire(pdf, table.toString());
+        return pdf.toByteArray();
+    }
+
+    private static void texte(ByteArrayOutputStream sortie, String police, int taille, int x, int y, String texte) {
+        ecrire(sortie, "BT /" + police + " " + taille + " Tf " + x + " " + y + " Td (");
+        byte[] octets = texte.getBytes(WIN_ANSI);
+        for (byte octet : octets) {
+            if (octet == '(' || octet == ')' || octet == '\\') {
+                sortie.write('\\');
+            }
+            sortie.write(octet);
+        }
+        ecrire(sortie, ") Tj ET\n");
+    }
+
+    private static void ecrire(ByteArrayOutputStream sortie, String texte) {
+        byte[] octets = texte.getBytes(StandardCharsets.ISO_8859_1);
+        sortie.write(octets, 0, octets.length);
+    }
+
+    private static final class Tampons {
+        final ByteArrayOutputStream contenu = new ByteArrayOutputStream(4096);
+        final ByteArrayOutputStream pdf = new ByteArrayOutputStream(8192);
+    }
+}
@@ -0,0 +1,573 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.config.ExecuteursConfig;
+import com.gestionpresence.dto.PresenceDTO;
+import com.gestionpresence.exception.ResourceNotFoundException;
+import com.gestionpresence.exception.SurchargeException;
+import com.gestionpresence.model.Employee;
+import com.gestionpresence.model.Presence;
+import com.gestionpresence.repository.PresenceRepository;
+import com.gestionpresence.repository.projection.EmployeResume;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Ingestion des pointages en écriture différée : le pointage est validé via l'index
+ * des matricules, placé dans une file bornée, puis écrit par un thread dédié en
+ * insertions JDBC multi-lignes. File pleine : contre-pression (HTTP 503).
+ *
+ * Durabilité configurable :
+ * - IMMEDIATE : accusé de réception dès la mise en file (un arrêt brutal perd la file);
+ * - APRES_ECRITURE : la requête attend la validation du lot qui contient le pointage; au-delà
+ *   de attente-ecriture-ms, le pointage encore en file est retiré (503) et celui déjà en cours
+ *   d'écriture est accepté (202), pour qu'un terminal qui réessaie ne crée pas de doublon;
+ * - JOURNAL : accusé après synchronisation dans le journal local (JournalPointages), différé
+ *   (202) si elle n'est pas confirmée dans attente-synchronisation-ms; le thread d'écriture rejoue le journal en base, y compris au démarrage et quand la base
+ *   redevient disponible, avec une clé de déduplication par pointage.
+ */
+@Slf4j
+@Service
+public class PointageIngestionService {
+
+    public enum Durabilite { IMMEDIATE, APRES_ECRITURE, JOURNAL }
+
+    @Autowired
+    private IndexMatricules indexMatricules;
+
+    @Autowired
+    private PresenceRepository presenceRepository;
+
+    @Autowired
+    private JournalPointages journalPointages;
+
+    @Autowired
+    private AgregatsPresenceService agregatsPresenceService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ExecuteursConfig executeursConfig;
+
+    @Autowired
+    private OccupationService occupationService;
+
+    @Value("${app.pointage.ingestion.active:false}")
+    private boolean active;
+
+    @Value("${app.pointage.ingestion.durabilite:APRES_ECRITURE}")
+    private Durabilite durabilite;
+
+    @Value("${app.pointage.ingestion.capacite-file:10000}")
+    private int capaciteFile;
+
+    @Value("${app.pointage.ingestion.taille-lot:500}")
+    private int tailleLot;
+
+    @Value("${app.pointage.ingestion.intervalle-ms:50}")
+    private long intervalleMs;
+
+    @Value("${app.pointage.ingestion.attente-file-ms:100}")
+    private long attenteFileMs;
+
+    @Value("${app.pointage.ingestion.attente-ecriture-ms:5000}")
+    private long attenteEcritureMs;
+
+    @Value("${app.pointage.ingestion.tentatives-max:3}")
+    private int tentativesMax;
+
+    private BlockingQueue<PointageEnAttente> file;
+    private Future<?> ecrivain;
+    private volatile boolean arret;
+
+    // État du thread d'écriture, exposé par IngestionPointagesHealthIndicator
+    private volatile boolean ecrivainActif;
+    private final AtomicInteger echecsConsecutifs = new AtomicInteger();
+    private final AtomicLong pointagesRefuses = new AtomicLong();
+    private volatile String derniereErreur;
+    private volatile LocalDateTime derniereEcriture;
+
+    @PostConstruct
+    public void demarrer() {
+        if (!active) {
+            return;
+        }
+        if (durabilite == Durabilite.JOURNAL) {
+            journalPointages.ouvrir();
+        } else {
+            file = new ArrayBlockingQueue<>(capaciteFile);
+        }
+        // Boucle d'écriture sur l'exécuteur ingestion, isolée des autres charges
+        ecrivainActif = true;
+        ecrivain = executeursConfig.get(ExecuteursConfig.Charge.INGESTION).submit(this::boucleEcriture);
+        log.info("Ingestion des pointages active - file: {}, lots de {}, durabilité: {}",
+                capaciteFile, tailleLot, durabilite);
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Valide et met en file un pointage; selon la durabilité, attend son écriture en base.
+     * En mode APRES_ECRITURE, un pointage déjà pris par le thread d'écriture à l'expiration du
+     * délai sera écrit (accusé différé); un pointage encore en file est retiré (SurchargeException).
+     */
+    public Accuse soumettre(String matricule, String typePointage, LocalDateTime dateHeurePointage)
+            throws ResourceNotFoundException {
+        if (!active) {
+            throw new IllegalStateException("Ingestion des pointages désactivée (app.pointage.ingestion.active)");
+        }
+        EmployeResume employe = indexMatricules.resoudre(matricule)
+                .orElseThrow(() -> new ResourceNotFoundException("Employé non trouvé avec le matricule: " + matricule));
+
+        Presence presence = creerPresence(employe.getId(), matricule, typePointage, dateHeurePointage);
+
+        boolean differe = false;
+        if (durabilite == Durabilite.JOURNAL) {
+            differe = !journalPointages.ajouter(matricule, typePointage, dateHeurePointage);
+        } else {
+            PointageEnAttente pointage = new PointageEnAttente(presence,
+                    durabilite == Durabilite.APRES_ECRITURE ? new CompletableFuture<>() : null);
+            mettreEnFile(pointage);
+            if (pointage.ecrit != null) {
+                differe = !attendreEcriture(pointage);
+            }
+        }
+
+        return new Accuse(PresenceDTO.builder()
+                .employeeId(employe.getId())
+                .employeeMatricule(matricule)
+                .employeeNom(employe.getNom())
+                .employeePrenom(employe.getPrenom())
+                .dateHeurePointage(dateHeurePointage)
+                .typePointage(typePointage)
+                .retard(presence.isRetard())
+                .minutesRetard(presence.getMinutesRetard())
+                .build(), differe);
+    }
+
+    public Durabilite getDurabilite() {
+        return durabilite;
+    }
+
+    /**
+     * Faux si la boucle d'écriture s'est terminée alors que l'ingestion n'est pas arrêtée
+     */
+    public boolean isJournalEnEchec() {
+        return durabilite == Durabilite.JOURNAL && journalPointages.isEnEchec();
+    }
+
+    public String getDefaillanceJournal() {
+        return journalPointages.getDefaillance();
+    }
+
+    public boolean isEcrivainActif() {
+        return ecrivainActif || arret;
+    }
+
+    /**
+     * Échecs d'écriture successifs (base injoignable, erreur inattendue), remis à zéro à la première écriture réussie
+     */
+    public int getEchecsConsecutifs() {
+        return echecsConsecutifs.get();
+    }
+
+    public long getPointagesRefuses() {
+        return pointagesRefuses.get();
+    }
+
+    public String getDerniereErreur() {
+        return derniereErreur;
+    }
+
+    public LocalDateTime getDerniereEcriture() {
+        return derniereEcriture;
+    }
+
+    public long getTailleFile() {
+        if (durabilite == Durabilite.JOURNAL) {
+            return journalPointages.getNombreNonRejoues();
+        }
+        return file != null ? file.size() : 0;
+    }
+
+    private Presence creerPresence(Long employeeId, String matricule, String typePointage,
+                                   LocalDateTime dateHeurePointage) {
+        Employee employee = new Employee();
+        employee.setId(employeeId);
+        employee.setMatricule(matricule);
+        Presence presence = new Presence(employee, dateHeurePointage, typePointage);
+        if ("ENTREE".equals(typePointage)) {
+            int minutesRetard = PresenceService.minutesRetard(dateHeurePointage.toLocalTime());
+            presence.setRetard(minutesRetard > 0);
+            presence.setMinutesRetard(minutesRetard);
+        }
+        return presence;
+    }
+
+    private void mettreEnFile(PointageEnAttente pointage) {
+        if (arret) {
+            throw new SurchargeException("Ingestion des pointages en cours d'arrêt", 1);
+        }
+        try {
+            if (!file.offer(pointage, attenteFileMs, TimeUnit.MILLISECONDS)) {
+                log.warn("File des pointages pleine ({} éléments)", capaciteFile);
+                throw new SurchargeException("File des pointages saturée, réessayez", 1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SurchargeException("Mise en file du pointage interrompue", 1);
+        }
+    }
+
+    /**
+     * @return true si le pointage est écrit, false s'il est en cours d'écriture à l'expiration du délai
+     */
+    private boolean attendreEcriture(PointageEnAttente pointage) {
+        try {
+            pointage.ecrit.get(attenteEcritureMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            // Retiré avant sa prise par le thread d'écriture : jamais écrit, le terminal peut réessayer
+            if (pointage.annuler()) {
+                file.remove(pointage);
+                throw new SurchargeException("Écriture du pointage non confirmée dans le délai", 1);
+            }
+            log.warn("Écriture du pointage {} {} toujours en cours après {} ms, accepté",
+                    pointage.presence.getEmployee().getMatricule(), pointage.presence.getDateHeurePointage(),
+                    attenteEcritureMs);
+            return false;
+        } catch (ExecutionException e) {
+            throw new SurchargeException("Écriture du pointage en échec: " + e.getCause().getMessage(), 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SurchargeException("Attente de l'écriture du pointage interrompue", 1);
+        }
+    }
+
+    /**
+     * Vide la file (ou rejoue le journal) par lots; base injoignable : le lot est réessayé
+     * (backoff exponentiel) et la file se remplit, ce qui déclenche la contre-pression côté HTTP.
+     */
+    private void boucleEcriture() {
+        boolean journal = durabilite == Durabilite.JOURNAL;
+        boolean relire = false;
+        long pauseMs = 100;
+        try {
+            // Le journal étant durable, il n'a pas besoin d'être vidé à l'arrêt
+            while (!arret || (!journal && !file.isEmpty())) {
+                try {
+                    if (journal) {
+                        // Après une erreur, les événements lus et non validés sont relus
+                        if (relire) {
+                            journalPointages.reprendreLecture();
+                            relire = false;
+                        }
+                        rejouerJournal();
+                    } else {
+                        viderFile();
+                    }
+                    pauseMs = 100;
+                } catch (RuntimeException e) {
+                    // Résolution des matricules en base, lecture ou validation du journal : la boucle
+                    // ne doit pas s'arrêter, sans quoi les pointages acquittés ne seraient plus écrits
+                    relire = journal;
+                    echec(e);
+                    log.error("Erreur de la boucle d'écriture des pointages, reprise dans {} ms", pauseMs, e);
+                    Thread.sleep(pauseMs);
+                    pauseMs = Math.min(pauseMs * 2, 5000);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            ecrivainActif = false;
+            if (!arret) {
+                log.error("Boucle d'écriture des pointages terminée avant l'arrêt de l'ingestion");
+            }
+        }
+    }
+
+    private void viderFile() throws InterruptedException {
+        PointageEnAttente premier = file.poll(intervalleMs, TimeUnit.MILLISECONDS);
+        if (premier == null) {
+            return;
+        }
+        List<PointageEnAttente> pris = new ArrayList<>(tailleLot);
+        pris.add(premier);
+        file.drainTo(pris, tailleLot - 1);
+        // Les pointages dont la requête a expiré et annulé l'attente ne sont pas écrits
+        List<PointageEnAttente> lot = new ArrayList<>(pris.size());
+        for (PointageEnAttente pointage : pris) {
+            if (pointage.prendre()) {
+                lot.add(pointage);
+            }
+        }
+        if (lot.isEmpty()) {
+            return;
+        }
+
+        List<Presence> presences = new ArrayList<>(lot.size());
+        for (PointageEnAttente pointage : lot) {
+            presences.add(pointage.presence);
+        }
+        RuntimeException[] rejets = ecrireAvecReprise(presences);
+        for (int i = 0; i < lot.size(); i++) {
+            if (rejets[i] == null) {
+                lot.get(i).ecrit();
+            } else {
+                lot.get(i).echec(rejets[i]);
+            }
+        }
+    }
+
+    private void rejouerJournal() throws InterruptedException {
+        List<JournalPointages.Evenement> evenements = journalPointages.lire(tailleLot);
+        if (evenements.isEmpty()) {
+            journalPointages.attendre(intervalleMs);
+            return;
+        }
+        List<Presence> presences = new ArrayList<>(evenements.size());
+        for (JournalPointages.Evenement evenement : evenements) {
+            Optional<Long> employeeId = indexMatricules.resoudre(evenement.getMatricule()).map(EmployeResume::getId);
+            if (employeeId.isEmpty()) {
+                log.warn("Pointage du journal ignoré, matricule inconnu: {}", evenement.getMatricule());
+                continue;
+            }
+            Presence presence = creerPresence(employeeId.get(), evenement.getMatricule(),
+                    evenement.getTypePointage(), evenement.getDateHeurePointage());
+            presence.setCleDeduplication(evenement.getCleDeduplication());
+            presences.add(presence);
+        }
+        // Sans point de reprise, le lot sera relu au prochain démarrage. Les pointages rejetés
+        // par la base sont journalisés et dépassés, sauf abandon à l'arrêt (erreur de connexion)
+        RuntimeException[] rejets = ecrireAvecReprise(presences);
+        for (RuntimeException rejet : rejets) {
+            if (rejet != null && estErreurConnexion(rejet)) {
+                return;
+            }
+        }
+        journalPointages.valider(evenements.get(evenements.size() - 1));
+    }
+
+    /**
+     * Écrit le lot. Une erreur de connexion est réessayée sans limite (backoff exponentiel) tant
+     * que l'application n'est pas en cours d'arrêt; toute autre erreur au plus tentatives-max fois,
+     * après quoi le lot est réinséré pointage par pointage pour n'écarter que les lignes refusées
+     * (employé supprimé entre la mise en file et l'écriture, par exemple).
+     *
+     * @return l'erreur de chaque pointage (même ordre que presences), null pour un pointage écrit
+     */
+    private RuntimeException[] ecrireAvecReprise(List<Presence> presences) throws InterruptedException {
+        RuntimeException[] rejets = new RuntimeException[presences.size()];
+        RuntimeException erreur = tenter(presences, tentativesMax);
+        if (erreur == null) {
+            return rejets;
+        }
+        if (estErreurConnexion(erreur)) {
+            log.error("Abandon de {} pointages à l'arrêt, base injoignable", presences.size(), erreur);
+            Arrays.fill(rejets, erreur);
+            return rejets;
+        }
+
+        log.warn("Lot de {} pointages refusé après {} tentatives ({}), écriture pointage par pointage",
+                presences.size(), tentativesMax, erreur.getMessage());
+        int refuses = 0;
+        for (int i = 0; i < presences.size(); i++) {
+            Presence presence = presences.get(i);
+            // Le lot a déjà épuisé ses tentatives : un seul essai par pointage hors erreur de connexion
+            RuntimeException rejet = tenter(List.of(presence), 1);
+            if (rejet != null && estErreurConnexion(rejet)) {
+                log.error("Abandon de {} pointages à l'arrêt, base injoignable", presences.size() - i, rejet);
+                Arrays.fill(rejets, i, rejets.length, rejet);
+                return rejets;
+            }
+            if (rejet != null) {
+                refuses++;
+                pointagesRefuses.incrementAndGet();
+                rejets[i] = rejet;
+                log.error("Pointage refusé par la base et écarté - employé {} ({}), {} {}, clé {}: {}",
+                        presence.getEmployee().getId(), presence.getEmployee().getMatricule(),
+                        presence.getTypePointage(), presence.getDateHeurePointage(),
+                        presence.getCleDeduplication(), rejet.getMessage());
+            }
+        }
+        log.warn("Lot de {} pointages écrit pointage par pointage, {} refusé(s)", presences.size(), refuses);
+        return rejets;
+    }
+
+    /**
+     * @return null si l'écriture réussit, sinon la dernière erreur : non liée à la connexion après
+     * tentatives essais, liée à la connexion seulement à l'arrêt
+     */
+    private RuntimeException tenter(List<Presence> presences, int tentatives) throws InterruptedException {
+        long pauseMs = 100;
+        for (int tentative = 1; ; tentative++) {
+            try {
+                ecrire(presences);
+                echecsConsecutifs.set(0);
+                derniereEcriture = LocalDateTime.now();
+                return null;
+            } catch (RuntimeException e) {
+                echec(e);
+                boolean connexion = estErreurConnexion(e);
+                if ((!connexion && tentative >= tentatives) || (connexion && arret && tentative >= 3)) {
+                    return e;
+                }
+                log.warn("Échec d'écriture de {} pointages (tentative {}), nouvel essai dans {} ms: {}",
+                        presences.size(), tentative, pauseMs, e.getMessage());
+                Thread.sleep(pauseMs);
+                pauseMs = Math.min(pauseMs * 2, 5000);
+            }
+        }
+    }
+
+    private void echec(RuntimeException e) {
+        echecsConsecutifs.incrementAndGet();
+        derniereErreur = e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+
+    /**
+     * Base injoignable ou saturée (connexion, pool, transaction non démarrée) : l'écriture
+     * réussira une fois la base revenue, contrairement à un refus de la ligne elle-même
+     */
+    private static boolean estErreurConnexion(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    /**
+     * Les pointages déjà présents en base (même clé de déduplication) ne sont ni réinsérés ni recomptés dans les agrégats
+     */
+    private void ecrire(List<Presence> presences) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            List<String> cles = new ArrayList<>();
+            LocalDateTime min = null;
+            LocalDateTime max = null;
+            for (Presence presence : presences) {
+                if (presence.getCleDeduplication() == null) {
+                    continue;
+                }
+                cles.add(presence.getCleDeduplication());
+                LocalDateTime date = presence.getDateHeurePointage();
+                min = min == null || date.isBefore(min) ? date : min;
+                max = max == null || date.isAfter(max) ? date : max;
+            }
+            List<Presence> nouvelles = presences;
+            if (!cles.isEmpty()) {
+                Set<String> existantes = new HashSet<>(presenceRepository.findClesDeduplicationExistantes(cles, min, max));
+                nouvelles = presences.stream()
+                        .filter(p -> !existantes.contains(p.getCleDeduplication()))
+                        .collect(Collectors.toList());
+            }
+            presenceRepository.insererEnLot(nouvelles);
+            agregatsPresenceService.ajouter(nouvelles);
+            occupationService.enregistrer(nouvelles);
+        });
+        log.debug("{} pointages écrits", presences.size());
+    }
+
+    /**
+     * Arrêt propre : plus de nouveaux pointages, la file est vidée avant la fermeture du contexte
+     */
+    @PreDestroy
+    public void arreter() throws InterruptedException {
+        if (ecrivain == null) {
+            return;
+        }
+        arret = true;
+        try {
+            ecrivain.get(30, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            log.error("Boucle d'écriture des pointages interrompue", e.getCause());
+        } catch (TimeoutException e) {
+            log.warn("Boucle d'écriture des pointages toujours active après 30 s");
+        }
+        if (durabilite == Durabilite.JOURNAL) {
+            journalPointages.fermer();
+        }
+        log.info("Ingestion des pointages arrêtée - {} pointages restants", getTailleFile());
+    }
+
+    /**
+     * Pointage accepté; differe : écriture en base encore en cours à la réponse
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Accuse {
+        private final PresenceDTO presence;
+        private final boolean differe;
+    }
+
+    private static class PointageEnAttente {
+        private static final int EN_FILE = 0;
+        private static final int PRIS = 1;
+        private static final int ANNULE = 2;
+
+        private final Presence presence;
+        private final CompletableFuture<Void> ecrit;
+        private final AtomicInteger etat = new AtomicInteger(EN_FILE);
+
+        PointageEnAttente(Presence presence, CompletableFuture<Void> ecrit) {
+            this.presence = presence;
+            this.ecrit = ecrit;
+        }
+
+        /**
+         * Prise par le thread d'écriture, false si la requête a déjà annulé
+         */
+        boolean prendre() {
+            return etat.compareAndSet(EN_FILE, PRIS);
+        }
+
+        /**
+         * Annulation par la requête, false si le thread d'écriture l'a déjà pris
+         */
+        boolean annuler() {
+            return etat.compareAndSet(EN_FILE, ANNULE);
+        }
+
+        void ecrit() {
+            if (ecrit != null) {
+                ecrit.complete(null);
+            }
+        }
+
+        void echec(Throwable erreur) {
+            if (ecrit != null) {
+                ecrit.completeExceptionally(erreur);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.model.Presence;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Pointages d'un employé sur un mois, stockés en tableaux primitifs
+ * (minute depuis l'epoch + type sur un octet), et noyau d'analyse en un seul passage.
+ * Les horaires de travail sont exprimés à la minute, comme dans la configuration "HH:mm".
+ * Non thread-safe.
+ */
+public final class PointagesMensuels {
+
+    static final byte AUTRE = 0;
+    static final byte ENTREE = 1;
+    static final byte SORTIE = 2;
+
+    private static final int MINUTES_PAR_JOUR = 1440;
+
+    private int[] minutes;
+    private byte[] types;
+    private int taille;
+    private boolean trie = true;
+
+    public PointagesMensuels() {
+        this(32);
+    }
+
+    public PointagesMensuels(int capacite) {
+        this.minutes = new int[Math.max(capacite, 1)];
+        this.types = new byte[minutes.length];
+    }
+
+    public static PointagesMensuels depuis(List<Presence> presences) {
+        PointagesMensuels pointages = new PointagesMensuels(presences.size());
+        for (Presence presence : presences) {
+            pointages.ajouter(presence.getDateHeurePointage(), presence.getTypePointage());
+        }
+        return pointages;
+    }
+
+    public void ajouter(LocalDateTime dateHeure, String typePointage) {
+        if (taille == minutes.length) {
+            minutes = Arrays.copyOf(minutes, taille * 2);
+            types = Arrays.copyOf(types, taille * 2);
+        }
+        int minute = (int) (dateHeure.toLocalDate().toEpochDay() * MINUTES_PAR_JOUR
+                + dateHeure.toLocalTime().toSecondOfDay() / 60);
+        if (taille > 0 && minute < minutes[taille - 1]) {
+            trie = false;
+        }
+        minutes[taille] = minute;
+        types[taille] = encoderType(typePointage);
+        taille++;
+    }
+
+    public int taille() {
+        return taille;
+    }
+
+    public boolean estVide() {
+        return taille == 0;
+    }
+
+    public void vider() {
+        taille = 0;
+        trie = true;
+    }
+
+    /**
+     * Analyse le mois en un passage : jours travaillés, retards et heures supplémentaires.
+     * Mêmes règles que l'analyse historique par jour :
+     * - un jour est travaillé s'il n'est ni weekend ni férié et contient une ENTREE;
+     * - chaque ENTREE après l'heure de début compte en retard;
+     * - chaque SORTIE après l'heure de fin, hors weekend, compte en heures supplémentaires.
+     */
+    public Bilan analyser(int minuteDebutTravail, int minuteFinTravail, IntPredicate estJourFerie) {
+        if (!trie) {
+            trier();
+        }
+
+        int joursTravailles = 0;
+        int retardsMinutes = 0;
+        int supplementairesMinutes = 0;
+
+        int jourCourant = 0;
+        boolean entreeDuJour = false;
+        boolean weekend = false;
+
+        for (int i = 0; i < taille; i++) {
+            int minute = minutes[i];
+            int jour = Math.floorDiv(minute, MINUTES_PAR_JOUR);
+            int minuteDuJour = minute - jour * MINUTES_PAR_JOUR;
+
+            if (i == 0 || jour != jourCourant) {
+                if (i > 0 && entreeDuJour && !weekend && !estJourFerie.test(jourCourant)) {
+                    joursTravailles++;
+                }
+                jourCourant = jour;
+                entreeDuJour = false;
+                weekend = estWeekend(jour);
+            }
+
+            byte type = types[i];
+            if (type == ENTREE) {
+                entreeDuJour = true;
+                if (minuteDuJour > minuteDebutTravail) {
+                    retardsMinutes += minuteDuJour - minuteDebutTravail;
+                }
+            } else if (type == SORTIE && !weekend && minuteDuJour > minuteFinTravail) {
+                supplementairesMinutes += minuteDuJour - minuteFinTravail;
+            }
+        }
+        if (taille > 0 && entreeDuJour && !weekend && !estJourFerie.test(jourCourant)) {
+            joursTravailles++;
+        }
+
+        return new Bilan(joursTravailles, retardsMinutes, supplementairesMinutes);
+    }
+
+    /**
+     * Samedi ou dimanche, calculé directement sur le jour epoch (1970-01-01 était un jeudi)
+     */
+    static boolean estWeekend(long jourEpoch) {
+        return Math.floorMod(jourEpoch + 3, 7) >= 5;
+    }
+
+    private static byte encoderType(String typePointage) {
+        if ("ENTREE".equals(typePointage)) {
+            return ENTREE;
+        }
+        if ("SORTIE".equals(typePointage)) {
+            return SORTIE;
+        }
+        return AUTRE;
+    }
+
+    /**
+     * Tri stable par minute (les pointages d'une même minute gardent leur ordre d'arrivée)
+     */
+    private void trier() {
+        long[] cles = new long[taille];
+        for (int i = 0; i < taille; i++) {
+            cles[i] = ((long) minutes[i] << 32) | ((long) i << 8) | types[i];
+        }
+        Arrays.sort(cles);
+        for (int i = 0; i < taille; i++) {
+            minutes[i] = (int) (cles[i] >> 32);
+            types[i] = (byte) (cles[i] & 0xFF);
+        }
+        trie = true;
+    }
+
+    /**
+     * Résultat brut de l'analyse d'un mois
+     */
+    public static final class Bilan {
+        private final int joursTravailles;
+        private final int totalRetardsMinutes;
+        private final int heuresSupplementairesMinutes;
+
+        Bilan(int joursTravailles, int totalRetardsMinutes, int heuresSupplementairesMinutes) {
+            this.joursTravailles = joursTravailles;
+            this.totalRetardsMinutes = totalRetardsMinutes;
+            this.heuresSupplementairesMinutes = heuresSupplementairesMinutes;
+        }
+
+        public int getJoursTravailles() { return joursTravailles; }
+
+        public int getTotalRetardsMinutes() { return totalRetardsMinutes; }
+
+        public int getHeuresSupplementairesMinutes() { return heuresSupplementairesMinutes; }
+
+        public double getHeuresSupplementaires() { return heuresSupplementairesMinutes / 60.0; }
+    }
+}
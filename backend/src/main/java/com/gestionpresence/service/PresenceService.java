@@ -1,92 +1,210 @@
 package com.gestionpresence.service;
 
+import com.gestionpresence.dto.PageCurseurDTO;
 import com.gestionpresence.dto.PresenceDTO;
 import com.gestionpresence.exception.ResourceNotFoundException;
-import com.gestionpresence.model.Employee;
 import com.gestionpresence.model.Presence;
 import com.gestionpresence.repository.EmployeeRepository;
 import com.gestionpresence.repository.PresenceRepository;
+import com.gestionpresence.repository.projection.EmployeResume;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @Transactional
 public class PresenceService {
 
+    // Valeurs de tag bornées : un type inconnu est compté sous "autre"
+    private static final List<String> TYPES_POINTAGE = List.of("ENTREE", "SORTIE", "ABSENT");
+
     @Autowired
     private PresenceRepository presenceRepository;
 
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private IndexMatricules indexMatricules;
+
+    @Autowired
+    private ExportNdjson exportNdjson;
+
+    @Autowired
+    private AgregatsPresenceService agregatsPresenceService;
+
+    @Autowired
+    private OccupationService occupationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     // Configuration des horaires de travail
     private static final LocalTime HEURE_DEBUT_TRAVAIL = LocalTime.of(9, 0);
     private static final LocalTime HEURE_FIN_TRAVAIL = LocalTime.of(17, 0);
 
+    /**
+     * Lecture en projection jointe : ni entité Presence ni Employee chargée
+     */
+    @Transactional(readOnly = true)
     public List<PresenceDTO> findByEmployeeId(Long employeeId) {
-        List<Presence> presences = presenceRepository.findByEmployeeId(employeeId);
-        return presences.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return presenceRepository.findDTOByEmployeeId(employeeId);
     }
 
+    @Transactional(readOnly = true)
     public List<PresenceDTO> findByPeriode(LocalDate debut, LocalDate fin) {
-        List<Presence> presences = presenceRepository.findByPeriode(debut, fin);
-        return presences.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return presenceRepository.findDTOByIntervalle(debut.atStartOfDay(), fin.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Page de pointages d'un employé après le curseur, triée par (dateHeurePointage, id)
+     */
+    @Transactional(readOnly = true)
+    public PageCurseurDTO<PresenceDTO> findPageByEmployeeId(Long employeeId, String apres, int taille) {
+        Object[] curseur = Curseurs.decoderDateEtId(apres);
+        List<PresenceDTO> lignes = presenceRepository.findPageByEmployeeId(employeeId,
+                curseur != null ? (LocalDateTime) curseur[0] : Curseurs.ORIGINE,
+                curseur != null ? (Long) curseur[1] : 0L,
+                PageRequest.ofSize(taille + 1));
+        return pageDePresences(lignes, taille);
+    }
+
+    @Transactional(readOnly = true)
+    public PageCurseurDTO<PresenceDTO> findPageByPeriode(LocalDate debut, LocalDate fin, String apres, int taille) {
+        Object[] curseur = Curseurs.decoderDateEtId(apres);
+        List<PresenceDTO> lignes = presenceRepository.findPageByIntervalle(fin.plusDays(1).atStartOfDay(),
+                curseur != null ? (LocalDateTime) curseur[0] : debut.atStartOfDay(),
+                curseur != null ? (Long) curseur[1] : 0L,
+                PageRequest.ofSize(taille + 1));
+        return pageDePresences(lignes, taille);
     }
 
+    /**
+     * Écrit tous les pointages d'un employé en NDJSON; la transaction couvre la durée du flux
+     */
+    @Transactional(readOnly = true)
+    public long exporterByEmployeeId(Long employeeId, OutputStream sortie) {
+        try (Stream<PresenceDTO> flux = presenceRepository.streamDTOByEmployeeId(employeeId)) {
+            return exportNdjson.ecrire(flux, sortie);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long exporterByPeriode(LocalDate debut, LocalDate fin, OutputStream sortie) {
+        try (Stream<PresenceDTO> flux = presenceRepository.streamDTOByIntervalle(
+                debut.atStartOfDay(), fin.plusDays(1).atStartOfDay())) {
+            return exportNdjson.ecrire(flux, sortie);
+        }
+    }
+
+    private PageCurseurDTO<PresenceDTO> pageDePresences(List<PresenceDTO> lignes, int taille) {
+        return Curseurs.page(lignes, taille, dto -> dto,
+                dto -> Curseurs.encoder(dto.getDateHeurePointage(), dto.getId()));
+    }
+
+    /**
+     * Enregistre un pointage, mesuré par le timer presence.pointage (type, resultat).
+     * L'agrégat du mois est préparé avant d'ouvrir la transaction du pointage : une seule
+     * connexion est empruntée à la fois.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public PresenceDTO enregistrerPointage(String matricule, String typePointage, LocalDateTime dateHeurePointage)
             throws ResourceNotFoundException {
-        log.info("Enregistrement du pointage pour {} - Type: {} - Date/Heure: {}", matricule, typePointage, dateHeurePointage);
+        long debut = System.nanoTime();
+        String resultat = "echec";
+        try {
+            log.info("Enregistrement du pointage pour {} - Type: {} - Date/Heure: {}", matricule, typePointage, dateHeurePointage);
 
-        // Récupérer l'employé avec toutes ses informations
-        Employee employee = employeeRepository.findByMatricule(matricule)
-                .orElseThrow(() -> new ResourceNotFoundException("Employé non trouvé avec le matricule: " + matricule));
+            // Résolution par l'index en mémoire : pas de chargement de l'employé (ni de son QR code)
+            EmployeResume employe = indexMatricules.resoudre(matricule)
+                    .orElseThrow(() -> new ResourceNotFoundException("Employé non trouvé avec le matricule: " + matricule));
 
-        log.info("Informations employé: {} {} - Poste: {} - Email: {}",
-                employee.getPrenom(), employee.getNom(), employee.getPoste(), employee.getEmail());
+            agregatsPresenceService.preparer(employe.getId(), dateHeurePointage);
+            PresenceDTO presence = new TransactionTemplate(transactionManager).execute(status ->
+                    enregistrer(employe, matricule, typePointage, dateHeurePointage));
+            resultat = "succes";
+            return presence;
+        } finally {
+            Timer.builder("presence.pointage")
+                    .description("Enregistrement d'un pointage")
+                    .tag("type", typePointage != null && TYPES_POINTAGE.contains(typePointage) ? typePointage : "autre")
+                    .tag("resultat", resultat)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+        }
+    }
 
+    private PresenceDTO enregistrer(EmployeResume employe, String matricule, String typePointage,
+                                    LocalDateTime dateHeurePointage) {
         // Créer la présence
-        Presence presence = new Presence(employee, dateHeurePointage, typePointage);
+        Presence presence = new Presence(employeeRepository.getReferenceById(employe.getId()),
+                dateHeurePointage, typePointage);
 
         // Calculer le retard si c'est une entrée
         if ("ENTREE".equals(typePointage)) {
-            calculerRetard(presence);
+            calculerRetard(presence, matricule);
         }
 
         Presence savedPresence = presenceRepository.save(presence);
+        agregatsPresenceService.ajouter(List.of(savedPresence));
+        occupationService.enregistrer(List.of(savedPresence));
         log.info("Pointage enregistré avec succès - ID: {} - Employé: {} {} - Type: {}",
-                savedPresence.getId(), employee.getPrenom(), employee.getNom(), typePointage);
+                savedPresence.getId(), employe.getPrenom(), employe.getNom(), typePointage);
 
-        return convertToDTO(savedPresence);
+        return PresenceDTO.builder()
+                .id(savedPresence.getId())
+                .employeeId(employe.getId())
+                .employeeMatricule(employe.getMatricule())
+                .employeeNom(employe.getNom())
+                .employeePrenom(employe.getPrenom())
+                .dateHeurePointage(savedPresence.getDateHeurePointage())
+                .typePointage(savedPresence.getTypePointage())
+                .retard(savedPresence.isRetard())
+                .minutesRetard(savedPresence.getMinutesRetard())
+                .build();
     }
 
-    private void calculerRetard(Presence presence) {
-        LocalTime heurePointage = presence.getDateHeurePointage().toLocalTime();
+    private void calculerRetard(Presence presence, String matricule) {
+        int minutesRetard = minutesRetard(presence.getDateHeurePointage().toLocalTime());
 
-        if (heurePointage.isAfter(HEURE_DEBUT_TRAVAIL)) {
-            long minutesRetard = java.time.Duration.between(HEURE_DEBUT_TRAVAIL, heurePointage).toMinutes();
+        if (minutesRetard > 0) {
             presence.setRetard(true);
-            presence.setMinutesRetard((int) minutesRetard);
-            log.info("Retard détecté: {} minutes pour {}", minutesRetard, presence.getEmployee().getMatricule());
+            presence.setMinutesRetard(minutesRetard);
+            log.info("Retard détecté: {} minutes pour {}", minutesRetard, matricule);
         } else {
             presence.setRetard(false);
             presence.setMinutesRetard(0);
         }
     }
 
+    static int minutesRetard(LocalTime heurePointage) {
+        if (heurePointage.isAfter(HEURE_DEBUT_TRAVAIL)) {
+            return (int) java.time.Duration.between(HEURE_DEBUT_TRAVAIL, heurePointage).toMinutes();
+        }
+        return 0;
+    }
+
     public List<Presence> getPresencesByEmployeeAndPeriode(Long employeeId, LocalDate debut, LocalDate fin) {
         return presenceRepository.findByEmployeeIdAndPeriode(employeeId, debut, fin);
     }
@@ -100,6 +218,25 @@ public class PresenceService {
         return entrees > sorties;
     }
 
+    /**
+     * Marque ABSENT tous les employés sans entrée nette pour la journée :
+     * une requête agrégée puis une insertion JDBC par lots. Idempotent en cas de relance.
+     */
+    public int marquerAbsences(LocalDate jour, LocalTime heureAbsence) {
+        List<Long> employeeIds = presenceRepository.findEmployeeIdsSansEntreeNette(
+                jour.atStartOfDay(), jour.plusDays(1).atStartOfDay());
+
+        LocalDateTime dateHeureAbsence = jour.atTime(heureAbsence);
+        List<Presence> absences = employeeIds.stream()
+                .map(id -> new Presence(employeeRepository.getReferenceById(id), dateHeureAbsence, "ABSENT"))
+                .collect(Collectors.toList());
+
+        int inserees = presenceRepository.insererEnLot(absences);
+        agregatsPresenceService.ajouter(absences);
+        occupationService.enregistrer(absences);
+        return inserees;
+    }
+
     public Optional<Presence> findById(Long id) {
         return presenceRepository.findById(id);
     }
@@ -108,13 +245,16 @@ public class PresenceService {
         Presence presence = presenceRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Présence non trouvée avec l'id: " + id));
         presenceRepository.delete(presence);
+        agregatsPresenceService.retirer(presence.getEmployee().getId(),
+                presence.getDateHeurePointage(), presence.getTypePointage());
+        occupationService.recalculer(presence.getEmployee().getId());
     }
 
     public List<Presence> getAllPresences() {
         return presenceRepository.findAll();
     }
 
-    private PresenceDTO convertToDTO(Presence presence) {
+    PresenceDTO convertToDTO(Presence presence) {
         return PresenceDTO.builder()
                 .id(presence.getId())
                 .employeeId(presence.getEmployee().getId())
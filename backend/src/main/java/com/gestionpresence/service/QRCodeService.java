@@ -1,33 +1,378 @@
 package com.gestionpresence.service;
 
+import com.gestionpresence.config.CacheConfig;
+import com.gestionpresence.config.ExecuteursConfig;
+import com.gestionpresence.exception.BusinessException;
+import com.gestionpresence.exception.SurchargeException;
 import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ChecksumException;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.FormatException;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
 import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
 import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
 import com.google.zxing.qrcode.QRCodeWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 
+/**
+ * Génération des QR codes. Le PNG est écrit directement depuis la BitMatrix
+ * (niveaux de gris 1 bit, sans BufferedImage), avec un encodeur et des tampons
+ * réutilisés par thread. Les images sont mises en cache par (contenu, taille, format) :
+ * les tableaux renvoyés sont partagés et ne doivent pas être modifiés.
+ *
+ * Le décodage s'exécute sur un pool dédié borné (app.qrcode.decodage.*) et publie
+ * la latence de chaque étape (attente, lecture, recadrage, plein_cadre).
+ */
+@Slf4j
 @Service
 public class QRCodeService {
-    
-    public byte[] generateQRCode(String data, int width, int height) 
+
+    private static final String FORMAT_PNG = "PNG";
+
+    private static final ThreadLocal<EncodeurPng> ENCODEURS = ThreadLocal.withInitial(EncodeurPng::new);
+    private static final ThreadLocal<QRCodeReader> LECTEURS = ThreadLocal.withInitial(QRCodeReader::new);
+
+    private static final Map<DecodeHintType, Object> HINTS_RAPIDES = Map.of(
+            DecodeHintType.POSSIBLE_FORMATS, List.of(BarcodeFormat.QR_CODE));
+    private static final Map<DecodeHintType, Object> HINTS_COMPLETS = Map.of(
+            DecodeHintType.POSSIBLE_FORMATS, List.of(BarcodeFormat.QR_CODE),
+            DecodeHintType.TRY_HARDER, Boolean.TRUE);
+
+    @Autowired(required = false)
+    private CacheManager cacheManager;
+
+    @Value("${app.qrcode.width:300}")
+    private int largeurParDefaut;
+
+    @Value("${app.qrcode.height:300}")
+    private int hauteurParDefaut;
+
+    @Value("${app.qrcode.format:PNG}")
+    private String formatParDefaut;
+
+    @Value("${app.qrcode.decodage.attente-ms:2000}")
+    private long attenteDecodageMs;
+
+    @Value("${app.qrcode.decodage.dimension-max:1280}")
+    private int dimensionMax;
+
+    @Value("${app.qrcode.decodage.ratio-recadrage:0.6}")
+    private double ratioRecadrage;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ExecuteursConfig executeursConfig;
+
+    private Cache cache;
+
+    @PostConstruct
+    public void initialiser() {
+        cache = cacheManager != null ? cacheManager.getCache(CacheConfig.CACHE_QRCODES) : null;
+
+        // Tampon des flux d'images en mémoire plutôt qu'en fichier temporaire
+        ImageIO.setUseCache(false);
+    }
+
+    /**
+     * QR code aux dimensions et au format configurés (app.qrcode.*)
+     */
+    public byte[] generateQRCode(String data) throws WriterException, IOException {
+        return generateQRCode(data, largeurParDefaut, hauteurParDefaut, formatParDefaut);
+    }
+
+    public byte[] generateQRCode(String data, int width, int height)
             throws WriterException, IOException {
-        
-        QRCodeWriter qrCodeWriter = new QRCodeWriter();
-        BitMatrix bitMatrix = qrCodeWriter.encode(data, BarcodeFormat.QR_CODE, width, height);
-        
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
-        
-        return outputStream.toByteArray();
-    }
-    
+        return generateQRCode(data, width, height, FORMAT_PNG);
+    }
+
+    public byte[] generateQRCode(String data, int width, int height, String format)
+            throws WriterException, IOException {
+        if (cache == null) {
+            return rendre(data, width, height, format);
+        }
+        try {
+            return cache.get(List.of(data, width, height, format), () -> rendre(data, width, height, format));
+        } catch (Cache.ValueRetrievalException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof WriterException) {
+                throw (WriterException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Encodage effectif (hors cache), mesuré par le timer qrcode.generation
+     */
+    private byte[] rendre(String data, int width, int height, String format)
+            throws WriterException, IOException {
+        long debut = System.nanoTime();
+        boolean png = FORMAT_PNG.equalsIgnoreCase(format);
+        try {
+            EncodeurPng encodeur = ENCODEURS.get();
+            BitMatrix bitMatrix = encodeur.writer.encode(data, BarcodeFormat.QR_CODE, width, height);
+
+            if (png) {
+                return encodeur.encoder(bitMatrix);
+            }
+            // Autres formats : passage par ImageIO
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            MatrixToImageWriter.writeToStream(bitMatrix, format, outputStream);
+            return outputStream.toByteArray();
+        } finally {
+            Timer.builder("qrcode.generation")
+                    .description("Encodage d'un QR code (défauts de cache)")
+                    .tag("format", png ? "png" : "imageio")
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+        }
+    }
+
     public String extractDataFromQRCode(byte[] qrCodeImage) {
-        // Implémentation pour lire les données du QR code
-        // Utiliser une library de décodage QR
-        return "EMP001"; // Exemple: retourne le matricule
+        return extractDataFromQRCode(new ByteArrayInputStream(qrCodeImage));
+    }
+
+    /**
+     * Décode un QR code depuis un flux d'image (photo de borne ou fichier) sur l'exécuteur
+     * qrcode (app.executeurs.qrcode); exécuteur saturé ou décodage trop long : SurchargeException (503)
+     */
+    public String extractDataFromQRCode(InputStream image) {
+        long soumission = System.nanoTime();
+        Future<String> decodage;
+        try {
+            decodage = executeursConfig.get(ExecuteursConfig.Charge.QRCODE).submit(() -> {
+                timerEtape("attente").record(System.nanoTime() - soumission, TimeUnit.NANOSECONDS);
+                return decoder(image);
+            });
+        } catch (RejectedExecutionException e) {
+            compterRejet("saturation");
+            throw new SurchargeException("Trop de décodages de QR code en cours, réessayez", 1);
+        }
+
+        try {
+            return decodage.get(attenteDecodageMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            decodage.cancel(true);
+            compterRejet("delai");
+            throw new SurchargeException("Décodage du QR code trop long, réessayez", 1);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BusinessException) {
+                throw (BusinessException) e.getCause();
+            }
+            log.error("Erreur lors du décodage du QR code", e.getCause());
+            throw new BusinessException("Erreur lors du décodage du QR code: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SurchargeException("Décodage du QR code interrompu", 1);
+        }
+    }
+
+    /**
+     * Lecture sous-échantillonnée, puis essai rapide sur le centre de l'image
+     * (badge présenté face à la caméra) et, à défaut, sur l'image entière en mode approfondi
+     */
+    String decoder(InputStream flux) throws IOException {
+        long debut = System.nanoTime();
+        String resultat = "echec";
+        try {
+            BufferedImage image = lireImage(flux);
+            long lu = System.nanoTime();
+            timerEtape("lecture").record(lu - debut, TimeUnit.NANOSECONDS);
+
+            LuminanceSource source = new BufferedImageLuminanceSource(image);
+            int largeur = source.getWidth();
+            int hauteur = source.getHeight();
+            int largeurCentre = (int) (largeur * ratioRecadrage);
+            int hauteurCentre = (int) (hauteur * ratioRecadrage);
+            String texte = lire(source.crop((largeur - largeurCentre) / 2, (hauteur - hauteurCentre) / 2,
+                    largeurCentre, hauteurCentre), HINTS_RAPIDES);
+            long recadre = System.nanoTime();
+            timerEtape("recadrage").record(recadre - lu, TimeUnit.NANOSECONDS);
+            if (texte != null) {
+                resultat = "recadrage";
+                return texte;
+            }
+
+            texte = lire(source, HINTS_COMPLETS);
+            timerEtape("plein_cadre").record(System.nanoTime() - recadre, TimeUnit.NANOSECONDS);
+            if (texte == null) {
+                throw new BusinessException("Aucun QR code détecté dans l'image");
+            }
+            resultat = "plein_cadre";
+            return texte;
+        } finally {
+            Timer.builder("qrcode.decodage")
+                    .description("Décodage complet d'un QR code, par chemin de réussite")
+                    .tag("resultat", resultat)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private String lire(LuminanceSource source, Map<DecodeHintType, Object> hints) {
+        QRCodeReader lecteur = LECTEURS.get();
+        try {
+            return lecteur.decode(new BinaryBitmap(new HybridBinarizer(source)), hints).getText();
+        } catch (NotFoundException | ChecksumException | FormatException e) {
+            return null;
+        } finally {
+            lecteur.reset();
+        }
+    }
+
+    /**
+     * Lit l'image directement depuis le flux, sous-échantillonnée au décodage pour que
+     * son plus grand côté ne dépasse pas dimension-max (pas de raster pleine résolution)
+     */
+    private BufferedImage lireImage(InputStream flux) throws IOException {
+        try (ImageInputStream entree = ImageIO.createImageInputStream(flux)) {
+            Iterator<ImageReader> lecteurs = entree != null ? ImageIO.getImageReaders(entree) : null;
+            if (lecteurs == null || !lecteurs.hasNext()) {
+                throw new BusinessException("Format d'image non supporté");
+            }
+            ImageReader lecteur = lecteurs.next();
+            try {
+                lecteur.setInput(entree, true, true);
+                int plusGrandCote = Math.max(lecteur.getWidth(0), lecteur.getHeight(0));
+                int pas = Math.max(1, (plusGrandCote + dimensionMax - 1) / dimensionMax);
+                ImageReadParam parametres = lecteur.getDefaultReadParam();
+                if (pas > 1) {
+                    parametres.setSourceSubsampling(pas, pas, 0, 0);
+                }
+                return lecteur.read(0, parametres);
+            } finally {
+                lecteur.dispose();
+            }
+        }
+    }
+
+    private void compterRejet(String raison) {
+        meterRegistry.counter("qrcode.decodage.rejets", "raison", raison).increment();
+    }
+
+    private Timer timerEtape(String etape) {
+        return Timer.builder("qrcode.decodage.etape")
+                .description("Latence de chaque étape du décodage des QR codes")
+                .tag("etape", etape)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Encodeur PNG noir et blanc propre à un thread : Deflater, CRC et tampons réutilisés,
+     * une seule allocation (le tableau renvoyé) par image
+     */
+    private static final class EncodeurPng {
+
+        private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+        private static final byte[] IHDR = "IHDR".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] IDAT = "IDAT".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] IEND = "IEND".getBytes(StandardCharsets.US_ASCII);
+
+        private final QRCodeWriter writer = new QRCodeWriter();
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final CRC32 crc = new CRC32();
+        private final byte[] entete = new byte[13];
+        private byte[] lignes = new byte[0];
+        private byte[] compresse = new byte[4096];
+
+        byte[] encoder(BitMatrix matrice) {
+            int largeur = matrice.getWidth();
+            int hauteur = matrice.getHeight();
+            int octetsParLigne = (largeur + 7) / 8;
+            int tailleBrute = hauteur * (octetsParLigne + 1);
+            if (lignes.length < tailleBrute) {
+                lignes = new byte[tailleBrute];
+            }
+
+            // Lignes brutes : octet de filtre 0 puis 1 bit par pixel (1 = blanc, 0 = module noir)
+            int p = 0;
+            for (int y = 0; y < hauteur; y++) {
+                lignes[p++] = 0;
+                for (int x = 0; x < largeur; x += 8) {
+                    int octet = 0xFF;
+                    int fin = Math.min(8, largeur - x);
+                    for (int b = 0; b < fin; b++) {
+                        if (matrice.get(x + b, y)) {
+                            octet &= ~(0x80 >>> b);
+                        }
+                    }
+                    lignes[p++] = (byte) octet;
+                }
+            }
+
+            deflater.reset();
+            deflater.setInput(lignes, 0, tailleBrute);
+            deflater.finish();
+            int tailleCompressee = 0;
+            while (!deflater.finished()) {
+                if (tailleCompressee == compresse.length) {
+                    compresse = Arrays.copyOf(compresse, compresse.length * 2);
+                }
+                tailleCompressee += deflater.deflate(compresse, tailleCompressee, compresse.length - tailleCompressee);
+            }
+
+            ByteBuffer.wrap(entete).putInt(largeur).putInt(hauteur)
+                    .put((byte) 1)   // profondeur : 1 bit
+                    .put((byte) 0)   // niveaux de gris
+                    .put((byte) 0).put((byte) 0).put((byte) 0);
+
+            ByteBuffer png = ByteBuffer.allocate(SIGNATURE.length + 12 * 3 + entete.length + tailleCompressee);
+            png.put(SIGNATURE);
+            ecrireChunk(png, IHDR, entete, entete.length);
+            ecrireChunk(png, IDAT, compresse, tailleCompressee);
+            ecrireChunk(png, IEND, entete, 0);
+            return png.array();
+        }
+
+        private void ecrireChunk(ByteBuffer png, byte[] type, byte[] donnees, int longueur) {
+            png.putInt(longueur);
+            int debut = png.position();
+            png.put(type).put(donnees, 0, longueur);
+            crc.reset();
+            crc.update(png.array(), debut, 4 + longueur);
+            png.putInt((int) crc.getValue());
+        }
     }
-}
\ No newline at end of file
+}
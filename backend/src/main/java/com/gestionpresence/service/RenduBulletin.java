@@ -0,0 +1,263 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.model.BulletinSalaire;
+import com.gestionpresence.model.Employee;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.util.NumberUtils;
+import org.unbescape.html.HtmlEscape;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Rendu HTML des bulletins de salaire. Le template Thymeleaf est rendu une seule fois au
+ * démarrage avec des valeurs sondes, puis découpé en segments statiques entre les champs :
+ * un bulletin ne coûte ensuite que la mise en forme de ses champs et la concaténation,
+ * dans un tampon réutilisé par thread. Le template reste la seule source de mise en page;
+ * s'il n'est plus découpable (condition, boucle...), le rendu repasse par Thymeleaf.
+ */
+@Slf4j
+@Component
+public class RenduBulletin {
+
+    static final String TEMPLATE = "bulletin-salaire";
+
+    private static final DateTimeFormatter FORMAT_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter FORMAT_DATE_HEURE = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    @Autowired
+    private TemplateEngine templateEngine;
+
+    @Value("${app.bulletin.locale:}")
+    private String localeConfiguree;
+
+    private Locale locale;
+    private volatile Gabarit gabarit;
+
+    private final ThreadLocal<StringBuilder> tampons = ThreadLocal.withInitial(() -> new StringBuilder(8192));
+
+    @PostConstruct
+    public void compiler() {
+        locale = localeConfiguree == null || localeConfiguree.isEmpty()
+                ? Locale.getDefault() : Locale.forLanguageTag(localeConfiguree);
+        try {
+            Gabarit compile = Gabarit.compiler(rendreAvecThymeleaf(sonde(), sondeEmployee(), SONDE_GENERATION), champs());
+            Employee employee = new Employee("EMP<&>1", "Lefèvre & \"Fils\"", "Zoé", "zoe@example.com", "Chef <d'équipe>", 2500.5);
+            BulletinSalaire bulletin = new BulletinSalaire(employee, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31));
+            bulletin.setSalaireBase(2500.5);
+            bulletin.setSalaireNet(2345.678);
+            bulletin.setDeductionRetards(12.345);
+            LocalDateTime generation = LocalDateTime.of(2025, 2, 1, 8, 5);
+            if (!compile.rendre(employee, bulletin, generation, new StringBuilder()).toString()
+                    .equals(rendreAvecThymeleaf(bulletin, employee, generation))) {
+                throw new IllegalStateException("rendu compilé différent du rendu Thymeleaf");
+            }
+            gabarit = compile;
+            log.info("Template {} compilé en {} segments", TEMPLATE, compile.segments.length);
+        } catch (RuntimeException e) {
+            gabarit = null;
+            log.warn("Template {} non compilable ({}), rendu par Thymeleaf", TEMPLATE, e.getMessage());
+        }
+    }
+
+    public boolean isCompile() {
+        return gabarit != null;
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * HTML du bulletin; la date de génération est celle de l'appel
+     */
+    public String rendre(Employee employee, BulletinSalaire bulletin) {
+        return rendre(employee, bulletin, LocalDateTime.now());
+    }
+
+    String rendre(Employee employee, BulletinSalaire bulletin, LocalDateTime generation) {
+        Gabarit courant = gabarit;
+        if (courant == null) {
+            return rendreAvecThymeleaf(bulletin, employee, generation);
+        }
+        StringBuilder tampon = tampons.get();
+        tampon.setLength(0);
+        return courant.rendre(employee, bulletin, generation, tampon).toString();
+    }
+
+    /**
+     * Version PDF (pièce jointe) du bulletin, mêmes champs et même mise en forme que le HTML
+     */
+    public byte[] rendrePdf(Employee employee, BulletinSalaire bulletin) {
+        List<String[]> lignes = new ArrayList<>();
+        lignes.add(new String[]{"Informations de l'Employé", null});
+        lignes.add(new String[]{"Matricule:", employee.getMatricule()});
+        lignes.add(new String[]{"Nom:", employee.getNom() + " " + employee.getPrenom()});
+        lignes.add(new String[]{"Poste:", employee.getPoste()});
+        lignes.add(new String[]{"Email:", employee.getEmail() != null ? employee.getEmail() : "Non spécifié"});
+        lignes.add(new String[]{"Période:", bulletin.getPeriodeDebut().format(FORMAT_DATE) + " - "
+                + bulletin.getPeriodeFin().format(FORMAT_DATE)});
+        lignes.add(new String[]{"Détails du Salaire (€)", null});
+        lignes.add(new String[]{"Salaire de base", decimal(bulletin.getSalaireBase())});
+        lignes.add(new String[]{"Jours travaillés", String.valueOf(bulletin.getJoursTravailles())});
+        lignes.add(new String[]{"Jours d'absence", String.valueOf(bulletin.getJoursAbsence())});
+        lignes.add(new String[]{"Total retards (minutes)", String.valueOf(bulletin.getTotalRetardsMinutes())});
+        lignes.add(new String[]{"Heures supplémentaires", decimal(bulletin.getHeuresSupplementaires())});
+        lignes.add(new String[]{"Déduction absences", "-" + decimal(bulletin.getDeductionAbsences())});
+        lignes.add(new String[]{"Déduction retards", "-" + decimal(bulletin.getDeductionRetards())});
+        lignes.add(new String[]{"Salaire net à percevoir", decimal(bulletin.getSalaireNet())});
+        return PdfBulletin.generer("BULLETIN DE SALAIRE", "GESTION PRESENCE - généré le "
+                + LocalDateTime.now().format(FORMAT_DATE_HEURE), lignes);
+    }
+
+    String rendreAvecThymeleaf(BulletinSalaire bulletin, Employee employee, LocalDateTime generation) {
+        Context context = new Context(locale);
+        context.setVariable("employee", employee);
+        context.setVariable("bulletin", bulletin);
+        context.setVariable("dateGeneration", generation);
+        return templateEngine.process(TEMPLATE, context);
+    }
+
+    // Valeurs sondes : chacune produit un texte unique, retrouvé dans le rendu pour situer le champ
+
+    private static final LocalDateTime SONDE_GENERATION = LocalDateTime.of(1903, 4, 5, 6, 7);
+
+    private static Employee sondeEmployee() {
+        return new Employee("@@matricule@@", "@@nom@@", "@@prenom@@", "@@email@@", "@@poste@@", 0);
+    }
+
+    private static BulletinSalaire sonde() {
+        BulletinSalaire bulletin = new BulletinSalaire(sondeEmployee(), LocalDate.of(1901, 2, 3), LocalDate.of(1902, 3, 4));
+        bulletin.setSalaireBase(900001);
+        bulletin.setHeuresSupplementaires(900002);
+        bulletin.setDeductionAbsences(900003);
+        bulletin.setDeductionRetards(900004);
+        bulletin.setSalaireNet(900005);
+        bulletin.setJoursTravailles(900006);
+        bulletin.setJoursAbsence(900007);
+        bulletin.setTotalRetardsMinutes(900008);
+        return bulletin;
+    }
+
+    /**
+     * Champs variables du template, avec la même mise en forme que ses expressions
+     */
+    private List<Champ> champs() {
+        BulletinSalaire sonde = sonde();
+        Employee employee = sondeEmployee();
+        List<Champ> champs = new ArrayList<>();
+        champs.add(Champ.texte(employee.getMatricule(), c -> c.employee.getMatricule()));
+        champs.add(Champ.texte(employee.getNom(), c -> c.employee.getNom()));
+        champs.add(Champ.texte(employee.getPrenom(), c -> c.employee.getPrenom()));
+        champs.add(Champ.texte(employee.getPoste(), c -> c.employee.getPoste()));
+        champs.add(Champ.texte(employee.getEmail(), c -> c.employee.getEmail() != null ? c.employee.getEmail() : "Non spécifié"));
+        champs.add(Champ.brut(sonde.getPeriodeDebut().format(FORMAT_DATE), c -> c.bulletin.getPeriodeDebut().format(FORMAT_DATE)));
+        champs.add(Champ.brut(sonde.getPeriodeFin().format(FORMAT_DATE), c -> c.bulletin.getPeriodeFin().format(FORMAT_DATE)));
+        champs.add(Champ.brut(SONDE_GENERATION.format(FORMAT_DATE_HEURE), c -> c.generation.format(FORMAT_DATE_HEURE)));
+        champs.add(Champ.brut(decimal(sonde.getSalaireBase()), c -> decimal(c.bulletin.getSalaireBase())));
+        champs.add(Champ.brut(decimal(sonde.getHeuresSupplementaires()), c -> decimal(c.bulletin.getHeuresSupplementaires())));
+        champs.add(Champ.brut(decimal(sonde.getDeductionAbsences()), c -> decimal(c.bulletin.getDeductionAbsences())));
+        champs.add(Champ.brut(decimal(sonde.getDeductionRetards()), c -> decimal(c.bulletin.getDeductionRetards())));
+        champs.add(Champ.brut(decimal(sonde.getSalaireNet()), c -> decimal(c.bulletin.getSalaireNet())));
+        champs.add(Champ.brut(String.valueOf(sonde.getJoursTravailles()), c -> String.valueOf(c.bulletin.getJoursTravailles())));
+        champs.add(Champ.brut(String.valueOf(sonde.getJoursAbsence()), c -> String.valueOf(c.bulletin.getJoursAbsence())));
+        champs.add(Champ.brut(String.valueOf(sonde.getTotalRetardsMinutes()), c -> String.valueOf(c.bulletin.getTotalRetardsMinutes())));
+        return champs;
+    }
+
+    private String decimal(double valeur) {
+        // Identique à #numbers.formatDecimal(valeur, 1, 2)
+        return NumberUtils.format(valeur, 1, 2, locale);
+    }
+
+    private static final class Valeurs {
+        final Employee employee;
+        final BulletinSalaire bulletin;
+        final LocalDateTime generation;
+
+        Valeurs(Employee employee, BulletinSalaire bulletin, LocalDateTime generation) {
+            this.employee = employee;
+            this.bulletin = bulletin;
+            this.generation = generation;
+        }
+    }
+
+    private static final class Champ {
+        final String sonde;
+        final Function<Valeurs, String> valeur;
+        final boolean echapper;
+        int position;
+
+        private Champ(String sonde, Function<Valeurs, String> valeur, boolean echapper) {
+            this.sonde = sonde;
+            this.valeur = valeur;
+            this.echapper = echapper;
+        }
+
+        static Champ texte(String sonde, Function<Valeurs, String> valeur) {
+            return new Champ(sonde, valeur, true);
+        }
+
+        /** Dates et nombres : sortie sans caractère à échapper */
+        static Champ brut(String sonde, Function<Valeurs, String> valeur) {
+            return new Champ(sonde, valeur, false);
+        }
+    }
+
+    /**
+     * Segments statiques du rendu et champs intercalés : segments[i], champs[i], segments[i+1]...
+     */
+    private static final class Gabarit {
+        final String[] segments;
+        final Champ[] champs;
+
+        private Gabarit(String[] segments, Champ[] champs) {
+            this.segments = segments;
+            this.champs = champs;
+        }
+
+        static Gabarit compiler(String rendu, List<Champ> champs) {
+            for (Champ champ : champs) {
+                champ.position = rendu.indexOf(champ.sonde);
+                if (champ.position < 0 || rendu.indexOf(champ.sonde, champ.position + 1) >= 0) {
+                    throw new IllegalStateException("champ introuvable ou répété: " + champ.sonde);
+                }
+            }
+            champs.sort(Comparator.comparingInt(c -> c.position));
+            String[] segments = new String[champs.size() + 1];
+            int debut = 0;
+            for (int i = 0; i < champs.size(); i++) {
+                Champ champ = champs.get(i);
+                if (champ.position < debut) {
+                    throw new IllegalStateException("champs imbriqués: " + champ.sonde);
+                }
+                segments[i] = rendu.substring(debut, champ.position);
+                debut = champ.position + champ.sonde.length();
+            }
+            segments[champs.size()] = rendu.substring(debut);
+            return new Gabarit(segments, champs.toArray(new Champ[0]));
+        }
+
+        StringBuilder rendre(Employee employee, BulletinSalaire bulletin, LocalDateTime generation, StringBuilder tampon) {
+            Valeurs valeurs = new Valeurs(employee, bulletin, generation);
+            for (int i = 0; i < champs.length; i++) {
+                tampon.append(segments[i]);
+                String valeur = champs[i].valeur.apply(valeurs);
+                tampon.append(champs[i].echapper ? HtmlEscape.escapeHtml4Xml(valeur) : valeur);
+            }
+            return tampon.append(segments[champs.length]);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.dto.ResumeJournalierDTO;
+import com.gestionpresence.model.AgregatPresence;
+import com.gestionpresence.model.ResumeJournalier;
+import com.gestionpresence.repository.AgregatPresenceRepository;
+import com.gestionpresence.repository.PresenceRepository;
+import com.gestionpresence.repository.ResumeJournalierRepository;
+import com.gestionpresence.repository.projection.PointageProjection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Compaction des pointages bruts en résumés journaliers (ResumeJournalier).
+ * Les ENTREE/SORTIE d'une journée sont appariées en sessions, dans l'ordre chronologique :
+ * - une SORTIE ferme la session ouverte (temps travaillé = SORTIE - ENTREE);
+ * - une SORTIE sans session ouverte, ou une ENTREE dans une session déjà ouverte, est orpheline;
+ * - le retard est celui de la première ENTREE, une seule fois par jour;
+ * - les heures supplémentaires sont le temps de session après l'heure de fin.
+ * Retards et heures supplémentaires ne comptent que du lundi au vendredi.
+ *
+ * Les jours à recompacter sont ceux marqués dans AgregatPresence.joursACompacter par chaque
+ * écriture ou suppression de pointage : la compaction ne relit que ces jours-là.
+ */
+@Slf4j
+@Service
+public class ResumesJournaliersService {
+
+    @Autowired
+    private ResumeJournalierRepository resumeJournalierRepository;
+
+    @Autowired
+    private AgregatPresenceRepository agregatPresenceRepository;
+
+    @Autowired
+    private PresenceRepository presenceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.salaire.heure.debut:09:00}")
+    @DateTimeFormat(pattern = "HH:mm")
+    private LocalTime heureDebutTravail;
+
+    @Value("${app.salaire.heure.fin:17:00}")
+    @DateTimeFormat(pattern = "HH:mm")
+    private LocalTime heureFinTravail;
+
+    @Value("${app.presence.resumes.taille-lot:200}")
+    private int tailleLot;
+
+    // Une compaction à la fois; ReentrantLock plutôt que synchronized, qui épinglerait le
+    // thread virtuel du planificateur (mode VIRTUEL) pendant les requêtes
+    private final ReentrantLock compaction = new ReentrantLock();
+
+    /**
+     * Compacte tous les jours en attente, par lots d'agrégats (une transaction par lot)
+     * @return nombre de jours employé recompactés
+     */
+    public int compacterEnAttente() {
+        compaction.lock();
+        try {
+            long debut = System.currentTimeMillis();
+            int jours = 0;
+            long apresId = 0;
+            while (true) {
+                List<Long> ids = agregatPresenceRepository.findIdsACompacter(apresId, PageRequest.of(0, tailleLot));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                Integer compactes = nouvelleTransaction().execute(status -> compacterLot(ids));
+                jours += compactes != null ? compactes : 0;
+                apresId = ids.get(ids.size() - 1);
+            }
+            if (jours > 0) {
+                log.info("Compaction des pointages : {} jours employé résumés en {} ms",
+                        jours, System.currentTimeMillis() - debut);
+            }
+            return jours;
+        } finally {
+            compaction.unlock();
+        }
+    }
+
+    /**
+     * Compacte les jours en attente d'un employé pour un mois (avant un calcul de paie unitaire)
+     */
+    public void compacter(Long employeeId, LocalDate mois) {
+        Optional<AgregatPresence> agregat = agregatPresenceRepository.findByEmployeeIdAndMois(
+                employeeId, mois.withDayOfMonth(1));
+        if (agregat.isPresent() && agregat.get().getJoursACompacter() != 0) {
+            nouvelleTransaction().execute(status -> compacterLot(List.of(agregat.get().getId())));
+        }
+    }
+
+    /**
+     * Recompacte tout un mois (reprise des mois antérieurs à la mise en place, changement d'horaires)
+     */
+    public int recompacter(LocalDate mois) {
+        LocalDate premierJour = mois.withDayOfMonth(1);
+        Integer marques = nouvelleTransaction().execute(status -> agregatPresenceRepository.marquerACompacter(
+                premierJour, AgregatsPresenceService.tousLesJours(premierJour)));
+        log.info("Recompaction de {} : {} agrégats marqués", premierJour, marques);
+        return compacterEnAttente();
+    }
+
+    @Transactional(readOnly = true)
+    public List<ResumeJournalierDTO> findDTOByPeriode(LocalDate debut, LocalDate fin) {
+        return resumeJournalierRepository.findDTOByPeriode(debut, fin);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ResumeJournalierDTO> findDTOByEmployeeIdAndPeriode(Long employeeId, LocalDate debut, LocalDate fin) {
+        return resumeJournalierRepository.findDTOByEmployeeIdAndPeriode(employeeId, debut, fin);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ResumeJournalier> findByEmployeeIdAndMois(Long employeeId, LocalDate mois) {
+        return resumeJournalierRepository.findByEmployeeIdAndPeriode(employeeId,
+                mois.withDayOfMonth(1), mois.withDayOfMonth(mois.lengthOfMonth()));
+    }
+
+    /**
+     * Résumés du mois pour un lot d'employés, en une requête
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<ResumeJournalier>> findByMois(Collection<Long> employeeIds, LocalDate mois) {
+        return resumeJournalierRepository.findByEmployeeIdsAndPeriode(employeeIds,
+                        mois.withDayOfMonth(1), mois.withDayOfMonth(mois.lengthOfMonth())).stream()
+                .collect(Collectors.groupingBy(ResumeJournalier::getEmployeeId));
+    }
+
+    /**
+     * Verrouille les agrégats du lot (les écritures de pointages de ces employés attendent),
+     * relit les pointages des mois concernés en une requête par mois et remplace les résumés
+     * des jours marqués
+     */
+    private int compacterLot(Collection<Long> agregatIds) {
+        List<AgregatPresence> agregats = agregatPresenceRepository.verrouillerParIds(agregatIds);
+        Map<LocalDate, Map<Long, Integer>> parMois = new TreeMap<>();
+        for (AgregatPresence agregat : agregats) {
+            if (agregat.getJoursACompacter() != 0) {
+                parMois.computeIfAbsent(agregat.getMois(), mois -> new LinkedHashMap<>())
+                        .put(agregat.getEmployeeId(), agregat.getJoursACompacter());
+            }
+        }
+
+        LocalDateTime maintenant = LocalDateTime.now();
+        int jours = 0;
+        for (Map.Entry<LocalDate, Map<Long, Integer>> entree : parMois.entrySet()) {
+            LocalDate mois = entree.getKey();
+            Map<Long, Integer> masques = entree.getValue();
+
+            Map<Long, List<LocalDate>> joursParEmploye = new LinkedHashMap<>();
+            masques.forEach((employeeId, masque) -> {
+                List<LocalDate> joursMarques = new ArrayList<>();
+                for (int jour = 1; jour <= mois.lengthOfMonth(); jour++) {
+                    if ((masque & (1 << (jour - 1))) != 0) {
+                        joursMarques.add(mois.withDayOfMonth(jour));
+                    }
+                }
+                joursParEmploye.put(employeeId, joursMarques);
+            });
+
+            List<ResumeJournalier> resumes = new ArrayList<>();
+            List<PointageProjection> journee = new ArrayList<>();
+            for (PointageProjection pointage : presenceRepository.findPointagesByEmployeeIdsAndIntervalle(
+                    masques.keySet(), mois.atStartOfDay(), mois.plusMonths(1).atStartOfDay())) {
+                if (!journee.isEmpty() && !memeJournee(journee.get(0), pointage)) {
+                    ajouterResume(resumes, journee, masques, maintenant);
+                    journee.clear();
+                }
+                journee.add(pointage);
+            }
+            if (!journee.isEmpty()) {
+                ajouterResume(resumes, journee, masques, maintenant);
+            }
+
+            resumeJournalierRepository.remplacerEnLot(joursParEmploye, resumes);
+            jours += joursParEmploye.values().stream().mapToInt(List::size).sum();
+        }
+
+        agregatPresenceRepository.marquerCompactes(agregatIds);
+        return jours;
+    }
+
+    private void ajouterResume(List<ResumeJournalier> resumes, List<PointageProjection> journee,
+                               Map<Long, Integer> masques, LocalDateTime maintenant) {
+        PointageProjection premier = journee.get(0);
+        LocalDate jour = premier.getDateHeurePointage().toLocalDate();
+        if ((masques.get(premier.getEmployeeId()) & (1 << (jour.getDayOfMonth() - 1))) != 0) {
+            ResumeJournalier resume = resumer(premier.getEmployeeId(), jour, journee);
+            resume.setDateCompaction(maintenant);
+            resumes.add(resume);
+        }
+    }
+
+    /**
+     * Apparie les pointages d'une journée, triés par heure
+     */
+    ResumeJournalier resumer(Long employeeId, LocalDate jour, List<PointageProjection> pointages) {
+        ResumeJournalier resume = new ResumeJournalier(employeeId, jour);
+        boolean ouvre = !PointagesMensuels.estWeekend(jour.toEpochDay());
+        int minuteDebut = heureDebutTravail.toSecondOfDay() / 60;
+        int minuteFin = heureFinTravail.toSecondOfDay() / 60;
+
+        int entreeOuverte = -1;
+        for (PointageProjection pointage : pointages) {
+            LocalTime heure = pointage.getDateHeurePointage().toLocalTime();
+            int minute = heure.toSecondOfDay() / 60;
+            String type = pointage.getTypePointage();
+
+            if ("ENTREE".equals(type)) {
+                if (resume.getPremiereEntree() == null) {
+                    resume.setPremiereEntree(heure);
+                    if (ouvre) {
+                        resume.setMinutesRetard(Math.max(0, minute - minuteDebut));
+                    }
+                }
+                if (entreeOuverte >= 0) {
+                    resume.setPointagesOrphelins(resume.getPointagesOrphelins() + 1);
+                } else {
+                    entreeOuverte = minute;
+                }
+            } else if ("SORTIE".equals(type)) {
+                resume.setDerniereSortie(heure);
+                if (entreeOuverte < 0) {
+                    resume.setPointagesOrphelins(resume.getPointagesOrphelins() + 1);
+                } else {
+                    resume.setMinutesTravaillees(resume.getMinutesTravaillees() + minute - entreeOuverte);
+                    if (ouvre) {
+                        resume.setMinutesSupplementaires(resume.getMinutesSupplementaires()
+                                + Math.max(0, minute - Math.max(entreeOuverte, minuteFin)));
+                    }
+                    resume.setNombreSessions(resume.getNombreSessions() + 1);
+                    entreeOuverte = -1;
+                }
+            } else if ("ABSENT".equals(type)) {
+                resume.setAbsent(true);
+            }
+        }
+        resume.setSessionOuverte(entreeOuverte >= 0);
+        return resume;
+    }
+
+    private static boolean memeJournee(PointageProjection a, PointageProjection b) {
+        return a.getEmployeeId().equals(b.getEmployeeId())
+                && a.getDateHeurePointage().toLocalDate().equals(b.getDateHeurePointage().toLocalDate());
+    }
+
+    private TransactionTemplate nouvelleTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+}
@@ -7,7 +7,6 @@ import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.util.List;
 
 @Slf4j
 @Component
@@ -17,7 +16,22 @@ public class ScheduledTasks {
     private PresenceService presenceService;
 
     @Autowired
-    private EmployeeService employeeService;
+    private EnvoiBulletinsService envoiBulletinsService;
+
+    @Autowired
+    private AgregatsPresenceService agregatsPresenceService;
+
+    @Autowired
+    private ResumesJournaliersService resumesJournaliersService;
+
+    @Autowired
+    private CalendrierService calendrierService;
+
+    @Autowired
+    private OccupationService occupationService;
+
+    @Autowired
+    private ArchivageService archivageService;
 
     // Heure limite pour considérer un employé comme absent (17h00)
     private static final LocalTime ABSENCE_TIME_LIMIT = LocalTime.of(17, 0);
@@ -32,12 +46,81 @@ public class ScheduledTasks {
     }
 
     /**
-     * Nettoyage des anciennes données
+     * Nettoyage des anciennes données : partitions des mois à venir, puis archivage des
+     * mois clos hors rétention (app.archivage.active)
      */
     @Scheduled(cron = "0 0 2 * * SUN") // Tous les dimanches à 2h00
     public void nettoyageDonnees() {
         log.info(" Nettoyage des données anciennes...");
-        // Implémentation à ajouter
+        try {
+            archivageService.preparerPartitions();
+            if (archivageService.isActive()) {
+                long lignes = archivageService.archiver();
+                log.info("Nettoyage des données terminé: {} ligne(s) archivée(s)", lignes);
+            }
+        } catch (Exception e) {
+            log.error("Erreur lors du nettoyage des données: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Envoi des bulletins en attente (nouveaux ou reportés après un échec),
+     * reprend aussi un envoi interrompu par un redémarrage
+     */
+    @Scheduled(fixedDelayString = "${app.mail.envoi-masse.intervalle-ms:900000}",
+               initialDelayString = "${app.mail.envoi-masse.delai-demarrage-ms:60000}")
+    public void envoiBulletinsEnAttente() {
+        if (!envoiBulletinsService.isActive()) {
+            return;
+        }
+        try {
+            if (envoiBulletinsService.lancerSiNecessaire()) {
+                log.info("Envoi des bulletins en attente lancé");
+            }
+        } catch (Exception e) {
+            log.error("Erreur lors du lancement de l'envoi des bulletins: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Réconciliation des agrégats de présence avec les pointages bruts,
+     * pour le mois en cours et le précédent (corrections tardives)
+     */
+    @Scheduled(cron = "${app.presence.agregats.reconciliation-cron:0 30 2 * * ?}")
+    public void reconciliationAgregatsPresence() {
+        LocalDate aujourdhui = LocalDate.now();
+        for (LocalDate mois : new LocalDate[] { aujourdhui.minusMonths(1), aujourdhui }) {
+            try {
+                agregatsPresenceService.reconcilier(mois);
+            } catch (Exception e) {
+                log.error("Erreur lors de la réconciliation des agrégats de {}: {}", mois, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Compaction des pointages modifiés depuis le dernier passage en résumés journaliers
+     */
+    @Scheduled(fixedDelayString = "${app.presence.resumes.intervalle-ms:300000}",
+               initialDelayString = "${app.presence.resumes.delai-demarrage-ms:60000}")
+    public void compactionResumesJournaliers() {
+        try {
+            resumesJournaliersService.compacterEnAttente();
+        } catch (Exception e) {
+            log.error("Erreur lors de la compaction des pointages: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Diffusion des changements d'occupation accumulés aux tableaux de bord abonnés
+     */
+    @Scheduled(fixedDelayString = "${app.occupation.intervalle-ms:1000}")
+    public void diffusionOccupation() {
+        try {
+            occupationService.diffuser();
+        } catch (Exception e) {
+            log.error("Erreur lors de la diffusion de l'occupation: {}", e.getMessage(), e);
+        }
     }
 
     /**
@@ -50,34 +133,22 @@ public class ScheduledTasks {
 
     /**
      * Marquage automatique des absences quotidiennes
-     * S'exécute tous les jours à 17h30
+     * S'exécute tous les jours à 17h30, sauf weekends et jours fériés
      */
     @Scheduled(cron = "0 30 17 * * ?")
     public void marquerAbsencesQuotidiennes() {
+        LocalDate aujourdhui = LocalDate.now();
+        if (!calendrierService.estJourOuvrable(aujourdhui)) {
+            log.info("Pas de marquage des absences : {} n'est pas un jour ouvrable", aujourdhui);
+            return;
+        }
         log.info("Début du marquage automatique des absences quotidiennes...");
 
-        LocalDate today = LocalDate.now();
-        List<com.gestionpresence.model.Employee> employees = employeeService.findAll();
-
-        for (com.gestionpresence.model.Employee employee : employees) {
-            try {
-                // Vérifier si l'employé a déjà un pointage aujourd'hui
-                boolean isPresent = presenceService.isPresentToday(employee.getId());
-
-                if (!isPresent) {
-                    // Créer un pointage d'absence
-                    presenceService.enregistrerPointage(
-                        employee.getMatricule(),
-                        "ABSENT",
-                        today.atTime(ABSENCE_TIME_LIMIT)
-                    );
-                    log.info("Absence marquée pour l'employé: {}", employee.getMatricule());
-                }
-            } catch (Exception e) {
-                log.error("Erreur lors du marquage d'absence pour l'employé {}: {}", employee.getMatricule(), e.getMessage());
-            }
+        try {
+            int absences = presenceService.marquerAbsences(aujourdhui, ABSENCE_TIME_LIMIT);
+            log.info("Marquage des absences quotidiennes terminé: {} absence(s) marquée(s).", absences);
+        } catch (Exception e) {
+            log.error("Erreur lors du marquage des absences quotidiennes: {}", e.getMessage(), e);
         }
-
-        log.info("Marquage des absences quotidiennes terminé.");
     }
 }
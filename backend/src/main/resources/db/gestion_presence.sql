@@ -10,23 +10,62 @@ CREATE TABLE employees (
     poste VARCHAR(100),
     salaire_base DECIMAL(10,2),
     date_embauche DATE,
-    qr_code LONGBLOB,
+    qr_code_etag VARCHAR(64),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+CREATE TABLE employee_qr_codes (
+    employee_id BIGINT PRIMARY KEY,
+    image MEDIUMBLOB NOT NULL,
+    etag VARCHAR(64) NOT NULL,
+    date_generation DATETIME,
+    FOREIGN KEY (employee_id) REFERENCES employees(id) ON DELETE CASCADE
+);
+
 CREATE TABLE presences (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT AUTO_INCREMENT,
     employee_id BIGINT NOT NULL,
     date_heure_pointage DATETIME NOT NULL,
-    type_pointage ENUM('ENTREE', 'SORTIE') NOT NULL,
+    type_pointage ENUM('ENTREE', 'SORTIE', 'ABSENT') NOT NULL,
     retard BOOLEAN DEFAULT FALSE,
     minutes_retard INT DEFAULT 0,
+    cle_deduplication VARCHAR(64) NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    FOREIGN KEY (employee_id) REFERENCES employees(id) ON DELETE CASCADE
+    PRIMARY KEY (id, date_heure_pointage),
+    CONSTRAINT uk_presences_cle_date UNIQUE (cle_deduplication, date_heure_pointage)
+)
+-- Partitions mensuelles (voir migration_partitionnement.sql) : pas de clé étrangère possible
+PARTITION BY RANGE COLUMNS (date_heure_pointage) (
+    PARTITION p_anterieur VALUES LESS THAN ('2025-01-01'),
+    PARTITION p202501 VALUES LESS THAN ('2025-02-01'),
+    PARTITION p202502 VALUES LESS THAN ('2025-03-01'),
+    PARTITION p202503 VALUES LESS THAN ('2025-04-01'),
+    PARTITION p202504 VALUES LESS THAN ('2025-05-01'),
+    PARTITION p202505 VALUES LESS THAN ('2025-06-01'),
+    PARTITION p202506 VALUES LESS THAN ('2025-07-01'),
+    PARTITION p202507 VALUES LESS THAN ('2025-08-01'),
+    PARTITION p202508 VALUES LESS THAN ('2025-09-01'),
+    PARTITION p202509 VALUES LESS THAN ('2025-10-01'),
+    PARTITION p202510 VALUES LESS THAN ('2025-11-01'),
+    PARTITION p202511 VALUES LESS THAN ('2025-12-01'),
+    PARTITION p202512 VALUES LESS THAN ('2026-01-01'),
+    PARTITION p202601 VALUES LESS THAN ('2026-02-01'),
+    PARTITION p202602 VALUES LESS THAN ('2026-03-01'),
+    PARTITION p202603 VALUES LESS THAN ('2026-04-01'),
+    PARTITION p202604 VALUES LESS THAN ('2026-05-01'),
+    PARTITION p202605 VALUES LESS THAN ('2026-06-01'),
+    PARTITION p202606 VALUES LESS THAN ('2026-07-01'),
+    PARTITION p202607 VALUES LESS THAN ('2026-08-01'),
+    PARTITION p202608 VALUES LESS THAN ('2026-09-01'),
+    PARTITION p202609 VALUES LESS THAN ('2026-10-01'),
+    PARTITION p202610 VALUES LESS THAN ('2026-11-01'),
+    PARTITION p202611 VALUES LESS THAN ('2026-12-01'),
+    PARTITION p202612 VALUES LESS THAN ('2027-01-01'),
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
 );
 
 CREATE TABLE bulletins_salaire (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT AUTO_INCREMENT,
     employee_id BIGINT NOT NULL,
     periode_debut DATE NOT NULL,
     periode_fin DATE NOT NULL,
@@ -39,11 +78,81 @@ CREATE TABLE bulletins_salaire (
     salaire_net DECIMAL(10,2) NOT NULL,
     envoye BOOLEAN DEFAULT FALSE,
     date_envoi DATE,
+    tentatives_envoi INT NOT NULL DEFAULT 0,
+    prochain_essai_envoi DATETIME,
+    derniere_erreur_envoi VARCHAR(500),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, periode_debut),
+    CONSTRAINT uk_bulletins_employe_periode UNIQUE (employee_id, periode_debut)
+)
+PARTITION BY RANGE COLUMNS (periode_debut) (
+    PARTITION p_anterieur VALUES LESS THAN ('2025-01-01'),
+    PARTITION p202501 VALUES LESS THAN ('2025-02-01'),
+    PARTITION p202502 VALUES LESS THAN ('2025-03-01'),
+    PARTITION p202503 VALUES LESS THAN ('2025-04-01'),
+    PARTITION p202504 VALUES LESS THAN ('2025-05-01'),
+    PARTITION p202505 VALUES LESS THAN ('2025-06-01'),
+    PARTITION p202506 VALUES LESS THAN ('2025-07-01'),
+    PARTITION p202507 VALUES LESS THAN ('2025-08-01'),
+    PARTITION p202508 VALUES LESS THAN ('2025-09-01'),
+    PARTITION p202509 VALUES LESS THAN ('2025-10-01'),
+    PARTITION p202510 VALUES LESS THAN ('2025-11-01'),
+    PARTITION p202511 VALUES LESS THAN ('2025-12-01'),
+    PARTITION p202512 VALUES LESS THAN ('2026-01-01'),
+    PARTITION p202601 VALUES LESS THAN ('2026-02-01'),
+    PARTITION p202602 VALUES LESS THAN ('2026-03-01'),
+    PARTITION p202603 VALUES LESS THAN ('2026-04-01'),
+    PARTITION p202604 VALUES LESS THAN ('2026-05-01'),
+    PARTITION p202605 VALUES LESS THAN ('2026-06-01'),
+    PARTITION p202606 VALUES LESS THAN ('2026-07-01'),
+    PARTITION p202607 VALUES LESS THAN ('2026-08-01'),
+    PARTITION p202608 VALUES LESS THAN ('2026-09-01'),
+    PARTITION p202609 VALUES LESS THAN ('2026-10-01'),
+    PARTITION p202610 VALUES LESS THAN ('2026-11-01'),
+    PARTITION p202611 VALUES LESS THAN ('2026-12-01'),
+    PARTITION p202612 VALUES LESS THAN ('2027-01-01'),
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
+
+CREATE TABLE agregats_presence (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    employee_id BIGINT NOT NULL,
+    mois DATE NOT NULL,
+    jours_avec_entree INT NOT NULL DEFAULT 0,
+    retards_minutes INT NOT NULL DEFAULT 0,
+    supplementaires_minutes INT NOT NULL DEFAULT 0,
+    nombre_pointages INT NOT NULL DEFAULT 0,
+    dernier_pointage DATETIME,
+    dernier_type VARCHAR(10),
+    date_maj DATETIME,
+    jours_a_compacter INT NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT uk_agregats_employee_mois UNIQUE (employee_id, mois),
+    FOREIGN KEY (employee_id) REFERENCES employees(id) ON DELETE CASCADE
+);
+
+CREATE TABLE resumes_journaliers (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    employee_id BIGINT NOT NULL,
+    jour DATE NOT NULL,
+    premiere_entree TIME,
+    derniere_sortie TIME,
+    minutes_travaillees INT NOT NULL DEFAULT 0,
+    minutes_retard INT NOT NULL DEFAULT 0,
+    minutes_supplementaires INT NOT NULL DEFAULT 0,
+    nombre_sessions INT NOT NULL DEFAULT 0,
+    pointages_orphelins INT NOT NULL DEFAULT 0,
+    session_ouverte BOOLEAN NOT NULL DEFAULT FALSE,
+    absent BOOLEAN NOT NULL DEFAULT FALSE,
+    date_compaction DATETIME,
+    CONSTRAINT uk_resumes_employee_jour UNIQUE (employee_id, jour),
     FOREIGN KEY (employee_id) REFERENCES employees(id) ON DELETE CASCADE
 );
 
 -- Index pour optimiser les requêtes
 CREATE INDEX idx_presences_employee_date ON presences(employee_id, date_heure_pointage);
 CREATE INDEX idx_presences_date ON presences(date_heure_pointage);
-CREATE INDEX idx_bulletins_periode ON bulletins_salaire(periode_debut, periode_fin);
\ No newline at end of file
+CREATE INDEX idx_bulletins_periode ON bulletins_salaire(periode_debut, periode_fin);
+CREATE INDEX idx_bulletins_envoi ON bulletins_salaire(envoye, id);
+CREATE INDEX idx_agregats_mois ON agregats_presence(mois);
+CREATE INDEX idx_resumes_jour ON resumes_journaliers(jour);
\ No newline at end of file
@@ -0,0 +1,22 @@
+-- Migration d'une base existante : agrégats mensuels de présence
+-- Remplissage des mois existants : POST /api/presences/agregats/reconcilier?mois=AAAA-MM-01
+-- pour chaque mois, avant de passer app.salaire.source à AGREGATS
+USE gestion_presence;
+
+CREATE TABLE agregats_presence (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    employee_id BIGINT NOT NULL,
+    mois DATE NOT NULL,
+    jours_avec_entree INT NOT NULL DEFAULT 0,
+    retards_minutes INT NOT NULL DEFAULT 0,
+    supplementaires_minutes INT NOT NULL DEFAULT 0,
+    nombre_pointages INT NOT NULL DEFAULT 0,
+    dernier_pointage DATETIME,
+    dernier_type VARCHAR(10),
+    date_maj DATETIME,
+    version BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT uk_agregats_employee_mois UNIQUE (employee_id, mois),
+    FOREIGN KEY (employee_id) REFERENCES employees(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_agregats_mois ON agregats_presence(mois);
@@ -0,0 +1,18 @@
+-- Migration d'une base existante : un bulletin par employé et par mois, pour qu'une
+-- campagne de paie relancée (CampagnePaieService) ne crée pas de doublon. La clé unique
+-- contient periode_debut, colonne de partitionnement (voir migration_partitionnement.sql).
+--
+-- Doublons laissés par les campagnes précédentes : le premier bulletin calculé (plus petit id)
+-- est conservé. Les lister avant suppression :
+--   SELECT employee_id, periode_debut, COUNT(*) FROM bulletins_salaire
+--   GROUP BY employee_id, periode_debut HAVING COUNT(*) > 1;
+USE gestion_presence;
+
+DELETE b FROM bulletins_salaire b
+JOIN bulletins_salaire premier
+  ON premier.employee_id = b.employee_id
+ AND premier.periode_debut = b.periode_debut
+ AND premier.id < b.id;
+
+ALTER TABLE bulletins_salaire
+    ADD CONSTRAINT uk_bulletins_employe_periode UNIQUE (employee_id, periode_debut);
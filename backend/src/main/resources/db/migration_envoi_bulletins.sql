@@ -0,0 +1,9 @@
+-- Migration d'une base existante : suivi des envois en masse des bulletins
+USE gestion_presence;
+
+ALTER TABLE bulletins_salaire
+    ADD COLUMN tentatives_envoi INT NOT NULL DEFAULT 0,
+    ADD COLUMN prochain_essai_envoi DATETIME,
+    ADD COLUMN derniere_erreur_envoi VARCHAR(500);
+
+CREATE INDEX idx_bulletins_envoi ON bulletins_salaire(envoye, id);
@@ -0,0 +1,9 @@
+-- Migration d'une base existante : valeur ABSENT des pointages (absences quotidiennes) et
+-- clé de déduplication des pointages rejoués depuis le journal local (JournalPointages).
+-- À appliquer avant migration_partitionnement.sql, qui remplace l'index unique
+-- cle_deduplication créé ici par uk_presences_cle_date.
+USE gestion_presence;
+
+ALTER TABLE presences
+    MODIFY COLUMN type_pointage ENUM('ENTREE', 'SORTIE', 'ABSENT') NOT NULL,
+    ADD COLUMN cle_deduplication VARCHAR(64) NULL UNIQUE;
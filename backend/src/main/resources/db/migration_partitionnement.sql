@@ -0,0 +1,83 @@
+-- Migration d'une base existante : partitionnement mensuel des pointages et des bulletins
+-- (RANGE COLUMNS, une partition pAAAAMM par mois). Les mois clos au-delà de la rétention
+-- sont exportés dans app.archivage.repertoire puis les lignes exportées supprimées par
+-- ScheduledTasks.nettoyageDonnees; les partitions des mois à venir sont créées par la même
+-- tâche (app.archivage.partitions-avance-mois) en découpant pmax.
+--
+-- MySQL refuse les clés étrangères sur une table partitionnée et impose que chaque clé
+-- unique contienne la colonne de partitionnement : les pointages et bulletins d'un employé
+-- supprimé sont effacés par l'application (EmployeeService.deleteEmployee).
+-- Les noms presences_ibfk_1 / bulletins_salaire_ibfk_1 sont ceux de gestion_presence.sql
+-- (vérifier avec SHOW CREATE TABLE pour une base créée par Hibernate).
+-- Prérequis : migration_journal_pointages.sql (index unique cle_deduplication).
+USE gestion_presence;
+
+ALTER TABLE presences DROP FOREIGN KEY presences_ibfk_1;
+ALTER TABLE presences
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, date_heure_pointage),
+    DROP INDEX cle_deduplication,
+    ADD CONSTRAINT uk_presences_cle_date UNIQUE (cle_deduplication, date_heure_pointage);
+
+ALTER TABLE presences PARTITION BY RANGE COLUMNS (date_heure_pointage) (
+    PARTITION p_anterieur VALUES LESS THAN ('2025-01-01'),
+    PARTITION p202501 VALUES LESS THAN ('2025-02-01'),
+    PARTITION p202502 VALUES LESS THAN ('2025-03-01'),
+    PARTITION p202503 VALUES LESS THAN ('2025-04-01'),
+    PARTITION p202504 VALUES LESS THAN ('2025-05-01'),
+    PARTITION p202505 VALUES LESS THAN ('2025-06-01'),
+    PARTITION p202506 VALUES LESS THAN ('2025-07-01'),
+    PARTITION p202507 VALUES LESS THAN ('2025-08-01'),
+    PARTITION p202508 VALUES LESS THAN ('2025-09-01'),
+    PARTITION p202509 VALUES LESS THAN ('2025-10-01'),
+    PARTITION p202510 VALUES LESS THAN ('2025-11-01'),
+    PARTITION p202511 VALUES LESS THAN ('2025-12-01'),
+    PARTITION p202512 VALUES LESS THAN ('2026-01-01'),
+    PARTITION p202601 VALUES LESS THAN ('2026-02-01'),
+    PARTITION p202602 VALUES LESS THAN ('2026-03-01'),
+    PARTITION p202603 VALUES LESS THAN ('2026-04-01'),
+    PARTITION p202604 VALUES LESS THAN ('2026-05-01'),
+    PARTITION p202605 VALUES LESS THAN ('2026-06-01'),
+    PARTITION p202606 VALUES LESS THAN ('2026-07-01'),
+    PARTITION p202607 VALUES LESS THAN ('2026-08-01'),
+    PARTITION p202608 VALUES LESS THAN ('2026-09-01'),
+    PARTITION p202609 VALUES LESS THAN ('2026-10-01'),
+    PARTITION p202610 VALUES LESS THAN ('2026-11-01'),
+    PARTITION p202611 VALUES LESS THAN ('2026-12-01'),
+    PARTITION p202612 VALUES LESS THAN ('2027-01-01'),
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
+
+ALTER TABLE bulletins_salaire DROP FOREIGN KEY bulletins_salaire_ibfk_1;
+ALTER TABLE bulletins_salaire
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, periode_debut);
+
+ALTER TABLE bulletins_salaire PARTITION BY RANGE COLUMNS (periode_debut) (
+    PARTITION p_anterieur VALUES LESS THAN ('2025-01-01'),
+    PARTITION p202501 VALUES LESS THAN ('2025-02-01'),
+    PARTITION p202502 VALUES LESS THAN ('2025-03-01'),
+    PARTITION p202503 VALUES LESS THAN ('2025-04-01'),
+    PARTITION p202504 VALUES LESS THAN ('2025-05-01'),
+    PARTITION p202505 VALUES LESS THAN ('2025-06-01'),
+    PARTITION p202506 VALUES LESS THAN ('2025-07-01'),
+    PARTITION p202507 VALUES LESS THAN ('2025-08-01'),
+    PARTITION p202508 VALUES LESS THAN ('2025-09-01'),
+    PARTITION p202509 VALUES LESS THAN ('2025-10-01'),
+    PARTITION p202510 VALUES LESS THAN ('2025-11-01'),
+    PARTITION p202511 VALUES LESS THAN ('2025-12-01'),
+    PARTITION p202512 VALUES LESS THAN ('2026-01-01'),
+    PARTITION p202601 VALUES LESS THAN ('2026-02-01'),
+    PARTITION p202602 VALUES LESS THAN ('2026-03-01'),
+    PARTITION p202603 VALUES LESS THAN ('2026-04-01'),
+    PARTITION p202604 VALUES LESS THAN ('2026-05-01'),
+    PARTITION p202605 VALUES LESS THAN ('2026-06-01'),
+    PARTITION p202606 VALUES LESS THAN ('2026-07-01'),
+    PARTITION p202607 VALUES LESS THAN ('2026-08-01'),
+    PARTITION p202608 VALUES LESS THAN ('2026-09-01'),
+    PARTITION p202609 VALUES LESS THAN ('2026-10-01'),
+    PARTITION p202610 VALUES LESS THAN ('2026-11-01'),
+    PARTITION p202611 VALUES LESS THAN ('2026-12-01'),
+    PARTITION p202612 VALUES LESS THAN ('2027-01-01'),
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
@@ -0,0 +1,19 @@
+-- Migration d'une base existante : QR codes déplacés de employees.qr_code vers employee_qr_codes
+USE gestion_presence;
+
+CREATE TABLE employee_qr_codes (
+    employee_id BIGINT PRIMARY KEY,
+    image MEDIUMBLOB NOT NULL,
+    etag VARCHAR(64) NOT NULL,
+    date_generation DATETIME,
+    FOREIGN KEY (employee_id) REFERENCES employees(id) ON DELETE CASCADE
+);
+
+ALTER TABLE employees ADD COLUMN qr_code_etag VARCHAR(64);
+
+INSERT INTO employee_qr_codes (employee_id, image, etag, date_generation)
+SELECT id, qr_code, SHA2(qr_code, 256), NOW() FROM employees WHERE qr_code IS NOT NULL;
+
+UPDATE employees e JOIN employee_qr_codes q ON q.employee_id = e.id SET e.qr_code_etag = q.etag;
+
+ALTER TABLE employees DROP COLUMN qr_code;
@@ -0,0 +1,26 @@
+-- Migration d'une base existante : résumés journaliers (compaction des pointages)
+-- Remplissage des mois existants : POST /api/presences/resumes/recompacter?mois=AAAA-MM-01
+-- pour chaque mois, après la réconciliation des agrégats
+USE gestion_presence;
+
+ALTER TABLE agregats_presence ADD COLUMN jours_a_compacter INT NOT NULL DEFAULT 0;
+
+CREATE TABLE resumes_journaliers (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    employee_id BIGINT NOT NULL,
+    jour DATE NOT NULL,
+    premiere_entree TIME,
+    derniere_sortie TIME,
+    minutes_travaillees INT NOT NULL DEFAULT 0,
+    minutes_retard INT NOT NULL DEFAULT 0,
+    minutes_supplementaires INT NOT NULL DEFAULT 0,
+    nombre_sessions INT NOT NULL DEFAULT 0,
+    pointages_orphelins INT NOT NULL DEFAULT 0,
+    session_ouverte BOOLEAN NOT NULL DEFAULT FALSE,
+    absent BOOLEAN NOT NULL DEFAULT FALSE,
+    date_compaction DATETIME,
+    CONSTRAINT uk_resumes_employee_jour UNIQUE (employee_id, jour),
+    FOREIGN KEY (employee_id) REFERENCES employees(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_resumes_jour ON resumes_journaliers(jour);
@@ -0,0 +1,213 @@
+package com.gestionpresence.repository;
+
+import com.gestionpresence.repository.archive.ArchivesDonnees;
+import com.gestionpresence.service.IndexMatricules;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Régression des plans d'exécution : chaque requête sur presences, telle que générée par
+ * Hibernate ou écrite en JDBC, est passée à EXPLAIN sur le schéma créé depuis les entités
+ * (@Index de Presence). Le test échoue dès qu'une requête parcourt la table entière.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ IndexMatricules.class, ArchivesDonnees.class, SimpleMeterRegistry.class,
+        PresenceRepositoryPlansTest.Capture.class })
+class PresenceRepositoryPlansTest {
+
+    // Accès à la table presences dans le plan H2 : "PUBLIC"."PRESENCES" alias /* index */
+    private static final Pattern ACCES_PRESENCES = Pattern.compile(
+            "\"PUBLIC\"\\.\"PRESENCES\"( \"?\\w+\"?)?\\s+/\\* PUBLIC\\.([\\w.]+)");
+
+    private static final LocalDateTime DEBUT = LocalDateTime.of(2026, 3, 1, 0, 0);
+    private static final LocalDateTime FIN = LocalDateTime.of(2026, 4, 1, 0, 0);
+
+    @Autowired
+    private PresenceRepository presenceRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void requetesParEmployeEtIntervalle() {
+        verifier("findByEmployeeId", () -> presenceRepository.findByEmployeeId(1L));
+        verifier("findByEmployeeIdAndIntervalleEnBase",
+                () -> presenceRepository.findByEmployeeIdAndIntervalleEnBase(1L, DEBUT, FIN));
+        verifier("countByEmployeeAndTypeAndIntervalle",
+                () -> presenceRepository.countByEmployeeAndTypeAndIntervalle(1L, "ENTREE", DEBUT, FIN));
+        verifier("findPointagesByEmployeeIdAndIntervalleEnBase",
+                () -> presenceRepository.findPointagesByEmployeeIdAndIntervalleEnBase(1L, DEBUT, FIN));
+        verifier("findPointagesByEmployeeIdsAndIntervalleEnBase",
+                () -> presenceRepository.findPointagesByEmployeeIdsAndIntervalleEnBase(List.of(1L, 2L), DEBUT, FIN));
+        verifier("findDerniersPointages",
+                () -> presenceRepository.findDerniersPointages(1L, DEBUT, FIN, PageRequest.ofSize(2)));
+        verifier("findPageByEmployeeIdEnBase",
+                () -> presenceRepository.findPageByEmployeeIdEnBase(1L, DEBUT, 0L, PageRequest.ofSize(50)));
+        verifier("findDTOByEmployeeIdEnBase", () -> presenceRepository.findDTOByEmployeeIdEnBase(1L));
+        verifier("streamDTOByEmployeeIdEnBase", () -> {
+            try (Stream<?> flux = presenceRepository.streamDTOByEmployeeIdEnBase(1L)) {
+                flux.forEach(ligne -> { });
+            }
+        });
+    }
+
+    @Test
+    void requetesParIntervalle() {
+        verifier("findByIntervalle", () -> presenceRepository.findByIntervalle(DEBUT, FIN));
+        verifier("findPremierPointage", () -> presenceRepository.findPremierPointage());
+        verifier("findEmployeeIdsSansEntreeNette",
+                () -> presenceRepository.findEmployeeIdsSansEntreeNette(DEBUT, FIN));
+        verifier("streamPointagesByIntervalleEnBase", () -> {
+            try (Stream<?> flux = presenceRepository.streamPointagesByIntervalleEnBase(DEBUT, FIN)) {
+                flux.forEach(ligne -> { });
+            }
+        });
+        verifier("findPageByIntervalleEnBase",
+                () -> presenceRepository.findPageByIntervalleEnBase(FIN, DEBUT, 0L, PageRequest.ofSize(50)));
+        verifier("findDTOByIntervalleEnBase", () -> presenceRepository.findDTOByIntervalleEnBase(DEBUT, FIN));
+        verifier("streamDTOByIntervalleEnBase", () -> {
+            try (Stream<?> flux = presenceRepository.streamDTOByIntervalleEnBase(DEBUT, FIN)) {
+                flux.forEach(ligne -> { });
+            }
+        });
+    }
+
+    @Test
+    void requetesDeDeduplicationEtDArchivage() {
+        verifier("findClesDeduplicationExistantes",
+                () -> presenceRepository.findClesDeduplicationExistantes(List.of("a", "b"), DEBUT, FIN));
+        verifier("findArchivablesApres", () -> presenceRepository.findArchivablesApres(DEBUT, FIN, null, 100));
+        verifier("findArchivablesParEmployeApres",
+                () -> presenceRepository.findArchivablesParEmployeApres(DEBUT, FIN, null, 100));
+    }
+
+    /**
+     * Exécute la requête en capturant son SQL, puis vérifie le plan de chaque ordre sur presences
+     */
+    private void verifier(String requete, Runnable execution) {
+        entityManager.flush();
+        List<String> ordres = Capture.pendant(execution);
+        List<String> surPresences = new ArrayList<>();
+        for (String sql : ordres) {
+            if (sql.toLowerCase(Locale.ROOT).matches("(?s)\\s*select\\b.*\\bpresences\\b.*")) {
+                surPresences.add(sql);
+            }
+        }
+        assertThat(surPresences).as("SQL de %s", requete).isNotEmpty();
+        for (String sql : surPresences) {
+            String plan = expliquer(sql);
+            assertThat(plan).as("plan de %s :%n%s", requete, plan)
+                    .doesNotContain("PRESENCES.tableScan")
+                    .containsPattern(ACCES_PRESENCES);
+            assertThat(ACCES_PRESENCES.matcher(plan).results())
+                    .as("index de presences dans le plan de %s :%n%s", requete, plan)
+                    .allSatisfy(acces -> assertThat(acces.group(2)).matches("(IDX|UK)_PRESENCES_\\w+|PRIMARY_KEY_\\w+"));
+        }
+    }
+
+    /**
+     * EXPLAIN avec des paramètres non renseignés : H2 choisit l'index sur la forme de la requête
+     */
+    private String expliquer(String sql) {
+        try (Connection connexion = dataSource.getConnection();
+             PreparedStatement explain = connexion.prepareStatement("EXPLAIN " + sql)) {
+            int parametres = explain.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parametres; i++) {
+                explain.setNull(i, Types.NULL);
+            }
+            try (ResultSet plan = explain.executeQuery()) {
+                plan.next();
+                return plan.getString(1);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("EXPLAIN impossible : " + sql, e);
+        }
+    }
+
+    /**
+     * Enveloppe la source de données pour relever le SQL préparé (Hibernate et JdbcTemplate)
+     */
+    @TestConfiguration
+    static class Capture {
+
+        private static final ThreadLocal<List<String>> ORDRES = new ThreadLocal<>();
+
+        static List<String> pendant(Runnable execution) {
+            List<String> ordres = new ArrayList<>();
+            ORDRES.set(ordres);
+            try {
+                execution.run();
+            } finally {
+                ORDRES.remove();
+            }
+            return ordres;
+        }
+
+        @Bean
+        static BeanPostProcessor captureSql() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String nom) {
+                    if (!(bean instanceof DataSource) || bean instanceof DelegatingDataSource) {
+                        return bean;
+                    }
+                    return new DelegatingDataSource((DataSource) bean) {
+                        @Override
+                        public Connection getConnection() throws SQLException {
+                            return capturer(super.getConnection());
+                        }
+                    };
+                }
+            };
+        }
+
+        private static Connection capturer(Connection connexion) {
+            return (Connection) Proxy.newProxyInstance(Capture.class.getClassLoader(), new Class<?>[] { Connection.class },
+                    (proxy, methode, arguments) -> {
+                        List<String> ordres = ORDRES.get();
+                        if (ordres != null && methode.getName().startsWith("prepare") && arguments != null
+                                && arguments[0] instanceof String) {
+                            ordres.add((String) arguments[0]);
+                        }
+                        try {
+                            return methode.invoke(connexion, arguments);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
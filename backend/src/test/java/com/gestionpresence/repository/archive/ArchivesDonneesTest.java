@@ -0,0 +1,118 @@
+package com.gestionpresence.repository.archive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lecture des archives : fusion des segments d'un mois (archivage repris après une
+ * interruption) et fusion des lignes archivées avec celles encore en base
+ */
+class ArchivesDonneesTest {
+
+    private static final YearMonth JANVIER = YearMonth.of(2024, 1);
+    private static final YearMonth FEVRIER = YearMonth.of(2024, 2);
+
+    private static final Comparator<PointageArchive> PAR_DATE =
+            Comparator.comparing(PointageArchive::getDateHeurePointage).thenComparing(PointageArchive::getId);
+
+    @TempDir
+    Path dossier;
+
+    private ArchivesDonnees archives;
+
+    @BeforeEach
+    void initialiser() {
+        archives = new ArchivesDonnees();
+        ReflectionTestUtils.setField(archives, "repertoire", dossier.toString());
+        ReflectionTestUtils.setField(archives, "specCache", "maximumSize=12");
+        archives.initialiser();
+    }
+
+    @Test
+    void segmentsChevauchantsRelusUneSeuleFois() {
+        // Premier passage publié mais suppression interrompue après 1 et 2 : le second passage
+        // réexporte 3 et 4 avec les lignes arrivées depuis
+        archives.ecrire(ArchivesDonnees.PRESENCES, JANVIER, pointages(JANVIER, 1, 4));
+        archives.ecrire(ArchivesDonnees.PRESENCES, JANVIER, pointages(JANVIER, 3, 6));
+        archives.ecrire(ArchivesDonnees.PRESENCES, FEVRIER, pointages(FEVRIER, 7, 8));
+
+        assertEquals(10, archives.lire(ArchivesDonnees.PRESENCES, JANVIER, PointageArchive.class).size()
+                + archives.lire(ArchivesDonnees.PRESENCES, FEVRIER, PointageArchive.class).size());
+        for (boolean moisParMois : new boolean[] { true, false }) {
+            assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L), ids(moisParMois), "moisParMois=" + moisParMois);
+        }
+        // Mois non demandé : ses segments ne sont pas ouverts
+        try (Stream<PointageArchive> lignes = archives.parcourir(ArchivesDonnees.PRESENCES,
+                new TreeSet<>(List.of(FEVRIER)), PointageArchive.class, PAR_DATE, true)) {
+            assertEquals(List.of(7L, 8L), lignes.map(PointageArchive::getId).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void ligneArchiveeEtEnBaseRenvoyeeUneFois() {
+        // 2 et 3 archivées mais pas encore supprimées de la base, 4 arrivée après l'export
+        archives.ecrire(ArchivesDonnees.PRESENCES, JANVIER, pointages(JANVIER, 1, 3));
+        List<PointageArchive> enBase = pointages(JANVIER, 2, 4).collect(Collectors.toList());
+        AtomicBoolean archivesFermees = new AtomicBoolean();
+        AtomicBoolean baseFermee = new AtomicBoolean();
+
+        List<PointageArchive> lignes;
+        try (Stream<PointageArchive> fusion = ArchivesDonnees.fusionner(
+                archives.parcourir(ArchivesDonnees.PRESENCES, archives.moisArchives(ArchivesDonnees.PRESENCES, null, null),
+                        PointageArchive.class, PAR_DATE, true).onClose(() -> archivesFermees.set(true)),
+                enBase.stream().onClose(() -> baseFermee.set(true)), PAR_DATE)) {
+            lignes = fusion.collect(Collectors.toList());
+        }
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), lignes.stream().map(PointageArchive::getId).collect(Collectors.toList()));
+        // La ligne en base l'emporte sur sa copie archivée
+        assertSame(enBase.get(0), lignes.get(1));
+        assertSame(enBase.get(1), lignes.get(2));
+        assertTrue(archivesFermees.get(), "flux des archives non fermé");
+        assertTrue(baseFermee.get(), "flux en base non fermé");
+    }
+
+    @Test
+    void sansArchiveLaBaseEstRenvoyeeTelleQuelle() {
+        List<PointageArchive> enBase = pointages(JANVIER, 1, 2).collect(Collectors.toList());
+        try (Stream<PointageArchive> fusion = ArchivesDonnees.fusionner(Stream.empty(), enBase.stream(), PAR_DATE)) {
+            assertEquals(enBase, fusion.collect(Collectors.toList()));
+        }
+    }
+
+    private List<Long> ids(boolean moisParMois) {
+        try (Stream<PointageArchive> lignes = archives.parcourir(ArchivesDonnees.PRESENCES,
+                archives.moisArchives(ArchivesDonnees.PRESENCES, null, null), PointageArchive.class, PAR_DATE,
+                moisParMois)) {
+            return lignes.map(PointageArchive::getId).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Pointages d'identifiants premier..dernier, un par jour du mois dans l'ordre des identifiants
+     */
+    private static Stream<PointageArchive> pointages(YearMonth mois, long premier, long dernier) {
+        return LongStream.rangeClosed(premier, dernier).mapToObj(id -> PointageArchive.builder()
+                .id(id)
+                .employeeId(1 + id % 2)
+                .dateHeurePointage(mois.atDay((int) id).atTime(9, 0))
+                .typePointage("ENTREE")
+                .build());
+    }
+}
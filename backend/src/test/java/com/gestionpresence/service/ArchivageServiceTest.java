@@ -0,0 +1,100 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.repository.archive.ArchivesDonnees;
+import com.gestionpresence.repository.archive.PointageArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Archivage des pointages d'un mois clos : seules les lignes exportées sont supprimées de la
+ * base, une ligne arrivée pendant l'export part dans le segment du passage suivant
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "app.archivage.taille-lot=2")
+@ActiveProfiles("test")
+class ArchivageServiceTest {
+
+    private static final YearMonth JANVIER = YearMonth.of(2024, 1);
+    private static final YearMonth FEVRIER = YearMonth.of(2024, 2);
+
+    @TempDir
+    static Path dossier;
+
+    @Autowired
+    private ArchivageService archivageService;
+
+    @SpyBean
+    private ArchivesDonnees archives;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void repertoireArchives(DynamicPropertyRegistry proprietes) {
+        proprietes.add("app.archivage.repertoire", () -> dossier.toString());
+    }
+
+    @Test
+    void seulesLesLignesExporteesSontSupprimees() {
+        jdbcTemplate.update("INSERT INTO employees (id, matricule, nom, prenom, email, poste, salaire_base) " +
+                "VALUES (1, 'M1', 'Nom1', 'Prenom1', 'employe1@test.local', 'Atelier', 3000)");
+        for (long id = 1; id <= 5; id++) {
+            inserer(id, JANVIER.atDay((int) id).atTime(9, 0));
+        }
+        inserer(6, FEVRIER.atDay(1).atTime(9, 0));
+        // Pointage de janvier arrivé entre l'export principal et celui de la vue par employé
+        AtomicBoolean arrive = new AtomicBoolean();
+        doAnswer(appel -> {
+            if (arrive.compareAndSet(false, true)) {
+                inserer(7, JANVIER.atDay(3).atTime(8, 0));
+            }
+            return appel.callRealMethod();
+        }).when(archives).preparer(eq(ArchivesDonnees.PRESENCES_PAR_EMPLOYE), any(), any());
+
+        assertEquals(5, archivageService.archiverPresences(FEVRIER));
+
+        assertEquals(List.of(6L, 7L), idsEnBase());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), idsArchives(ArchivesDonnees.PRESENCES));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), idsArchives(ArchivesDonnees.PRESENCES_PAR_EMPLOYE));
+
+        // Passage suivant : la ligne restée en base rejoint un nouveau segment du mois
+        assertEquals(1, archivageService.archiverPresences(FEVRIER));
+
+        assertEquals(List.of(6L), idsEnBase());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 7L), idsArchives(ArchivesDonnees.PRESENCES));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 7L), idsArchives(ArchivesDonnees.PRESENCES_PAR_EMPLOYE));
+    }
+
+    private void inserer(long id, LocalDateTime date) {
+        jdbcTemplate.update("INSERT INTO presences (id, employee_id, date_heure_pointage, type_pointage, retard, " +
+                "minutes_retard) VALUES (?, 1, ?, 'ENTREE', FALSE, 0)", id, Timestamp.valueOf(date));
+    }
+
+    private List<Long> idsEnBase() {
+        return jdbcTemplate.queryForList("SELECT id FROM presences ORDER BY id", Long.class);
+    }
+
+    private List<Long> idsArchives(String table) {
+        return archives.lire(table, JANVIER, PointageArchive.class).stream()
+                .map(PointageArchive::getId).sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,215 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.dto.RapportEnvoiBulletinsDTO;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Envoi en masse contre le serveur SMTP local : réutilisation des connexions, débit,
+ * report des destinataires refusés et reprise d'un passage interrompu
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "app.mail.envoi-masse.taille-lot=3",
+        "app.mail.envoi-masse.debit-par-seconde=" + EnvoiBulletinsServiceTest.DEBIT,
+        "app.mail.envoi-masse.rafale=" + EnvoiBulletinsServiceTest.RAFALE,
+        "app.mail.envoi-masse.messages-par-connexion=" + EnvoiBulletinsServiceTest.MESSAGES_PAR_CONNEXION,
+        "app.mail.envoi-masse.report-initial-s=" + EnvoiBulletinsServiceTest.REPORT_INITIAL_S,
+        "app.mail.envoi-masse.reconnexions=0"
+})
+@ActiveProfiles("test")
+class EnvoiBulletinsServiceTest {
+
+    static final int DEBIT = 20;
+    static final int RAFALE = 2;
+    static final int MESSAGES_PAR_CONNEXION = 4;
+    static final int REPORT_INITIAL_S = 60;
+
+    private static final LocalDate MOIS = LocalDate.of(2026, 3, 1);
+    private static final ServeurSmtpLocal SERVEUR = new ServeurSmtpLocal(0);
+
+    @Autowired
+    private EnvoiBulletinsService envoiBulletinsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void serveurSmtp(DynamicPropertyRegistry proprietes) {
+        proprietes.add("spring.mail.port", SERVEUR::getPort);
+    }
+
+    @AfterAll
+    static void arreterServeur() throws Exception {
+        SERVEUR.close();
+    }
+
+    @BeforeEach
+    void reinitialiser() {
+        jdbcTemplate.update("DELETE FROM bulletins_salaire");
+        jdbcTemplate.update("DELETE FROM employees");
+        SERVEUR.reinitialiser();
+    }
+
+    @Test
+    void connexionReutiliseeEtDebitRespecte() throws Exception {
+        int bulletins = 12;
+        creerBulletins(bulletins);
+
+        RapportEnvoiBulletinsDTO rapport = envoyer();
+
+        assertEquals(bulletins, rapport.getEnvoyes());
+        assertEquals(0, rapport.getEchecs());
+        assertEquals(bulletins, SERVEUR.getMessages());
+        // Une connexion par tranche de messages-par-connexion, pas une par message
+        int connexions = (bulletins + MESSAGES_PAR_CONNEXION - 1) / MESSAGES_PAR_CONNEXION;
+        assertEquals(connexions, SERVEUR.getConnexions());
+        assertEquals(connexions, rapport.getConnexionsSmtp());
+        assertEquals(bulletins, compter("envoye = TRUE"));
+
+        // Seau à jetons : au plus RAFALE + débit x durée messages sur toute fenêtre. Les messages
+        // qui ouvrent une connexion arrivent après l'établissement de celle-ci et sont exclus,
+        // 20 ms de marge pour la gigue de réception
+        List<ServeurSmtpLocal.Reception> receptions = SERVEUR.getReceptions();
+        for (int j = 1; j < bulletins; j++) {
+            for (int i = j + 1; i < bulletins; i++) {
+                if (j % MESSAGES_PAR_CONNEXION == 0 || i % MESSAGES_PAR_CONNEXION == 0) {
+                    continue;
+                }
+                long minimumMs = TimeUnit.SECONDS.toMillis(i - j + 1 - RAFALE) / DEBIT - 20;
+                long ecartMs = TimeUnit.NANOSECONDS.toMillis(receptions.get(i).nanos - receptions.get(j).nanos);
+                assertTrue(ecartMs >= minimumMs,
+                        "messages " + j + " à " + i + " reçus en " + ecartMs + " ms, attendu au moins " + minimumMs);
+            }
+        }
+        assertTrue(rapport.getDureeMs() >= TimeUnit.SECONDS.toMillis(bulletins - RAFALE) / DEBIT,
+                "passage de " + rapport.getDureeMs() + " ms");
+    }
+
+    @Test
+    void destinataireRefuseReporteSansPerdreLaConnexion() throws Exception {
+        creerBulletins(3);
+        SERVEUR.refuser(email(2));
+
+        LocalDateTime avant = LocalDateTime.now();
+        RapportEnvoiBulletinsDTO rapport = envoyer();
+        LocalDateTime apres = LocalDateTime.now();
+
+        assertEquals(2, rapport.getEnvoyes());
+        assertEquals(1, rapport.getEchecs());
+        assertEquals(List.of(email(1), email(3)), destinataires());
+        assertEquals(1, SERVEUR.getConnexions());
+
+        Map<String, Object> refuse = bulletin(2);
+        assertEquals(Boolean.FALSE, refuse.get("envoye"));
+        assertEquals(1, ((Number) refuse.get("tentatives_envoi")).intValue());
+        assertNotNull(refuse.get("derniere_erreur_envoi"));
+        LocalDateTime prochainEssai = ((Timestamp) refuse.get("prochain_essai_envoi")).toLocalDateTime();
+        assertFalse(prochainEssai.isBefore(avant.plusSeconds(REPORT_INITIAL_S)), "prochain essai " + prochainEssai);
+        assertFalse(prochainEssai.isAfter(apres.plusSeconds(REPORT_INITIAL_S)), "prochain essai " + prochainEssai);
+
+        for (long envoye : new long[] { 1, 3 }) {
+            assertEquals(Boolean.TRUE, bulletin(envoye).get("envoye"));
+            assertEquals(0, ((Number) bulletin(envoye).get("tentatives_envoi")).intValue());
+        }
+    }
+
+    @Test
+    void secondPassageNeReprendQueLesNonEnvoyes() throws Exception {
+        int bulletins = 10;
+        creerBulletins(bulletins);
+        // Relais indisponible après la première connexion : le passage s'arrête au 5e bulletin
+        SERVEUR.setConnexionsMax(1);
+
+        RapportEnvoiBulletinsDTO premier = envoyer();
+
+        assertEquals(MESSAGES_PAR_CONNEXION, premier.getEnvoyes());
+        assertEquals(1, premier.getEchecs());
+        assertEquals(emails(1, MESSAGES_PAR_CONNEXION), destinataires());
+        long interrompu = MESSAGES_PAR_CONNEXION + 1;
+        assertEquals(1, ((Number) bulletin(interrompu).get("tentatives_envoi")).intValue());
+
+        SERVEUR.reinitialiser();
+        RapportEnvoiBulletinsDTO second = envoyer();
+
+        // Ni les bulletins déjà envoyés ni celui en report ne sont renvoyés
+        assertEquals(bulletins - MESSAGES_PAR_CONNEXION - 1, second.getEnvoyes());
+        assertEquals(0, second.getEchecs());
+        assertEquals(emails(MESSAGES_PAR_CONNEXION + 2, bulletins), destinataires());
+        assertEquals(bulletins - 1, compter("envoye = TRUE"));
+        assertEquals(Boolean.FALSE, bulletin(interrompu).get("envoye"));
+        assertEquals(1, ((Number) bulletin(interrompu).get("tentatives_envoi")).intValue());
+    }
+
+    private RapportEnvoiBulletinsDTO envoyer() throws Exception {
+        envoiBulletinsService.lancer();
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        RapportEnvoiBulletinsDTO rapport;
+        while (!(rapport = envoiBulletinsService.getProgression()).isTerminee()) {
+            assertTrue(System.nanoTime() < limite, "envoi non terminé après 30 s");
+            Thread.sleep(5);
+        }
+        return rapport;
+    }
+
+    /**
+     * Employés et bulletins 1..nombre, l'id du bulletin égal à celui de l'employé
+     */
+    private void creerBulletins(int nombre) {
+        List<Object[]> employes = new ArrayList<>(nombre);
+        List<Object[]> bulletins = new ArrayList<>(nombre);
+        for (long id = 1; id <= nombre; id++) {
+            employes.add(new Object[]{ id, "M" + id, "Nom" + id, "Prenom" + id, email(id), "Atelier", 3000.0 });
+            bulletins.add(new Object[]{ id, id, Date.valueOf(MOIS), Date.valueOf(MOIS.withDayOfMonth(MOIS.lengthOfMonth())) });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO employees (id, matricule, nom, prenom, email, poste, salaire_base) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)", employes);
+        jdbcTemplate.batchUpdate("INSERT INTO bulletins_salaire (id, employee_id, periode_debut, periode_fin, salaire_base, " +
+                "jours_travailles, jours_absence, total_retards_minutes, heures_supplementaires, deduction_absences, " +
+                "deduction_retards, salaire_net, envoye, tentatives_envoi) " +
+                "VALUES (?, ?, ?, ?, 3000, 20, 1, 10, 0, 130, 20, 2850, FALSE, 0)", bulletins);
+    }
+
+    private Map<String, Object> bulletin(long id) {
+        return jdbcTemplate.queryForMap("SELECT envoye, tentatives_envoi, prochain_essai_envoi, derniere_erreur_envoi " +
+                "FROM bulletins_salaire WHERE id = ?", id);
+    }
+
+    private long compter(String condition) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bulletins_salaire WHERE " + condition, Long.class);
+    }
+
+    private static List<String> destinataires() {
+        return SERVEUR.getReceptions().stream().map(reception -> reception.destinataire).collect(Collectors.toList());
+    }
+
+    private static List<String> emails(int premier, int dernier) {
+        return IntStream.rangeClosed(premier, dernier).mapToObj(EnvoiBulletinsServiceTest::email).collect(Collectors.toList());
+    }
+
+    private static String email(long id) {
+        return "employe" + id + "@test.local";
+    }
+}
@@ -0,0 +1,176 @@
+package com.gestionpresence.service;
+
+import com.gestionpresence.model.Presence;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test différentiel du noyau PointagesMensuels contre l'analyse historique par jour
+ * (groupingBy puis un passage par indicateur), recopiée telle quelle ci-dessous
+ */
+class PointagesMensuelsTest {
+
+    private static final LocalTime DEBUT_TRAVAIL = LocalTime.of(9, 0);
+    private static final LocalTime FIN_TRAVAIL = LocalTime.of(17, 0);
+    private static final String[] TYPES = { "ENTREE", "SORTIE", "ENTREE", "SORTIE", "ABSENT", "INCONNU", null };
+
+    // Les heures supplémentaires historiques sont une somme de minutes / 60.0 par pointage,
+    // le noyau divise la somme des minutes : seuls les derniers bits de la mantisse diffèrent
+    private static final double TOLERANCE_HEURES = 1e-9;
+
+    private static final int MOIS_PAR_CAS = 2_000;
+
+    @Test
+    void moisTriesIdentiquesAAnalyseHistorique() {
+        comparer(new Random(3), false);
+    }
+
+    @Test
+    void moisNonTriesIdentiquesAAnalyseHistorique() {
+        comparer(new Random(5), true);
+    }
+
+    @Test
+    void moisVideSansJourTravaille() {
+        PointagesMensuels.Bilan bilan = analyser(new PointagesMensuels(), Collections.emptySet());
+
+        assertEquals(0, bilan.getJoursTravailles());
+        assertEquals(0, bilan.getTotalRetardsMinutes());
+        assertEquals(0.0, bilan.getHeuresSupplementaires());
+    }
+
+    @Test
+    void pointagesALaSecondeArrondisALaMinute() {
+        LocalDate lundi = LocalDate.of(2026, 3, 2);
+        List<Presence> presences = List.of(
+                presence(lundi.atTime(9, 0, 59, 999_999_999), "ENTREE"),
+                presence(lundi.atTime(9, 1, 0, 1), "ENTREE"),
+                presence(lundi.atTime(17, 0, 30), "SORTIE"),
+                presence(lundi.atTime(17, 2, 59), "SORTIE"));
+
+        PointagesMensuels.Bilan bilan = analyser(PointagesMensuels.depuis(presences), Collections.emptySet());
+        Reference attendu = Reference.analyser(presences, Collections.emptySet());
+
+        assertEquals(1, bilan.getTotalRetardsMinutes());
+        assertEquals(attendu.retardsMinutes, bilan.getTotalRetardsMinutes());
+        assertEquals(attendu.heuresSupplementaires, bilan.getHeuresSupplementaires(), TOLERANCE_HEURES);
+    }
+
+    private static void comparer(Random aleatoire, boolean melanger) {
+        for (int cas = 0; cas < MOIS_PAR_CAS; cas++) {
+            YearMonth mois = YearMonth.of(2020 + aleatoire.nextInt(10), 1 + aleatoire.nextInt(12));
+            List<Presence> presences = moisAleatoire(aleatoire, mois);
+            if (melanger) {
+                Collections.shuffle(presences, aleatoire);
+            } else {
+                presences.sort(Comparator.comparing(Presence::getDateHeurePointage));
+            }
+            Set<LocalDate> feries = new HashSet<>();
+            for (int i = aleatoire.nextInt(3); i > 0; i--) {
+                feries.add(mois.atDay(1 + aleatoire.nextInt(mois.lengthOfMonth())));
+            }
+
+            Reference attendu = Reference.analyser(presences, feries);
+            PointagesMensuels.Bilan bilan = analyser(PointagesMensuels.depuis(presences), feries);
+
+            String contexte = "cas " + cas + " (" + mois + ", " + presences.size() + " pointages)";
+            assertEquals(attendu.joursTravailles, bilan.getJoursTravailles(), contexte);
+            assertEquals(attendu.retardsMinutes, bilan.getTotalRetardsMinutes(), contexte);
+            assertEquals(attendu.heuresSupplementaires, bilan.getHeuresSupplementaires(), TOLERANCE_HEURES, contexte);
+        }
+    }
+
+    /**
+     * Pointages du mois à la nanoseconde près, y compris les types ABSENT et inconnus
+     */
+    private static List<Presence> moisAleatoire(Random aleatoire, YearMonth mois) {
+        int nombre = aleatoire.nextInt(5) == 0 ? aleatoire.nextInt(3) : aleatoire.nextInt(120);
+        List<Presence> presences = new ArrayList<>(nombre);
+        for (int i = 0; i < nombre; i++) {
+            LocalDateTime dateHeure = mois.atDay(1 + aleatoire.nextInt(mois.lengthOfMonth()))
+                    .atTime(aleatoire.nextInt(24), aleatoire.nextInt(60), aleatoire.nextInt(60),
+                            aleatoire.nextBoolean() ? 0 : aleatoire.nextInt(1_000_000_000));
+            presences.add(presence(dateHeure, TYPES[aleatoire.nextInt(TYPES.length)]));
+        }
+        return presences;
+    }
+
+    private static Presence presence(LocalDateTime dateHeure, String type) {
+        return new Presence(null, dateHeure, type);
+    }
+
+    private static PointagesMensuels.Bilan analyser(PointagesMensuels pointages, Set<LocalDate> feries) {
+        return pointages.analyser(DEBUT_TRAVAIL.toSecondOfDay() / 60, FIN_TRAVAIL.toSecondOfDay() / 60,
+                jour -> feries.contains(LocalDate.ofEpochDay(jour)));
+    }
+
+    /**
+     * Analyse de CalculSalaireService avant PointagesMensuels
+     */
+    private static final class Reference {
+        private int joursTravailles;
+        private int retardsMinutes;
+        private double heuresSupplementaires;
+
+        static Reference analyser(List<Presence> presences, Set<LocalDate> feries) {
+            Map<LocalDate, List<Presence>> presencesParJour = presences.stream()
+                    .collect(Collectors.groupingBy(p -> p.getDateHeurePointage().toLocalDate()));
+
+            Reference reference = new Reference();
+            reference.joursTravailles = (int) presencesParJour.entrySet().stream()
+                    .filter(entry -> !estWeekend(entry.getKey()) && !feries.contains(entry.getKey())
+                            && entry.getValue().stream().anyMatch(p -> "ENTREE".equals(p.getTypePointage())))
+                    .count();
+            reference.retardsMinutes = presencesParJour.values().stream()
+                    .mapToInt(jour -> jour.stream()
+                            .filter(p -> "ENTREE".equals(p.getTypePointage()))
+                            .mapToInt(Reference::retard)
+                            .sum())
+                    .sum();
+            reference.heuresSupplementaires = presencesParJour.entrySet().stream()
+                    .filter(entry -> !estWeekend(entry.getKey()))
+                    .mapToDouble(entry -> entry.getValue().stream()
+                            .filter(p -> "SORTIE".equals(p.getTypePointage()))
+                            .mapToDouble(p -> {
+                                LocalDateTime heureFinNormale = entry.getKey().atTime(FIN_TRAVAIL);
+                                if (p.getDateHeurePointage().isAfter(heureFinNormale)) {
+                                    return ChronoUnit.MINUTES.between(heureFinNormale, p.getDateHeurePointage()) / 60.0;
+                                }
+                                return 0;
+                            })
+                            .sum())
+                    .sum();
+            return reference;
+        }
+
+        private static int retard(Presence presence) {
+            LocalDateTime heurePointage = presence.getDateHeurePointage();
+            LocalDateTime heureNormale = heurePointage.toLocalDate().atTime(DEBUT_TRAVAIL);
+            if (heurePointage.isAfter(heureNormale)) {
+                return (int) ChronoUnit.MINUTES.between(heureNormale, heurePointage);
+            }
+            return 0;
+        }
+
+        private static boolean estWeekend(LocalDate date) {
+            return date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.gestionpresence.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serveur SMTP minimal en mémoire (EHLO, MAIL, RCPT, DATA, RSET, NOOP, QUIT) : accepte
+ * tout et compte messages et connexions, pour exercer l'envoi en masse sans relais réel.
+ * Les tests peuvent refuser des destinataires (550) et borner le nombre de connexions
+ * acceptées (421 à l'accueil au-delà).
+ */
+final class ServeurSmtpLocal implements AutoCloseable {
+
+    private final ServerSocket socket;
+    private final ExecutorService sessions = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "ServeurSmtpLocal");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger messages = new AtomicInteger();
+    private final AtomicInteger connexions = new AtomicInteger();
+    private final Set<String> refuses = ConcurrentHashMap.newKeySet();
+    private final List<Reception> receptions = new ArrayList<>();
+    private volatile int connexionsMax = Integer.MAX_VALUE;
+
+    /**
+     * Message accepté : destinataire et instant de fin du DATA (System.nanoTime)
+     */
+    static final class Reception {
+        final String destinataire;
+        final long nanos;
+
+        Reception(String destinataire, long nanos) {
+            this.destinataire = destinataire;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * @param port port d'écoute, 0 pour un port libre (voir getPort)
+     */
+    ServeurSmtpLocal(int port) {
+        try {
+            socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        sessions.execute(this::accepter);
+    }
+
+    int getPort() {
+        return socket.getLocalPort();
+    }
+
+    int getMessages() {
+        return messages.get();
+    }
+
+    int getConnexions() {
+        return connexions.get();
+    }
+
+    synchronized List<Reception> getReceptions() {
+        return new ArrayList<>(receptions);
+    }
+
+    /**
+     * Les RCPT TO vers cette adresse reçoivent 550
+     */
+    void refuser(String adresse) {
+        refuses.add(adresse.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Au-delà de max connexions acceptées, les suivantes reçoivent 421 et sont fermées
+     */
+    void setConnexionsMax(int max) {
+        connexionsMax = max;
+    }
+
+    /**
+     * Remet compteurs, refus et limite de connexions à zéro
+     */
+    synchronized void reinitialiser() {
+        messages.set(0);
+        connexions.set(0);
+        refuses.clear();
+        receptions.clear();
+        connexionsMax = Integer.MAX_VALUE;
+    }
+
+    private void accepter() {
+        while (!socket.isClosed()) {
+            try {
+                Socket client = socket.accept();
+                sessions.execute(() -> dialoguer(client));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void dialoguer(Socket client) {
+        try (client;
+             BufferedReader entree = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+             OutputStream sortie = client.getOutputStream()) {
+            if (connexions.get() >= connexionsMax) {
+                repondre(sortie, "421 localhost Service indisponible");
+                return;
+            }
+            connexions.incrementAndGet();
+            repondre(sortie, "220 localhost SMTP");
+            String destinataire = null;
+            String ligne;
+            while ((ligne = entree.readLine()) != null) {
+                String commande = ligne.length() >= 4 ? ligne.substring(0, 4).toUpperCase() : ligne.toUpperCase();
+                switch (commande) {
+                    case "EHLO":
+                        repondre(sortie, "250-localhost\r\n250 8BITMIME");
+                        break;
+                    case "RCPT":
+                        String adresse = adresse(ligne);
+                        if (refuses.contains(adresse)) {
+                            repondre(sortie, "550 5.1.1 Destinataire inconnu");
+                        } else {
+                            destinataire = adresse;
+                            repondre(sortie, "250 OK");
+                        }
+                        break;
+                    case "RSET":
+                        destinataire = null;
+                        repondre(sortie, "250 OK");
+                        break;
+                    case "DATA":
+                        repondre(sortie, "354 Fin par <CRLF>.<CRLF>");
+                        while ((ligne = entree.readLine()) != null && !ligne.equals(".")) {
+                            // corps ignoré
+                        }
+                        recevoir(destinataire);
+                        destinataire = null;
+                        repondre(sortie, "250 OK");
+                        break;
+                    case "QUIT":
+                        repondre(sortie, "221 Au revoir");
+                        return;
+                    default:
+                        repondre(sortie, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            // client déconnecté
+        }
+    }
+
+    private synchronized void recevoir(String destinataire) {
+        receptions.add(new Reception(destinataire, System.nanoTime()));
+        messages.incrementAndGet();
+    }
+
+    private static String adresse(String rcpt) {
+        int debut = rcpt.indexOf('<');
+        int fin = rcpt.indexOf('>', debut + 1);
+        String adresse = debut >= 0 && fin > debut ? rcpt.substring(debut + 1, fin) : rcpt.substring(rcpt.indexOf(':') + 1);
+        return adresse.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static void repondre(OutputStream sortie, String reponse) throws IOException {
+        sortie.write((reponse + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        sortie.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        sessions.shutdownNow();
+    }
+}